@@ -25,6 +25,7 @@ import com.google.api.gax.rpc.UnaryCallable;
 import com.google.cloud.bigtable.data.v2.models.BulkMutation;
 import com.google.cloud.bigtable.data.v2.models.InstanceName;
 import com.google.cloud.bigtable.data.v2.models.BulkMutationBatcher;
+import com.google.cloud.bigtable.data.v2.models.BulkReadRowsBatcher;
 import com.google.cloud.bigtable.data.v2.models.ConditionalRowMutation;
 import com.google.cloud.bigtable.data.v2.models.KeyOffset;
 import com.google.cloud.bigtable.data.v2.models.Query;
@@ -166,6 +167,32 @@ public class BigtableDataClient implements AutoCloseable {
     return readRowsCallable().first().futureCall(Query.create(tableId).rowKey(rowKey));
   }
 
+  /**
+   * Reads many single rows with automatic batching. Concurrent reads of the same table with the
+   * same filter are combined into a single ReadRows RPC, which is more efficient than issuing a
+   * {@link #readRowAsync(String, ByteString)} for each row. If a row does not exist, its future's
+   * value will be null.
+   *
+   * <p>Sample code:
+   *
+   * <pre>{@code
+   * InstanceName instanceName = InstanceName.of("[PROJECT]", "[INSTANCE]");
+   * try (BigtableClient bigtableClient = BigtableClient.create(instanceName)) {
+   *   List<ApiFuture<Row>> results = new ArrayList<>();
+   *   try (BulkReadRowsBatcher batcher = bigtableClient.newBulkReadRowsBatcher()) {
+   *     for (String key : someKeys) {
+   *       results.add(batcher.add("[TABLE]", key));
+   *     }
+   *   }
+   *   // After `batcher` is closed, all reads have been resolved
+   * }
+   * }</pre>
+   */
+  @BetaApi("This surface is likely to change as the batching surface evolves.")
+  public BulkReadRowsBatcher newBulkReadRowsBatcher() {
+    return new BulkReadRowsBatcher(stub.bulkReadRowsBatchingCallable());
+  }
+
   /**
    * Convenience method for synchronous streaming the results of a {@link Query}.
    *
@@ -296,6 +323,97 @@ public class BigtableDataClient implements AutoCloseable {
     return stub.createReadRowsCallable(rowAdapter);
   }
 
+  /**
+   * Convenience method for reading the results of a {@link Query} with up to {@code parallelism}
+   * concurrent streams. The query is split at the row keys returned by {@link
+   * #sampleRowKeysAsync(String)}, and the rows of each shard are merged back in key order. This is
+   * meant for large scans, such as full table exports. Queries with a row limit are read with a
+   * single stream.
+   *
+   * <p>Sample code:
+   *
+   * <pre>{@code
+   * InstanceName instanceName = InstanceName.of("[PROJECT]", "[INSTANCE]");
+   * try (BigtableClient bigtableClient = BigtableClient.create(instanceName)) {
+   *   String tableId = "[TABLE]";
+   *
+   *   for(Row row : bigtableClient.readRowsParallel(Query.create(tableId), 8)) {
+   *     // Do something with row
+   *   }
+   * }
+   * }</pre>
+   *
+   * @see #readRowsParallelCallable(int, boolean)
+   */
+  @BetaApi("This surface is likely to change as parallel reads evolve.")
+  public ServerStream<Row> readRowsParallel(Query query, int parallelism) {
+    return readRowsParallelCallable(parallelism, true).call(query);
+  }
+
+  /**
+   * Convenience method for asynchronously streaming the results of a {@link Query} with up to
+   * {@code parallelism} concurrent streams. Rows are delivered as soon as they arrive, so they are
+   * only in key order within each of the shards that the query is split into.
+   *
+   * <p>Sample code:
+   *
+   * <pre>{@code
+   * InstanceName instanceName = InstanceName.of("[PROJECT]", "[INSTANCE]");
+   * try (BigtableClient bigtableClient = BigtableClient.create(instanceName)) {
+   *   String tableId = "[TABLE]";
+   *
+   *   client.readRowsParallelAsync(Query.create(tableId), 8, new ResponseObserver<Row>() {
+   *     public void onStart(StreamController controller) { }
+   *     public void onResponse(Row response) {
+   *       // Do something with Row
+   *     }
+   *     public void onError(Throwable t) {
+   *       // Handle error before the stream completes
+   *     }
+   *     public void onComplete() {
+   *       // Handle stream completion
+   *     }
+   *   });
+   * }
+   * }</pre>
+   *
+   * @see #readRowsParallelCallable(int, boolean)
+   */
+  @BetaApi("This surface is likely to change as parallel reads evolve.")
+  public void readRowsParallelAsync(Query query, int parallelism, ResponseObserver<Row> observer) {
+    readRowsParallelCallable(parallelism, false).call(query, observer);
+  }
+
+  /**
+   * Streams back the results of the query with up to {@code parallelism} concurrent ReadRows
+   * streams, each of which is resumed on its own after a failure. Each shard buffers a bounded
+   * number of rows that haven't been consumed yet. If {@code ordered} is set, rows are returned in
+   * key order, otherwise as soon as they arrive.
+   *
+   * <p>Sample code:
+   *
+   * <pre>{@code
+   * InstanceName instanceName = InstanceName.of("[PROJECT]", "[INSTANCE]");
+   * try (BigtableClient bigtableClient = BigtableClient.create(instanceName)) {
+   *   String tableId = "[TABLE]";
+   *
+   *   Query query = Query.create(tableId)
+   *          .range("[START KEY]", "[END KEY]");
+   *
+   *   for(Row row : bigtableClient.readRowsParallelCallable(8, false).call(query)) {
+   *     // Do something with row
+   *   }
+   * }
+   * }</pre>
+   *
+   * @see Query#shard(List) For how the query is split.
+   */
+  @BetaApi("This surface is likely to change as parallel reads evolve.")
+  public ServerStreamingCallable<Query, Row> readRowsParallelCallable(
+      int parallelism, boolean ordered) {
+    return stub.createParallelReadRowsCallable(parallelism, ordered);
+  }
+
   /**
    * Convenience method to asynchronously return a sample of row keys in the table. The returned row
    * keys will delimit contiguous sections of the table of approximately equal size, which can be
@@ -381,6 +499,11 @@ public class BigtableDataClient implements AutoCloseable {
    * Mutates multiple rows in a batch. Each individual row is mutated atomically as in MutateRow,
    * but the entire batch is not executed atomically.
    *
+   * <p>The in-flight mutations are bounded by the flow control settings of {@link
+   * BigtableDataSettings#bulkMutationsSettings()}, and the bound can adapt to the MutateRows
+   * latencies with {@link BigtableDataSettings.Builder#enableBulkMutationThrottling}. See {@link
+   * BulkMutationBatcher#getStats()} to monitor them.
+   *
    * <p>Sample code:
    *
    * <pre>{@code
@@ -402,7 +525,8 @@ public class BigtableDataClient implements AutoCloseable {
    */
   @BetaApi("This surface is likely to change as the batching surface evolves.")
   public BulkMutationBatcher newBulkMutationBatcher() {
-    return new BulkMutationBatcher(stub.bulkMutateRowsBatchingCallable());
+    return new BulkMutationBatcher(
+        stub.bulkMutateRowsBatchingCallable(), stub.bulkMutateRowsThrottler());
   }
 
   /**
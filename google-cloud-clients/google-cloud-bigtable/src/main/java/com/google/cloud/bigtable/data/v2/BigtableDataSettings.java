@@ -30,6 +30,8 @@ import com.google.cloud.bigtable.data.v2.stub.EnhancedBigtableStubSettings;
 import java.io.IOException;
 import java.util.List;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.threeten.bp.Duration;
 
 /**
  * Settings class to configure an instance of {@link BigtableDataClient}.
@@ -99,6 +101,26 @@ public class BigtableDataSettings extends ClientSettings<BigtableDataSettings> {
     return getTypedStubSettings().bulkMutateRowsSettings();
   }
 
+  /**
+   * Returns whether the number of in-flight mutations of {@link
+   * BigtableDataClient#newBulkMutationBatcher()} adapts to the MutateRows latencies.
+   */
+  public boolean isBulkMutationThrottlingEnabled() {
+    return getTypedStubSettings().isBulkMutationThrottlingEnabled();
+  }
+
+  /** Returns the target MutateRows latency of bulk mutation throttling, if it's enabled. */
+  @Nullable
+  public Duration getBulkMutationTargetRpcLatency() {
+    return getTypedStubSettings().getBulkMutationTargetRpcLatency();
+  }
+
+  /** Returns the object with the settings used for batched point reads. */
+  public BatchingCallSettings<Query, Row> bulkReadRowsSettings() {
+    // NOTE: the user facing BigtableDataClient only exposes this api as newBulkReadRowsBatcher.
+    return getTypedStubSettings().bulkReadRowsSettings();
+  }
+
   /** Returns the object with the settings used for calls to checkAndMutateRow. */
   public UnaryCallSettings<ConditionalRowMutation, Boolean> checkAndMutateRowSettings() {
     return getTypedStubSettings().checkAndMutateRowSettings();
@@ -191,6 +213,36 @@ public class BigtableDataSettings extends ClientSettings<BigtableDataSettings> {
       return getTypedStubSettings().bulkMutateRowsSettings();
     }
 
+    /**
+     * Enables latency based throttling of {@link BigtableDataClient#newBulkMutationBatcher()}. The
+     * number of in-flight mutations will shrink when the MutateRows latencies rise above the
+     * target, and grow back when they drop below it. It stays between the element count threshold
+     * of {@link #bulkMutationsSettings()} and the max outstanding element count of its flow control
+     * settings.
+     */
+    public Builder enableBulkMutationThrottling(@Nonnull Duration targetRpcLatency) {
+      getTypedStubSettings().enableBulkMutationThrottling(targetRpcLatency);
+      return this;
+    }
+
+    /** Disables latency based throttling of bulk mutations. */
+    public Builder disableBulkMutationThrottling() {
+      getTypedStubSettings().disableBulkMutationThrottling();
+      return this;
+    }
+
+    /** Gets the target MutateRows latency that was previously set on this Builder, if any. */
+    @Nullable
+    public Duration getBulkMutationTargetRpcLatency() {
+      return getTypedStubSettings().getBulkMutationTargetRpcLatency();
+    }
+
+    /** Returns the builder for the settings used for batched point reads. */
+    public BatchingCallSettings.Builder<Query, Row> bulkReadRowsSettings() {
+      // NOTE: the user facing BigtableDataClient only exposes this api as newBulkReadRowsBatcher.
+      return getTypedStubSettings().bulkReadRowsSettings();
+    }
+
     /** Returns the object with the settings used for calls to checkAndMutateRow. */
     public UnaryCallSettings.Builder<ConditionalRowMutation, Boolean> checkAndMutateRowSettings() {
       return getTypedStubSettings().checkAndMutateRowSettings();
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.internal;
+
+import com.google.api.core.InternalApi;
+import com.google.bigtable.v2.RowRange;
+import com.google.bigtable.v2.RowSet;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import javax.annotation.Nullable;
+
+/**
+ * Utilities to split a {@link RowSet} into contiguous, non-overlapping segments of the key space.
+ *
+ * <p>This class is considered an internal implementation detail and not meant to be used by
+ * applications.
+ */
+@InternalApi
+public final class RowSetUtil {
+  private RowSetUtil() {}
+
+  /**
+   * Splits the {@link RowSet} at the given split points. The returned {@link RowSet}s are in key
+   * order, and together select exactly the same rows as the original. The first one covers the
+   * keys before the first split point, and each following one the keys from a split point
+   * (inclusive) up to the next (exclusive). Segments that don't contain any part of the original
+   * {@link RowSet} are skipped.
+   *
+   * <p>An empty {@link RowSet} is treated as a full table scan.
+   *
+   * @param splitPoints non-empty keys, ordered by {@link ByteStringComparator}.
+   */
+  public static List<RowSet> split(RowSet rowSet, SortedSet<ByteString> splitPoints) {
+    if (rowSet.getRowKeysCount() == 0 && rowSet.getRowRangesCount() == 0) {
+      rowSet = RowSet.newBuilder().addRowRanges(RowRange.getDefaultInstance()).build();
+    }
+
+    List<ByteString> segmentEnds = new ArrayList<>(splitPoints);
+    // The last segment is unbounded.
+    segmentEnds.add(null);
+
+    ImmutableList.Builder<RowSet> segments = ImmutableList.builder();
+    ByteString segmentStart = null;
+
+    for (ByteString segmentEnd : segmentEnds) {
+      RowSet.Builder segment = RowSet.newBuilder();
+      for (ByteString key : rowSet.getRowKeysList()) {
+        if (contains(segmentStart, segmentEnd, key)) {
+          segment.addRowKeys(key);
+        }
+      }
+      for (RowRange range : rowSet.getRowRangesList()) {
+        RowRange clipped = clip(range, segmentStart, segmentEnd);
+        if (clipped != null) {
+          segment.addRowRanges(clipped);
+        }
+      }
+      if (segment.getRowKeysCount() > 0 || segment.getRowRangesCount() > 0) {
+        segments.add(segment.build());
+      }
+      segmentStart = segmentEnd;
+    }
+    return segments.build();
+  }
+
+  private static boolean contains(
+      @Nullable ByteString segmentStart, @Nullable ByteString segmentEnd, ByteString key) {
+    return (segmentStart == null || ByteStringComparator.INSTANCE.compare(key, segmentStart) >= 0)
+        && (segmentEnd == null || ByteStringComparator.INSTANCE.compare(key, segmentEnd) < 0);
+  }
+
+  /**
+   * Returns the intersection of the range with [segmentStart, segmentEnd), or null if it's empty.
+   * A null bound is unbounded.
+   */
+  @Nullable
+  private static RowRange clip(
+      RowRange range, @Nullable ByteString segmentStart, @Nullable ByteString segmentEnd) {
+    RowRange.Builder builder = range.toBuilder();
+
+    if (segmentStart != null) {
+      switch (range.getStartKeyCase()) {
+        case STARTKEY_NOT_SET:
+          builder.setStartKeyClosed(segmentStart);
+          break;
+        case START_KEY_OPEN:
+        case START_KEY_CLOSED:
+          if (ByteStringComparator.INSTANCE.compare(startKey(range), segmentStart) < 0) {
+            builder.setStartKeyClosed(segmentStart);
+          }
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown startKeyCase: " + range.getStartKeyCase());
+      }
+    }
+
+    if (segmentEnd != null) {
+      switch (range.getEndKeyCase()) {
+        case ENDKEY_NOT_SET:
+          builder.setEndKeyOpen(segmentEnd);
+          break;
+        case END_KEY_OPEN:
+        case END_KEY_CLOSED:
+          if (ByteStringComparator.INSTANCE.compare(endKey(range), segmentEnd) >= 0) {
+            builder.setEndKeyOpen(segmentEnd);
+          }
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown endKeyCase: " + range.getEndKeyCase());
+      }
+    }
+
+    RowRange clipped = builder.build();
+    return isEmpty(clipped) ? null : clipped;
+  }
+
+  private static boolean isEmpty(RowRange range) {
+    if (range.getStartKeyCase() == RowRange.StartKeyCase.STARTKEY_NOT_SET
+        || range.getEndKeyCase() == RowRange.EndKeyCase.ENDKEY_NOT_SET) {
+      return false;
+    }
+    int cmp = ByteStringComparator.INSTANCE.compare(startKey(range), endKey(range));
+    if (cmp != 0) {
+      return cmp > 0;
+    }
+    return range.getStartKeyCase() != RowRange.StartKeyCase.START_KEY_CLOSED
+        || range.getEndKeyCase() != RowRange.EndKeyCase.END_KEY_CLOSED;
+  }
+
+  private static ByteString startKey(RowRange range) {
+    return range.getStartKeyCase() == RowRange.StartKeyCase.START_KEY_OPEN
+        ? range.getStartKeyOpen()
+        : range.getStartKeyClosed();
+  }
+
+  private static ByteString endKey(RowRange range) {
+    return range.getEndKeyCase() == RowRange.EndKeyCase.END_KEY_OPEN
+        ? range.getEndKeyOpen()
+        : range.getEndKeyClosed();
+  }
+}
@@ -20,7 +20,9 @@ import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
 import com.google.api.core.BetaApi;
 import com.google.api.core.InternalApi;
+import com.google.api.core.NanoClock;
 import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.bigtable.data.v2.stub.mutaterows.MutateRowsThrottler;
 import com.google.common.base.Preconditions;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
@@ -30,12 +32,21 @@ import org.threeten.bp.Duration;
  * Tracker for outstanding bulk mutations. Allows for the caller to wait for all of the outstanding
  * mutations to complete.
  *
+ * <p>The mutations in flight are bounded by the flow control settings of {@link
+ * com.google.cloud.bigtable.data.v2.BigtableDataSettings#bulkMutationsSettings()}: depending on
+ * their {@link com.google.api.gax.batching.FlowController.LimitExceededBehavior}, {@link
+ * #add(RowMutation)} either blocks or throws a {@link
+ * com.google.api.gax.batching.FlowController.FlowControlRuntimeException} when the max outstanding
+ * mutations or bytes are reached. When bulk mutation throttling is enabled, {@link
+ * #add(RowMutation)} also blocks while the latency based window of in-flight mutations is full.
+ *
  * @see com.google.cloud.bigtable.data.v2.BigtableDataClient#newBulkMutationBatcher() for example
  *     usage.
  */
 @BetaApi("This surface is likely to change as the batching surface evolves.")
 public final class BulkMutationBatcher implements AutoCloseable {
   private final UnaryCallable<RowMutation, Void> callable;
+  private final MutateRowsThrottler throttler;
   // Shared
   private final Object lock = new Object();
   private final AtomicLong numOutstanding = new AtomicLong();
@@ -46,7 +57,25 @@ public final class BulkMutationBatcher implements AutoCloseable {
 
   @InternalApi
   public BulkMutationBatcher(UnaryCallable<RowMutation, Void> callable) {
+    this(
+        callable,
+        new MutateRowsThrottler(NanoClock.getDefaultClock(), null, 1, Long.MAX_VALUE));
+  }
+
+  @InternalApi
+  public BulkMutationBatcher(
+      UnaryCallable<RowMutation, Void> callable, MutateRowsThrottler throttler) {
     this.callable = callable;
+    this.throttler = throttler;
+  }
+
+  /** Returns a snapshot of the outstanding mutations, in-flight window and retries. */
+  public BulkMutationStats getStats() {
+    return BulkMutationStats.create(
+        numOutstanding.get(),
+        throttler.getWindow(),
+        throttler.getRpcCount(),
+        throttler.getRetryCount());
   }
 
   /**
@@ -88,15 +117,26 @@ public final class BulkMutationBatcher implements AutoCloseable {
 
   /**
    * Queues the mutation to be batched and sent. Please note that the order of mutations is not
-   * guaranteed.
+   * guaranteed. This blocks while the in-flight mutations are at their limit.
    *
    * @throws IllegalStateException If this instance has been closed.
+   * @throws com.google.api.gax.batching.FlowController.FlowControlRuntimeException If the flow
+   *     control limits are reached, and configured to fail.
    */
   public ApiFuture<Void> add(final RowMutation rowMutation) {
     Preconditions.checkState(!closed, "BulkMutations has been closed");
+    throttler.acquire();
     numOutstanding.incrementAndGet();
 
-    ApiFuture<Void> future = callable.futureCall(rowMutation);
+    ApiFuture<Void> future;
+    try {
+      future = callable.futureCall(rowMutation);
+    } catch (RuntimeException e) {
+      // The mutation was rejected before it was queued, so it's not outstanding. The caller is
+      // notified by the exception, so it doesn't count as a failure on close.
+      onMutationComplete(true);
+      throw e;
+    }
 
     ApiFutures.addCallback(
         future,
@@ -116,6 +156,8 @@ public final class BulkMutationBatcher implements AutoCloseable {
   }
 
   private void onMutationComplete(boolean isOk) {
+    throttler.release();
+
     // Order matters here: numOutstanding must be decremented after numFailures to ensure a
     // consistent view in close(Duration)
     if (!isOk) {
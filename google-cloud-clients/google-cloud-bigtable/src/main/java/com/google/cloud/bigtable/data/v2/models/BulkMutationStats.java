@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.models;
+
+import com.google.api.core.BetaApi;
+import com.google.api.core.InternalApi;
+import com.google.api.core.InternalExtensionOnly;
+import com.google.auto.value.AutoValue;
+
+/**
+ * A snapshot of the state of a {@link BulkMutationBatcher}.
+ *
+ * @see BulkMutationBatcher#getStats()
+ */
+@BetaApi("This surface is likely to change as the batching surface evolves.")
+@InternalExtensionOnly
+@AutoValue
+public abstract class BulkMutationStats {
+  @InternalApi
+  public static BulkMutationStats create(
+      long outstandingMutations, long window, long rpcCount, long retryCount) {
+    return new AutoValue_BulkMutationStats(outstandingMutations, window, rpcCount, retryCount);
+  }
+
+  /** The number of mutations that were added to the batcher and are not resolved yet. */
+  public abstract long getOutstandingMutations();
+
+  /**
+   * The number of mutations that can currently be in flight, across all the batchers of the
+   * client. When bulk mutation throttling is enabled, this adapts to the MutateRows latencies.
+   */
+  public abstract long getWindow();
+
+  /** The number of batched MutateRows calls that completed, across all the batchers. */
+  public abstract long getRpcCount();
+
+  /** The number of retry attempts of those MutateRows calls. */
+  public abstract long getRetryCount();
+}
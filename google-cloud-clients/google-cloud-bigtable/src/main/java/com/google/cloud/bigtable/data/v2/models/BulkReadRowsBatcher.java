@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.models;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.BetaApi;
+import com.google.api.core.InternalApi;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.common.base.Preconditions;
+import com.google.protobuf.ByteString;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.threeten.bp.Duration;
+
+/**
+ * Batches concurrent point reads into multi-key ReadRows RPCs. Reads for the same table and filter
+ * that are added within a short window are sent together, and each future is resolved with its own
+ * row, or null if the row doesn't exist. Allows for the caller to wait for all of the outstanding
+ * reads to complete.
+ *
+ * @see com.google.cloud.bigtable.data.v2.BigtableDataClient#newBulkReadRowsBatcher() for example
+ *     usage.
+ */
+@BetaApi("This surface is likely to change as the batching surface evolves.")
+public final class BulkReadRowsBatcher implements AutoCloseable {
+  private final UnaryCallable<Query, Row> callable;
+  private final Object lock = new Object();
+  private final AtomicLong numOutstanding = new AtomicLong();
+  // Only accessed by caller
+  private boolean closed;
+
+  @InternalApi
+  public BulkReadRowsBatcher(UnaryCallable<Query, Row> callable) {
+    this.callable = callable;
+  }
+
+  /**
+   * Waits up to 10 minutes for all of the outstanding reads to be resolved.
+   *
+   * @see #close(Duration) for more infortmation.
+   */
+  @Override
+  public void close() throws InterruptedException, TimeoutException {
+    close(Duration.ofMinutes(10));
+  }
+
+  /**
+   * Prevents further reads and waits for all outstanding reads to complete. Failed reads are only
+   * reported through their futures.
+   *
+   * @throws InterruptedException If interrupted.
+   * @throws TimeoutException If the outstanding requests don't finish in time.
+   */
+  public void close(Duration duration) throws InterruptedException, TimeoutException {
+    closed = true;
+    long deadlineMs = System.currentTimeMillis() + duration.toMillis();
+
+    synchronized (lock) {
+      while (numOutstanding.get() > 0) {
+        long waitMs = deadlineMs - System.currentTimeMillis();
+        if (waitMs <= 0) {
+          throw new TimeoutException("Timed out waiting outstanding reads to finish");
+        }
+        lock.wait(waitMs);
+      }
+    }
+  }
+
+  /**
+   * Queues a read of a single row to be batched and sent. If the row does not exist, the future's
+   * value will be null.
+   *
+   * @throws IllegalStateException If this instance has been closed.
+   */
+  public ApiFuture<Row> add(String tableId, String rowKey) {
+    return add(tableId, ByteString.copyFromUtf8(rowKey));
+  }
+
+  /**
+   * Queues a read of a single row to be batched and sent. If the row does not exist, the future's
+   * value will be null.
+   *
+   * @throws IllegalStateException If this instance has been closed.
+   */
+  public ApiFuture<Row> add(String tableId, ByteString rowKey) {
+    return add(Query.create(tableId).rowKey(rowKey));
+  }
+
+  /**
+   * Queues a read of a single row to be batched and sent. The query must select exactly one row key,
+   * and can have a filter: only reads with the same table and filter are sent together. If the row
+   * does not exist, the future's value will be null.
+   *
+   * @throws IllegalArgumentException If the query doesn't select exactly one row key, or has a
+   *     limit.
+   * @throws IllegalStateException If this instance has been closed.
+   */
+  public ApiFuture<Row> add(Query query) {
+    Preconditions.checkState(!closed, "BulkReadRows has been closed");
+    ApiFuture<Row> future = callable.futureCall(query);
+    numOutstanding.incrementAndGet();
+
+    ApiFutures.addCallback(
+        future,
+        new ApiFutureCallback<Row>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            onReadComplete();
+          }
+
+          @Override
+          public void onSuccess(Row row) {
+            onReadComplete();
+          }
+        });
+
+    return future;
+  }
+
+  private void onReadComplete() {
+    if (numOutstanding.decrementAndGet() == 0) {
+      synchronized (lock) {
+        lock.notifyAll();
+      }
+    }
+  }
+}
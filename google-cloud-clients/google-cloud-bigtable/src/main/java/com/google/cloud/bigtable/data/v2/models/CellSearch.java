@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.models;
+
+import com.google.cloud.bigtable.data.v2.internal.ByteStringComparator;
+import com.google.protobuf.ByteString;
+import java.util.List;
+
+/**
+ * Searches over the cells of a row, which are clustered by family, then sorted by qualifier in
+ * {@link ByteStringComparator} order. The families aren't necessarily sorted, so a family is found
+ * by scanning the family ranges in turn, skipping over each range with a binary search. A column is
+ * then found with a binary search inside its family's range, which matters for wide rows.
+ */
+final class CellSearch {
+  private CellSearch() {}
+
+  /** Random access to the families and qualifiers of the cells of a row. */
+  interface Cells {
+    int size();
+
+    String getFamily(int index);
+
+    ByteString getQualifier(int index);
+  }
+
+  static Cells of(final List<RowCell> cells) {
+    return new Cells() {
+      @Override
+      public int size() {
+        return cells.size();
+      }
+
+      @Override
+      public String getFamily(int index) {
+        return cells.get(index).getFamily();
+      }
+
+      @Override
+      public ByteString getQualifier(int index) {
+        return cells.get(index).getQualifier();
+      }
+    };
+  }
+
+  /** Returns the index of the first cell of the family, or -1 if the row doesn't have it. */
+  static int familyStart(Cells cells, String family) {
+    for (int start = 0; start < cells.size(); start = familyEnd(cells, start)) {
+      if (cells.getFamily(start).equals(family)) {
+        return start;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the index after the last cell of the family of the cell at {@code start}. */
+  static int familyEnd(Cells cells, int start) {
+    String family = cells.getFamily(start);
+    int low = start + 1;
+    int high = cells.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (cells.getFamily(mid).equals(family)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first cell in {@code [from, to)} whose qualifier doesn't sort before
+   * the qualifier. The range must be the range of a single family.
+   */
+  static int lowerBound(Cells cells, int from, int to, ByteString qualifier) {
+    int low = from;
+    int high = to;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ByteStringComparator.INSTANCE.compare(cells.getQualifier(mid), qualifier) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first cell in {@code [from, to)} whose qualifier sorts after the
+   * qualifier. The range must be the range of a single family.
+   */
+  static int upperBound(Cells cells, int from, int to, ByteString qualifier) {
+    int low = from;
+    int high = to;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ByteStringComparator.INSTANCE.compare(cells.getQualifier(mid), qualifier) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
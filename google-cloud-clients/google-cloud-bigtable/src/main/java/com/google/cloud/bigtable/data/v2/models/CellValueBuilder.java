@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.models;
+
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Assembles the value of a cell from its chunks. Most values fit in a single chunk, which is used
+ * as is. The chunks of a split value are collected in a reusable buffer, and joined once when the
+ * cell is finished, instead of concatenating them one by one, which would allocate intermediate
+ * ropes for each chunk.
+ */
+final class CellValueBuilder {
+  private final List<ByteString> chunks = new ArrayList<>();
+
+  void append(ByteString chunk) {
+    chunks.add(chunk);
+  }
+
+  /** Returns the value of the chunks appended so far, and clears the buffer for the next cell. */
+  ByteString build() {
+    ByteString value;
+    if (chunks.size() == 1) {
+      value = chunks.get(0);
+    } else {
+      // Joined as a balanced rope, without copying the chunks.
+      value = ByteString.copyFrom(chunks);
+    }
+    chunks.clear();
+    return value;
+  }
+
+  void reset() {
+    chunks.clear();
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.models;
+
+import com.google.api.core.BetaApi;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import java.io.Serializable;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A representation of a logical row that keeps its cells in parallel arrays instead of {@link
+ * RowCell} instances, which makes it cheaper to build and to hold on to for wide rows. It is
+ * produced by {@link CompactRowAdapter}.
+ *
+ * <p>The cells are indexed in the order of {@link Row#getCells()}: clustered by their family and
+ * sorted by their qualifier, with the versions of a column ordered from newest to oldest.
+ */
+@BetaApi("This surface is likely to change as the row representations evolve.")
+public final class CompactRow implements Serializable {
+  private static final long serialVersionUID = -1853612960421457398L;
+
+  private final ByteString key;
+  private final String[] families;
+  private final ByteString[] qualifiers;
+  private final long[] timestamps;
+  private final ByteString[] values;
+  // Null if none of the cells have labels.
+  @Nullable private final List<String>[] labels;
+
+  CompactRow(
+      ByteString key,
+      String[] families,
+      ByteString[] qualifiers,
+      long[] timestamps,
+      ByteString[] values,
+      @Nullable List<String>[] labels) {
+    this.key = key;
+    this.families = families;
+    this.qualifiers = qualifiers;
+    this.timestamps = timestamps;
+    this.values = values;
+    this.labels = labels;
+  }
+
+  /** Returns the row key */
+  @Nonnull
+  public ByteString getKey() {
+    return key;
+  }
+
+  /** Returns the number of cells in the row. */
+  public int getCellCount() {
+    return families.length;
+  }
+
+  /** Returns the family of the cell at the index. */
+  @Nonnull
+  public String getFamily(int index) {
+    return families[index];
+  }
+
+  /** Returns the qualifier (column name) of the cell at the index. */
+  @Nonnull
+  public ByteString getQualifier(int index) {
+    return qualifiers[index];
+  }
+
+  /** Returns the timestamp of the cell at the index. */
+  public long getTimestamp(int index) {
+    return timestamps[index];
+  }
+
+  /** Returns the value of the cell at the index. */
+  @Nonnull
+  public ByteString getValue(int index) {
+    return values[index];
+  }
+
+  /**
+   * Returns the labels assigned to the cell at the index.
+   *
+   * @see Filters#label(String)
+   */
+  @Nonnull
+  public List<String> getLabels(int index) {
+    Preconditions.checkElementIndex(index, families.length);
+    if (labels == null || labels[index] == null) {
+      return ImmutableList.of();
+    }
+    return labels[index];
+  }
+
+  /** Returns the index of the newest version of the column, or -1 if the row doesn't have it. */
+  public int indexOfLatestCell(@Nonnull String family, @Nonnull String qualifier) {
+    return indexOfLatestCell(family, ByteString.copyFromUtf8(qualifier));
+  }
+
+  /** Returns the index of the newest version of the column, or -1 if the row doesn't have it. */
+  public int indexOfLatestCell(@Nonnull String family, @Nonnull ByteString qualifier) {
+    Cells cells = new Cells();
+    int start = CellSearch.familyStart(cells, family);
+    if (start == -1) {
+      return -1;
+    }
+    int end = CellSearch.familyEnd(cells, start);
+    int index = CellSearch.lowerBound(cells, start, end, qualifier);
+    if (index < end && qualifiers[index].equals(qualifier)) {
+      return index;
+    }
+    return -1;
+  }
+
+  /** Returns the value of the newest version of the column, or null if the row doesn't have it. */
+  @Nullable
+  public ByteString getLatestValue(@Nonnull String family, @Nonnull String qualifier) {
+    return getLatestValue(family, ByteString.copyFromUtf8(qualifier));
+  }
+
+  /** Returns the value of the newest version of the column, or null if the row doesn't have it. */
+  @Nullable
+  public ByteString getLatestValue(@Nonnull String family, @Nonnull ByteString qualifier) {
+    int index = indexOfLatestCell(family, qualifier);
+    return index == -1 ? null : values[index];
+  }
+
+  /** Converts this row to the default {@link Row} representation. */
+  public Row toRow() {
+    ImmutableList.Builder<RowCell> cells = ImmutableList.builder();
+    for (int i = 0; i < families.length; i++) {
+      cells.add(
+          RowCell.create(families[i], qualifiers[i], timestamps[i], getLabels(i), values[i]));
+    }
+    return Row.create(key, cells.build());
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("key", key)
+        .add("cellCount", families.length)
+        .toString();
+  }
+
+  /** Exposes the cells to {@link CellSearch}. */
+  private class Cells implements CellSearch.Cells {
+    @Override
+    public int size() {
+      return families.length;
+    }
+
+    @Override
+    public String getFamily(int index) {
+      return families[index];
+    }
+
+    @Override
+    public ByteString getQualifier(int index) {
+      return qualifiers[index];
+    }
+  }
+}
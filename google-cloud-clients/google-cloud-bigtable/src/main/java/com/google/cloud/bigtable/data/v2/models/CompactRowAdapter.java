@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.models;
+
+import com.google.api.core.BetaApi;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link RowAdapter} that uses {@link CompactRow}s to represent logical rows.
+ *
+ * <p>Compared to {@link DefaultRowAdapter}, it doesn't allocate a {@link RowCell} per cell, and
+ * only copies labels for the cells that have them. The builder's buffers are reused from one row to
+ * the next.
+ */
+@BetaApi("This surface is likely to change as the row representations evolve.")
+public class CompactRowAdapter implements RowAdapter<CompactRow> {
+  /** {@inheritDoc} */
+  @Override
+  public boolean isScanMarkerRow(CompactRow row) {
+    return row.getCellCount() == 0;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public RowBuilder<CompactRow> createRowBuilder() {
+    return new CompactRowBuilder();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ByteString getKey(CompactRow row) {
+    return row.getKey();
+  }
+
+  /** {@inheritDoc} */
+  public class CompactRowBuilder implements RowBuilder<CompactRow> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private ByteString currentKey;
+    private int cellCount;
+    private String[] families = new String[INITIAL_CAPACITY];
+    private ByteString[] qualifiers = new ByteString[INITIAL_CAPACITY];
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private ByteString[] values = new ByteString[INITIAL_CAPACITY];
+    // Null until a cell of the current row has labels.
+    private List<String>[] labels;
+
+    private final CellValueBuilder value = new CellValueBuilder();
+
+    /** {@inheritDoc} */
+    @Override
+    public CompactRow createScanMarkerRow(ByteString key) {
+      return new CompactRow(
+          key, new String[0], new ByteString[0], new long[0], new ByteString[0], null);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startRow(ByteString key) {
+      currentKey = key;
+      cellCount = 0;
+      labels = null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startCell(
+        String family, ByteString qualifier, long timestamp, List<String> labels, long size) {
+      if (cellCount == families.length) {
+        int capacity = cellCount * 2;
+        families = Arrays.copyOf(families, capacity);
+        qualifiers = Arrays.copyOf(qualifiers, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        values = Arrays.copyOf(values, capacity);
+        if (this.labels != null) {
+          this.labels = Arrays.copyOf(this.labels, capacity);
+        }
+      }
+      families[cellCount] = family;
+      qualifiers[cellCount] = qualifier;
+      timestamps[cellCount] = timestamp;
+      if (!labels.isEmpty()) {
+        if (this.labels == null) {
+          this.labels = newLabelsArray(families.length);
+        }
+        this.labels[cellCount] = ImmutableList.copyOf(labels);
+      }
+      this.value.reset();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void cellValue(ByteString value) {
+      this.value.append(value);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void finishCell() {
+      values[cellCount++] = value.build();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CompactRow finishRow() {
+      CompactRow row = newRow(currentKey, cellCount);
+      // Release the references to the row's data, but keep the buffers for the next row.
+      Arrays.fill(families, 0, cellCount, null);
+      Arrays.fill(qualifiers, 0, cellCount, null);
+      Arrays.fill(values, 0, cellCount, null);
+      cellCount = 0;
+      labels = null;
+      return row;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void reset() {
+      Arrays.fill(families, 0, cellCount, null);
+      Arrays.fill(qualifiers, 0, cellCount, null);
+      Arrays.fill(values, 0, cellCount, null);
+      currentKey = null;
+      cellCount = 0;
+      labels = null;
+      value.reset();
+    }
+
+    private CompactRow newRow(ByteString key, int count) {
+      return new CompactRow(
+          key,
+          Arrays.copyOf(families, count),
+          Arrays.copyOf(qualifiers, count),
+          Arrays.copyOf(timestamps, count),
+          Arrays.copyOf(values, count),
+          labels == null ? null : Arrays.copyOf(labels, count));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String>[] newLabelsArray(int size) {
+      return (List<String>[]) new List<?>[size];
+    }
+  }
+}
@@ -17,6 +17,7 @@ package com.google.cloud.bigtable.data.v2.models;
 
 import com.google.common.collect.ImmutableList;
 import com.google.protobuf.ByteString;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -44,12 +45,13 @@ public class DefaultRowAdapter implements RowAdapter<Row> {
   /** {@inheritDoc} */
   public class DefaultRowBuilder implements RowBuilder<Row> {
     private ByteString currentKey;
-    private ImmutableList.Builder<RowCell> cells;
+    // Reused across rows, so that only the final list of each row is allocated.
+    private final List<RowCell> cells = new ArrayList<>();
     private String family;
     private ByteString qualifier;
     private List<String> labels;
     private long timestamp;
-    private ByteString value;
+    private final CellValueBuilder value = new CellValueBuilder();
 
     /** {@inheritDoc} */
     @Override
@@ -61,7 +63,7 @@ public class DefaultRowAdapter implements RowAdapter<Row> {
     @Override
     public void startRow(ByteString key) {
       currentKey = key;
-      cells = ImmutableList.builder();
+      cells.clear();
     }
 
     /** {@inheritDoc} */
@@ -72,37 +74,39 @@ public class DefaultRowAdapter implements RowAdapter<Row> {
       this.qualifier = qualifier;
       this.timestamp = timestamp;
       this.labels = labels;
-      this.value = ByteString.EMPTY;
+      this.value.reset();
     }
 
     /** {@inheritDoc} */
     @Override
     public void cellValue(ByteString value) {
-      this.value = this.value.concat(value);
+      this.value.append(value);
     }
 
     /** {@inheritDoc} */
     @Override
     public void finishCell() {
-      cells.add(RowCell.create(family, qualifier, timestamp, labels, value));
+      cells.add(RowCell.create(family, qualifier, timestamp, labels, value.build()));
     }
 
     /** {@inheritDoc} */
     @Override
     public Row finishRow() {
-      return Row.create(currentKey, cells.build());
+      Row row = Row.create(currentKey, ImmutableList.copyOf(cells));
+      cells.clear();
+      return row;
     }
 
     /** {@inheritDoc} */
     @Override
     public void reset() {
       currentKey = null;
-      cells = null;
+      cells.clear();
       family = null;
       qualifier = null;
       labels = null;
       timestamp = 0;
-      value = null;
+      value.reset();
     }
   }
 }
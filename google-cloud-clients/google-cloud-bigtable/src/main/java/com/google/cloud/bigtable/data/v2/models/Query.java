@@ -18,15 +18,22 @@ package com.google.cloud.bigtable.data.v2.models;
 import com.google.api.core.InternalApi;
 import com.google.bigtable.v2.ReadRowsRequest;
 import com.google.bigtable.v2.RowRange;
+import com.google.bigtable.v2.RowSet;
 import com.google.bigtable.v2.TableName;
+import com.google.cloud.bigtable.data.v2.internal.ByteStringComparator;
 import com.google.cloud.bigtable.data.v2.internal.RequestContext;
+import com.google.cloud.bigtable.data.v2.internal.RowSetUtil;
 import com.google.cloud.bigtable.data.v2.models.Range.ByteStringRange;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.protobuf.ByteString;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 /** A simple wrapper to construct a query for the ReadRows RPC. */
 public final class Query implements Serializable {
@@ -163,6 +170,49 @@ public final class Query implements Serializable {
     return this;
   }
 
+  /**
+   * Splits this query into queries over contiguous, non-overlapping key ranges, using the row keys
+   * returned by {@link com.google.cloud.bigtable.data.v2.BigtableDataClient#sampleRowKeysAsync}
+   * as split points. The returned queries are in key order, have the same filter as this one, and
+   * together read exactly the rows that this query reads.
+   *
+   * <p>Queries with a row limit are not split, since the limit applies to the whole query.
+   */
+  public List<Query> shard(List<KeyOffset> sampledRowKeys) {
+    if (builder.getRowsLimit() > 0) {
+      return ImmutableList.of(copyWithRows(builder.getRows()));
+    }
+
+    SortedSet<ByteString> splitPoints = new TreeSet<>(ByteStringComparator.INSTANCE);
+    for (KeyOffset keyOffset : sampledRowKeys) {
+      // An empty key marks the end of the table.
+      if (!keyOffset.geyKey().isEmpty()) {
+        splitPoints.add(keyOffset.geyKey());
+      }
+    }
+
+    ImmutableList.Builder<Query> shards = ImmutableList.builder();
+    for (RowSet rowSet : RowSetUtil.split(builder.getRows(), splitPoints)) {
+      shards.add(copyWithRows(rowSet));
+    }
+    return shards.build();
+  }
+
+  private Query copyWithRows(RowSet rowSet) {
+    Query copy = new Query(tableId);
+    copy.builder = builder.clone().setRows(rowSet);
+    return copy;
+  }
+
+  /**
+   * Returns the id of the table to query. This method is considered an internal implementation
+   * detail and not meant to be used by applications.
+   */
+  @InternalApi
+  public String getTableId() {
+    return tableId;
+  }
+
   /**
    * Creates the request protobuf. This method is considered an internal implementation detail and
    * not meant to be used by applications.
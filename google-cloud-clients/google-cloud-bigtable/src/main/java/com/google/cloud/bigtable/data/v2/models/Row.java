@@ -20,8 +20,10 @@ import com.google.api.core.InternalExtensionOnly;
 import com.google.auto.value.AutoValue;
 import com.google.protobuf.ByteString;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /** Default representation of a logical row. */
 @InternalExtensionOnly
@@ -43,6 +45,57 @@ public abstract class Row implements Comparable<Row>, Serializable {
    */
   public abstract List<RowCell> getCells();
 
+  /** Returns the cells of the family, in the order of {@link #getCells()}. */
+  public List<RowCell> getCells(@Nonnull String family) {
+    CellSearch.Cells cells = CellSearch.of(getCells());
+    int start = CellSearch.familyStart(cells, family);
+    if (start == -1) {
+      return Collections.emptyList();
+    }
+    return getCells().subList(start, CellSearch.familyEnd(cells, start));
+  }
+
+  /** Returns the versions of the column, ordered from newest to oldest. */
+  public List<RowCell> getCells(@Nonnull String family, @Nonnull String qualifier) {
+    return getCells(family, ByteString.copyFromUtf8(qualifier));
+  }
+
+  /** Returns the versions of the column, ordered from newest to oldest. */
+  public List<RowCell> getCells(@Nonnull String family, @Nonnull ByteString qualifier) {
+    CellSearch.Cells cells = CellSearch.of(getCells());
+    int start = CellSearch.familyStart(cells, family);
+    if (start == -1) {
+      return Collections.emptyList();
+    }
+    int end = CellSearch.familyEnd(cells, start);
+    return getCells()
+        .subList(
+            CellSearch.lowerBound(cells, start, end, qualifier),
+            CellSearch.upperBound(cells, start, end, qualifier));
+  }
+
+  /** Returns the newest version of the column, or null if the row doesn't have it. */
+  @Nullable
+  public RowCell getLatestCell(@Nonnull String family, @Nonnull String qualifier) {
+    return getLatestCell(family, ByteString.copyFromUtf8(qualifier));
+  }
+
+  /** Returns the newest version of the column, or null if the row doesn't have it. */
+  @Nullable
+  public RowCell getLatestCell(@Nonnull String family, @Nonnull ByteString qualifier) {
+    CellSearch.Cells cells = CellSearch.of(getCells());
+    int start = CellSearch.familyStart(cells, family);
+    if (start == -1) {
+      return null;
+    }
+    int end = CellSearch.familyEnd(cells, start);
+    int index = CellSearch.lowerBound(cells, start, end, qualifier);
+    if (index < end && cells.getQualifier(index).equals(qualifier)) {
+      return getCells().get(index);
+    }
+    return null;
+  }
+
   /** Lexicographically compares this row's key to another row's key. */
   @Override
   public int compareTo(@Nonnull Row row) {
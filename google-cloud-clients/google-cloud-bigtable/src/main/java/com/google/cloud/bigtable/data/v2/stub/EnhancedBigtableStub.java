@@ -16,6 +16,7 @@
 package com.google.cloud.bigtable.data.v2.stub;
 
 import com.google.api.core.InternalApi;
+import com.google.api.gax.batching.BatchingSettings;
 import com.google.api.gax.retrying.ExponentialRetryAlgorithm;
 import com.google.api.gax.retrying.RetryAlgorithm;
 import com.google.api.gax.retrying.RetryingExecutor;
@@ -43,8 +44,14 @@ import com.google.cloud.bigtable.data.v2.models.RowMutation;
 import com.google.cloud.bigtable.data.v2.stub.mutaterows.BulkMutateRowsUserFacingCallable;
 import com.google.cloud.bigtable.data.v2.stub.mutaterows.MutateRowsBatchingDescriptor;
 import com.google.cloud.bigtable.data.v2.stub.mutaterows.MutateRowsRetryingCallable;
+import com.google.cloud.bigtable.data.v2.stub.mutaterows.MutateRowsThrottler;
+import com.google.cloud.bigtable.data.v2.stub.mutaterows.MutateRowsThrottlingCallable;
 import com.google.cloud.bigtable.data.v2.stub.mutaterows.MutateRowsUserFacingCallable;
+import com.google.cloud.bigtable.data.v2.stub.readrows.BulkReadRowsCallable;
 import com.google.cloud.bigtable.data.v2.stub.readrows.FilterMarkerRowsCallable;
+import com.google.cloud.bigtable.data.v2.stub.readrows.ParallelReadRowsCallable;
+import com.google.cloud.bigtable.data.v2.stub.readrows.ReadRowBatchingUserFacingCallable;
+import com.google.cloud.bigtable.data.v2.stub.readrows.ReadRowsBatchingDescriptor;
 import com.google.cloud.bigtable.data.v2.stub.readrows.ReadRowsResumptionStrategy;
 import com.google.cloud.bigtable.data.v2.stub.readrows.ReadRowsRetryCompletedCallable;
 import com.google.cloud.bigtable.data.v2.stub.readrows.ReadRowsUserCallable;
@@ -74,9 +81,11 @@ public class EnhancedBigtableStub implements AutoCloseable {
   private final RequestContext requestContext;
 
   private final ServerStreamingCallable<Query, Row> readRowsCallable;
+  private final UnaryCallable<Query, Row> bulkReadRowsBatchingCallable;
   private final UnaryCallable<String, List<KeyOffset>> sampleRowKeysCallable;
   private final UnaryCallable<RowMutation, Void> mutateRowCallable;
   private final UnaryCallable<BulkMutation, Void> bulkMutateRowsCallable;
+  private final MutateRowsThrottler bulkMutateRowsThrottler;
   private final UnaryCallable<RowMutation, Void> bulkMutateRowsBatchingCallable;
   private final UnaryCallable<ConditionalRowMutation, Boolean> checkAndMutateRowCallable;
   private final UnaryCallable<ReadModifyWriteRow, Row> readModifyWriteRowCallable;
@@ -151,9 +160,11 @@ public class EnhancedBigtableStub implements AutoCloseable {
         RequestContext.create(settings.getInstanceName(), settings.getAppProfileId());
 
     readRowsCallable = createReadRowsCallable(new DefaultRowAdapter());
+    bulkReadRowsBatchingCallable = createBulkReadRowsBatchingCallable();
     sampleRowKeysCallable = createSampleRowKeysCallable();
     mutateRowCallable = createMutateRowCallable();
     bulkMutateRowsCallable = createBulkMutateRowsCallable();
+    bulkMutateRowsThrottler = createBulkMutateRowsThrottler();
     bulkMutateRowsBatchingCallable = createBulkMutateRowsBatchingCallable();
     checkAndMutateRowCallable = createCheckAndMutateRowCallable();
     readModifyWriteRowCallable = createReadModifyWriteRowCallable();
@@ -176,6 +187,55 @@ public class EnhancedBigtableStub implements AutoCloseable {
    */
   public <RowT> ServerStreamingCallable<Query, RowT> createReadRowsCallable(
       RowAdapter<RowT> rowAdapter) {
+    ServerStreamingCallable<ReadRowsRequest, RowT> withContext =
+        createReadRowsBaseCallable(rowAdapter);
+
+    // NOTE: Ideally `withDefaultCallContext` should be the outer-most callable, however the
+    // ReadRowsUserCallable overrides the first() method. This override would be lost if
+    // ReadRowsUserCallable is wrapped by another callable.  At some point in the future,
+    // gax-java should allow preserving these kind of overrides through callable chains, at which
+    // point this should be re-ordered.
+    return new ReadRowsUserCallable<>(withContext, requestContext);
+  }
+
+  /**
+   * Creates a callable chain to handle point reads with automatic batching. This is meant to be
+   * used for many concurrent single row reads. The chain will:
+   *
+   * <ul>
+   *   <li>Convert a {@link Query} for a single row key into a {@link ReadRowsRequest}.
+   *   <li>Using gax's {@link com.google.api.gax.rpc.BatchingCallable} to spool the requests and
+   *       combine the row keys of the requests for the same table and filter.
+   *   <li>Read the rows with the regular ReadRows chain, which will retry/resume on failure.
+   *   <li>Line up the rows with the requested row keys, with null for missing rows.
+   *   <li>Split the responses using {@link ReadRowsBatchingDescriptor}.
+   * </ul>
+   */
+  private UnaryCallable<Query, Row> createBulkReadRowsBatchingCallable() {
+    UnaryCallable<ReadRowsRequest, List<Row>> spooling =
+        createReadRowsBaseCallable(new DefaultRowAdapter()).all();
+
+    UnaryCallable<ReadRowsRequest, List<Row>> baseCallable = new BulkReadRowsCallable(spooling);
+
+    BatchingCallSettings.Builder<ReadRowsRequest, List<Row>> batchingCallSettings =
+        BatchingCallSettings.newBuilder(new ReadRowsBatchingDescriptor())
+            .setBatchingSettings(settings.bulkReadRowsSettings().getBatchingSettings());
+
+    UnaryCallable<ReadRowsRequest, List<Row>> batching =
+        Callables.batching(baseCallable, batchingCallSettings.build(), clientContext);
+
+    ReadRowBatchingUserFacingCallable userFacing =
+        new ReadRowBatchingUserFacingCallable(batching, requestContext);
+
+    return userFacing.withDefaultCallContext(clientContext.getDefaultCallContext());
+  }
+
+  /**
+   * Internal helper to create the base ReadRows callable chain, which merges, retries and filters
+   * the rows of a {@link ReadRowsRequest}.
+   */
+  private <RowT> ServerStreamingCallable<ReadRowsRequest, RowT> createReadRowsBaseCallable(
+      RowAdapter<RowT> rowAdapter) {
 
     ServerStreamingCallable<ReadRowsRequest, RowT> merging =
         new RowMergingCallable<>(stub.readRowsCallable(), rowAdapter);
@@ -201,15 +261,24 @@ public class EnhancedBigtableStub implements AutoCloseable {
     FilterMarkerRowsCallable<RowT> filtering =
         new FilterMarkerRowsCallable<>(retrying2, rowAdapter);
 
-    ServerStreamingCallable<ReadRowsRequest, RowT> withContext =
-        filtering.withDefaultCallContext(clientContext.getDefaultCallContext());
+    return filtering.withDefaultCallContext(clientContext.getDefaultCallContext());
+  }
 
-    // NOTE: Ideally `withDefaultCallContext` should be the outer-most callable, however the
-    // ReadRowsUserCallable overrides the first() method. This override would be lost if
-    // ReadRowsUserCallable is wrapped by another callable.  At some point in the future,
-    // gax-java should allow preserving these kind of overrides through callable chains, at which
-    // point this should be re-ordered.
-    return new ReadRowsUserCallable<>(withContext, requestContext);
+  /**
+   * Creates a callable chain to read the rows of a {@link Query} with several concurrent ReadRows
+   * streams. The chain will:
+   *
+   * <ul>
+   *   <li>Sample the row keys of the table and split the query at the sampled keys.
+   *   <li>Read up to {@code parallelism} of the resulting shards at once, each with the regular
+   *       ReadRows callable chain, so each shard is retried/resumed on its own.
+   *   <li>Merge the rows of the shards, in key order if {@code ordered} is set.
+   * </ul>
+   */
+  public ServerStreamingCallable<Query, Row> createParallelReadRowsCallable(
+      int parallelism, boolean ordered) {
+    return new ParallelReadRowsCallable<>(
+        readRowsCallable, sampleRowKeysCallable, parallelism, ordered);
   }
 
   /**
@@ -282,11 +351,14 @@ public class EnhancedBigtableStub implements AutoCloseable {
    *       are no more entries or there are no more retry attempts left.
    *   <li>Wrap batch failures in a {@link
    *       com.google.cloud.bigtable.data.v2.models.MutateRowsException}.
+   *   <li>Report the latency and retries of each batch to the {@link MutateRowsThrottler}.
    *   <li>Split the responses using {@link MutateRowsBatchingDescriptor}.
    * </ul>
    */
   private UnaryCallable<RowMutation, Void> createBulkMutateRowsBatchingCallable() {
-    UnaryCallable<MutateRowsRequest, Void> baseCallable = createMutateRowsBaseCallable();
+    UnaryCallable<MutateRowsRequest, Void> baseCallable =
+        new MutateRowsThrottlingCallable(
+            createMutateRowsBaseCallable(), bulkMutateRowsThrottler, clientContext.getClock());
 
     BatchingCallSettings.Builder<MutateRowsRequest, Void> batchingCallSettings =
         BatchingCallSettings.newBuilder(new MutateRowsBatchingDescriptor())
@@ -301,13 +373,35 @@ public class EnhancedBigtableStub implements AutoCloseable {
     return userFacing.withDefaultCallContext(clientContext.getDefaultCallContext());
   }
 
+  /**
+   * Creates the {@link MutateRowsThrottler} that limits the in-flight mutations of automatically
+   * batched calls. Its window ranges from a single batch to the max outstanding element count of
+   * the flow control settings, and only adapts to the RPC latencies when throttling is enabled.
+   */
+  private MutateRowsThrottler createBulkMutateRowsThrottler() {
+    BatchingSettings batchingSettings = settings.bulkMutateRowsSettings().getBatchingSettings();
+
+    Long elementCountThreshold = batchingSettings.getElementCountThreshold();
+    long minWindow = elementCountThreshold != null ? Math.max(1, elementCountThreshold) : 1;
+
+    Long maxOutstanding =
+        batchingSettings.getFlowControlSettings().getMaxOutstandingElementCount();
+    long maxWindow = maxOutstanding != null ? Math.max(minWindow, maxOutstanding) : Long.MAX_VALUE;
+
+    return new MutateRowsThrottler(
+        clientContext.getClock(),
+        settings.getBulkMutationTargetRpcLatency(),
+        minWindow,
+        maxWindow);
+  }
+
   /**
    * Internal helper to create the base MutateRows callable chain. The chain is responsible for
    * retrying individual entry in case of error.
    *
    * @see MutateRowsRetryingCallable for more details
    */
-  private UnaryCallable<MutateRowsRequest, Void> createMutateRowsBaseCallable() {
+  private MutateRowsRetryingCallable createMutateRowsBaseCallable() {
     RetryAlgorithm<Void> retryAlgorithm =
         new RetryAlgorithm<>(
             new ApiResultRetryAlgorithm<Void>(),
@@ -360,6 +454,14 @@ public class EnhancedBigtableStub implements AutoCloseable {
     return readRowsCallable;
   }
 
+  /**
+   * Returns the callable chain created in {@link #createBulkReadRowsBatchingCallable()} during stub
+   * construction.
+   */
+  public UnaryCallable<Query, Row> bulkReadRowsBatchingCallable() {
+    return bulkReadRowsBatchingCallable;
+  }
+
   public UnaryCallable<String, List<KeyOffset>> sampleRowKeysCallable() {
     return sampleRowKeysCallable;
   }
@@ -384,6 +486,14 @@ public class EnhancedBigtableStub implements AutoCloseable {
     return bulkMutateRowsBatchingCallable;
   }
 
+  /**
+   * Returns the throttler created in {@link #createBulkMutateRowsThrottler()} during stub
+   * construction, which is shared by all the users of {@link #bulkMutateRowsBatchingCallable()}.
+   */
+  public MutateRowsThrottler bulkMutateRowsThrottler() {
+    return bulkMutateRowsThrottler;
+  }
+
   /**
    * Returns the callable chain created in {@link #createCheckAndMutateRowCallable()} during stub
    * construction.
@@ -41,6 +41,7 @@ import com.google.common.collect.ImmutableSet;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.threeten.bp.Duration;
 
 /**
@@ -109,11 +110,13 @@ public class EnhancedBigtableStubSettings extends StubSettings<EnhancedBigtableS
 
   private final InstanceName instanceName;
   private final String appProfileId;
+  @Nullable private final Duration bulkMutationTargetRpcLatency;
 
   private final ServerStreamingCallSettings<Query, Row> readRowsSettings;
   private final UnaryCallSettings<String, List<KeyOffset>> sampleRowKeysSettings;
   private final UnaryCallSettings<RowMutation, Void> mutateRowSettings;
   private final BatchingCallSettings<RowMutation, Void> bulkMutateRowsSettings;
+  private final BatchingCallSettings<Query, Row> bulkReadRowsSettings;
   private final UnaryCallSettings<ConditionalRowMutation, Boolean> checkAndMutateRowSettings;
   private final UnaryCallSettings<ReadModifyWriteRow, Row> readModifyWriteRowSettings;
 
@@ -121,12 +124,14 @@ public class EnhancedBigtableStubSettings extends StubSettings<EnhancedBigtableS
     super(builder);
     instanceName = builder.instanceName;
     appProfileId = builder.appProfileId;
+    bulkMutationTargetRpcLatency = builder.bulkMutationTargetRpcLatency;
 
     // Per method settings.
     readRowsSettings = builder.readRowsSettings.build();
     sampleRowKeysSettings = builder.sampleRowKeysSettings.build();
     mutateRowSettings = builder.mutateRowSettings.build();
     bulkMutateRowsSettings = builder.bulkMutateRowsSettings.build();
+    bulkReadRowsSettings = builder.bulkReadRowsSettings.build();
     checkAndMutateRowSettings = builder.checkAndMutateRowSettings.build();
     readModifyWriteRowSettings = builder.readModifyWriteRowSettings.build();
   }
@@ -178,6 +183,33 @@ public class EnhancedBigtableStubSettings extends StubSettings<EnhancedBigtableS
     return bulkMutateRowsSettings;
   }
 
+  /**
+   * Returns whether the number of in-flight mutations of automatically batched calls adapts to the
+   * MutateRows latencies.
+   *
+   * @see Builder#enableBulkMutationThrottling(Duration)
+   */
+  public boolean isBulkMutationThrottlingEnabled() {
+    return bulkMutationTargetRpcLatency != null;
+  }
+
+  /** Returns the target MutateRows latency of bulk mutation throttling, if it's enabled. */
+  @Nullable
+  public Duration getBulkMutationTargetRpcLatency() {
+    return bulkMutationTargetRpcLatency;
+  }
+
+  /**
+   * Returns the object with the settings used for batched point reads
+   * (bulkReadRowsBatchingCallable).
+   *
+   * <p>Only the batching settings are used: the batched ReadRows calls are retried according to
+   * {@link #readRowsSettings()}.
+   */
+  public BatchingCallSettings<Query, Row> bulkReadRowsSettings() {
+    return bulkReadRowsSettings;
+  }
+
   /** Returns the object with the settings used for calls to CheckAndMutateRow. */
   public UnaryCallSettings<ConditionalRowMutation, Boolean> checkAndMutateRowSettings() {
     return checkAndMutateRowSettings;
@@ -197,11 +229,13 @@ public class EnhancedBigtableStubSettings extends StubSettings<EnhancedBigtableS
   public static class Builder extends StubSettings.Builder<EnhancedBigtableStubSettings, Builder> {
     private InstanceName instanceName;
     private String appProfileId;
+    @Nullable private Duration bulkMutationTargetRpcLatency;
 
     private final ServerStreamingCallSettings.Builder<Query, Row> readRowsSettings;
     private final UnaryCallSettings.Builder<String, List<KeyOffset>> sampleRowKeysSettings;
     private final UnaryCallSettings.Builder<RowMutation, Void> mutateRowSettings;
     private final BatchingCallSettings.Builder<RowMutation, Void> bulkMutateRowsSettings;
+    private final BatchingCallSettings.Builder<Query, Row> bulkReadRowsSettings;
     private final UnaryCallSettings.Builder<ConditionalRowMutation, Boolean>
         checkAndMutateRowSettings;
     private final UnaryCallSettings.Builder<ReadModifyWriteRow, Row> readModifyWriteRowSettings;
@@ -267,6 +301,22 @@ public class EnhancedBigtableStubSettings extends StubSettings<EnhancedBigtableS
                               .build())
                       .build());
 
+      // Point reads are latency sensitive, so they are only held back for a short while.
+      bulkReadRowsSettings =
+          BatchingCallSettings.newBuilder(new DummyBatchingDescriptor<Query, Row>())
+              .setBatchingSettings(
+                  BatchingSettings.newBuilder()
+                      .setIsEnabled(true)
+                      .setElementCountThreshold(100L)
+                      .setRequestByteThreshold(400L * 1024)
+                      .setDelayThreshold(Duration.ofMillis(10))
+                      .setFlowControlSettings(
+                          FlowControlSettings.newBuilder()
+                              .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                              .setMaxOutstandingElementCount(1_000L)
+                              .build())
+                      .build());
+
       checkAndMutateRowSettings = UnaryCallSettings.newUnaryCallSettingsBuilder();
       copyRetrySettings(baseDefaults.checkAndMutateRowSettings(), checkAndMutateRowSettings);
 
@@ -278,12 +328,14 @@ public class EnhancedBigtableStubSettings extends StubSettings<EnhancedBigtableS
       super(settings);
       instanceName = settings.instanceName;
       appProfileId = settings.appProfileId;
+      bulkMutationTargetRpcLatency = settings.bulkMutationTargetRpcLatency;
 
       // Per method settings.
       readRowsSettings = settings.readRowsSettings.toBuilder();
       sampleRowKeysSettings = settings.sampleRowKeysSettings.toBuilder();
       mutateRowSettings = settings.mutateRowSettings.toBuilder();
       bulkMutateRowsSettings = settings.bulkMutateRowsSettings.toBuilder();
+      bulkReadRowsSettings = settings.bulkReadRowsSettings.toBuilder();
       checkAndMutateRowSettings = settings.checkAndMutateRowSettings.toBuilder();
       readModifyWriteRowSettings = settings.readModifyWriteRowSettings.toBuilder();
     }
@@ -353,6 +405,37 @@ public class EnhancedBigtableStubSettings extends StubSettings<EnhancedBigtableS
       return bulkMutateRowsSettings;
     }
 
+    /**
+     * Enables latency based throttling of automatically batched mutations. The number of in-flight
+     * mutations will shrink when the MutateRows latencies rise above the target, and grow back when
+     * they drop below it. It stays between the element count threshold of the batching settings
+     * (one full batch), and the max outstanding element count of their flow control settings.
+     */
+    public Builder enableBulkMutationThrottling(@Nonnull Duration targetRpcLatency) {
+      Preconditions.checkNotNull(targetRpcLatency, "targetRpcLatency can't be null");
+      Preconditions.checkArgument(
+          targetRpcLatency.compareTo(Duration.ZERO) > 0, "targetRpcLatency must be positive");
+      this.bulkMutationTargetRpcLatency = targetRpcLatency;
+      return this;
+    }
+
+    /** Disables latency based throttling of automatically batched mutations. */
+    public Builder disableBulkMutationThrottling() {
+      this.bulkMutationTargetRpcLatency = null;
+      return this;
+    }
+
+    /** Gets the target MutateRows latency that was previously set on this Builder, if any. */
+    @Nullable
+    public Duration getBulkMutationTargetRpcLatency() {
+      return bulkMutationTargetRpcLatency;
+    }
+
+    /** Returns the builder for the settings used for batched point reads. */
+    public BatchingCallSettings.Builder<Query, Row> bulkReadRowsSettings() {
+      return bulkReadRowsSettings;
+    }
+
     /** Returns the builder for the settings used for calls to CheckAndMutateRow. */
     public UnaryCallSettings.Builder<ConditionalRowMutation, Boolean> checkAndMutateRowSettings() {
       return checkAndMutateRowSettings;
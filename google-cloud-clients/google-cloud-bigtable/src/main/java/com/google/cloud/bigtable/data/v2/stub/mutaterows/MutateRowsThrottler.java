@@ -0,0 +1,204 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.stub.mutaterows;
+
+import com.google.api.core.ApiClock;
+import com.google.api.core.InternalApi;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import org.threeten.bp.Duration;
+
+/**
+ * Limits the number of in-flight mutations of automatically batched MutateRows calls, and adapts
+ * that limit to the observed RPC latencies.
+ *
+ * <p>Callers reserve a slot with {@link #acquire()} before queueing a mutation, and free it with
+ * {@link #release()} once the mutation is resolved. When a target RPC latency is configured, the
+ * window of in-flight mutations is adjusted every {@link #ADJUSTMENT_INTERVAL} based on the mean
+ * latency of the RPCs completed during the interval:
+ *
+ * <ul>
+ *   <li>Above 3 times the target, the window shrinks by 30%.
+ *   <li>Above 1.2 times the target, the window shrinks by 10%.
+ *   <li>Below 0.8 times the target, the window grows by 5%, if callers had to wait for it.
+ * </ul>
+ *
+ * <p>Without a target latency, the window stays at its maximum. Either way, the RPCs and their
+ * retries are counted.
+ *
+ * <p>This class is considered an internal implementation detail and not meant to be used by
+ * applications.
+ */
+@InternalApi
+public class MutateRowsThrottler {
+  @VisibleForTesting static final Duration ADJUSTMENT_INTERVAL = Duration.ofSeconds(5);
+
+  private final Object lock = new Object();
+  private final ApiClock clock;
+  @Nullable private final Duration targetLatency;
+  private final long minWindow;
+  private final long maxWindow;
+
+  @GuardedBy("lock")
+  private long window;
+
+  @GuardedBy("lock")
+  private long outstanding;
+
+  // Whether a caller had to wait for the window since the last adjustment.
+  @GuardedBy("lock")
+  private boolean throttled;
+
+  @GuardedBy("lock")
+  private long intervalStartNanos;
+
+  @GuardedBy("lock")
+  private long intervalLatencySumNanos;
+
+  @GuardedBy("lock")
+  private long intervalRpcCount;
+
+  @GuardedBy("lock")
+  private long rpcCount;
+
+  @GuardedBy("lock")
+  private long retryCount;
+
+  /**
+   * @param targetLatency the RPC latency to aim for, or null to keep the window at {@code
+   *     maxWindow}.
+   * @param minWindow the smallest window, which should allow at least one full batch in flight.
+   */
+  public MutateRowsThrottler(
+      ApiClock clock, @Nullable Duration targetLatency, long minWindow, long maxWindow) {
+    Preconditions.checkArgument(minWindow > 0, "minWindow must be positive.");
+    Preconditions.checkArgument(maxWindow >= minWindow, "maxWindow must be at least minWindow.");
+    Preconditions.checkArgument(
+        targetLatency == null || targetLatency.compareTo(Duration.ZERO) > 0,
+        "targetLatency must be positive.");
+    this.clock = clock;
+    this.targetLatency = targetLatency;
+    this.minWindow = minWindow;
+    this.maxWindow = maxWindow;
+    this.window = maxWindow;
+    this.intervalStartNanos = clock.nanoTime();
+  }
+
+  /** Waits until the mutation fits in the window, and counts it as in-flight. */
+  public void acquire() {
+    boolean interrupted = false;
+    synchronized (lock) {
+      // A single mutation is always let through, so that the window can't stall the caller.
+      while (outstanding > 0 && outstanding >= window) {
+        throttled = true;
+        try {
+          lock.wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      outstanding++;
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Frees the slot of a mutation that was resolved. */
+  public void release() {
+    synchronized (lock) {
+      outstanding--;
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Records a completed MutateRows call.
+   *
+   * @param latencyNanos the time between the first attempt and the final result.
+   * @param retries the number of attempts after the first one.
+   */
+  public void onRpcComplete(long latencyNanos, int retries) {
+    synchronized (lock) {
+      rpcCount++;
+      retryCount += retries;
+
+      if (targetLatency == null) {
+        return;
+      }
+      intervalLatencySumNanos += latencyNanos;
+      intervalRpcCount++;
+
+      long now = clock.nanoTime();
+      if (now - intervalStartNanos < ADJUSTMENT_INTERVAL.toNanos()) {
+        return;
+      }
+
+      long meanNanos = intervalLatencySumNanos / intervalRpcCount;
+      long targetNanos = targetLatency.toNanos();
+      long newWindow = window;
+      if (meanNanos > 3 * targetNanos) {
+        newWindow = window * 7 / 10;
+      } else if (meanNanos * 10 > targetNanos * 12) {
+        newWindow = window * 9 / 10;
+      } else if (meanNanos * 10 < targetNanos * 8 && throttled) {
+        newWindow = window + Math.max(1, window / 20);
+      }
+      window = Math.min(maxWindow, Math.max(minWindow, newWindow));
+
+      intervalStartNanos = now;
+      intervalLatencySumNanos = 0;
+      intervalRpcCount = 0;
+      throttled = false;
+      lock.notifyAll();
+    }
+  }
+
+  /** Returns whether the window adapts to the RPC latencies. */
+  public boolean isThrottlingEnabled() {
+    return targetLatency != null;
+  }
+
+  /** Returns the current number of mutations that can be in flight. */
+  public long getWindow() {
+    synchronized (lock) {
+      return window;
+    }
+  }
+
+  /** Returns the number of mutations that are in flight. */
+  public long getOutstanding() {
+    synchronized (lock) {
+      return outstanding;
+    }
+  }
+
+  /** Returns the number of MutateRows calls that completed. */
+  public long getRpcCount() {
+    synchronized (lock) {
+      return rpcCount;
+    }
+  }
+
+  /** Returns the number of retry attempts of the completed MutateRows calls. */
+  public long getRetryCount() {
+    synchronized (lock) {
+      return retryCount;
+    }
+  }
+}
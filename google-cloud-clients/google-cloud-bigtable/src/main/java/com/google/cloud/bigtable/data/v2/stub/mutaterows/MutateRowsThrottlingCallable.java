@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.stub.mutaterows;
+
+import com.google.api.core.ApiClock;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.InternalApi;
+import com.google.api.gax.retrying.RetryingFuture;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.bigtable.v2.MutateRowsRequest;
+
+/**
+ * Reports the latency and the retries of each batched MutateRows call to a {@link
+ * MutateRowsThrottler}.
+ *
+ * <p>This class is considered an internal implementation detail and not meant to be used by
+ * applications.
+ */
+@InternalApi
+public class MutateRowsThrottlingCallable extends UnaryCallable<MutateRowsRequest, Void> {
+  private final MutateRowsRetryingCallable inner;
+  private final MutateRowsThrottler throttler;
+  private final ApiClock clock;
+
+  public MutateRowsThrottlingCallable(
+      MutateRowsRetryingCallable inner, MutateRowsThrottler throttler, ApiClock clock) {
+    this.inner = inner;
+    this.throttler = throttler;
+    this.clock = clock;
+  }
+
+  @Override
+  public ApiFuture<Void> futureCall(MutateRowsRequest request, ApiCallContext context) {
+    final long startNanos = clock.nanoTime();
+    final RetryingFuture<Void> future = inner.futureCall(request, context);
+
+    ApiFutures.addCallback(
+        future,
+        new ApiFutureCallback<Void>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            onComplete();
+          }
+
+          @Override
+          public void onSuccess(Void result) {
+            onComplete();
+          }
+
+          private void onComplete() {
+            throttler.onRpcComplete(
+                clock.nanoTime() - startNanos, future.getAttemptSettings().getAttemptCount());
+          }
+        });
+
+    return future;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.stub.readrows;
+
+import com.google.api.core.ApiFunction;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.InternalApi;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.bigtable.v2.ReadRowsRequest;
+import com.google.cloud.bigtable.data.v2.models.Row;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the rows of a {@link ReadRowsRequest} that selects individual row keys, and lines them up
+ * with the requested keys: the result has one entry per requested key, in request order, which is
+ * null when the row doesn't exist. Keys that are requested several times get the same row.
+ *
+ * <p>This class is considered an internal implementation detail and not meant to be used by
+ * applications.
+ */
+@InternalApi
+public class BulkReadRowsCallable extends UnaryCallable<ReadRowsRequest, List<Row>> {
+  private final UnaryCallable<ReadRowsRequest, List<Row>> inner;
+
+  public BulkReadRowsCallable(UnaryCallable<ReadRowsRequest, List<Row>> inner) {
+    this.inner = inner;
+  }
+
+  @Override
+  public ApiFuture<List<Row>> futureCall(final ReadRowsRequest request, ApiCallContext context) {
+    return ApiFutures.transform(
+        inner.futureCall(request, context),
+        new ApiFunction<List<Row>, List<Row>>() {
+          @Override
+          public List<Row> apply(List<Row> rows) {
+            return lineUp(request.getRows().getRowKeysList(), rows);
+          }
+        });
+  }
+
+  private static List<Row> lineUp(List<ByteString> keys, List<Row> rows) {
+    Map<ByteString, Row> rowsByKey = new HashMap<>();
+    for (Row row : rows) {
+      rowsByKey.put(row.getKey(), row);
+    }
+
+    // Can't use an ImmutableList: missing rows are null.
+    List<Row> results = new ArrayList<>(keys.size());
+    for (ByteString key : keys) {
+      results.add(rowsByKey.get(key));
+    }
+    return results;
+  }
+}
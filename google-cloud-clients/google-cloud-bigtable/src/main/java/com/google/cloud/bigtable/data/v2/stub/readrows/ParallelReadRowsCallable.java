@@ -0,0 +1,390 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.stub.readrows;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.InternalApi;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.api.gax.rpc.StreamController;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.bigtable.data.v2.models.KeyOffset;
+import com.google.cloud.bigtable.data.v2.models.Query;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Reads the rows of a {@link Query} with several concurrent ReadRows streams.
+ *
+ * <p>The table's row keys are sampled first, and the query is split at the sampled keys with
+ * {@link Query#shard(List)}. Up to {@code parallelism} shards are then read at once, each through
+ * the regular ReadRows callable chain, so each shard is resumed on its own by {@link
+ * ReadRowsResumptionStrategy} when its stream breaks.
+ *
+ * <p>In ordered mode, rows are delivered in key order: a shard's rows are buffered until all the
+ * shards before it have been delivered. Otherwise rows are delivered as they arrive, and are only
+ * ordered within a shard. Either way, each shard buffers at most {@link #ROWS_BUFFERED_PER_SHARD}
+ * undelivered rows, and the outer stream supports manual flow control.
+ *
+ * <p>This class is considered an internal implementation detail and not meant to be used by
+ * applications.
+ */
+@InternalApi
+public class ParallelReadRowsCallable<RowT> extends ServerStreamingCallable<Query, RowT> {
+  @VisibleForTesting static final int ROWS_BUFFERED_PER_SHARD = 100;
+
+  private final ServerStreamingCallable<Query, RowT> readRowsCallable;
+  private final UnaryCallable<String, List<KeyOffset>> sampleRowKeysCallable;
+  private final int parallelism;
+  private final boolean ordered;
+
+  public ParallelReadRowsCallable(
+      ServerStreamingCallable<Query, RowT> readRowsCallable,
+      UnaryCallable<String, List<KeyOffset>> sampleRowKeysCallable,
+      int parallelism,
+      boolean ordered) {
+    Preconditions.checkArgument(parallelism > 0, "parallelism must be positive.");
+    this.readRowsCallable = readRowsCallable;
+    this.sampleRowKeysCallable = sampleRowKeysCallable;
+    this.parallelism = parallelism;
+    this.ordered = ordered;
+  }
+
+  @Override
+  public void call(Query query, ResponseObserver<RowT> responseObserver, ApiCallContext context) {
+    new Scan(query, responseObserver, context).start();
+  }
+
+  /** The state of a single parallel scan, which is also the controller of the outer stream. */
+  private class Scan implements StreamController {
+    private final Object lock = new Object();
+    private final Query query;
+    private final ResponseObserver<RowT> outerObserver;
+    private final ApiCallContext context;
+    private ApiFuture<List<KeyOffset>> sampleFuture;
+
+    @GuardedBy("lock")
+    private boolean started;
+
+    @GuardedBy("lock")
+    private boolean autoFlowControl = true;
+
+    @GuardedBy("lock")
+    private long demand;
+
+    // Whether a thread is delivering rows to the outer observer.
+    @GuardedBy("lock")
+    private boolean delivering;
+
+    // Whether the outer observer was, or is about to be, notified of the end of the stream.
+    @GuardedBy("lock")
+    private boolean done;
+
+    @GuardedBy("lock")
+    private Throwable error;
+
+    // Null until the row keys are sampled.
+    @GuardedBy("lock")
+    private List<Shard> shards;
+
+    // Shards before this one are all started.
+    @GuardedBy("lock")
+    private int nextShard;
+
+    // Shards before this one are all completed and delivered.
+    @GuardedBy("lock")
+    private int firstActiveShard;
+
+    @GuardedBy("lock")
+    private int activeShards;
+
+    Scan(Query query, ResponseObserver<RowT> outerObserver, ApiCallContext context) {
+      this.query = query;
+      this.outerObserver = outerObserver;
+      this.context = context;
+    }
+
+    void start() {
+      outerObserver.onStart(this);
+      synchronized (lock) {
+        started = true;
+      }
+      sampleFuture = sampleRowKeysCallable.futureCall(query.getTableId(), context);
+      ApiFutures.addCallback(
+          sampleFuture,
+          new ApiFutureCallback<List<KeyOffset>>() {
+            @Override
+            public void onFailure(Throwable t) {
+              fail(t);
+            }
+
+            @Override
+            public void onSuccess(List<KeyOffset> sampledRowKeys) {
+              List<Shard> newShards = new ArrayList<>();
+              for (Query shardQuery : query.shard(sampledRowKeys)) {
+                newShards.add(new Shard(shardQuery));
+              }
+              synchronized (lock) {
+                shards = newShards;
+              }
+              startShards();
+              deliver();
+            }
+          },
+          MoreExecutors.directExecutor());
+    }
+
+    @Override
+    public void disableAutoInboundFlowControl() {
+      synchronized (lock) {
+        Preconditions.checkState(
+            !started, "Can't disable automatic flow control once the stream has started.");
+        autoFlowControl = false;
+      }
+    }
+
+    @Override
+    public void request(int count) {
+      Preconditions.checkArgument(count > 0, "Count must be > 0.");
+      synchronized (lock) {
+        Preconditions.checkState(!autoFlowControl, "Auto flow control is enabled.");
+        demand += count;
+      }
+      deliver();
+    }
+
+    @Override
+    public void cancel() {
+      fail(new CancellationException("User cancelled stream"));
+    }
+
+    /** Fails the outer stream and cancels the shards that are still running. */
+    private void fail(Throwable t) {
+      List<Shard> toCancel;
+      synchronized (lock) {
+        if (error != null || done) {
+          return;
+        }
+        error = t;
+        toCancel = shards == null ? new ArrayList<Shard>() : shards.subList(0, nextShard);
+      }
+      if (sampleFuture != null) {
+        sampleFuture.cancel(true);
+      }
+      for (Shard shard : toCancel) {
+        shard.cancel();
+      }
+      deliver();
+    }
+
+    /** Starts shards until parallelism of them are active. */
+    private void startShards() {
+      List<Shard> toStart = new ArrayList<>();
+      synchronized (lock) {
+        if (shards == null || error != null) {
+          return;
+        }
+        while (activeShards < parallelism && nextShard < shards.size()) {
+          toStart.add(shards.get(nextShard++));
+          activeShards++;
+        }
+      }
+      for (Shard shard : toStart) {
+        readRowsCallable.call(shard.query, shard, context);
+      }
+    }
+
+    /**
+     * Delivers buffered rows, errors and the completion of the stream to the outer observer. Only
+     * one thread delivers at a time, the others just update the state that it looks at.
+     */
+    private void deliver() {
+      synchronized (lock) {
+        if (delivering) {
+          return;
+        }
+        delivering = true;
+      }
+      while (true) {
+        RowT row;
+        Shard source;
+        synchronized (lock) {
+          if (done) {
+            delivering = false;
+            return;
+          }
+          if (error != null) {
+            done = true;
+          } else if (shards != null && nextShard == shards.size() && activeShards == 0) {
+            done = true;
+          }
+          source = done || (!autoFlowControl && demand == 0) ? null : nextReadyShard();
+          if (done) {
+            row = null;
+          } else if (source == null) {
+            delivering = false;
+            return;
+          } else {
+            row = source.buffer.poll();
+            if (!autoFlowControl) {
+              demand--;
+            }
+          }
+        }
+        if (row == null) {
+          Throwable failure;
+          synchronized (lock) {
+            failure = error;
+          }
+          if (failure != null) {
+            outerObserver.onError(failure);
+          } else {
+            outerObserver.onComplete();
+          }
+          return;
+        }
+        outerObserver.onResponse(row);
+        source.onRowDelivered();
+      }
+    }
+
+    /** Returns the shard whose buffered rows should be delivered next, if any. */
+    @GuardedBy("lock")
+    private Shard nextReadyShard() {
+      while (firstActiveShard < nextShard && shards.get(firstActiveShard).retired) {
+        firstActiveShard++;
+      }
+      for (int i = firstActiveShard; i < nextShard; i++) {
+        Shard shard = shards.get(i);
+        if (!shard.buffer.isEmpty()) {
+          return shard;
+        }
+        if (ordered && !shard.retired) {
+          // The rows of the following shards have to wait for this one.
+          return null;
+        }
+      }
+      return null;
+    }
+
+    /** A ReadRows stream over one shard of the query. */
+    private class Shard implements ResponseObserver<RowT> {
+      private final Query query;
+
+      @GuardedBy("lock")
+      private final ArrayDeque<RowT> buffer = new ArrayDeque<>();
+
+      @GuardedBy("lock")
+      private StreamController controller;
+
+      @GuardedBy("lock")
+      private boolean complete;
+
+      // Complete, and all of its rows were delivered.
+      @GuardedBy("lock")
+      private boolean retired;
+
+      Shard(Query query) {
+        this.query = query;
+      }
+
+      @Override
+      public void onStart(StreamController controller) {
+        controller.disableAutoInboundFlowControl();
+        boolean cancelled;
+        synchronized (lock) {
+          this.controller = controller;
+          cancelled = error != null;
+        }
+        if (cancelled) {
+          controller.cancel();
+        } else {
+          controller.request(ROWS_BUFFERED_PER_SHARD);
+        }
+      }
+
+      @Override
+      public void onResponse(RowT row) {
+        synchronized (lock) {
+          buffer.add(row);
+        }
+        deliver();
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        fail(t);
+      }
+
+      @Override
+      public void onComplete() {
+        synchronized (lock) {
+          complete = true;
+          retireIfDrained();
+        }
+        startShards();
+        deliver();
+      }
+
+      /** Replaces the delivered row, or frees up a slot for the next shard. */
+      void onRowDelivered() {
+        StreamController toRequest = null;
+        boolean retiredNow;
+        synchronized (lock) {
+          if (!complete) {
+            toRequest = controller;
+          }
+          retiredNow = retireIfDrained();
+        }
+        if (toRequest != null) {
+          toRequest.request(1);
+        }
+        if (retiredNow) {
+          startShards();
+        }
+      }
+
+      @GuardedBy("lock")
+      private boolean retireIfDrained() {
+        if (complete && buffer.isEmpty() && !retired) {
+          retired = true;
+          activeShards--;
+          return true;
+        }
+        return false;
+      }
+
+      void cancel() {
+        StreamController toCancel;
+        synchronized (lock) {
+          toCancel = complete ? null : controller;
+        }
+        if (toCancel != null) {
+          toCancel.cancel();
+        }
+      }
+    }
+  }
+}
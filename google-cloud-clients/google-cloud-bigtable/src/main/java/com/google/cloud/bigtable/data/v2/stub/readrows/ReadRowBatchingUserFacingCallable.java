@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.stub.readrows;
+
+import com.google.api.core.ApiFunction;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.InternalApi;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.bigtable.v2.ReadRowsRequest;
+import com.google.cloud.bigtable.data.v2.internal.RequestContext;
+import com.google.cloud.bigtable.data.v2.models.Query;
+import com.google.cloud.bigtable.data.v2.models.Row;
+import com.google.common.base.Preconditions;
+import java.util.List;
+
+/**
+ * Simple wrapper for batched point reads to wrap the request protobuf and unwrap the single row of
+ * the response. The {@link Query} must select exactly one row key, and may not have a limit.
+ *
+ * <p>This class is considered an internal implementation detail and not meant to be used by
+ * applications.
+ */
+@InternalApi
+public class ReadRowBatchingUserFacingCallable extends UnaryCallable<Query, Row> {
+  private final UnaryCallable<ReadRowsRequest, List<Row>> inner;
+  private final RequestContext requestContext;
+
+  public ReadRowBatchingUserFacingCallable(
+      UnaryCallable<ReadRowsRequest, List<Row>> inner, RequestContext requestContext) {
+    this.inner = inner;
+    this.requestContext = requestContext;
+  }
+
+  @Override
+  public ApiFuture<Row> futureCall(Query query, ApiCallContext context) {
+    ReadRowsRequest request = query.toProto(requestContext);
+    Preconditions.checkArgument(
+        request.getRows().getRowKeysCount() == 1 && request.getRows().getRowRangesCount() == 0,
+        "Batched reads must select exactly one row key.");
+    Preconditions.checkArgument(
+        request.getRowsLimit() == 0, "Batched reads can't have a limit.");
+
+    return ApiFutures.transform(
+        inner.futureCall(request, context),
+        new ApiFunction<List<Row>, Row>() {
+          @Override
+          public Row apply(List<Row> rows) {
+            return rows.get(0);
+          }
+        });
+  }
+}
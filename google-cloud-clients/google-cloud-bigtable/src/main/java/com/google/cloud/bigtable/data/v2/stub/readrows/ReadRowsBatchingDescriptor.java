@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.stub.readrows;
+
+import com.google.api.core.InternalApi;
+import com.google.api.gax.batching.PartitionKey;
+import com.google.api.gax.batching.RequestBuilder;
+import com.google.api.gax.rpc.BatchedRequestIssuer;
+import com.google.api.gax.rpc.BatchingDescriptor;
+import com.google.bigtable.v2.ReadRowsRequest;
+import com.google.cloud.bigtable.data.v2.models.Row;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A {@link BatchingDescriptor} that coalesces point reads into a single ReadRows request with many
+ * row keys.
+ *
+ * <p>The batched response is expected to contain one entry per requested row key, in request order,
+ * as produced by {@link BulkReadRowsCallable}. Each issuer gets back the slice that corresponds to
+ * its own row keys.
+ *
+ * <p>This class is considered an internal implementation detail and not meant to be used by
+ * applications.
+ */
+@InternalApi
+public class ReadRowsBatchingDescriptor implements BatchingDescriptor<ReadRowsRequest, List<Row>> {
+  /**
+   * Returns the target table, app profile and filter. Only requests that agree on all three can be
+   * combined.
+   */
+  @Override
+  public PartitionKey getBatchPartitionKey(ReadRowsRequest request) {
+    return new PartitionKey(request.getTableName(), request.getAppProfileId(), request.getFilter());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public RequestBuilder<ReadRowsRequest> getRequestBuilder() {
+    return new MyRequestBuilder();
+  }
+
+  @Override
+  public void splitResponse(
+      List<Row> batchResponse, Collection<? extends BatchedRequestIssuer<List<Row>>> batch) {
+    int i = 0;
+    for (BatchedRequestIssuer<List<Row>> issuer : batch) {
+      int count = (int) issuer.getMessageCount();
+      issuer.setResponse(new ArrayList<>(batchResponse.subList(i, i + count)));
+      i += count;
+    }
+  }
+
+  @Override
+  public void splitException(
+      Throwable throwable, Collection<? extends BatchedRequestIssuer<List<Row>>> batch) {
+    for (BatchedRequestIssuer<List<Row>> issuer : batch) {
+      issuer.setException(throwable);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long countElements(ReadRowsRequest request) {
+    return request.getRows().getRowKeysCount();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long countBytes(ReadRowsRequest request) {
+    return request.getSerializedSize();
+  }
+
+  /** A {@link RequestBuilder} that appends the row keys of ReadRowsRequests. */
+  static class MyRequestBuilder implements RequestBuilder<ReadRowsRequest> {
+    private ReadRowsRequest.Builder builder;
+
+    @Override
+    public void appendRequest(ReadRowsRequest request) {
+      if (builder == null) {
+        builder = request.toBuilder();
+      } else {
+        builder.getRowsBuilder().addAllRowKeys(request.getRows().getRowKeysList());
+      }
+    }
+
+    @Override
+    public ReadRowsRequest build() {
+      return builder.build();
+    }
+  }
+}
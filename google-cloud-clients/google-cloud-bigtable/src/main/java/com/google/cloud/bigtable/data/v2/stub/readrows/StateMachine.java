@@ -355,9 +355,11 @@ final class StateMachine<RowT> {
           validate(chunk.getLabelsCount() == 0, "AWAITING_CELL_VALUE: can't have labels");
           if (isLast) {
             long missingBytes = remainingCellBytes - chunk.getValue().size();
-            validate(
-                missingBytes == 0,
-                "AWAITING_CELL_VALUE: terminal cell is missing " + missingBytes + " bytes");
+            // Only build the message on failure, this is called for every split cell.
+            if (missingBytes != 0) {
+              throw new InvalidInputException(
+                  "AWAITING_CELL_VALUE: terminal cell is missing " + missingBytes + " bytes");
+            }
           } else {
             validate(
                 expectedCellSize == chunk.getValueSize(),
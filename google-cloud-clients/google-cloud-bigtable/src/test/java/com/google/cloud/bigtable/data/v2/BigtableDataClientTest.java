@@ -18,6 +18,7 @@ package com.google.cloud.bigtable.data.v2;
 import static com.google.common.truth.Truth.assertThat;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.NanoClock;
 import com.google.api.core.SettableApiFuture;
 import com.google.api.gax.grpc.GrpcStatusCode;
 import com.google.api.gax.rpc.ApiException;
@@ -30,6 +31,8 @@ import com.google.cloud.bigtable.data.v2.internal.RequestContext;
 import com.google.cloud.bigtable.data.v2.models.BulkMutation;
 import com.google.cloud.bigtable.data.v2.models.BulkMutationBatcher;
 import com.google.cloud.bigtable.data.v2.models.BulkMutationBatcher.BulkMutationFailure;
+import com.google.cloud.bigtable.data.v2.models.BulkMutationStats;
+import com.google.cloud.bigtable.data.v2.models.BulkReadRowsBatcher;
 import com.google.cloud.bigtable.data.v2.models.ConditionalRowMutation;
 import com.google.cloud.bigtable.data.v2.models.InstanceName;
 import com.google.cloud.bigtable.data.v2.models.KeyOffset;
@@ -39,6 +42,7 @@ import com.google.cloud.bigtable.data.v2.models.ReadModifyWriteRow;
 import com.google.cloud.bigtable.data.v2.models.Row;
 import com.google.cloud.bigtable.data.v2.models.RowMutation;
 import com.google.cloud.bigtable.data.v2.stub.EnhancedBigtableStub;
+import com.google.cloud.bigtable.data.v2.stub.mutaterows.MutateRowsThrottler;
 import com.google.protobuf.ByteString;
 import io.grpc.Status.Code;
 import java.util.List;
@@ -66,6 +70,8 @@ public class BigtableDataClientTest {
   @Mock private UnaryCallable<ReadModifyWriteRow, Row> mockReadModifyWriteRowCallable;
   @Mock private UnaryCallable<BulkMutation, Void> mockBulkMutateRowsCallable;
   @Mock private UnaryCallable<RowMutation, Void> mockBulkMutateRowsBatchingCallable;
+  @Mock private UnaryCallable<Query, Row> mockBulkReadRowsBatchingCallable;
+  private MutateRowsThrottler throttler;
 
   private BigtableDataClient bigtableDataClient;
 
@@ -78,6 +84,10 @@ public class BigtableDataClientTest {
     Mockito.when(mockStub.bulkMutateRowsCallable()).thenReturn(mockBulkMutateRowsCallable);
     Mockito.when(mockStub.bulkMutateRowsBatchingCallable())
         .thenReturn(mockBulkMutateRowsBatchingCallable);
+    throttler = new MutateRowsThrottler(NanoClock.getDefaultClock(), null, 1, 2);
+    Mockito.when(mockStub.bulkMutateRowsThrottler()).thenReturn(throttler);
+    Mockito.when(mockStub.bulkReadRowsBatchingCallable())
+        .thenReturn(mockBulkReadRowsBatchingCallable);
     Mockito.when(mockStub.checkAndMutateRowCallable()).thenReturn(mockCheckAndMutateRowCallable);
     Mockito.when(mockStub.readModifyWriteRowCallable()).thenReturn(mockReadModifyWriteRowCallable);
   }
@@ -131,6 +141,25 @@ public class BigtableDataClientTest {
                 .build());
   }
 
+  @Test
+  public void proxyReadRowsParallelCallableTest() {
+    Mockito.when(mockStub.createParallelReadRowsCallable(8, false))
+        .thenReturn(mockReadRowsCallable);
+
+    assertThat(bigtableDataClient.readRowsParallelCallable(8, false))
+        .isSameAs(mockReadRowsCallable);
+  }
+
+  @Test
+  public void proxyReadRowsParallelTest() {
+    Mockito.when(mockStub.createParallelReadRowsCallable(8, true))
+        .thenReturn(mockReadRowsCallable);
+    Query query = Query.create("fake-table");
+    bigtableDataClient.readRowsParallel(query, 8);
+
+    Mockito.verify(mockReadRowsCallable).call(query);
+  }
+
   @Test
   public void proxyReadRowsSyncTest() {
     Query query = Query.create("fake-table");
@@ -231,6 +260,103 @@ public class BigtableDataClientTest {
     batcher.close(Duration.ofMillis(20));
   }
 
+  @Test
+  public void proxyBulkReadRowsBatchingSendTest() {
+    BulkReadRowsBatcher batcher = bigtableDataClient.newBulkReadRowsBatcher();
+
+    SettableApiFuture<Row> innerResult = SettableApiFuture.create();
+    ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+    Mockito.when(mockBulkReadRowsBatchingCallable.futureCall(queryCaptor.capture()))
+        .thenReturn(innerResult);
+
+    ApiFuture<Row> actualResult = batcher.add("fake-table", "some-key");
+    assertThat(actualResult).isSameAs(innerResult);
+
+    RequestContext requestContext =
+        RequestContext.create(InstanceName.of("fake-project", "fake-instance"), "fake-profile");
+    assertThat(queryCaptor.getValue().toProto(requestContext).getRows())
+        .isEqualTo(RowSet.newBuilder().addRowKeys(ByteString.copyFromUtf8("some-key")).build());
+  }
+
+  @Test
+  public void bulkReadRowsBatchingCloseTest() throws Exception {
+    BulkReadRowsBatcher batcher = bigtableDataClient.newBulkReadRowsBatcher();
+
+    SettableApiFuture<Row> innerResult = SettableApiFuture.create();
+    Mockito.when(mockBulkReadRowsBatchingCallable.futureCall(Mockito.any(Query.class)))
+        .thenReturn(innerResult);
+
+    batcher.add("fake-table", "some-key");
+
+    // Close will timeout while the request is outstanding.
+    Throwable error = null;
+    try {
+      batcher.close(Duration.ofMillis(20));
+    } catch (Throwable t) {
+      error = t;
+    }
+    assertThat(error).isInstanceOf(TimeoutException.class);
+
+    // A missing row resolves the request
+    innerResult.set(null);
+
+    // Now, close will promptly finish
+    batcher.close(Duration.ofMillis(20));
+
+    error = null;
+    try {
+      batcher.add("fake-table", "some-key");
+    } catch (Throwable t) {
+      error = t;
+    }
+    assertThat(error).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void bulkMutationsBatchingStatsTest() {
+    BulkMutationBatcher batcher = bigtableDataClient.newBulkMutationBatcher();
+
+    SettableApiFuture<Void> innerResult = SettableApiFuture.create();
+    Mockito.when(mockBulkMutateRowsBatchingCallable.futureCall(Mockito.any(RowMutation.class)))
+        .thenReturn(innerResult);
+
+    batcher.add(RowMutation.create("fake-table", "some-key"));
+    throttler.onRpcComplete(0, 2);
+
+    BulkMutationStats stats = batcher.getStats();
+    assertThat(stats.getOutstandingMutations()).isEqualTo(1);
+    assertThat(stats.getWindow()).isEqualTo(2);
+    assertThat(stats.getRpcCount()).isEqualTo(1);
+    assertThat(stats.getRetryCount()).isEqualTo(2);
+    assertThat(throttler.getOutstanding()).isEqualTo(1);
+
+    innerResult.set(null);
+    assertThat(batcher.getStats().getOutstandingMutations()).isEqualTo(0);
+    assertThat(throttler.getOutstanding()).isEqualTo(0);
+  }
+
+  @Test
+  public void bulkMutationsBatchingFlowControlFailureTest() throws Exception {
+    BulkMutationBatcher batcher = bigtableDataClient.newBulkMutationBatcher();
+
+    RuntimeException flowControlError = new RuntimeException("fake flow control error");
+    Mockito.when(mockBulkMutateRowsBatchingCallable.futureCall(Mockito.any(RowMutation.class)))
+        .thenThrow(flowControlError);
+
+    Throwable error = null;
+    try {
+      batcher.add(RowMutation.create("fake-table", "some-key"));
+    } catch (Throwable t) {
+      error = t;
+    }
+    assertThat(error).isSameAs(flowControlError);
+
+    // The rejected mutation is not outstanding, so close finishes promptly.
+    assertThat(batcher.getStats().getOutstandingMutations()).isEqualTo(0);
+    assertThat(throttler.getOutstanding()).isEqualTo(0);
+    batcher.close(Duration.ofMillis(20));
+  }
+
   @Test
   public void bulkMutationsBatchingNoSendAfterCloseTest()
       throws InterruptedException, TimeoutException {
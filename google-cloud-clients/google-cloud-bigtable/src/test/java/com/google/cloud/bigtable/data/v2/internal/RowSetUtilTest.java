@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.bigtable.v2.RowRange;
+import com.google.bigtable.v2.RowSet;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.protobuf.ByteString;
+import java.util.List;
+import java.util.SortedSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class RowSetUtilTest {
+  private static ByteString key(String key) {
+    return ByteString.copyFromUtf8(key);
+  }
+
+  private static SortedSet<ByteString> splitPoints(String... keys) {
+    ImmutableSortedSet.Builder<ByteString> builder =
+        ImmutableSortedSet.orderedBy(ByteStringComparator.INSTANCE);
+    for (String k : keys) {
+      builder.add(key(k));
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void noSplitPointsTest() {
+    RowSet rowSet = RowSet.newBuilder().addRowKeys(key("a")).build();
+
+    assertThat(RowSetUtil.split(rowSet, splitPoints())).containsExactly(rowSet);
+  }
+
+  @Test
+  public void emptyRowSetIsFullTableTest() {
+    List<RowSet> segments = RowSetUtil.split(RowSet.getDefaultInstance(), splitPoints("m"));
+
+    assertThat(segments)
+        .containsExactly(
+            RowSet.newBuilder()
+                .addRowRanges(RowRange.newBuilder().setEndKeyOpen(key("m")))
+                .build(),
+            RowSet.newBuilder()
+                .addRowRanges(RowRange.newBuilder().setStartKeyClosed(key("m")))
+                .build())
+        .inOrder();
+  }
+
+  @Test
+  public void keysTest() {
+    RowSet rowSet =
+        RowSet.newBuilder().addRowKeys(key("a")).addRowKeys(key("m")).addRowKeys(key("z")).build();
+
+    assertThat(RowSetUtil.split(rowSet, splitPoints("b", "m", "n")))
+        .containsExactly(
+            RowSet.newBuilder().addRowKeys(key("a")).build(),
+            RowSet.newBuilder().addRowKeys(key("m")).build(),
+            RowSet.newBuilder().addRowKeys(key("z")).build())
+        .inOrder();
+  }
+
+  @Test
+  public void boundsAreKeptWhenStricterTest() {
+    RowSet rowSet =
+        RowSet.newBuilder()
+            .addRowRanges(
+                RowRange.newBuilder().setStartKeyOpen(key("m")).setEndKeyClosed(key("q")))
+            .build();
+
+    assertThat(RowSetUtil.split(rowSet, splitPoints("m", "r"))).containsExactly(rowSet);
+  }
+
+  @Test
+  public void closedEndAtSplitPointTest() {
+    RowSet rowSet =
+        RowSet.newBuilder()
+            .addRowRanges(
+                RowRange.newBuilder().setStartKeyClosed(key("a")).setEndKeyClosed(key("m")))
+            .build();
+
+    assertThat(RowSetUtil.split(rowSet, splitPoints("m")))
+        .containsExactly(
+            RowSet.newBuilder()
+                .addRowRanges(
+                    RowRange.newBuilder().setStartKeyClosed(key("a")).setEndKeyOpen(key("m")))
+                .build(),
+            RowSet.newBuilder()
+                .addRowRanges(
+                    RowRange.newBuilder().setStartKeyClosed(key("m")).setEndKeyClosed(key("m")))
+                .build())
+        .inOrder();
+  }
+
+  @Test
+  public void openEndAtSplitPointTest() {
+    RowSet rowSet =
+        RowSet.newBuilder()
+            .addRowRanges(
+                RowRange.newBuilder().setStartKeyClosed(key("a")).setEndKeyOpen(key("m")))
+            .build();
+
+    assertThat(RowSetUtil.split(rowSet, splitPoints("m"))).containsExactly(rowSet);
+  }
+
+  @Test
+  public void emptySegmentsAreSkippedTest() {
+    RowSet rowSet =
+        RowSet.newBuilder()
+            .addRowRanges(
+                RowRange.newBuilder().setStartKeyClosed(key("c")).setEndKeyOpen(key("e")))
+            .build();
+
+    assertThat(RowSetUtil.split(rowSet, splitPoints("a", "b", "d", "x")))
+        .containsExactly(
+            RowSet.newBuilder()
+                .addRowRanges(
+                    RowRange.newBuilder().setStartKeyClosed(key("c")).setEndKeyOpen(key("d")))
+                .build(),
+            RowSet.newBuilder()
+                .addRowRanges(
+                    RowRange.newBuilder().setStartKeyClosed(key("d")).setEndKeyOpen(key("e")))
+                .build())
+        .inOrder();
+  }
+}
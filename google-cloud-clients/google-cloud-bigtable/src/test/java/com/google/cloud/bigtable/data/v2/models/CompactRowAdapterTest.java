@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.models;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.bigtable.data.v2.models.RowAdapter.RowBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CompactRowAdapterTest {
+
+  private final CompactRowAdapter adapter = new CompactRowAdapter();
+  private RowBuilder<CompactRow> rowBuilder;
+
+  @Before
+  public void setUp() {
+    rowBuilder = adapter.createRowBuilder();
+  }
+
+  private void addCell(
+      String family, String qualifier, long timestamp, List<String> labels, String... valueParts) {
+    int size = 0;
+    for (String part : valueParts) {
+      size += part.length();
+    }
+    rowBuilder.startCell(family, ByteString.copyFromUtf8(qualifier), timestamp, labels, size);
+    for (String part : valueParts) {
+      rowBuilder.cellValue(ByteString.copyFromUtf8(part));
+    }
+    rowBuilder.finishCell();
+  }
+
+  @Test
+  public void singleCellRowTest() {
+    rowBuilder.startRow(ByteString.copyFromUtf8("my-key"));
+    addCell("my-family", "my-qualifier", 100, ImmutableList.of("my-label"), "my-value");
+    CompactRow row = rowBuilder.finishRow();
+
+    assertThat(row.getKey()).isEqualTo(ByteString.copyFromUtf8("my-key"));
+    assertThat(row.getCellCount()).isEqualTo(1);
+    assertThat(row.getFamily(0)).isEqualTo("my-family");
+    assertThat(row.getQualifier(0)).isEqualTo(ByteString.copyFromUtf8("my-qualifier"));
+    assertThat(row.getTimestamp(0)).isEqualTo(100);
+    assertThat(row.getLabels(0)).containsExactly("my-label");
+    assertThat(row.getValue(0)).isEqualTo(ByteString.copyFromUtf8("my-value"));
+  }
+
+  @Test
+  public void matchesDefaultRowTest() {
+    RowBuilder<Row> defaultBuilder = new DefaultRowAdapter().createRowBuilder();
+    rowBuilder.startRow(ByteString.copyFromUtf8("my-key"));
+    defaultBuilder.startRow(ByteString.copyFromUtf8("my-key"));
+
+    // Enough cells to grow the builder's buffers, in families that are out of order.
+    for (String family : ImmutableList.of("f2", "f1")) {
+      for (int i = 0; i < 20; i++) {
+        ByteString qualifier = ByteString.copyFromUtf8(String.format("q%02d", i));
+        ByteString value = ByteString.copyFromUtf8(family + "-" + i);
+        List<String> labels =
+            i % 5 == 0 ? ImmutableList.of("label-" + i) : ImmutableList.<String>of();
+        for (RowBuilder<?> builder : ImmutableList.of(rowBuilder, defaultBuilder)) {
+          builder.startCell(family, qualifier, 1000 + i, labels, value.size());
+          builder.cellValue(value);
+          builder.finishCell();
+        }
+      }
+    }
+
+    Row expected = defaultBuilder.finishRow();
+    CompactRow row = rowBuilder.finishRow();
+
+    assertThat(row.toRow()).isEqualTo(expected);
+    assertThat(row.getFamily(0)).isEqualTo("f2");
+    assertThat(row.getLatestValue("f1", "q03")).isEqualTo(ByteString.copyFromUtf8("f1-3"));
+    assertThat(row.getLabels(5)).containsExactly("label-5");
+    assertThat(row.getLabels(6)).isEmpty();
+  }
+
+  @Test
+  public void splitCellTest() {
+    rowBuilder.startRow(ByteString.copyFromUtf8("my-key"));
+    addCell("family", "qualifier", 1000, ImmutableList.<String>of(), "part1", "part2");
+    CompactRow row = rowBuilder.finishRow();
+
+    assertThat(row.getValue(0)).isEqualTo(ByteString.copyFromUtf8("part1part2"));
+  }
+
+  @Test
+  public void builderIsReusedTest() {
+    rowBuilder.startRow(ByteString.copyFromUtf8("key1"));
+    addCell("family", "q1", 1000, ImmutableList.of("label"), "value1");
+    addCell("family", "q2", 1000, ImmutableList.<String>of(), "value2");
+    CompactRow row1 = rowBuilder.finishRow();
+
+    rowBuilder.startRow(ByteString.copyFromUtf8("key2"));
+    addCell("family", "q3", 1000, ImmutableList.<String>of(), "value3");
+    CompactRow row2 = rowBuilder.finishRow();
+
+    assertThat(row1.getCellCount()).isEqualTo(2);
+    assertThat(row1.getValue(1)).isEqualTo(ByteString.copyFromUtf8("value2"));
+    assertThat(row2.getKey()).isEqualTo(ByteString.copyFromUtf8("key2"));
+    assertThat(row2.getCellCount()).isEqualTo(1);
+    assertThat(row2.getQualifier(0)).isEqualTo(ByteString.copyFromUtf8("q3"));
+    assertThat(row2.getLabels(0)).isEmpty();
+  }
+
+  @Test
+  public void lookupTest() {
+    rowBuilder.startRow(ByteString.copyFromUtf8("my-key"));
+    addCell("a", "q1", 1000, ImmutableList.<String>of(), "a1");
+    addCell("b", "q1", 2000, ImmutableList.<String>of(), "b1-new");
+    addCell("b", "q1", 1000, ImmutableList.<String>of(), "b1-old");
+    addCell("b", "q2", 1000, ImmutableList.<String>of(), "b2");
+    CompactRow row = rowBuilder.finishRow();
+
+    assertThat(row.indexOfLatestCell("b", "q1")).isEqualTo(1);
+    assertThat(row.getLatestValue("b", "q1")).isEqualTo(ByteString.copyFromUtf8("b1-new"));
+    assertThat(row.getLatestValue("b", ByteString.copyFromUtf8("q2")))
+        .isEqualTo(ByteString.copyFromUtf8("b2"));
+    assertThat(row.indexOfLatestCell("a", "q2")).isEqualTo(-1);
+    assertThat(row.getLatestValue("c", "q1")).isNull();
+  }
+
+  @Test
+  public void markerRowTest() {
+    CompactRow markerRow = rowBuilder.createScanMarkerRow(ByteString.copyFromUtf8("key"));
+    assertThat(adapter.isScanMarkerRow(markerRow)).isTrue();
+    assertThat(adapter.getKey(markerRow)).isEqualTo(ByteString.copyFromUtf8("key"));
+
+    rowBuilder.startRow(ByteString.copyFromUtf8("key"));
+    addCell("family", "", 1000, ImmutableList.<String>of(), "value");
+
+    assertThat(adapter.isScanMarkerRow(rowBuilder.finishRow())).isFalse();
+  }
+}
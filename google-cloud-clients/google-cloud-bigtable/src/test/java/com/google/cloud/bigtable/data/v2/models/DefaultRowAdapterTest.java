@@ -128,4 +128,29 @@ public class DefaultRowAdapterTest {
 
     assertThat(adapter.isScanMarkerRow(rowBuilder.finishRow())).isFalse();
   }
+
+  @Test
+  public void builderIsReusedTest() {
+    ByteString value = ByteString.copyFromUtf8("value");
+    rowBuilder.startRow(ByteString.copyFromUtf8("key1"));
+    rowBuilder.startCell("family", ByteString.EMPTY, 1000, ImmutableList.<String>of(), 10);
+    rowBuilder.cellValue(value);
+    rowBuilder.cellValue(value);
+    rowBuilder.finishCell();
+    Row row1 = rowBuilder.finishRow();
+
+    rowBuilder.startRow(ByteString.copyFromUtf8("key2"));
+    rowBuilder.startCell(
+        "family", ByteString.EMPTY, 1000, ImmutableList.<String>of(), value.size());
+    rowBuilder.cellValue(value);
+    rowBuilder.finishCell();
+    Row row2 = rowBuilder.finishRow();
+
+    assertThat(row1.getCells()).hasSize(1);
+    assertThat(row1.getCells().get(0).getValue())
+        .isEqualTo(ByteString.copyFromUtf8("valuevalue"));
+    assertThat(row2.getKey()).isEqualTo(ByteString.copyFromUtf8("key2"));
+    assertThat(row2.getCells()).hasSize(1);
+    assertThat(row2.getCells().get(0).getValue()).isEqualTo(value);
+  }
 }
@@ -22,15 +22,18 @@ import com.google.bigtable.v2.ReadRowsRequest;
 import com.google.bigtable.v2.ReadRowsRequest.Builder;
 import com.google.bigtable.v2.RowFilter;
 import com.google.bigtable.v2.RowRange;
+import com.google.bigtable.v2.RowSet;
 import com.google.bigtable.v2.TableName;
 import com.google.cloud.bigtable.data.v2.internal.RequestContext;
 import com.google.cloud.bigtable.data.v2.models.Range.ByteStringRange;
+import com.google.common.collect.ImmutableList;
 import com.google.protobuf.ByteString;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -140,6 +143,80 @@ public class QueryTest {
     assertThat(actual.toProto(requestContext)).isEqualTo(expected.toProto(requestContext));
   }
 
+  @Test
+  public void shardTest() {
+    Query query =
+        Query.create(TABLE_NAME.getTable())
+            .rowKey("a")
+            .rowKey("c")
+            .range("b", "d")
+            .filter(FILTERS.family().exactMatch("cf"));
+
+    List<Query> shards =
+        query.shard(
+            ImmutableList.of(
+                KeyOffset.create(ByteString.copyFromUtf8("c"), 10),
+                KeyOffset.create(ByteString.EMPTY, 20)));
+
+    assertThat(shards).hasSize(2);
+    RowFilter expectedFilter = FILTERS.family().exactMatch("cf").toProto();
+    assertThat(shards.get(0).toProto(requestContext))
+        .isEqualTo(
+            expectedProtoBuilder()
+                .setFilter(expectedFilter)
+                .setRows(
+                    RowSet.newBuilder()
+                        .addRowKeys(ByteString.copyFromUtf8("a"))
+                        .addRowRanges(
+                            RowRange.newBuilder()
+                                .setStartKeyClosed(ByteString.copyFromUtf8("b"))
+                                .setEndKeyOpen(ByteString.copyFromUtf8("c"))))
+                .build());
+    assertThat(shards.get(1).toProto(requestContext))
+        .isEqualTo(
+            expectedProtoBuilder()
+                .setFilter(expectedFilter)
+                .setRows(
+                    RowSet.newBuilder()
+                        .addRowKeys(ByteString.copyFromUtf8("c"))
+                        .addRowRanges(
+                            RowRange.newBuilder()
+                                .setStartKeyClosed(ByteString.copyFromUtf8("c"))
+                                .setEndKeyOpen(ByteString.copyFromUtf8("d"))))
+                .build());
+  }
+
+  @Test
+  public void shardFullTableScanTest() {
+    List<Query> shards =
+        Query.create(TABLE_NAME.getTable())
+            .shard(ImmutableList.of(KeyOffset.create(ByteString.copyFromUtf8("m"), 10)));
+
+    assertThat(shards).hasSize(2);
+    assertThat(shards.get(0).toProto(requestContext).getRows())
+        .isEqualTo(
+            RowSet.newBuilder()
+                .addRowRanges(RowRange.newBuilder().setEndKeyOpen(ByteString.copyFromUtf8("m")))
+                .build());
+    assertThat(shards.get(1).toProto(requestContext).getRows())
+        .isEqualTo(
+            RowSet.newBuilder()
+                .addRowRanges(
+                    RowRange.newBuilder().setStartKeyClosed(ByteString.copyFromUtf8("m")))
+                .build());
+  }
+
+  @Test
+  public void shardWithLimitTest() {
+    Query query = Query.create(TABLE_NAME.getTable()).range("a", "z").limit(10);
+
+    List<Query> shards =
+        query.shard(ImmutableList.of(KeyOffset.create(ByteString.copyFromUtf8("m"), 10)));
+
+    assertThat(shards).hasSize(1);
+    assertThat(shards.get(0).toProto(requestContext)).isEqualTo(query.toProto(requestContext));
+  }
+
   private static ReadRowsRequest.Builder expectedProtoBuilder() {
     return ReadRowsRequest.newBuilder()
         .setTableName(TABLE_NAME.toString())
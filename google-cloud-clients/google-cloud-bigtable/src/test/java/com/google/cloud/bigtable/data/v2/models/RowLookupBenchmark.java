@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.models;
+
+import com.google.cloud.bigtable.data.v2.models.RowAdapter.RowBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures column lookups in a wide row of 10 families of 1000 columns, with a linear scan of
+ * {@link Row#getCells()}, with {@link Row#getLatestCell(String, ByteString)} and with {@link
+ * CompactRow#getLatestValue(String, ByteString)}. Also measures building the row with {@link
+ * DefaultRowAdapter} and {@link CompactRowAdapter}.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.args="RowLookupBenchmark -prof gc"} to also see the allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowLookupBenchmark {
+  private static final int FAMILIES = 10;
+  private static final int QUALIFIERS = 1_000;
+  private static final int LOOKUPS = 100;
+
+  private final ByteString key = ByteString.copyFromUtf8("row-key");
+  private final String[] families = new String[FAMILIES];
+  private final ByteString[] qualifiers = new ByteString[QUALIFIERS];
+  private final ByteString value = ByteString.copyFromUtf8("some-value");
+
+  private final String[] lookupFamilies = new String[LOOKUPS];
+  private final ByteString[] lookupQualifiers = new ByteString[LOOKUPS];
+
+  // Builders are reused across the rows of a stream.
+  private final RowBuilder<Row> rowBuilder = new DefaultRowAdapter().createRowBuilder();
+  private final RowBuilder<CompactRow> compactRowBuilder =
+      new CompactRowAdapter().createRowBuilder();
+
+  private Row row;
+  private CompactRow compactRow;
+
+  @Setup
+  public void setUp() {
+    for (int i = 0; i < FAMILIES; i++) {
+      families[i] = "family-" + i;
+    }
+    for (int i = 0; i < QUALIFIERS; i++) {
+      qualifiers[i] = ByteString.copyFromUtf8(String.format("qualifier-%05d", i));
+    }
+    Random random = new Random(42);
+    for (int i = 0; i < LOOKUPS; i++) {
+      lookupFamilies[i] = families[random.nextInt(FAMILIES)];
+      // Copied, so that equals() can't short-circuit on identity.
+      lookupQualifiers[i] =
+          ByteString.copyFrom(qualifiers[random.nextInt(QUALIFIERS)].toByteArray());
+    }
+    row = build(rowBuilder);
+    compactRow = build(compactRowBuilder);
+  }
+
+  private <RowT> RowT build(RowBuilder<RowT> builder) {
+    builder.startRow(key);
+    for (String family : families) {
+      for (ByteString qualifier : qualifiers) {
+        builder.startCell(family, qualifier, 1000, ImmutableList.<String>of(), value.size());
+        builder.cellValue(value);
+        builder.finishCell();
+      }
+    }
+    return builder.finishRow();
+  }
+
+  @Benchmark
+  public void lookupLinearScan(Blackhole blackhole) {
+    List<RowCell> cells = row.getCells();
+    for (int i = 0; i < LOOKUPS; i++) {
+      for (RowCell cell : cells) {
+        if (cell.getFamily().equals(lookupFamilies[i])
+            && cell.getQualifier().equals(lookupQualifiers[i])) {
+          blackhole.consume(cell.getValue());
+          break;
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void lookupRow(Blackhole blackhole) {
+    for (int i = 0; i < LOOKUPS; i++) {
+      blackhole.consume(row.getLatestCell(lookupFamilies[i], lookupQualifiers[i]).getValue());
+    }
+  }
+
+  @Benchmark
+  public void lookupCompactRow(Blackhole blackhole) {
+    for (int i = 0; i < LOOKUPS; i++) {
+      blackhole.consume(compactRow.getLatestValue(lookupFamilies[i], lookupQualifiers[i]));
+    }
+  }
+
+  @Benchmark
+  public Row buildRow() {
+    return build(rowBuilder);
+  }
+
+  @Benchmark
+  public CompactRow buildCompactRow() {
+    return build(compactRowBuilder);
+  }
+}
@@ -92,4 +92,77 @@ public class RowTest {
     ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
     assertThat(ois.readObject()).isEqualTo(expected);
   }
+
+  private static RowCell cell(String family, String qualifier, long timestamp, String value) {
+    return RowCell.create(
+        family,
+        ByteString.copyFromUtf8(qualifier),
+        timestamp,
+        ImmutableList.<String>of(),
+        ByteString.copyFromUtf8(value));
+  }
+
+  @Test
+  public void unsortedFamiliesTest() {
+    RowCell c1 = cell("c", "q1", 1000, "c1");
+    RowCell b1 = cell("b", "q1", 1000, "b1");
+    RowCell b2 = cell("b", "q2", 1000, "b2");
+    RowCell a1 = cell("a", "q1", 1000, "a1");
+    RowCell a2 = cell("a", "q2", 1000, "a2");
+
+    Row row = Row.create(ByteString.copyFromUtf8("key"), ImmutableList.of(c1, b1, b2, a1, a2));
+
+    assertThat(row.getCells()).containsExactly(c1, b1, b2, a1, a2).inOrder();
+    assertThat(row.getCells("b")).containsExactly(b1, b2).inOrder();
+    assertThat(row.getCells("a", "q2")).containsExactly(a2);
+    assertThat(row.getLatestCell("c", "q1")).isEqualTo(c1);
+    assertThat(row.getLatestCell("a", "q1")).isEqualTo(a1);
+    assertThat(row.getLatestCell("b", "q3")).isNull();
+    assertThat(row.getCells("d")).isEmpty();
+  }
+
+  @Test
+  public void getCellsTest() {
+    RowCell a1 = cell("a", "q1", 1000, "a1");
+    RowCell b1New = cell("b", "q1", 2000, "b1-new");
+    RowCell b1Old = cell("b", "q1", 1000, "b1-old");
+    RowCell b2 = cell("b", "q2", 1000, "b2");
+    RowCell c1 = cell("c", "q1", 1000, "c1");
+
+    Row row =
+        Row.create(ByteString.copyFromUtf8("key"), ImmutableList.of(a1, b1New, b1Old, b2, c1));
+
+    assertThat(row.getCells("b")).containsExactly(b1New, b1Old, b2).inOrder();
+    assertThat(row.getCells("b", "q1")).containsExactly(b1New, b1Old).inOrder();
+    assertThat(row.getCells("b", ByteString.copyFromUtf8("q2"))).containsExactly(b2);
+    assertThat(row.getCells("d")).isEmpty();
+    assertThat(row.getCells("a", "q2")).isEmpty();
+    assertThat(row.getCells("", "q1")).isEmpty();
+  }
+
+  @Test
+  public void getLatestCellTest() {
+    RowCell a1 = cell("a", "q1", 1000, "a1");
+    RowCell b1New = cell("b", "q1", 2000, "b1-new");
+    RowCell b1Old = cell("b", "q1", 1000, "b1-old");
+    // Qualifiers are compared as unsigned bytes.
+    RowCell bHigh =
+        RowCell.create(
+            "b",
+            ByteString.copyFrom(new byte[] {(byte) 0xff}),
+            1000,
+            ImmutableList.<String>of(),
+            ByteString.copyFromUtf8("b-high"));
+
+    Row row =
+        Row.create(ByteString.copyFromUtf8("key"), ImmutableList.of(a1, b1New, b1Old, bHigh));
+
+    assertThat(row.getLatestCell("a", "q1")).isEqualTo(a1);
+    assertThat(row.getLatestCell("b", "q1")).isEqualTo(b1New);
+    assertThat(row.getLatestCell("b", ByteString.copyFrom(new byte[] {(byte) 0xff})))
+        .isEqualTo(bHigh);
+    assertThat(row.getLatestCell("a", "q0")).isNull();
+    assertThat(row.getLatestCell("b", "q2")).isNull();
+    assertThat(row.getLatestCell("c", "q1")).isNull();
+  }
 }
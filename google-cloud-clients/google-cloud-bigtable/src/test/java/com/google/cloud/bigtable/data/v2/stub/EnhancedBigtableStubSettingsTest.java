@@ -353,6 +353,60 @@ public class EnhancedBigtableStubSettingsTest {
         .isLessThan(512L * 1024 * 1024);
   }
 
+  @Test
+  public void bulkMutationThrottlingIsNotLostTest() {
+    InstanceName dummyInstanceName = InstanceName.of("my-project", "my-instance");
+
+    EnhancedBigtableStubSettings.Builder builder =
+        EnhancedBigtableStubSettings.newBuilder().setInstanceName(dummyInstanceName);
+    assertThat(builder.build().isBulkMutationThrottlingEnabled()).isFalse();
+
+    builder.enableBulkMutationThrottling(Duration.ofMillis(50));
+
+    assertThat(builder.getBulkMutationTargetRpcLatency()).isEqualTo(Duration.ofMillis(50));
+    assertThat(builder.build().isBulkMutationThrottlingEnabled()).isTrue();
+    assertThat(builder.build().getBulkMutationTargetRpcLatency())
+        .isEqualTo(Duration.ofMillis(50));
+    assertThat(builder.build().toBuilder().getBulkMutationTargetRpcLatency())
+        .isEqualTo(Duration.ofMillis(50));
+
+    builder.disableBulkMutationThrottling();
+    assertThat(builder.build().isBulkMutationThrottlingEnabled()).isFalse();
+  }
+
+  @Test
+  public void bulkReadRowsSettingsAreNotLostTest() {
+    InstanceName dummyInstanceName = InstanceName.of("my-project", "my-instance");
+
+    EnhancedBigtableStubSettings.Builder builder =
+        EnhancedBigtableStubSettings.newBuilder().setInstanceName(dummyInstanceName);
+
+    BatchingSettings batchingSettings = BatchingSettings.newBuilder().build();
+
+    builder.bulkReadRowsSettings().setBatchingSettings(batchingSettings);
+
+    assertThat(builder.bulkReadRowsSettings().getBatchingSettings()).isSameAs(batchingSettings);
+    assertThat(builder.build().bulkReadRowsSettings().getBatchingSettings())
+        .isSameAs(batchingSettings);
+    assertThat(builder.build().toBuilder().bulkReadRowsSettings().getBatchingSettings())
+        .isSameAs(batchingSettings);
+  }
+
+  @Test
+  public void bulkReadRowsHasSaneDefaultsTest() {
+    BatchingCallSettings.Builder<Query, Row> builder =
+        EnhancedBigtableStubSettings.newBuilder().bulkReadRowsSettings();
+
+    assertThat(builder.getBatchingSettings().getDelayThreshold())
+        .isIn(Range.open(Duration.ZERO, Duration.ofSeconds(1)));
+    assertThat(builder.getBatchingSettings().getElementCountThreshold())
+        .isIn(Range.open(0L, 1_000L));
+    assertThat(builder.getBatchingSettings().getIsEnabled()).isTrue();
+    assertThat(
+            builder.getBatchingSettings().getFlowControlSettings().getMaxOutstandingElementCount())
+        .isLessThan(10_000L);
+  }
+
   @Test
   public void checkAndMutateRowSettingsAreNotLostTest() {
     InstanceName dummyInstanceName = InstanceName.of("my-project", "my-instance");
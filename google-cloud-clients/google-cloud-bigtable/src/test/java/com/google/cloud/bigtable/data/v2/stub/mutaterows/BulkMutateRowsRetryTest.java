@@ -35,6 +35,7 @@ import com.google.bigtable.v2.TableName;
 import com.google.cloud.bigtable.data.v2.BigtableDataClient;
 import com.google.cloud.bigtable.data.v2.BigtableDataSettings;
 import com.google.cloud.bigtable.data.v2.models.BulkMutationBatcher;
+import com.google.cloud.bigtable.data.v2.models.BulkMutationStats;
 import com.google.cloud.bigtable.data.v2.models.RowMutation;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
@@ -144,6 +145,24 @@ public class BulkMutateRowsRetryTest {
     service.verifyOk();
   }
 
+  @Test
+  public void fullRequestRetryStatsTest() throws Exception {
+    service.expectations.add(RpcExpectation.create(Code.DEADLINE_EXCEEDED).addEntry("key1", null));
+    service.expectations.add(RpcExpectation.create().addEntry("key1", Code.OK));
+
+    ApiFuture<Void> result = bulkMutations.add(RowMutation.create(TABLE_ID, "key1"));
+    verifyOk(result);
+
+    service.verifyOk();
+
+    // Wait for the batcher to see the result.
+    bulkMutations.close();
+    BulkMutationStats stats = bulkMutations.getStats();
+    assertThat(stats.getOutstandingMutations()).isEqualTo(0);
+    assertThat(stats.getRpcCount()).isEqualTo(1);
+    assertThat(stats.getRetryCount()).isEqualTo(1);
+  }
+
   @Test
   public void partialRetryTest() {
     service.expectations.add(
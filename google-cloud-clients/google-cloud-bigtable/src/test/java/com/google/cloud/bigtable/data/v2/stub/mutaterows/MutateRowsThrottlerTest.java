@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.stub.mutaterows;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.api.core.ApiClock;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.threeten.bp.Duration;
+
+@RunWith(JUnit4.class)
+public class MutateRowsThrottlerTest {
+  private static final Duration TARGET_LATENCY = Duration.ofMillis(100);
+
+  private FakeClock clock;
+  private MutateRowsThrottler throttler;
+
+  @Before
+  public void setUp() {
+    clock = new FakeClock();
+    throttler = new MutateRowsThrottler(clock, TARGET_LATENCY, 10, 100);
+  }
+
+  @Test
+  public void windowStartsAtMaxTest() {
+    assertThat(throttler.isThrottlingEnabled()).isTrue();
+    assertThat(throttler.getWindow()).isEqualTo(100);
+  }
+
+  @Test
+  public void acquireBlocksWhenWindowIsFullTest() throws Exception {
+    final MutateRowsThrottler small = new MutateRowsThrottler(clock, null, 2, 2);
+    small.acquire();
+    small.acquire();
+    assertThat(small.getOutstanding()).isEqualTo(2);
+
+    final CountDownLatch acquired = new CountDownLatch(1);
+    Thread thread =
+        new Thread() {
+          @Override
+          public void run() {
+            small.acquire();
+            acquired.countDown();
+          }
+        };
+    thread.start();
+    assertThat(acquired.await(100, TimeUnit.MILLISECONDS)).isFalse();
+
+    small.release();
+    assertThat(acquired.await(1, TimeUnit.SECONDS)).isTrue();
+    assertThat(small.getOutstanding()).isEqualTo(2);
+  }
+
+  @Test
+  public void highLatencyShrinksWindowTest() {
+    recordInterval(TARGET_LATENCY.multipliedBy(4));
+    assertThat(throttler.getWindow()).isEqualTo(70);
+
+    recordInterval(TARGET_LATENCY.multipliedBy(2));
+    assertThat(throttler.getWindow()).isEqualTo(63);
+  }
+
+  @Test
+  public void windowDoesNotShrinkBelowMinTest() {
+    for (int i = 0; i < 20; i++) {
+      recordInterval(TARGET_LATENCY.multipliedBy(10));
+    }
+    assertThat(throttler.getWindow()).isEqualTo(10);
+  }
+
+  @Test
+  public void lowLatencyOnlyGrowsWindowWhenThrottledTest() throws Exception {
+    recordInterval(TARGET_LATENCY.multipliedBy(4));
+    assertThat(throttler.getWindow()).isEqualTo(70);
+
+    // Nobody was waiting for the window, so there is no need to grow it.
+    recordInterval(TARGET_LATENCY.dividedBy(2));
+    assertThat(throttler.getWindow()).isEqualTo(70);
+
+    for (int i = 0; i < 70; i++) {
+      throttler.acquire();
+    }
+    Thread waiter =
+        new Thread() {
+          @Override
+          public void run() {
+            throttler.acquire();
+          }
+        };
+    waiter.start();
+    while (waiter.getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+
+    recordInterval(TARGET_LATENCY.dividedBy(2));
+    assertThat(throttler.getWindow()).isEqualTo(73);
+    waiter.join(1000);
+    assertThat(throttler.getOutstanding()).isEqualTo(71);
+  }
+
+  @Test
+  public void latencyWithinRangeKeepsWindowTest() {
+    recordInterval(TARGET_LATENCY);
+    assertThat(throttler.getWindow()).isEqualTo(100);
+  }
+
+  @Test
+  public void disabledThrottlingKeepsWindowTest() {
+    MutateRowsThrottler disabled = new MutateRowsThrottler(clock, null, 10, 100);
+    assertThat(disabled.isThrottlingEnabled()).isFalse();
+
+    clock.advance(MutateRowsThrottler.ADJUSTMENT_INTERVAL);
+    disabled.onRpcComplete(TARGET_LATENCY.multipliedBy(10).toNanos(), 0);
+    assertThat(disabled.getWindow()).isEqualTo(100);
+  }
+
+  @Test
+  public void rpcsAndRetriesAreCountedTest() {
+    throttler.onRpcComplete(1, 0);
+    throttler.onRpcComplete(1, 3);
+    assertThat(throttler.getRpcCount()).isEqualTo(2);
+    assertThat(throttler.getRetryCount()).isEqualTo(3);
+  }
+
+  private void recordInterval(Duration latency) {
+    throttler.onRpcComplete(latency.toNanos(), 0);
+    clock.advance(MutateRowsThrottler.ADJUSTMENT_INTERVAL);
+    throttler.onRpcComplete(latency.toNanos(), 0);
+  }
+
+  private static class FakeClock implements ApiClock {
+    private long nanos;
+
+    void advance(Duration duration) {
+      nanos += duration.toNanos();
+    }
+
+    @Override
+    public long nanoTime() {
+      return nanos;
+    }
+
+    @Override
+    public long millisTime() {
+      return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.stub.readrows;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.bigtable.v2.ReadRowsRequest;
+import com.google.bigtable.v2.RowSet;
+import com.google.cloud.bigtable.data.v2.internal.RequestContext;
+import com.google.cloud.bigtable.data.v2.models.InstanceName;
+import com.google.cloud.bigtable.data.v2.models.Query;
+import com.google.cloud.bigtable.data.v2.models.Row;
+import com.google.cloud.bigtable.data.v2.models.RowCell;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BulkReadRowsCallableTest {
+  private static final RequestContext REQUEST_CONTEXT =
+      RequestContext.create(InstanceName.of("fake-project", "fake-instance"), "fake-profile");
+
+  private static final Row ROW_A = createRow("a");
+  private static final Row ROW_C = createRow("c");
+
+  private FakeCallable inner;
+
+  @Before
+  public void setUp() {
+    inner = new FakeCallable();
+  }
+
+  @Test
+  public void rowsAreLinedUpWithKeysTest() throws Exception {
+    BulkReadRowsCallable callable = new BulkReadRowsCallable(inner);
+
+    ReadRowsRequest request =
+        ReadRowsRequest.newBuilder()
+            .setRows(
+                RowSet.newBuilder()
+                    .addRowKeys(ByteString.copyFromUtf8("c"))
+                    .addRowKeys(ByteString.copyFromUtf8("b"))
+                    .addRowKeys(ByteString.copyFromUtf8("a"))
+                    .addRowKeys(ByteString.copyFromUtf8("c")))
+            .build();
+    ApiFuture<List<Row>> result = callable.futureCall(request);
+    assertThat(inner.request).isSameAs(request);
+
+    inner.response.set(ImmutableList.of(ROW_A, ROW_C));
+    assertThat(result.get(1, TimeUnit.SECONDS)).containsExactly(ROW_C, null, ROW_A, ROW_C).inOrder();
+  }
+
+  @Test
+  public void userFacingRequestIsCorrectTest() throws Exception {
+    ReadRowBatchingUserFacingCallable callable =
+        new ReadRowBatchingUserFacingCallable(inner, REQUEST_CONTEXT);
+
+    Query query = Query.create("fake-table").rowKey("a");
+    ApiFuture<Row> result = callable.futureCall(query);
+    assertThat(inner.request).isEqualTo(query.toProto(REQUEST_CONTEXT));
+
+    inner.response.set(ImmutableList.of(ROW_A));
+    assertThat(result.get(1, TimeUnit.SECONDS)).isSameAs(ROW_A);
+  }
+
+  @Test
+  public void userFacingMissingRowTest() throws Exception {
+    ReadRowBatchingUserFacingCallable callable =
+        new ReadRowBatchingUserFacingCallable(inner, REQUEST_CONTEXT);
+
+    ApiFuture<Row> result = callable.futureCall(Query.create("fake-table").rowKey("b"));
+    inner.response.set(Arrays.<Row>asList((Row) null));
+    assertThat(result.get(1, TimeUnit.SECONDS)).isNull();
+  }
+
+  @Test
+  public void userFacingErrorIsPropagatedTest() throws Exception {
+    ReadRowBatchingUserFacingCallable callable =
+        new ReadRowBatchingUserFacingCallable(inner, REQUEST_CONTEXT);
+
+    ApiFuture<Row> result = callable.futureCall(Query.create("fake-table").rowKey("a"));
+    RuntimeException error = new RuntimeException("fake error");
+    inner.response.setException(error);
+
+    Throwable actualError = null;
+    try {
+      result.get(1, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      actualError = e.getCause();
+    }
+    assertThat(actualError).isSameAs(error);
+  }
+
+  @Test
+  public void userFacingRejectsNonPointReadsTest() {
+    ReadRowBatchingUserFacingCallable callable =
+        new ReadRowBatchingUserFacingCallable(inner, REQUEST_CONTEXT);
+
+    List<Query> invalidQueries =
+        ImmutableList.of(
+            Query.create("fake-table"),
+            Query.create("fake-table").rowKey("a").rowKey("b"),
+            Query.create("fake-table").range("a", "b"),
+            Query.create("fake-table").rowKey("a").limit(1));
+
+    for (Query query : invalidQueries) {
+      Throwable actualError = null;
+      try {
+        callable.futureCall(query);
+      } catch (IllegalArgumentException e) {
+        actualError = e;
+      }
+      assertThat(actualError).isInstanceOf(IllegalArgumentException.class);
+    }
+    assertThat(inner.request).isNull();
+  }
+
+  private static Row createRow(String key) {
+    return Row.create(ByteString.copyFromUtf8(key), ImmutableList.<RowCell>of());
+  }
+
+  static class FakeCallable extends UnaryCallable<ReadRowsRequest, List<Row>> {
+    ReadRowsRequest request;
+    SettableApiFuture<List<Row>> response = SettableApiFuture.create();
+
+    @Override
+    public ApiFuture<List<Row>> futureCall(ReadRowsRequest request, ApiCallContext context) {
+      this.request = request;
+      return response;
+    }
+  }
+}
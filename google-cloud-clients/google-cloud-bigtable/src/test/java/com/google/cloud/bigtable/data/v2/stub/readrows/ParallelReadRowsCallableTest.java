@@ -0,0 +1,257 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.stub.readrows;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.bigtable.v2.RowRange;
+import com.google.bigtable.v2.RowSet;
+import com.google.cloud.bigtable.data.v2.internal.RequestContext;
+import com.google.cloud.bigtable.data.v2.models.InstanceName;
+import com.google.cloud.bigtable.data.v2.models.KeyOffset;
+import com.google.cloud.bigtable.data.v2.models.Query;
+import com.google.cloud.bigtable.gaxx.testing.MockStreamingApi.MockResponseObserver;
+import com.google.cloud.bigtable.gaxx.testing.MockStreamingApi.MockServerStreamingCall;
+import com.google.cloud.bigtable.gaxx.testing.MockStreamingApi.MockServerStreamingCallable;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ParallelReadRowsCallableTest {
+  private static final RequestContext REQUEST_CONTEXT =
+      RequestContext.create(InstanceName.of("fake-project", "fake-instance"), "fake-profile");
+
+  @Mock private UnaryCallable<String, List<KeyOffset>> sampleRowKeysCallable;
+
+  private MockServerStreamingCallable<Query, String> readRowsCallable;
+  private SettableApiFuture<List<KeyOffset>> sampledRowKeys;
+
+  @Before
+  public void setUp() {
+    readRowsCallable = new MockServerStreamingCallable<>();
+    sampledRowKeys = SettableApiFuture.create();
+    Mockito.when(
+            sampleRowKeysCallable.futureCall(
+                Mockito.eq("fake-table"), Mockito.any(ApiCallContext.class)))
+        .thenReturn(sampledRowKeys);
+  }
+
+  private static List<KeyOffset> keys(String... keys) {
+    ImmutableList.Builder<KeyOffset> builder = ImmutableList.builder();
+    for (int i = 0; i < keys.length; i++) {
+      builder.add(KeyOffset.create(ByteString.copyFromUtf8(keys[i]), i * 100));
+    }
+    return builder.build();
+  }
+
+  private static RowSet rowsOf(MockServerStreamingCall<Query, String> call) {
+    return call.getRequest().toProto(REQUEST_CONTEXT).getRows();
+  }
+
+  private MockResponseObserver<String> startScan(int parallelism, boolean ordered) {
+    return startScan(parallelism, ordered, true);
+  }
+
+  private MockResponseObserver<String> startScan(
+      int parallelism, boolean ordered, boolean autoFlowControl) {
+    ParallelReadRowsCallable<String> callable =
+        new ParallelReadRowsCallable<>(
+            readRowsCallable, sampleRowKeysCallable, parallelism, ordered);
+    MockResponseObserver<String> observer = new MockResponseObserver<>(autoFlowControl);
+    callable.call(Query.create("fake-table"), observer);
+    return observer;
+  }
+
+  @Test
+  public void shardsAreStartedUpToParallelism() {
+    MockResponseObserver<String> observer = startScan(2, false);
+    sampledRowKeys.set(keys("b", "d", ""));
+
+    MockServerStreamingCall<Query, String> call1 = readRowsCallable.popLastCall();
+    MockServerStreamingCall<Query, String> call2 = readRowsCallable.popLastCall();
+    assertThat(rowsOf(call1))
+        .isEqualTo(
+            RowSet.newBuilder()
+                .addRowRanges(RowRange.newBuilder().setEndKeyOpen(ByteString.copyFromUtf8("b")))
+                .build());
+    assertThat(rowsOf(call2))
+        .isEqualTo(
+            RowSet.newBuilder()
+                .addRowRanges(
+                    RowRange.newBuilder()
+                        .setStartKeyClosed(ByteString.copyFromUtf8("b"))
+                        .setEndKeyOpen(ByteString.copyFromUtf8("d")))
+                .build());
+    assertThat(call1.getController().isAutoFlowControlEnabled()).isFalse();
+    assertThat(call1.getController().popLastPull())
+        .isEqualTo(ParallelReadRowsCallable.ROWS_BUFFERED_PER_SHARD);
+
+    // The third shard only starts once one of the first two is done.
+    call2.getController().getObserver().onComplete();
+    MockServerStreamingCall<Query, String> call3 = readRowsCallable.popLastCall();
+    assertThat(rowsOf(call3))
+        .isEqualTo(
+            RowSet.newBuilder()
+                .addRowRanges(
+                    RowRange.newBuilder().setStartKeyClosed(ByteString.copyFromUtf8("d")))
+                .build());
+
+    call1.getController().getObserver().onComplete();
+    assertThat(observer.isDone()).isFalse();
+    call3.getController().getObserver().onComplete();
+    assertThat(observer.getFinalError()).isNull();
+  }
+
+  @Test
+  public void orderedScanDeliversRowsInShardOrder() {
+    MockResponseObserver<String> observer = startScan(2, true);
+    sampledRowKeys.set(keys("b"));
+
+    MockServerStreamingCall<Query, String> call1 = readRowsCallable.popLastCall();
+    MockServerStreamingCall<Query, String> call2 = readRowsCallable.popLastCall();
+
+    call2.getController().getObserver().onResponse("c");
+    call2.getController().getObserver().onComplete();
+    assertThat(observer.popNextResponse()).isNull();
+
+    call1.getController().getObserver().onResponse("a");
+    assertThat(observer.popNextResponse()).isEqualTo("a");
+    assertThat(observer.popNextResponse()).isNull();
+
+    call1.getController().getObserver().onComplete();
+    assertThat(observer.popNextResponse()).isEqualTo("c");
+    assertThat(observer.getFinalError()).isNull();
+  }
+
+  @Test
+  public void unorderedScanDeliversRowsAsTheyArrive() {
+    MockResponseObserver<String> observer = startScan(2, false);
+    sampledRowKeys.set(keys("b"));
+
+    MockServerStreamingCall<Query, String> call1 = readRowsCallable.popLastCall();
+    MockServerStreamingCall<Query, String> call2 = readRowsCallable.popLastCall();
+
+    call2.getController().getObserver().onResponse("c");
+    assertThat(observer.popNextResponse()).isEqualTo("c");
+    call1.getController().getObserver().onResponse("a");
+    assertThat(observer.popNextResponse()).isEqualTo("a");
+
+    call1.getController().getObserver().onComplete();
+    call2.getController().getObserver().onComplete();
+    assertThat(observer.getFinalError()).isNull();
+  }
+
+  @Test
+  public void manualFlowControl() {
+    MockResponseObserver<String> observer = startScan(1, true, false);
+    sampledRowKeys.set(keys());
+
+    MockServerStreamingCall<Query, String> call = readRowsCallable.popLastCall();
+    assertThat(call.getController().popLastPull())
+        .isEqualTo(ParallelReadRowsCallable.ROWS_BUFFERED_PER_SHARD);
+    call.getController().getObserver().onResponse("a");
+    call.getController().getObserver().onResponse("b");
+    call.getController().getObserver().onComplete();
+    assertThat(observer.popNextResponse()).isNull();
+
+    observer.getController().request(1);
+    assertThat(observer.popNextResponse()).isEqualTo("a");
+    assertThat(observer.popNextResponse()).isNull();
+    assertThat(observer.isDone()).isFalse();
+
+    observer.getController().request(1);
+    assertThat(observer.popNextResponse()).isEqualTo("b");
+    assertThat(observer.getFinalError()).isNull();
+  }
+
+  @Test
+  public void deliveredRowsAreReplenishedFromTheShard() {
+    startScan(1, true);
+    sampledRowKeys.set(keys());
+
+    MockServerStreamingCall<Query, String> call = readRowsCallable.popLastCall();
+    assertThat(call.getController().popLastPull())
+        .isEqualTo(ParallelReadRowsCallable.ROWS_BUFFERED_PER_SHARD);
+    call.getController().getObserver().onResponse("a");
+    assertThat(call.getController().popLastPull()).isEqualTo(1);
+  }
+
+  @Test
+  public void shardErrorCancelsTheOtherShards() {
+    MockResponseObserver<String> observer = startScan(2, true);
+    sampledRowKeys.set(keys("b"));
+
+    MockServerStreamingCall<Query, String> call1 = readRowsCallable.popLastCall();
+    MockServerStreamingCall<Query, String> call2 = readRowsCallable.popLastCall();
+
+    RuntimeException error = new RuntimeException("fake error");
+    call2.getController().getObserver().onError(error);
+    assertThat(observer.getFinalError()).isSameAs(error);
+    assertThat(call1.getController().isCancelled()).isTrue();
+  }
+
+  @Test
+  public void sampleRowKeysErrorFailsTheScan() {
+    MockResponseObserver<String> observer = startScan(2, true);
+    RuntimeException error = new RuntimeException("fake error");
+    sampledRowKeys.setException(error);
+
+    assertThat(observer.getFinalError()).isSameAs(error);
+    assertThat(readRowsCallable.popLastCall()).isNull();
+  }
+
+  @Test
+  public void cancelCancelsRunningShards() {
+    MockResponseObserver<String> observer = startScan(2, false);
+    sampledRowKeys.set(keys("b", "d"));
+
+    MockServerStreamingCall<Query, String> call1 = readRowsCallable.popLastCall();
+    MockServerStreamingCall<Query, String> call2 = readRowsCallable.popLastCall();
+
+    observer.getController().cancel();
+    assertThat(observer.getFinalError()).isInstanceOf(CancellationException.class);
+    assertThat(call1.getController().isCancelled()).isTrue();
+    assertThat(call2.getController().isCancelled()).isTrue();
+    assertThat(readRowsCallable.popLastCall()).isNull();
+  }
+
+  @Test
+  public void queryWithLimitIsNotSplit() {
+    ParallelReadRowsCallable<String> callable =
+        new ParallelReadRowsCallable<>(readRowsCallable, sampleRowKeysCallable, 4, true);
+    MockResponseObserver<String> observer = new MockResponseObserver<>(true);
+    callable.call(Query.create("fake-table").limit(10), observer);
+    sampledRowKeys.set(keys("b", "d"));
+
+    MockServerStreamingCall<Query, String> call = readRowsCallable.popLastCall();
+    assertThat(call.getRequest().toProto(REQUEST_CONTEXT).getRowsLimit()).isEqualTo(10);
+    assertThat(readRowsCallable.popLastCall()).isNull();
+
+    call.getController().getObserver().onComplete();
+    assertThat(observer.getFinalError()).isNull();
+  }
+}
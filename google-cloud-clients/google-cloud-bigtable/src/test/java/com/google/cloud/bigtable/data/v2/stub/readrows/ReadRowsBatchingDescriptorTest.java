@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.stub.readrows;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.api.gax.batching.PartitionKey;
+import com.google.api.gax.batching.RequestBuilder;
+import com.google.api.gax.rpc.BatchedFuture;
+import com.google.api.gax.rpc.BatchedRequestIssuer;
+import com.google.bigtable.v2.ReadRowsRequest;
+import com.google.bigtable.v2.RowFilter;
+import com.google.bigtable.v2.RowSet;
+import com.google.bigtable.v2.TableName;
+import com.google.cloud.bigtable.data.v2.models.Row;
+import com.google.cloud.bigtable.data.v2.models.RowCell;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ReadRowsBatchingDescriptorTest {
+  private static final TableName TABLE_NAME =
+      TableName.of("fake-project", "fake-instance", "fake-table");
+
+  private ReadRowsBatchingDescriptor descriptor;
+
+  @Before
+  public void setUp() {
+    descriptor = new ReadRowsBatchingDescriptor();
+  }
+
+  @Test
+  public void countBytesTest() {
+    ReadRowsRequest request = createRequest("a", "b");
+    assertThat(descriptor.countBytes(request)).isEqualTo(request.getSerializedSize());
+  }
+
+  @Test
+  public void countElementsTest() {
+    assertThat(descriptor.countElements(createRequest("a", "b"))).isEqualTo(2);
+  }
+
+  @Test
+  public void partitionKeyTest() {
+    ReadRowsRequest request = createRequest("a");
+    RowFilter filter = RowFilter.newBuilder().setCellsPerColumnLimitFilter(1).build();
+    ReadRowsRequest filtered = request.toBuilder().setFilter(filter).build();
+
+    assertThat(descriptor.getBatchPartitionKey(request))
+        .isEqualTo(descriptor.getBatchPartitionKey(createRequest("b")));
+    assertThat(descriptor.getBatchPartitionKey(filtered))
+        .isEqualTo(new PartitionKey(TABLE_NAME.toString(), "", filter));
+    assertThat(descriptor.getBatchPartitionKey(filtered))
+        .isNotEqualTo(descriptor.getBatchPartitionKey(request));
+  }
+
+  @Test
+  public void requestBuilderTest() {
+    RequestBuilder<ReadRowsRequest> builder = descriptor.getRequestBuilder();
+    builder.appendRequest(createRequest("a"));
+    builder.appendRequest(createRequest("b"));
+    builder.appendRequest(createRequest("a"));
+
+    assertThat(builder.build()).isEqualTo(createRequest("a", "b", "a"));
+  }
+
+  @Test
+  public void splitResponseTest() throws Exception {
+    BatchedFuture<List<Row>> result1 = BatchedFuture.create();
+    BatchedRequestIssuer<List<Row>> issuer1 = new BatchedRequestIssuer<>(result1, 1);
+    BatchedFuture<List<Row>> result2 = BatchedFuture.create();
+    BatchedRequestIssuer<List<Row>> issuer2 = new BatchedRequestIssuer<>(result2, 2);
+
+    Row rowA = Row.create(ByteString.copyFromUtf8("a"), ImmutableList.<RowCell>of());
+    Row rowC = Row.create(ByteString.copyFromUtf8("c"), ImmutableList.<RowCell>of());
+
+    descriptor.splitResponse(Arrays.asList(rowA, null, rowC), ImmutableList.of(issuer1, issuer2));
+    issuer1.sendResult();
+    issuer2.sendResult();
+
+    assertThat(result1.get(1, TimeUnit.SECONDS)).containsExactly(rowA);
+    assertThat(result2.get(1, TimeUnit.SECONDS)).containsExactly(null, rowC).inOrder();
+  }
+
+  @Test
+  public void splitExceptionTest() throws Exception {
+    BatchedFuture<List<Row>> result1 = BatchedFuture.create();
+    BatchedRequestIssuer<List<Row>> issuer1 = new BatchedRequestIssuer<>(result1, 1);
+    BatchedFuture<List<Row>> result2 = BatchedFuture.create();
+    BatchedRequestIssuer<List<Row>> issuer2 = new BatchedRequestIssuer<>(result2, 1);
+
+    RuntimeException error = new RuntimeException("fake error");
+    descriptor.splitException(error, ImmutableList.of(issuer1, issuer2));
+    issuer1.sendResult();
+    issuer2.sendResult();
+
+    for (BatchedFuture<List<Row>> result : ImmutableList.of(result1, result2)) {
+      Throwable actualError = null;
+      try {
+        result.get(1, TimeUnit.SECONDS);
+      } catch (ExecutionException e) {
+        actualError = e.getCause();
+      }
+      assertThat(actualError).isSameAs(error);
+    }
+  }
+
+  private static ReadRowsRequest createRequest(String... keys) {
+    RowSet.Builder rows = RowSet.newBuilder();
+    for (String key : keys) {
+      rows.addRowKeys(ByteString.copyFromUtf8(key));
+    }
+    return ReadRowsRequest.newBuilder().setTableName(TABLE_NAME.toString()).setRows(rows).build();
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.bigtable.data.v2.stub.readrows;
+
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.StreamController;
+import com.google.bigtable.v2.ReadRowsRequest;
+import com.google.bigtable.v2.ReadRowsResponse;
+import com.google.bigtable.v2.ReadRowsResponse.CellChunk;
+import com.google.cloud.bigtable.data.v2.models.CompactRowAdapter;
+import com.google.cloud.bigtable.data.v2.models.DefaultRowAdapter;
+import com.google.cloud.bigtable.data.v2.models.RowAdapter;
+import com.google.cloud.bigtable.gaxx.testing.FakeStreamingApi.ServerStreamingStashCallable;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.BytesValue;
+import com.google.protobuf.StringValue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the time it takes to merge a stream of synthetic ReadRows responses into rows with
+ * {@link RowMergingCallable}, which drives {@link RowMerger} through a {@link
+ * com.google.cloud.bigtable.gaxx.reframing.ReframingResponseObserver}. Each shape is about 50 MB of
+ * cell values:
+ *
+ * <ul>
+ *   <li>{@code narrow}: 100k rows of 5 cells of 100 bytes.
+ *   <li>{@code wide}: 100 rows of 5000 cells of 100 bytes.
+ *   <li>{@code split}: 800 rows of a 64 KiB cell, split into 16 chunks.
+ * </ul>
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.args="RowMergingBenchmark -prof gc"} to also see the allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMergingBenchmark {
+  private static final int CHUNKS_PER_RESPONSE = 100;
+  private static final String[] FAMILIES = {"cf1", "cf2", "cf3", "cf4", "cf5"};
+
+  @Param({"narrow", "wide", "split"})
+  public String shape;
+
+  @Param({"default", "compact"})
+  public String adapter;
+
+  private final List<ReadRowsResponse> responses = new ArrayList<>();
+  private RowMergingCallable<Object> callable;
+
+  @Setup
+  public void setUp() {
+    List<CellChunk> chunks = new ArrayList<>();
+    switch (shape) {
+      case "narrow":
+        addRows(chunks, 100_000, 5, 100, 1);
+        break;
+      case "wide":
+        addRows(chunks, 100, 5_000, 100, 1);
+        break;
+      case "split":
+        addRows(chunks, 800, 1, 64 * 1024, 16);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown shape: " + shape);
+    }
+    for (int i = 0; i < chunks.size(); i += CHUNKS_PER_RESPONSE) {
+      responses.add(
+          ReadRowsResponse.newBuilder()
+              .addAllChunks(chunks.subList(i, Math.min(i + CHUNKS_PER_RESPONSE, chunks.size())))
+              .build());
+    }
+
+    RowAdapter<?> rowAdapter;
+    switch (adapter) {
+      case "default":
+        rowAdapter = new DefaultRowAdapter();
+        break;
+      case "compact":
+        rowAdapter = new CompactRowAdapter();
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown adapter: " + adapter);
+    }
+    @SuppressWarnings("unchecked")
+    RowAdapter<Object> objectAdapter = (RowAdapter<Object>) rowAdapter;
+    callable =
+        new RowMergingCallable<>(
+            new ServerStreamingStashCallable<ReadRowsRequest, ReadRowsResponse>(responses),
+            objectAdapter);
+  }
+
+  /** Adds the chunks of the rows, the way the server sends them. */
+  private static void addRows(
+      List<CellChunk> chunks, int rows, int cellsPerRow, int valueSize, int chunksPerValue) {
+    byte[] valueBytes = new byte[valueSize / chunksPerValue];
+    for (int i = 0; i < valueBytes.length; i++) {
+      valueBytes[i] = (byte) i;
+    }
+    ByteString valuePart = ByteString.copyFrom(valueBytes);
+
+    for (int row = 0; row < rows; row++) {
+      ByteString key = ByteString.copyFromUtf8(String.format("row-%08d", row));
+      for (int cell = 0; cell < cellsPerRow; cell++) {
+        int family = cell * FAMILIES.length / cellsPerRow;
+        boolean firstInFamily = cell == 0 || family != (cell - 1) * FAMILIES.length / cellsPerRow;
+        for (int part = 0; part < chunksPerValue; part++) {
+          CellChunk.Builder chunk = CellChunk.newBuilder().setValue(valuePart);
+          if (part == 0) {
+            if (cell == 0) {
+              chunk.setRowKey(key);
+            }
+            if (firstInFamily) {
+              chunk.setFamilyName(StringValue.newBuilder().setValue(FAMILIES[family]));
+            }
+            chunk
+                .setQualifier(
+                    BytesValue.newBuilder()
+                        .setValue(ByteString.copyFromUtf8(String.format("q-%05d", cell))))
+                .setTimestampMicros(1_000);
+          }
+          if (part < chunksPerValue - 1) {
+            chunk.setValueSize(valueSize);
+          }
+          if (part == chunksPerValue - 1 && cell == cellsPerRow - 1) {
+            chunk.setCommitRow(true);
+          }
+          chunks.add(chunk.build());
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void merge(final Blackhole blackhole) {
+    callable.call(
+        ReadRowsRequest.getDefaultInstance(),
+        new ResponseObserver<Object>() {
+          @Override
+          public void onStart(StreamController controller) {}
+
+          @Override
+          public void onResponse(Object row) {
+            blackhole.consume(row);
+          }
+
+          @Override
+          public void onError(Throwable t) {
+            throw new IllegalStateException(t);
+          }
+
+          @Override
+          public void onComplete() {}
+        });
+  }
+}
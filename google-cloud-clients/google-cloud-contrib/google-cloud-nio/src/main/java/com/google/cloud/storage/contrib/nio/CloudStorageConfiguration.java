@@ -30,6 +30,8 @@ import java.util.Map;
 @AutoValue
 public abstract class CloudStorageConfiguration {
 
+  public static final int READ_AHEAD_BUFFER_POOL_SIZE_DEFAULT = 64;
+
   public static final CloudStorageConfiguration DEFAULT = builder().build();
 
   /**
@@ -85,6 +87,19 @@ public abstract class CloudStorageConfiguration {
    */
   public abstract boolean useUserProjectOnlyForRequesterPaysBuckets();
 
+  /**
+   * Returns the number of blocks of {@link #blockSize()} bytes that a channel fetches concurrently
+   * ahead of its position, once it's being read sequentially. Zero, the default, disables
+   * read-ahead.
+   */
+  public abstract int readAheadBlocks();
+
+  /**
+   * Returns the maximum number of read-ahead blocks held at once by all the channels that use the
+   * same block size and pool size. Channels read fewer blocks ahead when the pool is exhausted.
+   */
+  public abstract int readAheadBufferPoolSize();
+
 
   /**
    * Creates a new builder, initialized with the following settings:
@@ -94,6 +109,7 @@ public abstract class CloudStorageConfiguration {
    * <li>The prefix slash on absolute paths will be removed when converting to an object name.
    * <li>Pseudo-directories are enabled, so any path with a trailing slash is a fake directory.
    * <li>Channel re-opens are disabled.
+   * <li>Read-ahead is disabled.
    * </ul>
    */
   public static Builder builder() {
@@ -114,6 +130,8 @@ public abstract class CloudStorageConfiguration {
     private @Nullable String userProject = null;
     // This of this as "clear userProject if not RequesterPays"
     private boolean useUserProjectOnlyForRequesterPaysBuckets = false;
+    private int readAheadBlocks = 0;
+    private int readAheadBufferPoolSize = READ_AHEAD_BUFFER_POOL_SIZE_DEFAULT;
 
     /**
      * Changes current working directory for new filesystem. This defaults to the root directory.
@@ -182,6 +200,31 @@ public abstract class CloudStorageConfiguration {
       return this;
     }
 
+    /**
+     * Sets the number of blocks that a channel fetches concurrently ahead of its position once
+     * consecutive reads show that it's being read sequentially. Random reads don't trigger any
+     * read-ahead.
+     *
+     * <p>The default is 0, which disables read-ahead.
+     */
+    public Builder readAheadBlocks(int value) {
+      checkArgument(value >= 0, "readAheadBlocks must not be negative: %s", value);
+      readAheadBlocks = value;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of read-ahead blocks shared by all channels, which bounds the memory
+     * used for read-ahead to {@code value * blockSize} bytes.
+     *
+     * <p>The default is {@value CloudStorageConfiguration#READ_AHEAD_BUFFER_POOL_SIZE_DEFAULT}.
+     */
+    public Builder readAheadBufferPoolSize(int value) {
+      checkArgument(value > 0, "readAheadBufferPoolSize must be positive: %s", value);
+      readAheadBufferPoolSize = value;
+      return this;
+    }
+
     /**
      * Creates new instance without destroying builder.
      */
@@ -194,7 +237,9 @@ public abstract class CloudStorageConfiguration {
           blockSize,
           maxChannelReopens,
           userProject,
-          useUserProjectOnlyForRequesterPaysBuckets);
+          useUserProjectOnlyForRequesterPaysBuckets,
+          readAheadBlocks,
+          readAheadBufferPoolSize);
     }
 
     Builder(CloudStorageConfiguration toModify) {
@@ -206,6 +251,8 @@ public abstract class CloudStorageConfiguration {
       maxChannelReopens = toModify.maxChannelReopens();
       userProject = toModify.userProject();
       useUserProjectOnlyForRequesterPaysBuckets = toModify.useUserProjectOnlyForRequesterPaysBuckets();
+      readAheadBlocks = toModify.readAheadBlocks();
+      readAheadBufferPoolSize = toModify.readAheadBufferPoolSize();
     }
 
     Builder() {}
@@ -246,6 +293,12 @@ public abstract class CloudStorageConfiguration {
         case "useUserProjectOnlyForRequesterPaysBuckets":
           builder.autoDetectRequesterPays((Boolean) entry.getValue());
           break;
+        case "readAheadBlocks":
+          builder.readAheadBlocks((Integer) entry.getValue());
+          break;
+        case "readAheadBufferPoolSize":
+          builder.readAheadBufferPoolSize((Integer) entry.getValue());
+          break;
         default:
           throw new IllegalArgumentException(entry.getKey());
       }
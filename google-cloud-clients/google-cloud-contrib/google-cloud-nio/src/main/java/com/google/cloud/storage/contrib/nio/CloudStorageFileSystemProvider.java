@@ -330,11 +330,19 @@ public final class CloudStorageFileSystemProvider extends FileSystemProvider {
     if (cloudPath.seemsLikeADirectoryAndUsePseudoDirectories()) {
       throw new CloudStoragePseudoDirectoryException(cloudPath);
     }
+    CloudStorageConfiguration config = cloudPath.getFileSystem().config();
+    ReadAheadBufferPool readAheadPool = null;
+    if (config.readAheadBlocks() > 0) {
+      readAheadPool =
+          ReadAheadBufferPool.shared(config.blockSize(), config.readAheadBufferPoolSize());
+    }
     return CloudStorageReadChannel.create(
         storage,
         cloudPath.getBlobId(),
         0,
         maxChannelReopens,
+        config.readAheadBlocks(),
+        readAheadPool,
         userProject,
         blobSourceOptions.toArray(new BlobSourceOption[blobSourceOptions.size()]));
   }
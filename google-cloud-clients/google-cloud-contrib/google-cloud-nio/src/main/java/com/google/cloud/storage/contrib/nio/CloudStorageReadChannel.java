@@ -25,9 +25,17 @@ import com.google.cloud.storage.StorageException;
 import com.google.common.annotations.VisibleForTesting;
 
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 
+import java.io.EOFException;
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
@@ -43,11 +51,19 @@ import static com.google.common.base.Preconditions.checkArgument;
 /**
  * Cloud Storage read channel.
  *
+ * <p>If read-ahead is enabled, a channel that is read sequentially fetches the next blocks of the
+ * file concurrently, in buffers borrowed from a {@link ReadAheadBufferPool}, and serves reads from
+ * them. Seeking outside of the blocks fetched so far drops them and goes back to plain reads.
+ *
  * @see CloudStorageWriteChannel
  */
 @ThreadSafe
 final class CloudStorageReadChannel implements SeekableByteChannel {
 
+  // # of consecutive reads, since opening or seeking, before read-ahead kicks in.
+  @VisibleForTesting
+  static final int SEQUENTIAL_READS_BEFORE_READ_AHEAD = 2;
+
   private final Storage gcsStorage;
   private final BlobId file;
   // max # of times we may reopen the file
@@ -63,6 +79,15 @@ final class CloudStorageReadChannel implements SeekableByteChannel {
   // generation at time of first open, to make sure reopens don't give us a different version of the file.
   // It can be null if not implemented, in which case we don't check.
   private Long generation;
+  // max # of blocks fetched ahead of position, and where their buffers come from.
+  private final int readAheadBlocks;
+  private final @Nullable ReadAheadBufferPool readAheadPool;
+  // contiguous blocks being fetched, or fetched, starting with the one that contains position.
+  private final ArrayDeque<ReadAheadBlock> readAhead = new ArrayDeque<>();
+  // # of reads since opening or the last seek outside of the read-ahead blocks.
+  private int sequentialReads;
+  // true if reads were served from read-ahead blocks, so channel isn't at position anymore.
+  private boolean channelBehind;
 
   /**
    * @param maxChannelReopens max number of times to try re-opening the channel if it closes on us
@@ -81,15 +106,32 @@ final class CloudStorageReadChannel implements SeekableByteChannel {
   @SuppressWarnings("resource")
   static CloudStorageReadChannel create(Storage gcsStorage, BlobId file, long position, int maxChannelReopens, @Nullable String userProject, BlobSourceOption... blobSourceOptions)
       throws IOException {
-    return new CloudStorageReadChannel(gcsStorage, file, position, maxChannelReopens, userProject, blobSourceOptions);
+    return new CloudStorageReadChannel(gcsStorage, file, position, maxChannelReopens, 0, null, userProject, blobSourceOptions);
+  }
+
+  /**
+   * @param readAheadBlocks max number of blocks to fetch concurrently ahead of the position, once
+   *    the channel is read sequentially. Zero disables read-ahead.
+   * @param readAheadPool where the read-ahead buffers come from. Can only be null if
+   *    readAheadBlocks is zero.
+   * @see #create(Storage, BlobId, long, int, String, BlobSourceOption...)
+   */
+  @CheckReturnValue
+  @SuppressWarnings("resource")
+  static CloudStorageReadChannel create(Storage gcsStorage, BlobId file, long position, int maxChannelReopens, int readAheadBlocks, @Nullable ReadAheadBufferPool readAheadPool, @Nullable String userProject, BlobSourceOption... blobSourceOptions)
+      throws IOException {
+    return new CloudStorageReadChannel(gcsStorage, file, position, maxChannelReopens, readAheadBlocks, readAheadPool, userProject, blobSourceOptions);
   }
 
-  private CloudStorageReadChannel(Storage gcsStorage, BlobId file, long position, int maxChannelReopens, @Nullable String userProject, BlobSourceOption... blobSourceOptions) throws IOException {
+  private CloudStorageReadChannel(Storage gcsStorage, BlobId file, long position, int maxChannelReopens, int readAheadBlocks, @Nullable ReadAheadBufferPool readAheadPool, @Nullable String userProject, BlobSourceOption... blobSourceOptions) throws IOException {
+    checkArgument(readAheadBlocks == 0 || readAheadPool != null, "read-ahead requires a buffer pool");
     this.gcsStorage = gcsStorage;
     this.file = file;
     this.position = position;
     this.maxChannelReopens = maxChannelReopens;
     this.maxRetries = Math.max(3, maxChannelReopens);
+    this.readAheadBlocks = readAheadBlocks;
+    this.readAheadPool = readAheadBlocks > 0 ? readAheadPool : null;
     // get the generation, enshrine that in our options
     fetchSize(gcsStorage, userProject, file);
     List options = Lists.newArrayList(blobSourceOptions);
@@ -123,6 +165,7 @@ final class CloudStorageReadChannel implements SeekableByteChannel {
   @Override
   public void close() throws IOException {
     synchronized (this) {
+      discardReadAhead();
       channel.close();
     }
   }
@@ -132,6 +175,19 @@ final class CloudStorageReadChannel implements SeekableByteChannel {
   public int read(ByteBuffer dst) throws IOException {
     synchronized (this) {
       checkOpen();
+      if (readAheadPool != null && sequentialReads >= SEQUENTIAL_READS_BEFORE_READ_AHEAD && position < size) {
+        fillReadAhead();
+        if (!readAhead.isEmpty()) {
+          sequentialReads++;
+          return readFromReadAhead(dst);
+        }
+        // The pool is exhausted, read directly instead.
+      }
+      sequentialReads++;
+      if (channelBehind) {
+        channel.seek(position);
+        channelBehind = false;
+      }
       int amt;
       final CloudStorageRetryHandler retryHandler = new CloudStorageRetryHandler(maxRetries, maxChannelReopens);
       dst.mark();
@@ -180,7 +236,18 @@ final class CloudStorageReadChannel implements SeekableByteChannel {
       if (newPosition == position) {
         return this;
       }
-      channel.seek(newPosition);
+      if (!readAhead.isEmpty() && newPosition > position && newPosition < readAhead.peekLast().end) {
+        // Skipping forward within the read-ahead blocks, keep what we still need.
+        while (readAhead.peekFirst().end <= newPosition) {
+          readAhead.pollFirst().release();
+        }
+        channelBehind = true;
+      } else {
+        discardReadAhead();
+        sequentialReads = 0;
+        channel.seek(newPosition);
+        channelBehind = false;
+      }
       position = newPosition;
       return this;
     }
@@ -196,6 +263,151 @@ final class CloudStorageReadChannel implements SeekableByteChannel {
     throw new NonWritableChannelException();
   }
 
+  /**
+   * Starts fetching blocks after the last read-ahead block (or at position), until there are
+   * readAheadBlocks of them, the end of the file is reached, or the pool runs out of buffers.
+   */
+  private void fillReadAhead() {
+    long next = readAhead.isEmpty() ? position : readAhead.peekLast().end;
+    while (readAhead.size() < readAheadBlocks && next < size) {
+      ByteBuffer buffer = readAheadPool.tryAcquire();
+      if (buffer == null) {
+        break;
+      }
+      ReadAheadBlock block = new ReadAheadBlock(next, Math.min(next + buffer.capacity(), size), buffer);
+      block.future = readAheadPool.executor().submit(block);
+      readAhead.addLast(block);
+      next = block.end;
+    }
+  }
+
+  /**
+   * Copies bytes from the first read-ahead block, waiting for it if needed, and from the
+   * following ones as long as they've already been fetched.
+   */
+  private int readFromReadAhead(ByteBuffer dst) throws IOException {
+    // position moves as bytes are copied, so the channel is behind whichever way we leave.
+    channelBehind = true;
+    int amt = 0;
+    boolean first = true;
+    while (dst.hasRemaining() && !readAhead.isEmpty()) {
+      ReadAheadBlock block = readAhead.peekFirst();
+      if (!first && !block.future.isDone()) {
+        break;
+      }
+      first = false;
+      ByteBuffer data;
+      try {
+        data = block.get();
+      } catch (IOException | RuntimeException e) {
+        // Go back to plain reads, which retry on their own, if the caller tries again.
+        discardReadAhead();
+        sequentialReads = 0;
+        if (amt > 0) {
+          // Don't lose what was already copied, the next read will hit the error again.
+          return amt;
+        }
+        throw e;
+      }
+      ByteBuffer src = data.duplicate();
+      src.position((int) (position - block.start));
+      if (src.remaining() > dst.remaining()) {
+        src.limit(src.position() + dst.remaining());
+      }
+      int copied = src.remaining();
+      dst.put(src);
+      amt += copied;
+      position += copied;
+      if (position >= block.end) {
+        readAhead.pollFirst().release();
+      }
+    }
+    return amt;
+  }
+
+  private void discardReadAhead() {
+    for (ReadAheadBlock block : readAhead) {
+      block.release();
+    }
+    readAhead.clear();
+  }
+
+  /**
+   * A range of the file, fetched into a pooled buffer on its own {@link ReadChannel}.
+   */
+  private final class ReadAheadBlock implements Callable<ByteBuffer> {
+    final long start;
+    final long end;
+    private final ByteBuffer buffer;
+    // set when the block isn't needed anymore, so the fetch can stop early.
+    private volatile boolean discarded;
+    ListenableFuture<ByteBuffer> future;
+
+    ReadAheadBlock(long start, long end, ByteBuffer buffer) {
+      this.start = start;
+      this.end = end;
+      this.buffer = buffer;
+    }
+
+    @Override
+    public ByteBuffer call() throws IOException {
+      buffer.limit((int) (end - start));
+      final CloudStorageRetryHandler retryHandler = new CloudStorageRetryHandler(maxRetries, maxChannelReopens);
+      ReadChannel reader = null;
+      try {
+        while (buffer.hasRemaining() && !discarded) {
+          try {
+            if (reader == null) {
+              reader = gcsStorage.reader(file, blobSourceOptions);
+              reader.setChunkSize(buffer.limit());
+              reader.seek(start + buffer.position());
+            }
+            if (reader.read(buffer) < 0) {
+              throw new EOFException(String.format(
+                  "gs://%s/%s ended before byte %d", file.getBucket(), file.getName(), end));
+            }
+          } catch (StorageException exs) {
+            // Will rethrow a StorageException if all retries/reopens are exhausted
+            if (retryHandler.handleStorageException(exs) && reader != null) {
+              reader.close();
+              reader = null;
+            }
+          }
+        }
+      } finally {
+        if (reader != null) {
+          reader.close();
+        }
+      }
+      buffer.flip();
+      return buffer;
+    }
+
+    ByteBuffer get() throws IOException {
+      try {
+        return Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        Throwables.propagateIfPossible(e.getCause(), IOException.class);
+        throw new IOException(e.getCause());
+      }
+    }
+
+    /**
+     * Returns the buffer to the pool once the fetch, if still running, notices it's discarded.
+     */
+    void release() {
+      discarded = true;
+      future.addListener(
+          new Runnable() {
+            @Override
+            public void run() {
+              readAheadPool.release(buffer);
+            }
+          },
+          MoreExecutors.directExecutor());
+    }
+  }
+
   private void checkOpen() throws ClosedChannelException {
     if (!channel.isOpen()) {
       throw new ClosedChannelException();
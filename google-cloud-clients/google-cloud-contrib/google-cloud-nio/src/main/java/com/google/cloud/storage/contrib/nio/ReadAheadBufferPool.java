@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.storage.contrib.nio;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Bounded pool of read-ahead buffers, shared by all the {@link CloudStorageReadChannel}s that use
+ * the same block size and pool size, along with the threads that fill them.
+ *
+ * <p>Buffers are never waited for: a channel that can't get one simply reads fewer blocks ahead,
+ * so that many channels reading at once can't use more than {@code maxBuffers * blockSize} bytes.
+ */
+@ThreadSafe
+final class ReadAheadBufferPool {
+
+  private static final ConcurrentMap<List<Integer>, ReadAheadBufferPool> POOLS =
+      new ConcurrentHashMap<>();
+
+  private static final ListeningExecutorService EXECUTOR =
+      MoreExecutors.listeningDecorator(
+          Executors.newCachedThreadPool(
+              new ThreadFactoryBuilder()
+                  .setNameFormat("gcs-nio-read-ahead-%d")
+                  .setDaemon(true)
+                  .build()));
+
+  private final int blockSize;
+  private final int maxBuffers;
+  private final ListeningExecutorService executor;
+
+  @GuardedBy("this")
+  private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+  @GuardedBy("this")
+  private int allocated;
+
+  @VisibleForTesting
+  ReadAheadBufferPool(int blockSize, int maxBuffers) {
+    this(blockSize, maxBuffers, EXECUTOR);
+  }
+
+  @VisibleForTesting
+  ReadAheadBufferPool(int blockSize, int maxBuffers, ListeningExecutorService executor) {
+    checkArgument(blockSize > 0, "blockSize must be positive: %s", blockSize);
+    checkArgument(maxBuffers > 0, "maxBuffers must be positive: %s", maxBuffers);
+    this.blockSize = blockSize;
+    this.maxBuffers = maxBuffers;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns the pool shared by every channel that uses the given block size and pool size.
+   */
+  static ReadAheadBufferPool shared(int blockSize, int maxBuffers) {
+    List<Integer> key = ImmutableList.of(blockSize, maxBuffers);
+    ReadAheadBufferPool pool = POOLS.get(key);
+    if (pool == null) {
+      ReadAheadBufferPool newPool = new ReadAheadBufferPool(blockSize, maxBuffers);
+      pool = POOLS.putIfAbsent(key, newPool);
+      if (pool == null) {
+        pool = newPool;
+      }
+    }
+    return pool;
+  }
+
+  int blockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Returns the executor that fills read-ahead buffers. Its threads are bounded by the number of
+   * buffers in use, since each fetch holds one.
+   */
+  ListeningExecutorService executor() {
+    return executor;
+  }
+
+  /**
+   * Returns an empty buffer of {@link #blockSize()} bytes, or {@code null} if all the buffers of
+   * the pool are in use.
+   */
+  @Nullable
+  synchronized ByteBuffer tryAcquire() {
+    ByteBuffer buffer = free.pollFirst();
+    if (buffer == null && allocated < maxBuffers) {
+      buffer = ByteBuffer.allocate(blockSize);
+      allocated++;
+    }
+    return buffer;
+  }
+
+  /** Returns a buffer obtained from {@link #tryAcquire()} to the pool. */
+  synchronized void release(ByteBuffer buffer) {
+    buffer.clear();
+    free.addFirst(buffer);
+  }
+
+  @VisibleForTesting
+  synchronized int available() {
+    return free.size() + maxBuffers - allocated;
+  }
+}
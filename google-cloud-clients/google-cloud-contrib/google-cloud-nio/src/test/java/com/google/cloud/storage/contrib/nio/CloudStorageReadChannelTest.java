@@ -31,6 +31,7 @@ import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.Storage;
 
 import com.google.cloud.storage.StorageException;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -38,12 +39,15 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import javax.net.ssl.SSLHandshakeException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.NonWritableChannelException;
+import java.util.Arrays;
 
 /**
  * Unit tests for {@link CloudStorageReadChannel}.
@@ -214,4 +218,46 @@ public class CloudStorageReadChannelTest {
     verify(gcsChannel).seek(captor.capture());
     assertThat(captor.getValue()).isEqualTo(startPosition);
   }
+
+  @Test
+  public void testReadAheadFailureAfterCopyKeepsBytesAndReseeks() throws IOException {
+    // Fetch blocks synchronously, so both are done by the time they're read.
+    ReadAheadBufferPool pool =
+        new ReadAheadBufferPool(10, 2, MoreExecutors.newDirectExecutorService());
+    CloudStorageReadChannel readAheadChan =
+        CloudStorageReadChannel.create(gcsStorage, file, 0, 1, 2, pool, "");
+    when(gcsChannel.read(any(ByteBuffer.class))).thenReturn(1);
+    for (int i = 0; i < CloudStorageReadChannel.SEQUENTIAL_READS_BEFORE_READ_AHEAD; i++) {
+      assertThat(readAheadChan.read(ByteBuffer.allocate(1))).isEqualTo(1);
+    }
+
+    ReadChannel goodBlock = mock(ReadChannel.class);
+    when(goodBlock.read(any(ByteBuffer.class))).thenAnswer(new Answer<Integer>() {
+      @Override
+      public Integer answer(InvocationOnMock invocation) {
+        ByteBuffer buffer = (ByteBuffer) invocation.getArguments()[0];
+        byte[] bytes = new byte[buffer.remaining()];
+        Arrays.fill(bytes, (byte) 7);
+        buffer.put(bytes);
+        return bytes.length;
+      }
+    });
+    ReadChannel badBlock = mock(ReadChannel.class);
+    when(badBlock.read(any(ByteBuffer.class))).thenThrow(new StorageException(400, "bad block"));
+    when(gcsStorage.reader(file, Storage.BlobSourceOption.generationMatch(2L)))
+        .thenReturn(goodBlock, badBlock);
+
+    // The first block is copied, the second one fails: the copied bytes are returned.
+    ByteBuffer buffer = ByteBuffer.allocate(20);
+    assertThat(readAheadChan.read(buffer)).isEqualTo(10);
+    assertThat(buffer.position()).isEqualTo(10);
+    assertThat(buffer.get(0)).isEqualTo((byte) 7);
+    assertThat(readAheadChan.position()).isEqualTo(12L);
+
+    // The next read goes back to the main channel, after moving it to the current position.
+    buffer.clear();
+    assertThat(readAheadChan.read(buffer)).isEqualTo(1);
+    verify(gcsChannel).seek(12L);
+    assertThat(readAheadChan.position()).isEqualTo(13L);
+  }
 }
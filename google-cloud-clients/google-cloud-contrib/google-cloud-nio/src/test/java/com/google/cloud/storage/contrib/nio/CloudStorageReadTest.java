@@ -34,6 +34,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Random;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth.assertWithMessage;
@@ -131,6 +132,113 @@ public class CloudStorageReadTest {
     }
   }
 
+  @Test
+  public void testChannelReadsWithReadAhead() throws IOException {
+    byte[] bytes = ALONE.getBytes(UTF_8);
+    CloudStorageConfiguration config =
+        CloudStorageConfiguration.builder().blockSize(4096).readAheadBlocks(4).build();
+    try (FileSystem fs = CloudStorageFileSystem.forBucket("bucket", config)) {
+      Path p = fillFile(fs, bytes, repeat);
+
+      try (SeekableByteChannel chan = Files.newByteChannel(p, StandardOpenOption.READ)) {
+        ByteBuffer buf = ByteBuffer.allocate(bytes.length);
+        for (int i = 0; i < repeat; i++) {
+          buf.clear();
+          while (buf.hasRemaining()) {
+            assertThat(chan.read(buf)).isAtLeast(0);
+          }
+          assertWithMessage("Wrong bytes from channel at repeat " + i)
+              .that(new String(buf.array(), UTF_8)).isEqualTo(ALONE);
+          assertThat(chan.position()).isEqualTo((long) (i + 1) * bytes.length);
+        }
+        buf.clear();
+        assertWithMessage("EOF should return -1").that(chan.read(buf)).isEqualTo(-1);
+      } finally {
+        Files.delete(p);
+      }
+    }
+  }
+
+  @Test
+  public void testRandomReadsWithReadAhead() throws IOException {
+    byte[] bytes = ALONE.getBytes(UTF_8);
+    CloudStorageConfiguration config =
+        CloudStorageConfiguration.builder().blockSize(1000).readAheadBlocks(2).build();
+    try (FileSystem fs = CloudStorageFileSystem.forBucket("bucket", config)) {
+      Path p = fillFile(fs, bytes, 100);
+
+      try (SeekableByteChannel chan = Files.newByteChannel(p, StandardOpenOption.READ)) {
+        Random random = new Random(42);
+        ByteBuffer buf = ByteBuffer.allocate(100);
+        for (int i = 0; i < 500; i++) {
+          // Mix seeks, short skips forward and sequential runs that trigger read-ahead.
+          if (random.nextBoolean()) {
+            chan.position(chan.position() + random.nextInt(3000));
+          } else if (random.nextInt(4) == 0) {
+            chan.position(random.nextInt((int) chan.size()));
+          }
+          long position = chan.position();
+          buf.clear();
+          int read = chan.read(buf);
+          if (position >= chan.size()) {
+            assertThat(read).isEqualTo(-1);
+            chan.position(0);
+            continue;
+          }
+          assertThat(read).isGreaterThan(0);
+          for (int j = 0; j < read; j++) {
+            assertWithMessage("Wrong byte at position " + (position + j))
+                .that(buf.get(j)).isEqualTo(bytes[(int) ((position + j) % bytes.length)]);
+          }
+          assertThat(chan.position()).isEqualTo(position + read);
+        }
+      } finally {
+        Files.delete(p);
+      }
+    }
+  }
+
+  @Test
+  public void testReadAheadBufferPoolIsShared() throws IOException, InterruptedException {
+    byte[] bytes = ALONE.getBytes(UTF_8);
+    CloudStorageConfiguration config =
+        CloudStorageConfiguration.builder()
+            .blockSize(1024)
+            .readAheadBlocks(3)
+            .readAheadBufferPoolSize(4)
+            .build();
+    ReadAheadBufferPool pool = ReadAheadBufferPool.shared(1024, 4);
+    try (FileSystem fs = CloudStorageFileSystem.forBucket("bucket", config)) {
+      Path p = fillFile(fs, bytes, 100);
+      try (SeekableByteChannel chan1 = Files.newByteChannel(p, StandardOpenOption.READ);
+          SeekableByteChannel chan2 = Files.newByteChannel(p, StandardOpenOption.READ)) {
+        ByteBuffer buf = ByteBuffer.allocate(10);
+        for (int i = 0; i < 3; i++) {
+          buf.clear();
+          chan1.read(buf);
+          buf.clear();
+          chan2.read(buf);
+        }
+        // The second channel only got the buffer the first one left, and both still read fine.
+        assertThat(pool.available()).isEqualTo(0);
+        for (SeekableByteChannel chan : Arrays.asList(chan1, chan2)) {
+          ByteBuffer rest = ByteBuffer.allocate((int) (chan.size() - chan.position()));
+          while (rest.hasRemaining()) {
+            assertThat(chan.read(rest)).isAtLeast(0);
+          }
+          assertThat(rest.get(0)).isEqualTo(bytes[30]);
+        }
+      } finally {
+        Files.delete(p);
+      }
+    }
+    // Closing the channels returns the buffers, once their fetches notice.
+    for (int i = 0; i < 100 && pool.available() < 4; i++) {
+      Thread.sleep(10);
+    }
+    assertThat(pool.available()).isEqualTo(4);
+  }
+
   private Path fillFile(FileSystem fs, byte[] bytes, int repeat) throws IOException {
     Path p = fs.getPath("/alone");
     try (OutputStream os = Files.newOutputStream(p)) {
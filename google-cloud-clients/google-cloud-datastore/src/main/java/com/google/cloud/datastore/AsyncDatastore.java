@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.datastore;
+
+import com.google.api.core.ApiFuture;
+import java.util.List;
+
+/**
+ * A {@link Datastore} that can also read and write entities without blocking the calling thread.
+ * The service returned by {@link DatastoreOptions#getService()} implements this interface.
+ */
+public interface AsyncDatastore extends Datastore {
+  /**
+   * Asynchronously returns an {@link Entity} for the given {@link Key}, or {@code null} if it
+   * doesn't exist. {@link ReadOption}s can be specified if desired.
+   *
+   * <p>The async methods send their requests from the service's own pool of client threads, sized
+   * by {@link DatastoreOptions.Builder#setAsyncThreadCount(int)}, and retry them with the same
+   * settings as the blocking methods, without holding a thread during backoff. The returned future
+   * fails with a {@link DatastoreException} upon failure.
+   *
+   * <p>Example of getting entities concurrently.
+   * <pre> {@code
+   * KeyFactory keyFactory = datastore.newKeyFactory().setKind("MyKind");
+   * ApiFuture<Entity> first = datastore.getAsync(keyFactory.newKey("my_first_key_name"));
+   * ApiFuture<Entity> second = datastore.getAsync(keyFactory.newKey("my_second_key_name"));
+   * List<Entity> entities = ApiFutures.allAsList(Arrays.asList(first, second)).get();
+   * }</pre>
+   *
+   * @see #get(Key, ReadOption...)
+   */
+  ApiFuture<Entity> getAsync(Key key, ReadOption... options);
+
+  /**
+   * Asynchronously returns a list with a value for each given key (ordered by input). {@code null}
+   * values are returned for nonexistent keys. Keys that are deferred by the Datastore are looked up
+   * again until all keys have been resolved. {@link ReadOption}s can be specified if desired.
+   *
+   * @see #fetch(Iterable, ReadOption...)
+   * @see #getAsync(Key, ReadOption...)
+   */
+  ApiFuture<List<Entity>> fetchAsync(Iterable<Key> keys, ReadOption... options);
+
+  /**
+   * Asynchronously submits a {@link Query}. The returned future is completed once the first batch
+   * of results has been received. Further batches are requested when the iteration of the results
+   * reaches them, blocking the iterating thread. {@link ReadOption}s can be specified if desired.
+   *
+   * @see #run(Query, ReadOption...)
+   * @see #getAsync(Key, ReadOption...)
+   */
+  <T> ApiFuture<QueryResults<T>> runAsync(Query<T> query, ReadOption... options);
+
+  /**
+   * Asynchronously puts the entities in a single commit, returning the entities with their
+   * complete keys (ordered by input).
+   *
+   * @see #put(FullEntity...)
+   * @see #getAsync(Key, ReadOption...)
+   */
+  ApiFuture<List<Entity>> putAsync(FullEntity<?>... entities);
+
+  /**
+   * Asynchronously deletes the entities for the given keys in a single commit.
+   *
+   * @see #delete(Key...)
+   * @see #getAsync(Key, ReadOption...)
+   */
+  ApiFuture<Void> deleteAsync(Key... keys);
+}
@@ -31,8 +31,10 @@ import static com.google.cloud.datastore.StringValue.of;
 import com.google.cloud.Timestamp;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableSortedMap;
-import com.google.common.collect.Maps;
+import com.google.common.collect.ImmutableSortedSet;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -40,6 +42,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A base class for entities (key and properties).
@@ -54,8 +58,12 @@ import java.util.Set;
 public abstract class BaseEntity<K extends IncompleteKey> implements Serializable {
 
   private static final long serialVersionUID = -9070588108769487081L;
-  private final ImmutableSortedMap<String, Value<?>> properties;
+  private ImmutableSortedMap<String, Value<?>> properties;
   private final K key;
+  // For entities read from Datastore, the properties are decoded from entityPb one at a time as
+  // they are accessed, and properties is only built when all of them are needed.
+  private transient com.google.datastore.v1.Entity entityPb;
+  private transient ConcurrentMap<String, Value<?>> decodedProperties;
 
   public abstract static class Builder<K extends IncompleteKey, B extends Builder<K, B>> {
 
@@ -75,7 +83,7 @@ public abstract class BaseEntity<K extends IncompleteKey> implements Serializabl
 
     Builder(K key, BaseEntity<?> entity) {
       setKey(key);
-      setProperties(entity.properties);
+      setProperties(entity.getProperties());
     }
 
     protected K key() {
@@ -91,20 +99,6 @@ public abstract class BaseEntity<K extends IncompleteKey> implements Serializabl
       return (B) this;
     }
 
-    @SuppressWarnings("unchecked")
-    B fill(com.google.datastore.v1.Entity entityPb) {
-      Map<String, Value<?>> copiedProperties = Maps.newHashMap();
-      for (Map.Entry<String, com.google.datastore.v1.Value> entry :
-          entityPb.getPropertiesMap().entrySet()) {
-        copiedProperties.put(entry.getKey(), Value.fromPb(entry.getValue()));
-      }
-      setProperties(copiedProperties);
-      if (entityPb.hasKey()) {
-        setKey((K) IncompleteKey.fromPb(entityPb.getKey()));
-      }
-      return self();
-    }
-
     protected B setProperties(Map<String, Value<?>> properties) {
       this.properties.putAll(properties);
       return self();
@@ -461,19 +455,32 @@ public abstract class BaseEntity<K extends IncompleteKey> implements Serializabl
   BaseEntity(BaseEntity<K> from) {
     this.key = from.getKey();
     this.properties = from.properties;
+    this.entityPb = from.entityPb;
+    this.decodedProperties = from.decodedProperties;
+  }
+
+  /**
+   * Creates an entity backed by {@code entityPb}. Each property is decoded the first time it is
+   * read.
+   */
+  @SuppressWarnings("unchecked")
+  BaseEntity(com.google.datastore.v1.Entity entityPb) {
+    this.key = entityPb.hasKey() ? (K) IncompleteKey.fromPb(entityPb.getKey()) : null;
+    this.entityPb = entityPb;
+    this.decodedProperties = new ConcurrentHashMap<>();
   }
 
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this)
         .add("key", key)
-        .add("properties", properties)
+        .add("properties", getProperties())
         .toString();
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(key, properties);
+    return Objects.hash(key, getProperties());
   }
 
   @Override
@@ -486,7 +493,7 @@ public abstract class BaseEntity<K extends IncompleteKey> implements Serializabl
     }
     BaseEntity<?> other = (BaseEntity<?>) obj;
     return Objects.equals(key, other.key)
-        && Objects.equals(properties, other.properties);
+        && Objects.equals(getProperties(), other.getProperties());
   }
 
   /**
@@ -508,6 +515,9 @@ public abstract class BaseEntity<K extends IncompleteKey> implements Serializabl
    * Returns {@code true} if the entity contains a property with the given {@code name}.
    */
   public boolean contains(String name) {
+    if (properties == null) {
+      return entityPb.containsProperties(name);
+    }
     return properties.containsKey(name);
   }
 
@@ -518,7 +528,7 @@ public abstract class BaseEntity<K extends IncompleteKey> implements Serializabl
    */
   public <V extends Value<?>> V getValue(String name) {
     @SuppressWarnings("unchecked")
-    V property = (V) properties.get(name);
+    V property = (V) (properties == null ? decodeProperty(name) : properties.get(name));
     if (property == null) {
       throw DatastoreException.throwInvalidRequest("No such property %s", name);
     }
@@ -650,14 +660,52 @@ public abstract class BaseEntity<K extends IncompleteKey> implements Serializabl
    * Returns the properties name.
    */
   public Set<String> getNames() {
+    if (properties == null) {
+      return ImmutableSortedSet.copyOf(entityPb.getPropertiesMap().keySet());
+    }
     return properties.keySet();
   }
 
   ImmutableSortedMap<String, Value<?>> getProperties() {
-    return properties;
+    ImmutableSortedMap<String, Value<?>> result = properties;
+    if (result == null) {
+      ImmutableSortedMap.Builder<String, Value<?>> builder = ImmutableSortedMap.naturalOrder();
+      for (String name : entityPb.getPropertiesMap().keySet()) {
+        builder.put(name, decodeProperty(name));
+      }
+      result = builder.build();
+      properties = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the decoded value of the property {@code name} of {@code entityPb}, or {@code null} if
+   * there is no such property.
+   */
+  private Value<?> decodeProperty(String name) {
+    Value<?> value = decodedProperties.get(name);
+    if (value == null) {
+      com.google.datastore.v1.Value valuePb = entityPb.getPropertiesOrDefault(name, null);
+      if (valuePb == null) {
+        return null;
+      }
+      // Concurrent readers may both decode the property, but they decode equal values.
+      value = Value.fromPb(valuePb);
+      decodedProperties.put(name, value);
+    }
+    return value;
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    getProperties();
+    out.defaultWriteObject();
   }
 
   final com.google.datastore.v1.Entity toPb() {
+    if (entityPb != null) {
+      return entityPb;
+    }
     com.google.datastore.v1.Entity.Builder entityPb = com.google.datastore.v1.Entity.newBuilder();
     for (Map.Entry<String, Value<?>> entry : properties.entrySet()) {
       entityPb.putProperties(entry.getKey(), entry.getValue().toPb());
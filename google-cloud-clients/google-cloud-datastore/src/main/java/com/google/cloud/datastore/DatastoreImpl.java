@@ -16,20 +16,34 @@
 
 package com.google.cloud.datastore;
 
+import com.google.api.core.ApiAsyncFunction;
+import com.google.api.core.ApiFunction;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.retrying.ExponentialRetryAlgorithm;
+import com.google.api.gax.retrying.ResultRetryAlgorithm;
+import com.google.api.gax.retrying.RetryAlgorithm;
 import com.google.api.gax.retrying.RetrySettings;
+import com.google.api.gax.retrying.RetryingExecutor;
+import com.google.api.gax.retrying.RetryingFuture;
+import com.google.api.gax.retrying.ScheduledRetryingExecutor;
 import com.google.cloud.BaseService;
 import com.google.cloud.ExceptionHandler;
 import com.google.cloud.RetryHelper;
 import com.google.cloud.RetryHelper.RetryHelperException;
 import com.google.cloud.ServiceOptions;
 import com.google.cloud.datastore.ReadOption.EventualConsistency;
+import com.google.cloud.datastore.ReadOption.Prefetch;
 import com.google.cloud.datastore.spi.v1.DatastoreRpc;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.datastore.v1.ReadOptions.ReadConsistency;
 import com.google.datastore.v1.TransactionOptions;
 import com.google.protobuf.ByteString;
@@ -43,13 +57,31 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-final class DatastoreImpl extends BaseService<DatastoreOptions> implements Datastore {
+final class DatastoreImpl extends BaseService<DatastoreOptions> implements AsyncDatastore {
+
+  /** The number of seconds after which an idle thread of the async executor stops. */
+  private static final long ASYNC_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+  private static final AtomicInteger ASYNC_EXECUTOR_COUNT = new AtomicInteger();
+
+  /**
+   * The maximum number of keys that are looked up in a single request. Larger key sets are split
+   * into chunks of this size, which are looked up concurrently.
+   */
+  static final int LOOKUP_CHUNK_SIZE = 100;
 
   private final DatastoreRpc datastoreRpc;
   private final RetrySettings retrySettings;
   private static final ExceptionHandler TRANSACTION_EXCEPTION_HANDLER =
       TransactionExceptionHandler.build();
+  private ScheduledExecutorService asyncExecutor;
 
   DatastoreImpl(DatastoreOptions options) {
     super(options);
@@ -160,11 +192,18 @@ final class DatastoreImpl extends BaseService<DatastoreOptions> implements Datas
 
   @Override
   public <T> QueryResults<T> run(Query<T> query, ReadOption... options) {
-    return run(toReadOptionsPb(options), query);
+    return new QueryResultsImpl<>(
+        this, toReadOptionsPb(options), query, toPrefetchDepth(options));
   }
 
   <T> QueryResults<T> run(com.google.datastore.v1.ReadOptions readOptionsPb, Query<T> query) {
-    return new QueryResultsImpl<>(this, readOptionsPb, query);
+    return new QueryResultsImpl<>(this, readOptionsPb, query, 0);
+  }
+
+  @Override
+  public <T> ApiFuture<QueryResults<T>> runAsync(Query<T> query, ReadOption... options) {
+    return QueryResultsImpl.runAsync(
+        this, toReadOptionsPb(options), query, toPrefetchDepth(options));
   }
 
   com.google.datastore.v1.RunQueryResponse runQuery(
@@ -183,6 +222,17 @@ final class DatastoreImpl extends BaseService<DatastoreOptions> implements Datas
     }
   }
 
+  ApiFuture<com.google.datastore.v1.RunQueryResponse> runQueryAsync(
+      final com.google.datastore.v1.RunQueryRequest requestPb) {
+    return runAsyncWithRetries(
+        new Callable<com.google.datastore.v1.RunQueryResponse>() {
+          @Override
+          public com.google.datastore.v1.RunQueryResponse call() throws DatastoreException {
+            return datastoreRpc.runQuery(requestPb);
+          }
+        });
+  }
+
   @Override
   public Key allocateId(IncompleteKey key) {
     return DatastoreHelper.allocateId(this, key);
@@ -316,6 +366,16 @@ final class DatastoreImpl extends BaseService<DatastoreOptions> implements Datas
     return readOptionsPb;
   }
 
+  private static int toPrefetchDepth(ReadOption... options) {
+    if (options != null) {
+      ReadOption prefetch = ReadOption.asImmutableMap(options).get(Prefetch.class);
+      if (prefetch != null) {
+        return ((Prefetch) prefetch).getMaxBatches();
+      }
+    }
+    return 0;
+  }
+
   @Override
   public List<Entity> fetch(Key... keys) {
     return DatastoreHelper.fetch(this, keys);
@@ -326,19 +386,164 @@ final class DatastoreImpl extends BaseService<DatastoreOptions> implements Datas
     return DatastoreHelper.fetch(this, Iterables.toArray(keys, Key.class), options);
   }
 
+  @Override
+  public ApiFuture<Entity> getAsync(Key key, ReadOption... options) {
+    return ApiFutures.transform(
+        fetchAsync(Collections.singletonList(key), options),
+        new ApiFunction<List<Entity>, Entity>() {
+          @Override
+          public Entity apply(List<Entity> entities) {
+            return entities.get(0);
+          }
+        });
+  }
+
+  @Override
+  public ApiFuture<List<Entity>> fetchAsync(Iterable<Key> keys, ReadOption... options) {
+    final Key[] keyArray = Iterables.toArray(keys, Key.class);
+    if (keyArray.length == 0) {
+      return ApiFutures.immediateFuture(Collections.<Entity>emptyList());
+    }
+    return ApiFutures.transform(
+        ApiFutures.allAsList(
+            lookupChunksAsync(
+                toReadOptionsPb(options), Sets.newLinkedHashSet(Arrays.asList(keyArray)))),
+        new ApiFunction<List<List<Entity>>, List<Entity>>() {
+          @Override
+          public List<Entity> apply(List<List<Entity>> chunks) {
+            return DatastoreHelper.compileEntities(keyArray, Iterables.concat(chunks).iterator());
+          }
+        });
+  }
+
+  /**
+   * Splits the keys into chunks of at most {@link #LOOKUP_CHUNK_SIZE} keys and starts looking up
+   * all chunks concurrently. The deferred keys of each chunk are looked up again as soon as the
+   * chunk's response arrives, independently of the other chunks.
+   */
+  private List<ApiFuture<List<Entity>>> lookupChunksAsync(
+      com.google.datastore.v1.ReadOptions readOptionsPb, Set<Key> keys) {
+    List<ApiFuture<List<Entity>>> chunks = new ArrayList<>();
+    for (List<Key> chunk : Iterables.partition(keys, LOOKUP_CHUNK_SIZE)) {
+      chunks.add(lookupAllAsync(toLookupRequestPb(readOptionsPb, chunk), new ArrayList<Entity>()));
+    }
+    return chunks;
+  }
+
+  /**
+   * Looks up the keys of the request and adds the found entities to {@code found}, re-issuing the
+   * request for the deferred keys until all keys have been looked up.
+   */
+  private ApiFuture<List<Entity>> lookupAllAsync(
+      final com.google.datastore.v1.LookupRequest.Builder requestPb, final List<Entity> found) {
+    return ApiFutures.transformAsync(
+        lookupAsync(requestPb.build()),
+        new ApiAsyncFunction<com.google.datastore.v1.LookupResponse, List<Entity>>() {
+          @Override
+          public ApiFuture<List<Entity>> apply(com.google.datastore.v1.LookupResponse responsePb) {
+            for (com.google.datastore.v1.EntityResult entityResultPb : responsePb.getFoundList()) {
+              found.add(Entity.fromPb(entityResultPb.getEntity()));
+            }
+            if (responsePb.getDeferredCount() == 0) {
+              return ApiFutures.immediateFuture(found);
+            }
+            requestPb.clearKeys();
+            requestPb.addAllKeys(responsePb.getDeferredList());
+            return lookupAllAsync(requestPb, found);
+          }
+        });
+  }
+
   Iterator<Entity> get(com.google.datastore.v1.ReadOptions readOptionsPb, final Key... keys) {
     if (keys.length == 0) {
       return Collections.emptyIterator();
     }
+    Set<Key> dedupKeys = Sets.newLinkedHashSet(Arrays.asList(keys));
+    if (dedupKeys.size() <= LOOKUP_CHUNK_SIZE) {
+      return new ResultsIterator(toLookupRequestPb(readOptionsPb, dedupKeys));
+    }
+    List<ListenableFutureTask<List<Entity>>> chunks = new ArrayList<>();
+    for (List<Key> chunk : Iterables.partition(dedupKeys, LOOKUP_CHUNK_SIZE)) {
+      final com.google.datastore.v1.LookupRequest.Builder requestPb =
+          toLookupRequestPb(readOptionsPb, chunk);
+      chunks.add(
+          ListenableFutureTask.create(
+              new Callable<List<Entity>>() {
+                @Override
+                public List<Entity> call() {
+                  return Lists.newArrayList(new ResultsIterator(requestPb));
+                }
+              }));
+    }
+    // The calling thread looks up the first chunk while idle threads of the async executor start
+    // on the others. A chunk that no thread has started by the time it is needed is looked up by
+    // the calling thread, so a busy executor never delays a blocking lookup.
+    ScheduledExecutorService executor = getAsyncExecutor();
+    for (int i = 1; i < chunks.size(); i++) {
+      executor.execute(chunks.get(i));
+    }
+    return new ChunkedResultsIterator(chunks);
+  }
+
+  private static com.google.datastore.v1.LookupRequest.Builder toLookupRequestPb(
+      com.google.datastore.v1.ReadOptions readOptionsPb, Iterable<Key> keys) {
     com.google.datastore.v1.LookupRequest.Builder requestPb =
         com.google.datastore.v1.LookupRequest.newBuilder();
     if (readOptionsPb != null) {
       requestPb.setReadOptions(readOptionsPb);
     }
-    for (Key k : Sets.newLinkedHashSet(Arrays.asList(keys))) {
+    for (Key k : keys) {
       requestPb.addKeys(k.toPb());
     }
-    return new ResultsIterator(requestPb);
+    return requestPb;
+  }
+
+  /**
+   * Returns the results of concurrently looked up chunks of keys in turn. A chunk that has not
+   * been started yet is looked up by the iterating thread.
+   */
+  static final class ChunkedResultsIterator extends AbstractIterator<Entity> {
+
+    private final Iterator<ListenableFutureTask<List<Entity>>> chunks;
+    private Iterator<Entity> iter = Collections.emptyIterator();
+
+    ChunkedResultsIterator(List<ListenableFutureTask<List<Entity>>> chunks) {
+      this.chunks = chunks.iterator();
+    }
+
+    @Override
+    protected Entity computeNext() {
+      while (!iter.hasNext()) {
+        if (!chunks.hasNext()) {
+          return endOfData();
+        }
+        ListenableFutureTask<List<Entity>> chunk = chunks.next();
+        // Does nothing if the chunk has already been started by the executor.
+        chunk.run();
+        iter = getResult(chunk).iterator();
+      }
+      return iter.next();
+    }
+  }
+
+  /**
+   * Waits for the result of an asynchronous call, translating its failure into a {@link
+   * DatastoreException}.
+   */
+  static <V> V getResult(Future<V> future) {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof DatastoreException) {
+        throw (DatastoreException) e.getCause();
+      }
+      throw new DatastoreException(
+          DatastoreException.UNKNOWN_CODE, e.getCause().getMessage(), null, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DatastoreException(
+          DatastoreException.UNKNOWN_CODE, "Interrupted while waiting for a response", null, e);
+    }
   }
 
   final class ResultsIterator extends AbstractIterator<Entity> {
@@ -389,6 +594,17 @@ final class DatastoreImpl extends BaseService<DatastoreOptions> implements Datas
     }
   }
 
+  ApiFuture<com.google.datastore.v1.LookupResponse> lookupAsync(
+      final com.google.datastore.v1.LookupRequest requestPb) {
+    return runAsyncWithRetries(
+        new Callable<com.google.datastore.v1.LookupResponse>() {
+          @Override
+          public com.google.datastore.v1.LookupResponse call() throws DatastoreException {
+            return datastoreRpc.lookup(requestPb);
+          }
+        });
+  }
+
   @Override
   public void update(Entity... entities) {
     if (entities.length > 0) {
@@ -410,14 +626,41 @@ final class DatastoreImpl extends BaseService<DatastoreOptions> implements Datas
     return DatastoreHelper.put(this, entity);
   }
 
-  @SuppressWarnings("unchecked")
   @Override
   public List<Entity> put(FullEntity<?>... entities) {
     if (entities.length == 0) {
       return Collections.emptyList();
     }
-    List<com.google.datastore.v1.Mutation> mutationsPb = new ArrayList<>();
     Map<Key, Entity> dedupEntities = new LinkedHashMap<>();
+    List<com.google.datastore.v1.Mutation> mutationsPb = toPutMutationsPb(entities, dedupEntities);
+    return toPutResults(entities, dedupEntities, commitMutation(mutationsPb));
+  }
+
+  @Override
+  public ApiFuture<List<Entity>> putAsync(final FullEntity<?>... entities) {
+    if (entities.length == 0) {
+      return ApiFutures.immediateFuture(Collections.<Entity>emptyList());
+    }
+    final Map<Key, Entity> dedupEntities = new LinkedHashMap<>();
+    List<com.google.datastore.v1.Mutation> mutationsPb = toPutMutationsPb(entities, dedupEntities);
+    return ApiFutures.transform(
+        commitMutationAsync(mutationsPb),
+        new ApiFunction<com.google.datastore.v1.CommitResponse, List<Entity>>() {
+          @Override
+          public List<Entity> apply(com.google.datastore.v1.CommitResponse commitResponse) {
+            return toPutResults(entities, dedupEntities, commitResponse);
+          }
+        });
+  }
+
+  /**
+   * Returns the upsert mutations for the entities. The entities with complete keys are
+   * deduplicated into {@code dedupEntities}.
+   */
+  @SuppressWarnings("unchecked")
+  private static List<com.google.datastore.v1.Mutation> toPutMutationsPb(
+      FullEntity<?>[] entities, Map<Key, Entity> dedupEntities) {
+    List<com.google.datastore.v1.Mutation> mutationsPb = new ArrayList<>();
     for (FullEntity<?> entity : entities) {
       Preconditions.checkArgument(entity.hasKey(), "Entity %s is missing a key", entity);
       if (entity.getKey() instanceof Key) {
@@ -432,7 +675,13 @@ final class DatastoreImpl extends BaseService<DatastoreOptions> implements Datas
       mutationsPb.add(
           com.google.datastore.v1.Mutation.newBuilder().setUpsert(entity.toPb()).build());
     }
-    com.google.datastore.v1.CommitResponse commitResponse = commitMutation(mutationsPb);
+    return mutationsPb;
+  }
+
+  private static List<Entity> toPutResults(
+      FullEntity<?>[] entities,
+      Map<Key, Entity> dedupEntities,
+      com.google.datastore.v1.CommitResponse commitResponse) {
     Iterator<com.google.datastore.v1.MutationResult> mutationResults =
         commitResponse.getMutationResultsList().iterator();
     ImmutableList.Builder<Entity> responseBuilder = ImmutableList.builder();
@@ -451,16 +700,34 @@ final class DatastoreImpl extends BaseService<DatastoreOptions> implements Datas
   @Override
   public void delete(Key... keys) {
     if (keys.length > 0) {
-      List<com.google.datastore.v1.Mutation> mutationsPb = new ArrayList<>();
-      Set<Key> dedupKeys = new LinkedHashSet<>(Arrays.asList(keys));
-      for (Key key : dedupKeys) {
-        mutationsPb.add(
-            com.google.datastore.v1.Mutation.newBuilder().setDelete(key.toPb()).build());
-      }
-      commitMutation(mutationsPb);
+      commitMutation(toDeleteMutationsPb(keys));
     }
   }
 
+  @Override
+  public ApiFuture<Void> deleteAsync(Key... keys) {
+    if (keys.length == 0) {
+      return ApiFutures.immediateFuture(null);
+    }
+    return ApiFutures.transform(
+        commitMutationAsync(toDeleteMutationsPb(keys)),
+        new ApiFunction<com.google.datastore.v1.CommitResponse, Void>() {
+          @Override
+          public Void apply(com.google.datastore.v1.CommitResponse commitResponse) {
+            return null;
+          }
+        });
+  }
+
+  private static List<com.google.datastore.v1.Mutation> toDeleteMutationsPb(Key... keys) {
+    List<com.google.datastore.v1.Mutation> mutationsPb = new ArrayList<>();
+    Set<Key> dedupKeys = new LinkedHashSet<>(Arrays.asList(keys));
+    for (Key key : dedupKeys) {
+      mutationsPb.add(com.google.datastore.v1.Mutation.newBuilder().setDelete(key.toPb()).build());
+    }
+    return mutationsPb;
+  }
+
   @Override
   public KeyFactory newKeyFactory() {
     return DatastoreHelper.newKeyFactory(getOptions());
@@ -468,11 +735,28 @@ final class DatastoreImpl extends BaseService<DatastoreOptions> implements Datas
 
   private com.google.datastore.v1.CommitResponse commitMutation(
       List<com.google.datastore.v1.Mutation> mutationsPb) {
+    return commit(toCommitRequestPb(mutationsPb));
+  }
+
+  private ApiFuture<com.google.datastore.v1.CommitResponse> commitMutationAsync(
+      List<com.google.datastore.v1.Mutation> mutationsPb) {
+    final com.google.datastore.v1.CommitRequest requestPb = toCommitRequestPb(mutationsPb);
+    return runAsyncWithRetries(
+        new Callable<com.google.datastore.v1.CommitResponse>() {
+          @Override
+          public com.google.datastore.v1.CommitResponse call() throws DatastoreException {
+            return datastoreRpc.commit(requestPb);
+          }
+        });
+  }
+
+  private static com.google.datastore.v1.CommitRequest toCommitRequestPb(
+      List<com.google.datastore.v1.Mutation> mutationsPb) {
     com.google.datastore.v1.CommitRequest.Builder requestPb =
         com.google.datastore.v1.CommitRequest.newBuilder();
     requestPb.setMode(com.google.datastore.v1.CommitRequest.Mode.NON_TRANSACTIONAL);
     requestPb.addAllMutations(mutationsPb);
-    return commit(requestPb.build());
+    return requestPb.build();
   }
 
   com.google.datastore.v1.CommitResponse commit(
@@ -535,4 +819,59 @@ final class DatastoreImpl extends BaseService<DatastoreOptions> implements Datas
       throw DatastoreException.translateAndThrow(e);
     }
   }
+
+  /**
+   * Runs the callable on the async executor, retrying it with the same settings and exception
+   * handling as the blocking methods. The backoff between attempts is scheduled on the executor,
+   * so no thread is held while waiting to retry. Failures are translated as in the blocking
+   * methods.
+   */
+  private <V> ApiFuture<V> runAsyncWithRetries(Callable<V> callable) {
+    // The exception handler does not look at the response, so ignoring its type is safe.
+    @SuppressWarnings("unchecked")
+    ResultRetryAlgorithm<V> resultAlgorithm = (ResultRetryAlgorithm<V>) EXCEPTION_HANDLER;
+    RetryAlgorithm<V> retryAlgorithm =
+        new RetryAlgorithm<>(
+            resultAlgorithm,
+            new ExponentialRetryAlgorithm(retrySettings, getOptions().getClock()));
+    RetryingExecutor<V> executor =
+        new ScheduledRetryingExecutor<>(retryAlgorithm, getAsyncExecutor());
+    RetryingFuture<V> retryingFuture = executor.createFuture(callable);
+    retryingFuture.setAttemptFuture(executor.submit(retryingFuture));
+    return ApiFutures.catching(
+        retryingFuture,
+        Throwable.class,
+        new ApiFunction<Throwable, V>() {
+          @Override
+          public V apply(Throwable throwable) {
+            if (throwable instanceof DatastoreException) {
+              throw (DatastoreException) throwable;
+            }
+            throw new DatastoreException(
+                DatastoreException.UNKNOWN_CODE, throwable.getMessage(), null, throwable);
+          }
+        });
+  }
+
+  /**
+   * Returns the executor that sends the requests of the async methods, creating it on first use.
+   * It has {@link DatastoreOptions#getAsyncThreadCount()} daemon threads, which stop when they have
+   * been idle for a minute, so a service that is no longer used does not hold on to any thread.
+   */
+  private synchronized ScheduledExecutorService getAsyncExecutor() {
+    if (asyncExecutor == null) {
+      ScheduledThreadPoolExecutor executor =
+          new ScheduledThreadPoolExecutor(
+              getOptions().getAsyncThreadCount(),
+              new ThreadFactoryBuilder()
+                  .setDaemon(true)
+                  .setNameFormat(
+                      "datastore-async-" + ASYNC_EXECUTOR_COUNT.incrementAndGet() + "-%d")
+                  .build());
+      executor.setKeepAliveTime(ASYNC_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+      executor.allowCoreThreadTimeOut(true);
+      asyncExecutor = executor;
+    }
+    return asyncExecutor;
+  }
 }
@@ -27,6 +27,7 @@ import com.google.cloud.datastore.spi.v1.DatastoreRpc;
 import com.google.cloud.datastore.spi.DatastoreRpcFactory;
 import com.google.cloud.datastore.spi.v1.HttpDatastoreRpc;
 import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import java.lang.reflect.Method;
 import java.util.Objects;
@@ -39,8 +40,10 @@ public class DatastoreOptions
   private static final String API_SHORT_NAME = "Datastore";
   private static final String DATASTORE_SCOPE = "https://www.googleapis.com/auth/datastore";
   private static final Set<String> SCOPES = ImmutableSet.of(DATASTORE_SCOPE);
+  private static final int DEFAULT_ASYNC_THREAD_COUNT = 16;
 
   private final String namespace;
+  private final int asyncThreadCount;
 
   public static class DefaultDatastoreFactory implements DatastoreFactory {
 
@@ -66,6 +69,7 @@ public class DatastoreOptions
       ServiceOptions.Builder<Datastore, DatastoreOptions, Builder> {
 
     private String namespace;
+    private int asyncThreadCount = DEFAULT_ASYNC_THREAD_COUNT;
 
     private Builder() {
     }
@@ -73,6 +77,7 @@ public class DatastoreOptions
     private Builder(DatastoreOptions options) {
       super(options);
       namespace = options.namespace;
+      asyncThreadCount = options.asyncThreadCount;
     }
 
     @Override
@@ -96,11 +101,24 @@ public class DatastoreOptions
       this.namespace = validateNamespace(namespace);
       return this;
     }
+
+    /**
+     * Sets the number of threads that send the requests of the {@link AsyncDatastore} methods and
+     * the concurrent chunks of large lookups. Each datastore service has its own threads, which
+     * stop when they are idle. The transport is blocking, so this is the maximum number of such
+     * requests that a service has in flight at the same time. Defaults to 16.
+     */
+    public Builder setAsyncThreadCount(int asyncThreadCount) {
+      Preconditions.checkArgument(asyncThreadCount > 0, "asyncThreadCount must be positive");
+      this.asyncThreadCount = asyncThreadCount;
+      return this;
+    }
   }
 
   private DatastoreOptions(Builder builder) {
     super(DatastoreFactory.class, DatastoreRpcFactory.class, builder, new DatastoreDefaults());
     namespace = builder.namespace != null ? builder.namespace : defaultNamespace();
+    asyncThreadCount = builder.asyncThreadCount;
   }
 
   @Override
@@ -150,6 +168,13 @@ public class DatastoreOptions
     return namespace;
   }
 
+  /**
+   * Returns the number of threads that send the requests of the {@link AsyncDatastore} methods.
+   */
+  public int getAsyncThreadCount() {
+    return asyncThreadCount;
+  }
+
 
   /**
    * Returns a default {@code DatastoreOptions} instance.
@@ -187,7 +212,7 @@ public class DatastoreOptions
 
   @Override
   public int hashCode() {
-    return Objects.hash(baseHashCode(), namespace);
+    return Objects.hash(baseHashCode(), namespace, asyncThreadCount);
   }
 
   @Override
@@ -196,7 +221,9 @@ public class DatastoreOptions
       return false;
     }
     DatastoreOptions other = (DatastoreOptions) obj;
-    return baseEquals(other) && Objects.equals(namespace, other.namespace);
+    return baseEquals(other)
+        && Objects.equals(namespace, other.namespace)
+        && asyncThreadCount == other.asyncThreadCount;
   }
 
 
@@ -91,7 +91,12 @@ public final class Entity extends FullEntity<Key> {
     return new Builder(key, copyFrom);
   }
 
+  private Entity(com.google.datastore.v1.Entity entityPb) {
+    super(entityPb);
+    Preconditions.checkState(hasKey());
+  }
+
   static Entity fromPb(com.google.datastore.v1.Entity entityPb) {
-    return new Builder().fill(entityPb).build();
+    return new Entity(entityPb);
   }
 }
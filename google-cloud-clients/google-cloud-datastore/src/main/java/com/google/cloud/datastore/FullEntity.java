@@ -66,7 +66,11 @@ public class FullEntity<K extends IncompleteKey> extends BaseEntity<K> {
     return new Builder<>(copyFrom);
   }
 
+  FullEntity(com.google.datastore.v1.Entity entityPb) {
+    super(entityPb);
+  }
+
   static FullEntity<?> fromPb(com.google.datastore.v1.Entity entityPb) {
-    return new Builder<>().fill(entityPb).build();
+    return new FullEntity<>(entityPb);
   }
 }
@@ -72,8 +72,12 @@ public final class ProjectionEntity extends BaseEntity<Key> {
     return ((Value<Blob>) value).get();
   }
 
+  private ProjectionEntity(com.google.datastore.v1.Entity entityPb) {
+    super(entityPb);
+  }
+
   static ProjectionEntity fromPb(com.google.datastore.v1.Entity entityPb) {
-    return new Builder().fill(entityPb).build();
+    return new ProjectionEntity(entityPb);
   }
 
 
@@ -16,12 +16,18 @@
 
 package com.google.cloud.datastore;
 
+import com.google.api.core.ApiAsyncFunction;
+import com.google.api.core.ApiFunction;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.cloud.datastore.Query.ResultType;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.AbstractIterator;
 import com.google.datastore.v1.QueryResultBatch.MoreResultsType;
 import com.google.protobuf.ByteString;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.Objects;
 
@@ -38,13 +44,92 @@ class QueryResultsImpl<T> extends AbstractIterator<T> implements QueryResults<T>
   private boolean lastBatch;
   private Iterator<com.google.datastore.v1.EntityResult> entityResultPbIter;
   private ByteString cursor;
+  private final int prefetchDepth;
+  private final Deque<ApiFuture<Batch<T>>> prefetchedBatches = new ArrayDeque<>();
 
+  /** A batch of results together with the query that it was requested for. */
+  private static final class Batch<T> {
+
+    private final Query<T> query;
+    private final com.google.datastore.v1.RunQueryRequest requestPb;
+    private final com.google.datastore.v1.RunQueryResponse responsePb;
+
+    Batch(Query<T> query, com.google.datastore.v1.RunQueryRequest requestPb,
+        com.google.datastore.v1.RunQueryResponse responsePb) {
+      this.query = query;
+      this.requestPb = requestPb;
+      this.responsePb = responsePb;
+    }
+
+    boolean isLast() {
+      return responsePb.getBatch().getMoreResults() != MoreResultsType.NOT_FINISHED;
+    }
+  }
+
+  /**
+   * Creates the results of {@code query}. If {@code prefetchDepth} is positive, up to that many
+   * batches following the one being iterated are requested in the background.
+   */
   QueryResultsImpl(DatastoreImpl datastore, com.google.datastore.v1.ReadOptions readOptionsPb,
-                   Query<T> query) {
+                   Query<T> query, int prefetchDepth) {
+    this(datastore, readOptionsPb, query, prefetchDepth, null, null);
+  }
+
+  /**
+   * Creates the results from the response to the first request, or sends the first request if
+   * {@code requestPb} is {@code null}.
+   */
+  private QueryResultsImpl(DatastoreImpl datastore,
+      com.google.datastore.v1.ReadOptions readOptionsPb, Query<T> query, int prefetchDepth,
+      com.google.datastore.v1.RunQueryRequest requestPb,
+      com.google.datastore.v1.RunQueryResponse responsePb) {
     this.datastore = datastore;
     this.readOptionsPb = readOptionsPb;
     this.query = query;
+    this.prefetchDepth = prefetchDepth;
     queryResultType = query.getType();
+    partitionIdPb = toPartitionIdPb(datastore, query);
+    if (requestPb == null) {
+      sendRequest();
+    } else {
+      setResponse(requestPb, responsePb);
+    }
+    if (prefetchDepth > 0 && !lastBatch) {
+      ApiFuture<Batch<T>> previous = ApiFutures.immediateFuture(new Batch<>(this.query,
+          toRequestPb(readOptionsPb, partitionIdPb, this.query), runQueryResponsePb));
+      for (int i = 0; i < prefetchDepth; i++) {
+        previous = fetchAfter(previous);
+        prefetchedBatches.add(previous);
+      }
+    }
+    if (runQueryResponsePb.getBatch().getSkippedResults() > 0) {
+      cursor = runQueryResponsePb.getBatch().getSkippedCursor();
+    } else {
+      cursor = mostRecentQueryPb.getStartCursor();
+    }
+  }
+
+  /**
+   * Sends the first request of the query without blocking. The returned future is completed with
+   * the results once the first batch has been received.
+   */
+  static <T> ApiFuture<QueryResults<T>> runAsync(final DatastoreImpl datastore,
+      final com.google.datastore.v1.ReadOptions readOptionsPb, final Query<T> query,
+      final int prefetchDepth) {
+    final com.google.datastore.v1.RunQueryRequest requestPb =
+        toRequestPb(readOptionsPb, toPartitionIdPb(datastore, query), query);
+    return ApiFutures.transform(datastore.runQueryAsync(requestPb),
+        new ApiFunction<com.google.datastore.v1.RunQueryResponse, QueryResults<T>>() {
+          @Override
+          public QueryResults<T> apply(com.google.datastore.v1.RunQueryResponse responsePb) {
+            return new QueryResultsImpl<T>(
+                datastore, readOptionsPb, query, prefetchDepth, requestPb, responsePb);
+          }
+        });
+  }
+
+  private static com.google.datastore.v1.PartitionId toPartitionIdPb(DatastoreImpl datastore,
+      Query<?> query) {
     com.google.datastore.v1.PartitionId.Builder pbBuilder =
          com.google.datastore.v1.PartitionId.newBuilder();
     pbBuilder.setProjectId(datastore.getOptions().getProjectId());
@@ -53,16 +138,12 @@ class QueryResultsImpl<T> extends AbstractIterator<T> implements QueryResults<T>
     } else if (datastore.getOptions().getNamespace() != null) {
       pbBuilder.setNamespaceId(datastore.getOptions().getNamespace());
     }
-    partitionIdPb = pbBuilder.build();
-    sendRequest();
-    if (runQueryResponsePb.getBatch().getSkippedResults() > 0) {
-      cursor = runQueryResponsePb.getBatch().getSkippedCursor();
-    } else {
-      cursor = mostRecentQueryPb.getStartCursor();
-    }
+    return pbBuilder.build();
   }
 
-  private void sendRequest() {
+  private static com.google.datastore.v1.RunQueryRequest toRequestPb(
+      com.google.datastore.v1.ReadOptions readOptionsPb,
+      com.google.datastore.v1.PartitionId partitionIdPb, Query<?> query) {
     com.google.datastore.v1.RunQueryRequest.Builder requestPb =
         com.google.datastore.v1.RunQueryRequest.newBuilder();
     if (readOptionsPb != null) {
@@ -70,7 +151,56 @@ class QueryResultsImpl<T> extends AbstractIterator<T> implements QueryResults<T>
     }
     requestPb.setPartitionId(partitionIdPb);
     query.populatePb(requestPb);
-    runQueryResponsePb = datastore.runQuery(requestPb.build());
+    return requestPb.build();
+  }
+
+  /**
+   * Requests the batch following {@code previous} once it is available. The returned future holds
+   * {@code null} if {@code previous} was the last batch.
+   */
+  private ApiFuture<Batch<T>> fetchAfter(ApiFuture<Batch<T>> previous) {
+    return ApiFutures.transformAsync(previous, new ApiAsyncFunction<Batch<T>, Batch<T>>() {
+      @Override
+      public ApiFuture<Batch<T>> apply(Batch<T> batch) {
+        if (batch == null || batch.isLast()) {
+          return ApiFutures.immediateFuture(null);
+        }
+        final Query<T> nextQuery = batch.query.nextQuery(batch.responsePb);
+        final com.google.datastore.v1.RunQueryRequest nextRequestPb =
+            toRequestPb(readOptionsPb, partitionIdPb, nextQuery);
+        return ApiFutures.transform(datastore.runQueryAsync(nextRequestPb),
+            new ApiFunction<com.google.datastore.v1.RunQueryResponse, Batch<T>>() {
+              @Override
+              public Batch<T> apply(com.google.datastore.v1.RunQueryResponse responsePb) {
+                return new Batch<>(nextQuery, nextRequestPb, responsePb);
+              }
+            });
+      }
+    });
+  }
+
+  /**
+   * Takes the oldest prefetched batch, waiting for it if needed, and requests one more batch in its
+   * place so that {@code prefetchDepth} batches are kept ahead of the current one.
+   */
+  private void receivePrefetchedBatch() {
+    ApiFuture<Batch<T>> next = prefetchedBatches.poll();
+    ApiFuture<Batch<T>> last = prefetchedBatches.isEmpty() ? next : prefetchedBatches.peekLast();
+    prefetchedBatches.add(fetchAfter(last));
+    Batch<T> batch = DatastoreImpl.getResult(next);
+    query = batch.query;
+    setResponse(batch.requestPb, batch.responsePb);
+  }
+
+  private void sendRequest() {
+    com.google.datastore.v1.RunQueryRequest requestPb =
+        toRequestPb(readOptionsPb, partitionIdPb, query);
+    setResponse(requestPb, datastore.runQuery(requestPb));
+  }
+
+  private void setResponse(com.google.datastore.v1.RunQueryRequest requestPb,
+      com.google.datastore.v1.RunQueryResponse responsePb) {
+    runQueryResponsePb = responsePb;
     mostRecentQueryPb = runQueryResponsePb.getQuery();
     if (mostRecentQueryPb == null) {
       mostRecentQueryPb = requestPb.getQuery();
@@ -89,8 +219,12 @@ class QueryResultsImpl<T> extends AbstractIterator<T> implements QueryResults<T>
   @Override
   protected T computeNext() {
     while (!entityResultPbIter.hasNext() && !lastBatch) {
-      query = query.nextQuery(runQueryResponsePb);
-      sendRequest();
+      if (prefetchDepth > 0) {
+        receivePrefetchedBatch();
+      } else {
+        query = query.nextQuery(runQueryResponsePb);
+        sendRequest();
+      }
     }
     if (!entityResultPbIter.hasNext()) {
       cursor = runQueryResponsePb.getBatch().getEndCursor();
@@ -16,6 +16,8 @@
 
 package com.google.cloud.datastore;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.google.common.collect.ImmutableMap;
 
 import java.io.Serializable;
@@ -48,6 +50,29 @@ public abstract class ReadOption implements Serializable {
     }
   }
 
+  /**
+   * Specifies that query results should be fetched ahead of time. While the results of one batch
+   * are being consumed, up to {@link #getMaxBatches()} following batches are requested in the
+   * background. This option is ignored by gets and fetches.
+   */
+  public static final class Prefetch extends ReadOption {
+
+    private static final long serialVersionUID = 3213476187431591432L;
+
+    private final int maxBatches;
+
+    private Prefetch(int maxBatches) {
+      this.maxBatches = maxBatches;
+    }
+
+    /**
+     * Returns the maximum number of batches that are fetched ahead of the batch being consumed.
+     */
+    public int getMaxBatches() {
+      return maxBatches;
+    }
+  }
+
   private ReadOption() {}
 
   /**
@@ -58,6 +83,18 @@ public abstract class ReadOption implements Serializable {
     return new EventualConsistency(true);
   }
 
+  /**
+   * Returns a {@code ReadOption} that makes queries request up to {@code maxBatches} batches of
+   * results in the background while the current batch is being iterated. Each prefetched batch is
+   * held in memory until it is consumed, so {@code maxBatches} bounds the memory used.
+   *
+   * @throws IllegalArgumentException if {@code maxBatches} is not positive
+   */
+  public static Prefetch prefetch(int maxBatches) {
+    checkArgument(maxBatches > 0, "maxBatches must be positive");
+    return new Prefetch(maxBatches);
+  }
+
   static Map<Class<? extends ReadOption>, ReadOption> asImmutableMap(ReadOption... options) {
     ImmutableMap.Builder<Class<? extends ReadOption>, ReadOption> builder = ImmutableMap.builder();
     for (ReadOption option : options) {
@@ -70,6 +70,12 @@ public class DatastoreOptionsTest {
     assertEquals("ns1", options.setNamespace("ns1").build().getNamespace());
   }
 
+  @Test
+  public void testAsyncThreadCount() throws Exception {
+    assertEquals(16, options.build().getAsyncThreadCount());
+    assertEquals(4, options.setAsyncThreadCount(4).build().getAsyncThreadCount());
+  }
+
   @Test
   public void testDatastore() throws Exception {
     assertSame(datastoreRpc, options.build().getRpc());
@@ -81,6 +87,7 @@ public class DatastoreOptionsTest {
     DatastoreOptions copy = original.toBuilder().build();
     assertEquals(original.getProjectId(), copy.getProjectId());
     assertEquals(original.getNamespace(), copy.getNamespace());
+    assertEquals(original.getAsyncThreadCount(), copy.getAsyncThreadCount());
     assertEquals(original.getHost(), copy.getHost());
     assertEquals(original.getRetrySettings(), copy.getRetrySettings());
     assertEquals(original.getCredentials(), copy.getCredentials());
@@ -25,7 +25,9 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import com.google.api.core.ApiFuture;
 import com.google.cloud.ServiceOptions;
+import com.google.cloud.ServiceRpc;
 import com.google.cloud.Timestamp;
 import com.google.cloud.datastore.Query.ResultType;
 import com.google.cloud.datastore.StructuredQuery.OrderBy;
@@ -60,8 +62,13 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -911,6 +918,111 @@ public class DatastoreTest {
     return rpcMockOptions.getService();
   }
 
+  @Test
+  public void testFetchLargeKeySetInChunks() throws Exception {
+    final Set<com.google.datastore.v1.Key> deferredKeys =
+        Collections.synchronizedSet(new HashSet<com.google.datastore.v1.Key>());
+    final AtomicInteger lookups = new AtomicInteger();
+    final AtomicInteger maxKeysPerLookup = new AtomicInteger();
+    EasyMock.checkOrder(rpcMock, false);
+    EasyMock.expect(rpcMock.lookup(EasyMock.anyObject(LookupRequest.class)))
+        .andAnswer(new IAnswer<LookupResponse>() {
+          @Override
+          public LookupResponse answer() {
+            LookupRequest requestPb = (LookupRequest) EasyMock.getCurrentArguments()[0];
+            lookups.incrementAndGet();
+            synchronized (maxKeysPerLookup) {
+              maxKeysPerLookup.set(Math.max(maxKeysPerLookup.get(), requestPb.getKeysCount()));
+            }
+            // Return the entities in reverse order, deferring every third key once.
+            LookupResponse.Builder responsePb = LookupResponse.newBuilder();
+            for (com.google.datastore.v1.Key keyPb : Lists.reverse(requestPb.getKeysList())) {
+              if (keyPb.getPath(0).getId() % 3 == 0 && deferredKeys.add(keyPb)) {
+                responsePb.addDeferred(keyPb);
+              } else {
+                responsePb.addFound(EntityResult.newBuilder()
+                    .setEntity(com.google.datastore.v1.Entity.newBuilder().setKey(keyPb)));
+              }
+            }
+            return responsePb.build();
+          }
+        })
+        .anyTimes();
+    EasyMock.replay(rpcFactoryMock, rpcMock);
+    AsyncDatastore datastore = (AsyncDatastore) rpcMockOptions.getService();
+
+    List<Key> keys = new ArrayList<>();
+    for (int i = 5 * DatastoreImpl.LOOKUP_CHUNK_SIZE / 2; i > 0; i--) {
+      keys.add(Key.newBuilder(PROJECT_ID, KIND1, i).build());
+    }
+    List<Entity> entities = datastore.fetch(keys);
+    assertEquals(keys.size(), entities.size());
+    for (int i = 0; i < keys.size(); i++) {
+      assertEquals(keys.get(i), entities.get(i).getKey());
+    }
+    // Three chunks, each of which needs a second lookup for its deferred keys.
+    assertEquals(6, lookups.get());
+    assertEquals(DatastoreImpl.LOOKUP_CHUNK_SIZE, maxKeysPerLookup.get());
+
+    deferredKeys.clear();
+    entities = datastore.fetchAsync(keys).get();
+    for (int i = 0; i < keys.size(); i++) {
+      assertEquals(keys.get(i), entities.get(i).getKey());
+    }
+    EasyMock.verify(rpcFactoryMock, rpcMock);
+  }
+
+  @Test
+  public void testFetchLargeKeySetDoesNotWaitForAsyncExecutor() throws Exception {
+    final Key blockedKey = Key.newBuilder(PROJECT_ID, KIND1, "blocked").build();
+    final CountDownLatch unblock = new CountDownLatch(1);
+    EasyMock.checkOrder(rpcMock, false);
+    EasyMock.expect(rpcMock.lookup(EasyMock.anyObject(LookupRequest.class)))
+        .andAnswer(new IAnswer<LookupResponse>() {
+          @Override
+          public LookupResponse answer() throws InterruptedException {
+            LookupRequest requestPb = (LookupRequest) EasyMock.getCurrentArguments()[0];
+            if (requestPb.getKeys(0).equals(blockedKey.toPb())) {
+              unblock.await();
+            }
+            LookupResponse.Builder responsePb = LookupResponse.newBuilder();
+            for (com.google.datastore.v1.Key keyPb : requestPb.getKeysList()) {
+              responsePb.addFound(EntityResult.newBuilder()
+                  .setEntity(com.google.datastore.v1.Entity.newBuilder().setKey(keyPb)));
+            }
+            return responsePb.build();
+          }
+        })
+        .anyTimes();
+    EasyMock.replay(rpcMock);
+    AsyncDatastore datastore = (AsyncDatastore) rpcMockOptions.toBuilder()
+        .setAsyncThreadCount(1)
+        .setServiceRpcFactory(new DatastoreRpcFactory() {
+          @Override
+          public ServiceRpc create(DatastoreOptions options) {
+            return rpcMock;
+          }
+        })
+        .build()
+        .getService();
+
+    // Occupy the only thread of the async executor.
+    ApiFuture<Entity> blocked = datastore.getAsync(blockedKey);
+    List<Key> keys = new ArrayList<>();
+    for (int i = 5 * DatastoreImpl.LOOKUP_CHUNK_SIZE / 2; i > 0; i--) {
+      keys.add(Key.newBuilder(PROJECT_ID, KIND1, i).build());
+    }
+    List<Entity> entities = datastore.fetch(keys);
+    assertEquals(keys.size(), entities.size());
+    for (int i = 0; i < keys.size(); i++) {
+      assertEquals(keys.get(i), entities.get(i).getKey());
+    }
+    assertFalse(blocked.isDone());
+    unblock.countDown();
+    assertEquals(blockedKey, blocked.get(10, TimeUnit.SECONDS).getKey());
+    EasyMock.verify(rpcMock);
+  }
+
   @Test
   public void testAddEntity() {
     List<Entity> keys = datastore.fetch(ENTITY1.getKey(), ENTITY3.getKey());
@@ -1047,4 +1159,177 @@ public class DatastoreTest {
     datastore.get(KEY1);
     EasyMock.verify(rpcFactoryMock, rpcMock);
   }
+
+  @Test
+  public void testGetAsync() throws Exception {
+    LookupRequest requestPb = LookupRequest.newBuilder().addKeys(KEY1.toPb()).build();
+    LookupResponse responsePb = LookupResponse.newBuilder()
+        .addFound(EntityResult.newBuilder().setEntity(ENTITY1.toPb()))
+        .build();
+    EasyMock.expect(rpcMock.lookup(requestPb)).andReturn(responsePb);
+    EasyMock.replay(rpcFactoryMock, rpcMock);
+    AsyncDatastore datastore = (AsyncDatastore) rpcMockOptions.getService();
+    assertEquals(ENTITY1, datastore.getAsync(KEY1).get());
+    EasyMock.verify(rpcFactoryMock, rpcMock);
+  }
+
+  @Test
+  public void testFetchAsyncDeferredResults() throws Exception {
+    List<Entity> foundEntities = ((AsyncDatastore) createDatastoreForDeferredLookup())
+        .fetchAsync(ImmutableList.of(KEY1, KEY2, KEY3, KEY4, KEY5)).get();
+    assertEquals(5, foundEntities.size());
+    assertEquals(KEY1, foundEntities.get(0).getKey());
+    assertEquals(KEY2, foundEntities.get(1).getKey());
+    assertEquals(KEY3, foundEntities.get(2).getKey());
+    assertEquals(KEY4, foundEntities.get(3).getKey());
+    assertEquals(KEY5, foundEntities.get(4).getKey());
+    EasyMock.verify(rpcFactoryMock, rpcMock);
+  }
+
+  @Test
+  public void testRunAsync() throws Exception {
+    RunQueryResponse responsePb = RunQueryResponse.newBuilder()
+        .setBatch(QueryResultBatch.newBuilder()
+            .setEntityResultType(EntityResult.ResultType.KEY_ONLY)
+            .setMoreResults(QueryResultBatch.MoreResultsType.NO_MORE_RESULTS)
+            .addEntityResults(EntityResult.newBuilder()
+                .setEntity(com.google.datastore.v1.Entity.newBuilder().setKey(KEY1.toPb())))
+            .addEntityResults(EntityResult.newBuilder()
+                .setEntity(com.google.datastore.v1.Entity.newBuilder().setKey(KEY2.toPb()))))
+        .build();
+    EasyMock.expect(rpcMock.runQuery(EasyMock.anyObject(RunQueryRequest.class)))
+        .andReturn(responsePb);
+    EasyMock.replay(rpcFactoryMock, rpcMock);
+    AsyncDatastore datastore = (AsyncDatastore) rpcMockOptions.getService();
+    QueryResults<Key> results = datastore.runAsync(Query.newKeyQueryBuilder().build()).get();
+    assertEquals(ImmutableList.of(KEY1, KEY2), ImmutableList.copyOf(results));
+    EasyMock.verify(rpcFactoryMock, rpcMock);
+  }
+
+  @Test
+  public void testRunQueryWithPrefetch() throws Exception {
+    List<Key> keys = ImmutableList.of(KEY1, KEY2, KEY3);
+    final List<RunQueryResponse> responses = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i++) {
+      responses.add(RunQueryResponse.newBuilder()
+          .setBatch(QueryResultBatch.newBuilder()
+              .setEntityResultType(EntityResult.ResultType.KEY_ONLY)
+              .setMoreResults(i < keys.size() - 1
+                  ? QueryResultBatch.MoreResultsType.NOT_FINISHED
+                  : QueryResultBatch.MoreResultsType.NO_MORE_RESULTS)
+              .addEntityResults(EntityResult.newBuilder()
+                  .setEntity(com.google.datastore.v1.Entity.newBuilder()
+                      .setKey(keys.get(i).toPb())))
+              .setEndCursor(ByteString.copyFromUtf8("cursor" + i)))
+          .build());
+    }
+    final List<ByteString> startCursors =
+        Collections.synchronizedList(new ArrayList<ByteString>());
+    final CountDownLatch requested = new CountDownLatch(responses.size());
+    EasyMock.expect(rpcMock.runQuery(EasyMock.anyObject(RunQueryRequest.class)))
+        .andAnswer(new IAnswer<RunQueryResponse>() {
+          @Override
+          public RunQueryResponse answer() {
+            RunQueryRequest requestPb = (RunQueryRequest) EasyMock.getCurrentArguments()[0];
+            startCursors.add(requestPb.getQuery().getStartCursor());
+            requested.countDown();
+            return responses.get(responses.size() - (int) requested.getCount() - 1);
+          }
+        })
+        .times(responses.size());
+    EasyMock.replay(rpcFactoryMock, rpcMock);
+    Datastore datastore = rpcMockOptions.getService();
+    QueryResults<Key> results =
+        datastore.run(Query.newKeyQueryBuilder().build(), ReadOption.prefetch(2));
+    // Both following batches are requested before any result is consumed.
+    assertTrue(requested.await(10, TimeUnit.SECONDS));
+    assertEquals(keys, ImmutableList.copyOf(results));
+    assertEquals(ImmutableList.of(ByteString.EMPTY, ByteString.copyFromUtf8("cursor0"),
+        ByteString.copyFromUtf8("cursor1")), startCursors);
+    assertEquals(Cursor.copyFrom(ByteString.copyFromUtf8("cursor2").toByteArray()),
+        results.getCursorAfter());
+    EasyMock.verify(rpcFactoryMock, rpcMock);
+  }
+
+  @Test
+  public void testRunQueryWithPrefetchException() throws Exception {
+    RunQueryResponse responsePb = RunQueryResponse.newBuilder()
+        .setBatch(QueryResultBatch.newBuilder()
+            .setEntityResultType(EntityResult.ResultType.KEY_ONLY)
+            .setMoreResults(QueryResultBatch.MoreResultsType.NOT_FINISHED)
+            .addEntityResults(EntityResult.newBuilder()
+                .setEntity(com.google.datastore.v1.Entity.newBuilder().setKey(KEY1.toPb())))
+            .setEndCursor(ByteString.copyFromUtf8("cursor")))
+        .build();
+    DatastoreException exception = new DatastoreException(400, "bad request", "INVALID_ARGUMENT");
+    EasyMock.expect(rpcMock.runQuery(EasyMock.anyObject(RunQueryRequest.class)))
+        .andReturn(responsePb);
+    EasyMock.expect(rpcMock.runQuery(EasyMock.anyObject(RunQueryRequest.class)))
+        .andThrow(exception);
+    EasyMock.replay(rpcFactoryMock, rpcMock);
+    Datastore datastore = rpcMockOptions.getService();
+    QueryResults<Key> results =
+        datastore.run(Query.newKeyQueryBuilder().build(), ReadOption.prefetch(1));
+    assertEquals(KEY1, results.next());
+    try {
+      results.hasNext();
+      fail("Expected DatastoreException");
+    } catch (DatastoreException expected) {
+      assertSame(exception, expected);
+    }
+    EasyMock.verify(rpcFactoryMock, rpcMock);
+  }
+
+  @Test
+  public void testPutAndDeleteAsync() throws Exception {
+    EasyMock.expect(rpcMock.commit(CommitRequest.newBuilder()
+        .setMode(CommitRequest.Mode.NON_TRANSACTIONAL)
+        .addMutations(com.google.datastore.v1.Mutation.newBuilder().setUpsert(ENTITY1.toPb()))
+        .build()))
+        .andReturn(CommitResponse.newBuilder()
+            .addMutationResults(com.google.datastore.v1.MutationResult.getDefaultInstance())
+            .build());
+    EasyMock.expect(rpcMock.commit(CommitRequest.newBuilder()
+        .setMode(CommitRequest.Mode.NON_TRANSACTIONAL)
+        .addMutations(com.google.datastore.v1.Mutation.newBuilder().setDelete(KEY1.toPb()))
+        .build()))
+        .andReturn(CommitResponse.getDefaultInstance());
+    EasyMock.replay(rpcFactoryMock, rpcMock);
+    AsyncDatastore datastore = (AsyncDatastore) rpcMockOptions.getService();
+    assertEquals(ImmutableList.of(ENTITY1), datastore.putAsync(ENTITY1).get());
+    assertNull(datastore.deleteAsync(KEY1).get());
+    EasyMock.verify(rpcFactoryMock, rpcMock);
+  }
+
+  @Test
+  public void testAsyncRetryableException() throws Exception {
+    LookupRequest requestPb = LookupRequest.newBuilder().addKeys(KEY1.toPb()).build();
+    LookupResponse responsePb = LookupResponse.newBuilder()
+        .addFound(EntityResult.newBuilder().setEntity(ENTITY1.toPb()))
+        .build();
+    EasyMock.expect(rpcMock.lookup(requestPb))
+        .andThrow(new DatastoreException(14, "UNAVAILABLE", "UNAVAILABLE", null))
+        .andReturn(responsePb);
+    EasyMock.replay(rpcFactoryMock, rpcMock);
+    AsyncDatastore datastore = (AsyncDatastore) rpcMockOptions.getService();
+    assertEquals(ENTITY1, datastore.getAsync(KEY1).get());
+    EasyMock.verify(rpcFactoryMock, rpcMock);
+  }
+
+  @Test
+  public void testAsyncRuntimeException() throws Exception {
+    LookupRequest requestPb = LookupRequest.newBuilder().addKeys(KEY1.toPb()).build();
+    String exceptionMessage = "Artificial runtime exception";
+    EasyMock.expect(rpcMock.lookup(requestPb)).andThrow(new RuntimeException(exceptionMessage));
+    EasyMock.replay(rpcFactoryMock, rpcMock);
+    AsyncDatastore datastore = (AsyncDatastore) rpcMockOptions.getService();
+    try {
+      datastore.getAsync(KEY1).get();
+      fail("Expected an ExecutionException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof DatastoreException);
+      assertEquals(exceptionMessage, e.getCause().getMessage());
+    }
+    EasyMock.verify(rpcFactoryMock, rpcMock);
+  }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.datastore;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures decoding wide entities, as returned by lookups and queries, with {@link
+ * Entity#fromPb(com.google.datastore.v1.Entity)} when reading a few of their properties and when
+ * reading all of them.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.args="EntityDecodingBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityDecodingBenchmark {
+
+  @Param({"20", "200"})
+  public int propertyCount;
+
+  private com.google.datastore.v1.Entity entityPb;
+
+  @Setup
+  public void setUp() {
+    Entity.Builder builder = Entity.newBuilder(Key.newBuilder("project", "kind", 1).build());
+    for (int i = 0; i < propertyCount; i++) {
+      switch (i % 4) {
+        case 0:
+          builder.set("property" + i, "value" + i);
+          break;
+        case 1:
+          builder.set("property" + i, (long) i);
+          break;
+        case 2:
+          builder.set("property" + i, i * 1.5);
+          break;
+        default:
+          builder.set("property" + i, "a" + i, "b" + i, "c" + i);
+          break;
+      }
+    }
+    entityPb = builder.build().toPb();
+  }
+
+  @Benchmark
+  public void readThreeProperties(Blackhole blackhole) {
+    Entity entity = Entity.fromPb(entityPb);
+    blackhole.consume(entity.getString("property0"));
+    blackhole.consume(entity.getLong("property1"));
+    blackhole.consume(entity.getDouble("property2"));
+  }
+
+  @Benchmark
+  public void readAllProperties(Blackhole blackhole) {
+    Entity entity = Entity.fromPb(entityPb);
+    for (String name : entity.getNames()) {
+      blackhole.consume(entity.getValue(name));
+    }
+  }
+}
@@ -17,9 +17,16 @@
 package com.google.cloud.datastore;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import com.google.common.collect.ImmutableSet;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import org.junit.Test;
 
 public class EntityTest {
@@ -57,4 +64,44 @@ public class EntityTest {
     assertNotEquals(INCOMPLETE_ENTITY, entity);
     assertEquals(INCOMPLETE_ENTITY.getProperties(), entity.getProperties());
   }
+
+
+  @Test
+  public void testFromPb() throws Exception {
+    Entity expected = Entity.newBuilder(KEY1)
+        .set("foo", "bar")
+        .set("long", 42L)
+        .set("list", 1L, 2L)
+        .set("entity", INCOMPLETE_ENTITY)
+        .build();
+    com.google.datastore.v1.Entity entityPb = expected.toPb();
+    Entity entity = Entity.fromPb(entityPb);
+    assertEquals(KEY1, entity.getKey());
+    assertTrue(entity.contains("foo"));
+    assertFalse(entity.contains("bar"));
+    assertEquals("bar", entity.getString("foo"));
+    assertEquals(42L, entity.getLong("long"));
+    assertEquals(INCOMPLETE_ENTITY, entity.getEntity("entity"));
+    assertEquals(ImmutableSet.of("entity", "foo", "list", "long"), entity.getNames());
+    assertSame(entityPb, entity.toPb());
+    assertEquals(expected, entity);
+    assertEquals(expected.hashCode(), entity.hashCode());
+    assertEquals(expected.getProperties(), Entity.newBuilder(entity).build().getProperties());
+  }
+
+  @Test
+  public void testFromPbSerialization() throws Exception {
+    Entity entity = Entity.fromPb(ENTITY.toPb());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      output.writeObject(entity);
+    }
+    try (ObjectInputStream input =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Entity copy = (Entity) input.readObject();
+      assertEquals(ENTITY, copy);
+      assertEquals("bar", copy.getString("foo"));
+      assertEquals(ENTITY.toPb(), copy.toPb());
+    }
+  }
 }
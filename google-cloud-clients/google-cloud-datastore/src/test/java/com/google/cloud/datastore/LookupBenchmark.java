@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.datastore;
+
+import com.google.cloud.NoCredentials;
+import com.google.cloud.ServiceRpc;
+import com.google.cloud.datastore.spi.DatastoreRpcFactory;
+import com.google.cloud.datastore.spi.v1.DatastoreRpc;
+import com.google.datastore.v1.AllocateIdsRequest;
+import com.google.datastore.v1.AllocateIdsResponse;
+import com.google.datastore.v1.BeginTransactionRequest;
+import com.google.datastore.v1.BeginTransactionResponse;
+import com.google.datastore.v1.CommitRequest;
+import com.google.datastore.v1.CommitResponse;
+import com.google.datastore.v1.EntityResult;
+import com.google.datastore.v1.LookupRequest;
+import com.google.datastore.v1.LookupResponse;
+import com.google.datastore.v1.RollbackRequest;
+import com.google.datastore.v1.RollbackResponse;
+import com.google.datastore.v1.RunQueryRequest;
+import com.google.datastore.v1.RunQueryResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of {@link Datastore#fetch(Iterable, ReadOption...)} for large key sets
+ * against a fake {@link DatastoreRpc} that takes {@link #LOOKUP_LATENCY_MILLIS} per lookup and,
+ * like the Datastore, defers the keys beyond {@link #MAX_FOUND_PER_LOOKUP} to a later lookup.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args="LookupBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+  private static final long LOOKUP_LATENCY_MILLIS = 10;
+  private static final int MAX_FOUND_PER_LOOKUP = 300;
+
+  @Param({"100", "1000", "5000"})
+  public int keyCount;
+
+  private Datastore datastore;
+  private List<Key> keys;
+
+  private static class FakeDatastoreRpc implements DatastoreRpc {
+    @Override
+    public LookupResponse lookup(LookupRequest request) {
+      try {
+        Thread.sleep(LOOKUP_LATENCY_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+      LookupResponse.Builder response = LookupResponse.newBuilder();
+      for (int i = 0; i < request.getKeysCount(); i++) {
+        if (i < MAX_FOUND_PER_LOOKUP) {
+          response.addFound(
+              EntityResult.newBuilder()
+                  .setEntity(
+                      com.google.datastore.v1.Entity.newBuilder()
+                          .setKey(request.getKeys(i))
+                          .putProperties(
+                              "value",
+                              com.google.datastore.v1.Value.newBuilder()
+                                  .setStringValue("value")
+                                  .build())));
+        } else {
+          response.addDeferred(request.getKeys(i));
+        }
+      }
+      return response.build();
+    }
+
+    @Override
+    public AllocateIdsResponse allocateIds(AllocateIdsRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public BeginTransactionResponse beginTransaction(BeginTransactionRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CommitResponse commit(CommitRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RollbackResponse rollback(RollbackRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RunQueryResponse runQuery(RunQueryRequest request) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    final DatastoreRpc rpc = new FakeDatastoreRpc();
+    datastore =
+        DatastoreOptions.newBuilder()
+            .setProjectId("project-id")
+            .setCredentials(NoCredentials.getInstance())
+            .setServiceRpcFactory(
+                new DatastoreRpcFactory() {
+                  @Override
+                  public ServiceRpc create(DatastoreOptions options) {
+                    return rpc;
+                  }
+                })
+            .build()
+            .getService();
+
+    keys = new ArrayList<>();
+    KeyFactory keyFactory = datastore.newKeyFactory().setKind("kind");
+    for (int i = 1; i <= keyCount; i++) {
+      keys.add(keyFactory.newKey(i));
+    }
+  }
+
+  @Benchmark
+  public List<Entity> fetch() {
+    return datastore.fetch(keys);
+  }
+}
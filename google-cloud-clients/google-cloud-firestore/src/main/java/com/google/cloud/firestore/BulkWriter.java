@@ -0,0 +1,613 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.core.ApiClock;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.ApiExceptions;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.firestore.v1beta1.CommitRequest;
+import com.google.firestore.v1beta1.CommitResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A Firestore BulkWriter that can be used to perform a large number of writes in parallel.
+ *
+ * <p>Each write returns its own future. Writes are packed into batches of up to {@value
+ * #MAX_BATCH_SIZE} writes, and many batches are committed at once. Unlike a {@link WriteBatch}, the
+ * writes are not applied atomically, and writes to different documents are not applied in any
+ * particular order. Writes to the same document are applied in the order they were added.
+ *
+ * <p>To avoid overloading the database, the rate of writes follows the 500/50/5 rule: it starts at
+ * 500 writes per second, and increases by 50% every 5 minutes.
+ *
+ * <p>When a batch fails, its writes are retried one at a time, so that each write only fails
+ * because of its own error. Writes that fail with a transient error are retried with exponential
+ * backoff, up to {@value #MAX_ATTEMPTS} attempts.
+ *
+ * <pre>{@code
+ * try (BulkWriter bulkWriter = BulkWriter.of(firestore)) {
+ *   for (DocumentReference document : documents) {
+ *     bulkWriter.set(document, fields);
+ *   }
+ * }
+ * }</pre>
+ */
+public final class BulkWriter implements AutoCloseable {
+  /** The maximum number of writes in a batch. */
+  @VisibleForTesting static final int MAX_BATCH_SIZE = 20;
+
+  /** The maximum number of times a write is attempted. */
+  @VisibleForTesting static final int MAX_ATTEMPTS = 10;
+
+  @VisibleForTesting static final int INITIAL_OPS_PER_SECOND = 500;
+  @VisibleForTesting static final double RATE_LIMITER_MULTIPLIER = 1.5;
+  @VisibleForTesting static final long RATE_LIMITER_MULTIPLIER_MILLIS = 5 * 60 * 1000;
+  @VisibleForTesting static final int MAX_OPS_PER_SECOND = 10_000;
+
+  @VisibleForTesting static final long INITIAL_BACKOFF_MILLIS = 1000;
+  @VisibleForTesting static final double BACKOFF_FACTOR = 1.5;
+  @VisibleForTesting static final long MAX_BACKOFF_MILLIS = 60 * 1000;
+
+  private final FirestoreImpl firestore;
+  private final ScheduledExecutorService executor;
+  private final ApiClock clock;
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  private final RateLimiter rateLimiter;
+
+  @GuardedBy("lock")
+  private List<Operation> currentBatch = new ArrayList<>();
+
+  // The last write to each document, until it completes. Later writes to the same document wait
+  // for it.
+  @GuardedBy("lock")
+  private final Map<String, Operation> lastOperations = new HashMap<>();
+
+  @GuardedBy("lock")
+  private final Set<ApiFuture<WriteResult>> pendingResults = new LinkedHashSet<>();
+
+  @GuardedBy("lock")
+  private int flushesInProgress;
+
+  @GuardedBy("lock")
+  private boolean closed;
+
+  BulkWriter(FirestoreImpl firestore) {
+    this(firestore, INITIAL_OPS_PER_SECOND);
+  }
+
+  @VisibleForTesting
+  BulkWriter(FirestoreImpl firestore, int initialOpsPerSecond) {
+    this.firestore = firestore;
+    this.executor = firestore.getClient().getExecutor();
+    this.clock = firestore.getOptions().getClock();
+    this.rateLimiter =
+        new RateLimiter(
+            initialOpsPerSecond,
+            RATE_LIMITER_MULTIPLIER,
+            RATE_LIMITER_MULTIPLIER_MILLIS,
+            MAX_OPS_PER_SECOND,
+            clock.millisTime());
+  }
+
+  /**
+   * Gets a Firestore {@link BulkWriter} instance that can be used to perform a large number of
+   * writes in parallel. Unlike a {@link WriteBatch}, the writes are not applied atomically.
+   *
+   * @param firestore The Firestore client to write with.
+   * @return A BulkWriter that operates on the Firestore client.
+   */
+  @Nonnull
+  public static BulkWriter of(@Nonnull Firestore firestore) {
+    Preconditions.checkArgument(
+        firestore instanceof FirestoreImpl,
+        "BulkWriter requires a Firestore client created by FirestoreOptions");
+    return new BulkWriter((FirestoreImpl) firestore);
+  }
+
+  /**
+   * Creates a new Document at the DocumentReference's location. It fails the write if the document
+   * exists.
+   *
+   * @param documentReference The DocumentReference to create.
+   * @param fields A map of the fields and values for the document.
+   * @return An ApiFuture that resolves with the result of the write.
+   */
+  @Nonnull
+  public ApiFuture<WriteResult> create(
+      @Nonnull DocumentReference documentReference, @Nonnull Map<String, Object> fields) {
+    return add(documentReference, firestore.batch().create(documentReference, fields));
+  }
+
+  /**
+   * Creates a new Document at the DocumentReference location. It fails the write if the document
+   * exists.
+   *
+   * @param documentReference The DocumentReference to create.
+   * @param pojo The POJO that will be used to populate the document contents.
+   * @return An ApiFuture that resolves with the result of the write.
+   */
+  @Nonnull
+  public ApiFuture<WriteResult> create(
+      @Nonnull DocumentReference documentReference, @Nonnull Object pojo) {
+    return add(documentReference, firestore.batch().create(documentReference, pojo));
+  }
+
+  /**
+   * Overwrites the document referred to by this DocumentReference. If the document doesn't exist
+   * yet, it will be created. If a document already exists, it will be overwritten.
+   *
+   * @param documentReference The DocumentReference to overwrite.
+   * @param fields A map of the field paths and values for the document.
+   * @return An ApiFuture that resolves with the result of the write.
+   */
+  @Nonnull
+  public ApiFuture<WriteResult> set(
+      @Nonnull DocumentReference documentReference, @Nonnull Map<String, Object> fields) {
+    return add(documentReference, firestore.batch().set(documentReference, fields));
+  }
+
+  /**
+   * Overwrites the document referred to by this DocumentReference. If the document doesn't exist
+   * yet, it will be created. If you pass {@link SetOptions}, the provided data can be merged into
+   * an existing document.
+   *
+   * @param documentReference The DocumentReference to overwrite.
+   * @param fields A map of the field paths and values for the document.
+   * @param options An object to configure the set behavior.
+   * @return An ApiFuture that resolves with the result of the write.
+   */
+  @Nonnull
+  public ApiFuture<WriteResult> set(
+      @Nonnull DocumentReference documentReference,
+      @Nonnull Map<String, Object> fields,
+      @Nonnull SetOptions options) {
+    return add(documentReference, firestore.batch().set(documentReference, fields, options));
+  }
+
+  /**
+   * Overwrites the document referred to by this DocumentReference. If the document doesn't exist
+   * yet, it will be created. If a document already exists, it will be overwritten.
+   *
+   * @param documentReference The DocumentReference to overwrite.
+   * @param pojo The POJO that will be used to populate the document contents.
+   * @return An ApiFuture that resolves with the result of the write.
+   */
+  @Nonnull
+  public ApiFuture<WriteResult> set(
+      @Nonnull DocumentReference documentReference, @Nonnull Object pojo) {
+    return add(documentReference, firestore.batch().set(documentReference, pojo));
+  }
+
+  /**
+   * Overwrites the document referred to by this DocumentReference. If the document doesn't exist
+   * yet, it will be created. If you pass {@link SetOptions}, the provided data can be merged into
+   * an existing document.
+   *
+   * @param documentReference The DocumentReference to overwrite.
+   * @param pojo The POJO that will be used to populate the document contents.
+   * @param options An object to configure the set behavior.
+   * @return An ApiFuture that resolves with the result of the write.
+   */
+  @Nonnull
+  public ApiFuture<WriteResult> set(
+      @Nonnull DocumentReference documentReference,
+      @Nonnull Object pojo,
+      @Nonnull SetOptions options) {
+    return add(documentReference, firestore.batch().set(documentReference, pojo, options));
+  }
+
+  /**
+   * Updates fields in the document referred to by this DocumentReference. If the document doesn't
+   * exist yet, the update will fail.
+   *
+   * @param documentReference The DocumentReference to update.
+   * @param fields A map containing the fields and values with which to update the document.
+   * @return An ApiFuture that resolves with the result of the write.
+   */
+  @Nonnull
+  public ApiFuture<WriteResult> update(
+      @Nonnull DocumentReference documentReference, @Nonnull Map<String, Object> fields) {
+    return add(documentReference, firestore.batch().update(documentReference, fields));
+  }
+
+  /**
+   * Updates fields in the document referred to by this DocumentReference. If the document doesn't
+   * exist yet, the update will fail.
+   *
+   * @param documentReference The DocumentReference to update.
+   * @param fields A map containing the fields and values with which to update the document.
+   * @param options Preconditions to enforce on this update.
+   * @return An ApiFuture that resolves with the result of the write.
+   */
+  @Nonnull
+  public ApiFuture<WriteResult> update(
+      @Nonnull DocumentReference documentReference,
+      @Nonnull Map<String, Object> fields,
+      @Nonnull Precondition options) {
+    return add(documentReference, firestore.batch().update(documentReference, fields, options));
+  }
+
+  /**
+   * Updates the fields in the document referred to by this DocumentReference. If the document
+   * doesn't exist yet, the update will fail.
+   *
+   * @param documentReference The DocumentReference to update.
+   * @param field The first field to set.
+   * @param value The first value to set.
+   * @param moreFieldsAndValues String and Object pairs with more fields to be set.
+   * @return An ApiFuture that resolves with the result of the write.
+   */
+  @Nonnull
+  public ApiFuture<WriteResult> update(
+      @Nonnull DocumentReference documentReference,
+      @Nonnull String field,
+      @Nullable Object value,
+      Object... moreFieldsAndValues) {
+    return add(
+        documentReference,
+        firestore.batch().update(documentReference, field, value, moreFieldsAndValues));
+  }
+
+  /**
+   * Updates the fields in the document referred to by this DocumentReference. If the document
+   * doesn't exist yet, the update will fail.
+   *
+   * @param documentReference The DocumentReference to update.
+   * @param fieldPath The first field to set.
+   * @param value The first value to set.
+   * @param moreFieldsAndValues String and Object pairs with more fields to be set.
+   * @return An ApiFuture that resolves with the result of the write.
+   */
+  @Nonnull
+  public ApiFuture<WriteResult> update(
+      @Nonnull DocumentReference documentReference,
+      @Nonnull FieldPath fieldPath,
+      @Nullable Object value,
+      Object... moreFieldsAndValues) {
+    return add(
+        documentReference,
+        firestore.batch().update(documentReference, fieldPath, value, moreFieldsAndValues));
+  }
+
+  /**
+   * Deletes the document referred to by this DocumentReference.
+   *
+   * @param documentReference The DocumentReference to delete.
+   * @return An ApiFuture that resolves with the result of the write.
+   */
+  @Nonnull
+  public ApiFuture<WriteResult> delete(@Nonnull DocumentReference documentReference) {
+    return add(documentReference, firestore.batch().delete(documentReference));
+  }
+
+  /**
+   * Deletes the document referred to by this DocumentReference.
+   *
+   * @param documentReference The DocumentReference to delete.
+   * @param precondition Precondition for the delete operation.
+   * @return An ApiFuture that resolves with the result of the write.
+   */
+  @Nonnull
+  public ApiFuture<WriteResult> delete(
+      @Nonnull DocumentReference documentReference, @Nonnull Precondition precondition) {
+    return add(documentReference, firestore.batch().delete(documentReference, precondition));
+  }
+
+  /**
+   * Commits all the writes that were added so far, without waiting for their batches to fill up.
+   *
+   * @return An ApiFuture that resolves once all the writes that were added before this call have
+   *     completed, successfully or not. The outcome of each write is reported by its own future.
+   */
+  @Nonnull
+  public ApiFuture<Void> flush() {
+    List<ApiFuture<WriteResult>> results;
+    List<Operation> batch;
+    synchronized (lock) {
+      results = new ArrayList<>(pendingResults);
+      batch = currentBatch;
+      currentBatch = new ArrayList<>();
+      flushesInProgress++;
+    }
+    if (!batch.isEmpty()) {
+      send(batch);
+    }
+
+    final SettableApiFuture<Void> flushed = SettableApiFuture.create();
+    final AtomicInteger remaining = new AtomicInteger(results.size());
+    if (results.isEmpty()) {
+      flushed.set(null);
+    }
+    for (ApiFuture<WriteResult> result : results) {
+      result.addListener(
+          new Runnable() {
+            @Override
+            public void run() {
+              if (remaining.decrementAndGet() == 0) {
+                flushed.set(null);
+              }
+            }
+          },
+          MoreExecutors.directExecutor());
+    }
+    flushed.addListener(
+        new Runnable() {
+          @Override
+          public void run() {
+            synchronized (lock) {
+              flushesInProgress--;
+            }
+          }
+        },
+        MoreExecutors.directExecutor());
+    return flushed;
+  }
+
+  /**
+   * Commits all the writes that were added so far, and waits for them to complete. No writes can
+   * be added once the BulkWriter is closed.
+   */
+  @Override
+  public void close() {
+    synchronized (lock) {
+      closed = true;
+    }
+    ApiExceptions.callAndTranslateApiException(flush());
+  }
+
+  /** Adds a write, which was validated and encoded in a single write batch. */
+  private ApiFuture<WriteResult> add(DocumentReference documentReference, WriteBatch write) {
+    final Operation operation = new Operation(documentReference.getName(), write);
+    Operation previous;
+    synchronized (lock) {
+      Preconditions.checkState(!closed, "Cannot add writes to a BulkWriter that has been closed.");
+      previous = lastOperations.put(operation.documentName, operation);
+      pendingResults.add(operation.result);
+    }
+
+    operation.result.addListener(
+        new Runnable() {
+          @Override
+          public void run() {
+            synchronized (lock) {
+              pendingResults.remove(operation.result);
+              if (lastOperations.get(operation.documentName) == operation) {
+                lastOperations.remove(operation.documentName);
+              }
+            }
+          }
+        },
+        MoreExecutors.directExecutor());
+
+    if (previous == null) {
+      enqueue(operation, false);
+    } else {
+      previous.result.addListener(
+          new Runnable() {
+            @Override
+            public void run() {
+              enqueue(operation, true);
+            }
+          },
+          MoreExecutors.directExecutor());
+    }
+    return operation.result;
+  }
+
+  /**
+   * Adds the write to the current batch, which is sent when it's full. A write that waited for an
+   * earlier write to the same document is sent right away while a flush is in progress, since the
+   * flush might be waiting for it.
+   */
+  private void enqueue(Operation operation, boolean waited) {
+    List<Operation> batch = null;
+    synchronized (lock) {
+      currentBatch.add(operation);
+      if (currentBatch.size() >= MAX_BATCH_SIZE || (waited && flushesInProgress > 0)) {
+        batch = currentBatch;
+        currentBatch = new ArrayList<>();
+      }
+    }
+    if (batch != null) {
+      send(batch);
+    }
+  }
+
+  /** Commits the batch once the rate limiter allows it. */
+  private void send(final List<Operation> batch) {
+    boolean allowed;
+    long delayMillis = 0;
+    synchronized (lock) {
+      long now = clock.millisTime();
+      allowed = rateLimiter.tryMakeRequest(batch.size(), now);
+      if (!allowed) {
+        delayMillis = rateLimiter.getNextRequestDelayMs(batch.size(), now);
+      }
+    }
+    if (allowed) {
+      commit(batch);
+    } else if (delayMillis >= 0) {
+      schedule(
+          new Runnable() {
+            @Override
+            public void run() {
+              send(batch);
+            }
+          },
+          delayMillis);
+    } else if (batch.size() > 1) {
+      // The batch is larger than the rate limiter's capacity, so it would never be allowed. Its
+      // halves are sent on their own.
+      int half = batch.size() / 2;
+      send(new ArrayList<>(batch.subList(0, half)));
+      send(new ArrayList<>(batch.subList(half, batch.size())));
+    } else {
+      batch
+          .get(0)
+          .result
+          .setException(
+              new IllegalStateException("The rate limiter doesn't allow a single write"));
+    }
+  }
+
+  private void commit(final List<Operation> batch) {
+    CommitRequest.Builder request = CommitRequest.newBuilder();
+    request.setDatabase(firestore.getDatabaseName());
+    for (Operation operation : batch) {
+      operation.attempts++;
+      operation.write.addWrites(request);
+    }
+
+    ApiFuture<CommitResponse> response;
+    try {
+      response = firestore.sendRequest(request.build(), firestore.getClient().commitCallable());
+    } catch (RuntimeException e) {
+      response = ApiFutures.immediateFailedFuture(e);
+    }
+
+    ApiFutures.addCallback(
+        response,
+        new ApiFutureCallback<CommitResponse>() {
+          @Override
+          public void onSuccess(CommitResponse commitResponse) {
+            Iterator<com.google.firestore.v1beta1.WriteResult> writeResults =
+                commitResponse.getWriteResultsList().iterator();
+            for (Operation operation : batch) {
+              try {
+                operation.result.set(
+                    operation
+                        .write
+                        .toWriteResults(writeResults, commitResponse.getCommitTime())
+                        .get(0));
+              } catch (RuntimeException e) {
+                operation.result.setException(e);
+              }
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable throwable) {
+            for (Operation operation : batch) {
+              retryOrFail(operation, throwable, batch.size() > 1);
+            }
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Retries a write on its own, or fails it. The writes of a batch that failed are always retried
+   * on their own, since the failure might have been caused by another write of the batch.
+   */
+  private void retryOrFail(final Operation operation, Throwable throwable, boolean isolate) {
+    boolean retryable = isRetryable(throwable);
+    if (!(isolate || retryable) || operation.attempts >= MAX_ATTEMPTS) {
+      operation.result.setException(throwable);
+      return;
+    }
+
+    Runnable retry =
+        new Runnable() {
+          @Override
+          public void run() {
+            send(Collections.singletonList(operation));
+          }
+        };
+    if (retryable) {
+      schedule(retry, backoffMillis(operation.attempts, throwable));
+    } else {
+      retry.run();
+    }
+  }
+
+  private void schedule(final Runnable runnable, long delayMillis) {
+    executor.schedule(runnable, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @VisibleForTesting
+  static long backoffMillis(int attempts, Throwable throwable) {
+    if (getCode(throwable) == StatusCode.Code.RESOURCE_EXHAUSTED) {
+      // Back off as much as possible when the database is overloaded.
+      return MAX_BACKOFF_MILLIS;
+    }
+    double backoff = INITIAL_BACKOFF_MILLIS * Math.pow(BACKOFF_FACTOR, attempts - 1);
+    return (long) Math.min(MAX_BACKOFF_MILLIS, backoff);
+  }
+
+  /** Determines whether a failed commit can be attempted again. */
+  private static boolean isRetryable(Throwable throwable) {
+    StatusCode.Code code = getCode(throwable);
+    if (code == null) {
+      return false;
+    }
+    switch (code) {
+      case ABORTED:
+      case DEADLINE_EXCEEDED:
+      case INTERNAL:
+      case RESOURCE_EXHAUSTED:
+      case UNAVAILABLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Nullable
+  private static StatusCode.Code getCode(Throwable throwable) {
+    if (throwable instanceof ApiException) {
+      return ((ApiException) throwable).getStatusCode().getCode();
+    }
+    return null;
+  }
+
+  /** A single write, with the state of its attempts. */
+  private static final class Operation {
+    final String documentName;
+    final WriteBatch write;
+    final SettableApiFuture<WriteResult> result = SettableApiFuture.create();
+    // Only accessed by the thread that sends the write or handles its response.
+    int attempts;
+
+    Operation(String documentName, WriteBatch write) {
+      this.documentName = documentName;
+      this.write = write;
+    }
+  }
+}
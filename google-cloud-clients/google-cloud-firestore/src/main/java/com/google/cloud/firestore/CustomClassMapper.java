@@ -22,11 +22,13 @@ import com.google.cloud.firestore.annotation.IgnoreExtraProperties;
 import com.google.cloud.firestore.annotation.PropertyName;
 import com.google.cloud.firestore.annotation.ServerTimestamp;
 import com.google.cloud.firestore.annotation.ThrowOnExtraProperties;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
@@ -525,7 +527,6 @@ class CustomClassMapper {
 
   private static class BeanMapper<T> {
     private final Class<T> clazz;
-    private final Constructor<T> constructor;
     private final boolean throwOnUnknownProperties;
     private final boolean warnOnUnknownProperties;
     // Case insensitive mapping of properties to their case sensitive versions
@@ -538,6 +539,12 @@ class CustomClassMapper {
     // A list of any properties that were annotated with @ServerTimestamp.
     private final HashSet<String> serverTimestamps;
 
+    // The constructor, getters, setters and fields above as method handles, which are resolved
+    // once per class and are faster to invoke than their reflective counterparts.
+    private final MethodHandle constructorHandle;
+    private final PropertyGetter[] propertyGetters;
+    private final Map<String, PropertySetter> propertySetters;
+
     public BeanMapper(Class<T> clazz) {
       this.clazz = clazz;
       throwOnUnknownProperties = clazz.isAnnotationPresent(ThrowOnExtraProperties.class);
@@ -558,7 +565,6 @@ class CustomClassMapper {
         // We will only fail at deserialization time if no constructor is present
         constructor = null;
       }
-      this.constructor = constructor;
       // Add any public getters to properties (including isXyz())
       for (Method method : clazz.getMethods()) {
         if (shouldIncludeGetter(method)) {
@@ -657,6 +663,59 @@ class CustomClassMapper {
       if (properties.isEmpty()) {
         throw new RuntimeException("No properties to serialize found on class " + clazz.getName());
       }
+
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      try {
+        constructorHandle =
+            constructor == null
+                ? null
+                : lookup
+                    .unreflectConstructor(constructor)
+                    .asType(MethodType.methodType(Object.class));
+
+        propertyGetters = new PropertyGetter[properties.size()];
+        int i = 0;
+        for (String property : properties.values()) {
+          MethodHandle getter = null;
+          if (getters.containsKey(property)) {
+            getter = lookup.unreflect(getters.get(property));
+          } else if (fields.containsKey(property)) {
+            Field field = fields.get(property);
+            getter = lookup.unreflectGetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+              // Ignore the bean, like Field.get does for static fields.
+              getter = MethodHandles.dropArguments(getter, 0, Object.class);
+            }
+          }
+          propertyGetters[i++] =
+              new PropertyGetter(property, getter, serverTimestamps.contains(property));
+        }
+
+        propertySetters = new HashMap<>();
+        for (Map.Entry<String, Method> setter : setters.entrySet()) {
+          propertySetters.put(
+              setter.getKey(),
+              new PropertySetter(
+                  setter.getValue().getGenericParameterTypes()[0],
+                  lookup.unreflect(setter.getValue())));
+        }
+        for (Map.Entry<String, Field> entry : fields.entrySet()) {
+          if (!propertySetters.containsKey(entry.getKey())) {
+            Field field = entry.getValue();
+            int modifiers = field.getModifiers();
+            // Method handles can't write final fields, which often back read-only properties
+            // that are never deserialized, so these are written through reflection.
+            propertySetters.put(
+                entry.getKey(),
+                Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)
+                    ? new PropertySetter(field)
+                    : new PropertySetter(field.getGenericType(), lookup.unreflectSetter(field)));
+          }
+        }
+      } catch (IllegalAccessException e) {
+        // All the members were made accessible above.
+        throw new RuntimeException(e);
+      }
     }
 
     private void addProperty(String property) {
@@ -675,7 +734,7 @@ class CustomClassMapper {
 
     public T deserialize(
         Map<String, Object> values, Map<TypeVariable<Class<T>>, Type> types, ErrorPath path) {
-      if (constructor == null) {
+      if (constructorHandle == null) {
         throw deserializeError(
             path,
             "Class "
@@ -685,37 +744,19 @@ class CustomClassMapper {
       }
       T instance;
       try {
-        instance = constructor.newInstance();
-      } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-        throw new RuntimeException(e);
+        instance = clazz.cast(constructorHandle.invokeExact());
+      } catch (Throwable t) {
+        throw new RuntimeException(t);
       }
       for (Map.Entry<String, Object> entry : values.entrySet()) {
         String propertyName = entry.getKey();
-        ErrorPath childPath = path.child(propertyName);
-        if (setters.containsKey(propertyName)) {
-          Method setter = setters.get(propertyName);
-          Type[] params = setter.getGenericParameterTypes();
-          if (params.length != 1) {
-            throw deserializeError(childPath, "Setter does not have exactly one parameter");
-          }
-          Type resolvedType = resolveType(params[0], types);
-          Object value =
-              CustomClassMapper.deserializeToType(entry.getValue(), resolvedType, childPath);
-          try {
-            setter.invoke(instance, value);
-          } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(e);
-          }
-        } else if (fields.containsKey(propertyName)) {
-          Field field = fields.get(propertyName);
-          Type resolvedType = resolveType(field.getGenericType(), types);
+        PropertySetter setter = propertySetters.get(propertyName);
+        if (setter != null) {
+          ErrorPath childPath = path.child(propertyName);
+          Type resolvedType = resolveType(setter.type, types);
           Object value =
               CustomClassMapper.deserializeToType(entry.getValue(), resolvedType, childPath);
-          try {
-            field.set(instance, value);
-          } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-          }
+          setter.set(instance, value);
         } else {
           String message =
               "No setter/field for " + propertyName + " found on class " + clazz.getName();
@@ -754,30 +795,12 @@ class CustomClassMapper {
                 + clazz);
       }
       Map<String, Object> result = new HashMap<>();
-      for (String property : properties.values()) {
-        Object propertyValue;
-        if (getters.containsKey(property)) {
-          Method getter = getters.get(property);
-          try {
-            propertyValue = getter.invoke(object);
-          } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(e);
-          }
-        } else {
-          // Must be a field
-          Field field = fields.get(property);
-          if (field == null) {
-            throw new IllegalStateException("Bean property without field or getter: " + property);
-          }
-          try {
-            propertyValue = field.get(object);
-          } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-          }
-        }
+      for (PropertyGetter getter : propertyGetters) {
+        String property = getter.name;
+        Object propertyValue = getter.get(object);
 
         Object serializedValue;
-        if (serverTimestamps.contains(property) && propertyValue == null) {
+        if (getter.serverTimestamp && propertyValue == null) {
           // Replace null ServerTimestamp-annotated fields with the sentinel.
           serializedValue = FieldValue.serverTimestamp();
         } else {
@@ -970,6 +993,73 @@ class CustomClassMapper {
     }
   }
 
+  /** A getter or field that reads a property of a bean. */
+  private static final class PropertyGetter {
+    private static final MethodType GETTER_TYPE =
+        MethodType.methodType(Object.class, Object.class);
+
+    private final String name;
+    // Null if the property has neither a getter nor a field.
+    private final MethodHandle handle;
+    private final boolean serverTimestamp;
+
+    PropertyGetter(String name, MethodHandle handle, boolean serverTimestamp) {
+      this.name = name;
+      this.handle = handle == null ? null : handle.asType(GETTER_TYPE);
+      this.serverTimestamp = serverTimestamp;
+    }
+
+    Object get(Object bean) {
+      if (handle == null) {
+        throw new IllegalStateException("Bean property without field or getter: " + name);
+      }
+      try {
+        return (Object) handle.invokeExact(bean);
+      } catch (Throwable t) {
+        throw new RuntimeException(t);
+      }
+    }
+  }
+
+  /** A setter or field that writes a property of a bean. */
+  private static final class PropertySetter {
+    private static final MethodType SETTER_TYPE =
+        MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Type type;
+    // Exactly one of these is set.
+    private final MethodHandle handle;
+    private final Field field;
+
+    PropertySetter(Type type, MethodHandle handle) {
+      this.type = type;
+      this.handle = handle.asType(SETTER_TYPE);
+      this.field = null;
+    }
+
+    PropertySetter(Field field) {
+      this.type = field.getGenericType();
+      this.handle = null;
+      this.field = field;
+    }
+
+    void set(Object bean, Object value) {
+      if (field != null) {
+        try {
+          field.set(bean, value);
+        } catch (IllegalAccessException e) {
+          throw new RuntimeException(e);
+        }
+        return;
+      }
+      try {
+        handle.invokeExact(bean, value);
+      } catch (Throwable t) {
+        throw new RuntimeException(t);
+      }
+    }
+  }
+
   /**
    * Immutable class representing the path to a specific field in an object. Used to provide better
    * error messages.
@@ -72,6 +72,9 @@ class FirestoreImpl implements Firestore {
 
   private boolean closed;
 
+  /** The Listen stream shared by all snapshot listeners. Created on first use. */
+  private WatchStream watchStream;
+
   FirestoreImpl(FirestoreOptions options) {
     this(options, options.getFirestoreRpc());
   }
@@ -414,6 +417,14 @@ class FirestoreImpl implements Firestore {
     return firestoreClient;
   }
 
+  /** Returns the Listen stream that is shared by all snapshot listeners of this client. */
+  synchronized WatchStream getWatchStream() {
+    if (watchStream == null) {
+      watchStream = new WatchStream(this);
+    }
+    return watchStream;
+  }
+
   /** Request funnel for all read/write requests. */
   <RequestT, ResponseT> ApiFuture<ResponseT> sendRequest(
       RequestT requestT, UnaryCallable<RequestT, ResponseT> callable) {
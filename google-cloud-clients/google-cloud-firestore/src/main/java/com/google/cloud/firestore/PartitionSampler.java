@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a probe query a fixed number of times, each time starting at a random auto-generated
+ * document ID, with at most {@link #MAX_CONCURRENT_PROBES} probes running at the same time. A new
+ * probe is started whenever a running one completes.
+ */
+final class PartitionSampler implements ApiFutureCallback<QuerySnapshot> {
+  /** The maximum number of probes that are running at the same time. */
+  static final int MAX_CONCURRENT_PROBES = 16;
+
+  private final Query probeQuery;
+  private final int probeCount;
+  private final SettableApiFuture<List<QuerySnapshot>> result = SettableApiFuture.create();
+
+  /** The snapshots of the completed probes. */
+  private final List<QuerySnapshot> snapshots = new ArrayList<>();
+
+  /** The number of probes that have been started. */
+  private int startedProbes;
+
+  /** Whether a probe has failed. */
+  private boolean failed;
+
+  PartitionSampler(Query probeQuery, int probeCount) {
+    this.probeQuery = probeQuery;
+    this.probeCount = probeCount;
+  }
+
+  /**
+   * Starts the first probes, up to the maximum concurrency.
+   *
+   * @return An ApiFuture that will be resolved with the snapshots of all probes.
+   */
+  ApiFuture<List<QuerySnapshot>> start() {
+    for (int i = 0; i < MAX_CONCURRENT_PROBES; ++i) {
+      startNextProbe();
+    }
+    return result;
+  }
+
+  /** Starts the next probe, unless all probes have been started or a probe has failed. */
+  private void startNextProbe() {
+    synchronized (this) {
+      if (failed || startedProbes == probeCount) {
+        return;
+      }
+      ++startedProbes;
+    }
+
+    ApiFutures.addCallback(probeQuery.startAt(FirestoreImpl.autoId()).get(), this);
+  }
+
+  @Override
+  public void onFailure(Throwable throwable) {
+    synchronized (this) {
+      failed = true;
+    }
+    result.setException(throwable);
+  }
+
+  @Override
+  public void onSuccess(QuerySnapshot snapshot) {
+    boolean completed;
+    synchronized (this) {
+      snapshots.add(snapshot);
+      completed = snapshots.size() == probeCount;
+    }
+
+    if (completed) {
+      result.set(snapshots);
+    } else {
+      startNextProbe();
+    }
+  }
+}
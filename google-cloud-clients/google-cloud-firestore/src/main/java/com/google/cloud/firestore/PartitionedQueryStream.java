@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.gax.rpc.ApiStreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the results of a list of query partitions to a single observer, running at most a fixed
+ * number of partitions at the same time. A new partition is started whenever a running one
+ * completes.
+ *
+ * <p>All calls to the observer are made while holding the lock of this instance, so that the
+ * observer is never called concurrently by the streams of different partitions.
+ */
+final class PartitionedQueryStream {
+  private final List<Query> partitions;
+  private final int maxParallelism;
+  private final ApiStreamObserver<DocumentSnapshot> responseObserver;
+
+  /** The index of the next partition to start. */
+  private int nextPartition;
+
+  /** The number of partitions that have been started but not completed. */
+  private int runningPartitions;
+
+  /** Whether the observer has been completed or failed. */
+  private boolean done;
+
+  PartitionedQueryStream(
+      List<Query> partitions,
+      int maxParallelism,
+      ApiStreamObserver<DocumentSnapshot> responseObserver) {
+    this.partitions = new ArrayList<>(partitions);
+    this.maxParallelism = maxParallelism;
+    this.responseObserver = responseObserver;
+  }
+
+  /** Starts the first partitions, up to the maximum parallelism. */
+  void start() {
+    for (int i = 0; i < maxParallelism; ++i) {
+      startNextPartition();
+    }
+  }
+
+  /**
+   * Starts the next partition, or completes the observer if all partitions have been read. The
+   * partition is started without holding the lock, since its responses may be delivered on the
+   * calling thread.
+   */
+  private void startNextPartition() {
+    Query partition;
+
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+
+      if (nextPartition == partitions.size()) {
+        if (runningPartitions == 0) {
+          done = true;
+          responseObserver.onCompleted();
+        }
+        return;
+      }
+
+      partition = partitions.get(nextPartition++);
+      ++runningPartitions;
+    }
+
+    partition.stream(
+        new ApiStreamObserver<DocumentSnapshot>() {
+          @Override
+          public void onNext(DocumentSnapshot documentSnapshot) {
+            synchronized (PartitionedQueryStream.this) {
+              if (!done) {
+                responseObserver.onNext(documentSnapshot);
+              }
+            }
+          }
+
+          @Override
+          public void onError(Throwable throwable) {
+            synchronized (PartitionedQueryStream.this) {
+              if (!done) {
+                done = true;
+                responseObserver.onError(throwable);
+              }
+            }
+          }
+
+          @Override
+          public void onCompleted() {
+            synchronized (PartitionedQueryStream.this) {
+              --runningPartitions;
+            }
+            startNextPartition();
+          }
+        });
+  }
+}
@@ -22,7 +22,10 @@ import static com.google.firestore.v1beta1.StructuredQuery.FieldFilter.Operator.
 import static com.google.firestore.v1beta1.StructuredQuery.FieldFilter.Operator.LESS_THAN;
 import static com.google.firestore.v1beta1.StructuredQuery.FieldFilter.Operator.LESS_THAN_OR_EQUAL;
 
+import com.google.api.core.ApiFunction;
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
 import com.google.api.core.SettableApiFuture;
 import com.google.api.gax.rpc.ApiStreamObserver;
 import com.google.cloud.Timestamp;
@@ -43,10 +46,13 @@ import com.google.protobuf.Int32Value;
 import io.opencensus.trace.AttributeValue;
 import io.opencensus.trace.Tracing;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.Executor;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -57,6 +63,9 @@ import javax.annotation.Nullable;
  */
 public class Query {
 
+  /** The number of documents sampled for each partition by {@link #getPartitions(int)}. */
+  static final int SAMPLES_PER_PARTITION = 8;
+
   final ResourcePath path;
   final FirestoreImpl firestore;
   final QueryOptions options;
@@ -1017,6 +1026,192 @@ public class Query {
     return Watch.forQuery(this).runWatch(executor, listener);
   }
 
+  /**
+   * Splits this query into disjoint partitions that together return the same documents as this
+   * query. The partitions are ordered by document ID and bounded by the provided split points: the
+   * first partition ends before the first split point, each following partition starts at a split
+   * point and ends before the next one, and the last partition starts at the last split point.
+   *
+   * <p>Only queries without inequality filters, limits, offsets, cursors or orderBy() clauses
+   * other than an ascending order on {@link FieldPath#documentId()} can be partitioned.
+   *
+   * @param splitPoints The document IDs or DocumentReferences at which to split the query, in
+   *     ascending order. The documents must be direct children of the queried collection.
+   * @return The partitions of this query, one more than the number of split points.
+   */
+  @Nonnull
+  public List<Query> partition(@Nonnull List<?> splitPoints) {
+    checkPartitionable();
+
+    Query orderedQuery = options.fieldOrders.isEmpty() ? orderBy(FieldPath.DOCUMENT_ID) : this;
+
+    List<DocumentReference> boundaries = new ArrayList<>();
+    for (Object splitPoint : splitPoints) {
+      DocumentReference boundary = (DocumentReference) convertReference(splitPoint);
+      if (!boundaries.isEmpty()
+          && boundaries
+                  .get(boundaries.size() - 1)
+                  .getResourcePath()
+                  .compareTo(boundary.getResourcePath())
+              >= 0) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Split points must be in strictly ascending order. Found '%s' after '%s'.",
+                boundary.getPath(), boundaries.get(boundaries.size() - 1).getPath()));
+      }
+      boundaries.add(boundary);
+    }
+
+    List<Query> partitions = new ArrayList<>();
+    for (int i = 0; i <= boundaries.size(); ++i) {
+      Query partition = orderedQuery;
+      if (i > 0) {
+        partition = partition.startAt(boundaries.get(i - 1));
+      }
+      if (i < boundaries.size()) {
+        partition = partition.endBefore(boundaries.get(i));
+      }
+      partitions.add(partition);
+    }
+    return partitions;
+  }
+
+  /**
+   * Splits this query into up to the desired number of disjoint partitions, using split points
+   * sampled from the documents that match this query. See {@link #partition(List)} for the queries
+   * that can be partitioned.
+   *
+   * <p>The split points are found by seeking to random positions in the space of auto-generated
+   * document IDs (as created by {@link CollectionReference#add(Object)} and {@link
+   * CollectionReference#document()}), so the partitions are only balanced for collections that use
+   * these IDs. Each sample reads a single document reference, and only a limited number of samples
+   * are read at the same time. For other collections, use {@link #partition(List)} with known split
+   * points.
+   *
+   * @param desiredPartitionCount The desired number of partitions. Fewer partitions are returned
+   *     if the query matches too few documents.
+   * @return An ApiFuture that will be resolved with the partitions of this query.
+   */
+  @Nonnull
+  public ApiFuture<List<Query>> getPartitions(final int desiredPartitionCount) {
+    Preconditions.checkArgument(
+        desiredPartitionCount > 0, "Desired partition count must be greater than 0.");
+    checkPartitionable();
+
+    if (desiredPartitionCount == 1) {
+      return ApiFutures.immediateFuture(partition(Collections.emptyList()));
+    }
+
+    // Oversample so that the chosen split points are quantiles of the sampled documents, which
+    // balances the partitions much better than using a single sample per split point.
+    Query probeQuery =
+        (options.fieldOrders.isEmpty() ? orderBy(FieldPath.DOCUMENT_ID) : this)
+            .select(FieldPath.DOCUMENT_ID)
+            .limit(1);
+    ApiFuture<List<QuerySnapshot>> probes =
+        new PartitionSampler(probeQuery, (desiredPartitionCount - 1) * SAMPLES_PER_PARTITION)
+            .start();
+
+    return ApiFutures.transform(
+        probes,
+        new ApiFunction<List<QuerySnapshot>, List<Query>>() {
+          @Override
+          public List<Query> apply(List<QuerySnapshot> snapshots) {
+            SortedSet<ResourcePath> samples = new TreeSet<>();
+            for (QuerySnapshot snapshot : snapshots) {
+              for (QueryDocumentSnapshot document : snapshot) {
+                samples.add(document.getReference().getResourcePath());
+              }
+            }
+
+            List<ResourcePath> sortedSamples = new ArrayList<>(samples);
+            List<String> splitPoints = new ArrayList<>();
+            for (int i = 1; i < desiredPartitionCount && !sortedSamples.isEmpty(); ++i) {
+              int index = (int) ((long) i * sortedSamples.size() / desiredPartitionCount);
+              String splitPoint = sortedSamples.get(index).getId();
+              if (splitPoints.isEmpty()
+                  || !splitPoints.get(splitPoints.size() - 1).equals(splitPoint)) {
+                splitPoints.add(splitPoint);
+              }
+            }
+            return partition(splitPoints);
+          }
+        });
+  }
+
+  /**
+   * Executes the provided partitions in parallel and streams their results to a single observer.
+   * At most {@code maxParallelism} partitions are queried at the same time. The observer is never
+   * called concurrently, but the results of different partitions are interleaved in the order in
+   * which they arrive.
+   *
+   * <p>The observer is completed once all partitions have been read. If a partition fails, the
+   * observer is notified of the error, no further partitions are started, and the results of the
+   * partitions that are still running are discarded.
+   *
+   * @param partitions The queries to execute, usually obtained from {@link #partition(List)} or
+   *     {@link #getPartitions(int)}.
+   * @param maxParallelism The maximum number of partitions to query at the same time.
+   * @param responseObserver The observer to be notified when results arrive.
+   */
+  public static void streamPartitions(
+      @Nonnull List<Query> partitions,
+      int maxParallelism,
+      @Nonnull ApiStreamObserver<DocumentSnapshot> responseObserver) {
+    Preconditions.checkArgument(maxParallelism > 0, "Parallelism must be greater than 0.");
+    new PartitionedQueryStream(partitions, maxParallelism, responseObserver).start();
+  }
+
+  /**
+   * Splits this query into up to the desired number of partitions with {@link
+   * #getPartitions(int)}, executes the partitions in parallel and streams their results to the
+   * observer. See {@link #streamPartitions(List, int, ApiStreamObserver)} for details.
+   *
+   * @param desiredPartitionCount The desired number of partitions.
+   * @param maxParallelism The maximum number of partitions to query at the same time.
+   * @param responseObserver The observer to be notified when results arrive.
+   */
+  public void streamPartitioned(
+      int desiredPartitionCount,
+      final int maxParallelism,
+      @Nonnull final ApiStreamObserver<DocumentSnapshot> responseObserver) {
+    Preconditions.checkArgument(maxParallelism > 0, "Parallelism must be greater than 0.");
+    ApiFutures.addCallback(
+        getPartitions(desiredPartitionCount),
+        new ApiFutureCallback<List<Query>>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            responseObserver.onError(throwable);
+          }
+
+          @Override
+          public void onSuccess(List<Query> partitions) {
+            streamPartitions(partitions, maxParallelism, responseObserver);
+          }
+        });
+  }
+
+  private void checkPartitionable() {
+    Preconditions.checkState(
+        options.limit == -1
+            && options.offset == -1
+            && options.startCursor == null
+            && options.endCursor == null,
+        "Queries with limit(), offset() or cursors cannot be partitioned.");
+
+    for (FieldFilter fieldFilter : options.fieldFilters) {
+      Preconditions.checkState(
+          fieldFilter.isEqualsFilter(), "Queries with inequality filters cannot be partitioned.");
+    }
+
+    Preconditions.checkState(
+        options.fieldOrders.isEmpty()
+            || (options.fieldOrders.size() == 1
+                && options.fieldOrders.get(0).fieldPath.equals(FieldPath.DOCUMENT_ID)
+                && options.fieldOrders.get(0).direction.equals(Direction.ASCENDING)),
+        "Only queries ordered by ascending document ID can be partitioned.");
+  }
+
   ApiFuture<QuerySnapshot> get(@Nullable ByteString transactionId) {
     final SettableApiFuture<QuerySnapshot> result = SettableApiFuture.create();
 
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A token bucket that limits the number of operations per second, with a capacity that grows over
+ * time. It is used by {@link BulkWriter} to follow the 500/50/5 rule: start with 500 operations per
+ * second, then increase the rate by 50% every 5 minutes.
+ *
+ * <p>This class is not thread safe.
+ */
+class RateLimiter {
+  private final int initialCapacity;
+  private final double multiplier;
+  private final long multiplierMillis;
+  private final int maximumCapacity;
+  private final long startTimeMillis;
+
+  private int availableTokens;
+  private long lastRefillTimeMillis;
+
+  /**
+   * @param initialCapacity The number of operations per second to start with.
+   * @param multiplier The factor by which the capacity grows.
+   * @param multiplierMillis The period after which the capacity grows, in milliseconds.
+   * @param maximumCapacity The capacity after which it stops growing.
+   * @param startTimeMillis The time the limiter starts at, in milliseconds.
+   */
+  RateLimiter(
+      int initialCapacity,
+      double multiplier,
+      long multiplierMillis,
+      int maximumCapacity,
+      long startTimeMillis) {
+    Preconditions.checkArgument(initialCapacity > 0, "initialCapacity must be positive");
+    Preconditions.checkArgument(multiplier >= 1, "multiplier must be at least 1");
+    Preconditions.checkArgument(multiplierMillis > 0, "multiplierMillis must be positive");
+    Preconditions.checkArgument(
+        maximumCapacity >= initialCapacity, "maximumCapacity must be at least initialCapacity");
+    this.initialCapacity = initialCapacity;
+    this.multiplier = multiplier;
+    this.multiplierMillis = multiplierMillis;
+    this.maximumCapacity = maximumCapacity;
+    this.startTimeMillis = startTimeMillis;
+
+    this.availableTokens = initialCapacity;
+    this.lastRefillTimeMillis = startTimeMillis;
+  }
+
+  /**
+   * Takes the tokens for the operations if there are enough of them.
+   *
+   * @return Whether the operations can proceed.
+   */
+  boolean tryMakeRequest(int numOperations, long requestTimeMillis) {
+    refillTokens(requestTimeMillis);
+    if (numOperations <= availableTokens) {
+      availableTokens -= numOperations;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of milliseconds to wait until there are enough tokens for the operations, or
+   * -1 if there will never be enough of them.
+   */
+  long getNextRequestDelayMs(int numOperations, long requestTimeMillis) {
+    refillTokens(requestTimeMillis);
+    if (numOperations <= availableTokens) {
+      return 0;
+    }
+    int capacity = calculateCapacity(requestTimeMillis);
+    if (numOperations > capacity) {
+      return -1;
+    }
+    int missingTokens = numOperations - availableTokens;
+    return (missingTokens * 1000L + capacity - 1) / capacity;
+  }
+
+  /** Adds the tokens that accumulated since the last refill, up to the current capacity. */
+  private void refillTokens(long requestTimeMillis) {
+    Preconditions.checkArgument(
+        requestTimeMillis >= lastRefillTimeMillis, "Request time must not go backwards");
+    int capacity = calculateCapacity(requestTimeMillis);
+    long tokensToAdd = (requestTimeMillis - lastRefillTimeMillis) * capacity / 1000;
+    // Only move the refill time forward when tokens are added, so that fractions of tokens are not
+    // lost by frequent calls.
+    if (tokensToAdd > 0) {
+      availableTokens = (int) Math.min(capacity, availableTokens + tokensToAdd);
+      lastRefillTimeMillis = requestTimeMillis;
+    }
+  }
+
+  /** Returns the number of operations per second that are allowed at the time. */
+  int calculateCapacity(long requestTimeMillis) {
+    long periods = (requestTimeMillis - startTimeMillis) / multiplierMillis;
+    double capacity = initialCapacity * Math.pow(multiplier, periods);
+    return (int) Math.min(maximumCapacity, capacity);
+  }
+}
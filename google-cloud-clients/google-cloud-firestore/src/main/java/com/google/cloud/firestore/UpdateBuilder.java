@@ -586,25 +586,7 @@ abstract class UpdateBuilder<T extends UpdateBuilder> {
 
     final CommitRequest.Builder request = CommitRequest.newBuilder();
     request.setDatabase(firestore.getDatabaseName());
-
-    for (Mutation mutation : mutations) {
-      Preconditions.checkState(
-          mutation.document != null || mutation.transform != null,
-          "Either a write or transform must be set");
-
-      if (mutation.precondition != null) {
-        (mutation.document != null ? mutation.document : mutation.transform)
-            .setCurrentDocument(mutation.precondition);
-      }
-
-      if (mutation.document != null) {
-        request.addWrites(mutation.document);
-      }
-
-      if (mutation.transform != null) {
-        request.addWrites(mutation.transform);
-      }
-    }
+    addWrites(request);
 
     if (transactionId != null) {
       request.setTransaction(transactionId);
@@ -623,36 +605,61 @@ abstract class UpdateBuilder<T extends UpdateBuilder> {
             List<com.google.firestore.v1beta1.WriteResult> writeResults =
                 commitResponse.getWriteResultsList();
 
-            List<WriteResult> result = new ArrayList<>();
-
             Preconditions.checkState(
                 request.getWritesCount() == writeResults.size(),
                 "Expected one write result per operation, but got %s results for %s operations.",
                 writeResults.size(),
                 request.getWritesCount());
 
-            Iterator<Mutation> mutationIterator = mutations.iterator();
-            Iterator<com.google.firestore.v1beta1.WriteResult> responseIterator =
-                writeResults.iterator();
+            return toWriteResults(writeResults.iterator(), commitResponse.getCommitTime());
+          }
+        });
+  }
+
+  /** Adds the writes of the queued mutations to the request. */
+  void addWrites(CommitRequest.Builder request) {
+    for (Mutation mutation : mutations) {
+      Preconditions.checkState(
+          mutation.document != null || mutation.transform != null,
+          "Either a write or transform must be set");
+
+      if (mutation.precondition != null) {
+        (mutation.document != null ? mutation.document : mutation.transform)
+            .setCurrentDocument(mutation.precondition);
+      }
 
-            while (mutationIterator.hasNext()) {
-              Mutation mutation = mutationIterator.next();
+      if (mutation.document != null) {
+        request.addWrites(mutation.document);
+      }
 
-              // Don't return both write results for a write that contains a transform, as the fact
-              // that we have to split one write operation into two distinct write requests is an
-              // implementation detail.
-              if (mutation.document != null && mutation.transform != null) {
-                // The document transform is always sent last and produces the latest update time.
-                responseIterator.next();
-              }
+      if (mutation.transform != null) {
+        request.addWrites(mutation.transform);
+      }
+    }
+  }
 
-              result.add(
-                  WriteResult.fromProto(responseIterator.next(), commitResponse.getCommitTime()));
-            }
+  /**
+   * Returns one WriteResult per queued mutation, consuming the results of the writes that were
+   * added by {@link #addWrites(CommitRequest.Builder)} from the iterator.
+   */
+  List<WriteResult> toWriteResults(
+      Iterator<com.google.firestore.v1beta1.WriteResult> responseIterator,
+      com.google.protobuf.Timestamp commitTime) {
+    List<WriteResult> result = new ArrayList<>();
 
-            return result;
-          }
-        });
+    for (Mutation mutation : mutations) {
+      // Don't return both write results for a write that contains a transform, as the fact that we
+      // have to split one write operation into two distinct write requests is an implementation
+      // detail.
+      if (mutation.document != null && mutation.transform != null) {
+        // The document transform is always sent last and produces the latest update time.
+        responseIterator.next();
+      }
+
+      result.add(WriteResult.fromProto(responseIterator.next(), commitTime));
+    }
+
+    return result;
   }
 
   /** Checks whether any updates have been queued. */
@@ -16,27 +16,13 @@
 
 package com.google.cloud.firestore;
 
-import com.google.api.core.CurrentMillisClock;
-import com.google.api.gax.grpc.GrpcStatusCode;
-import com.google.api.gax.retrying.ExponentialRetryAlgorithm;
-import com.google.api.gax.retrying.RetrySettings;
-import com.google.api.gax.retrying.TimedAttemptSettings;
-import com.google.api.gax.rpc.ApiException;
-import com.google.api.gax.rpc.ApiStreamObserver;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.DocumentChange.Type;
 import com.google.common.base.Preconditions;
 import com.google.firestore.v1beta1.Document;
-import com.google.firestore.v1beta1.ListenRequest;
-import com.google.firestore.v1beta1.ListenResponse;
 import com.google.firestore.v1beta1.Target;
 import com.google.firestore.v1beta1.Target.QueryTarget;
-import com.google.firestore.v1beta1.TargetChange;
 import com.google.protobuf.ByteString;
-import io.grpc.Status;
-import io.grpc.Status.Code;
-import io.grpc.StatusException;
-import io.grpc.StatusRuntimeException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -45,47 +31,27 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
-import org.threeten.bp.Duration;
 
 /**
  * Watch provides listen functionality and exposes snapshot listeners. It can be used with any valid
  * Firestore Listen target.
  *
- * <p>This class is thread-compatible when called through the methods defined in ApiStreamObserver.
- * It synchronizes on its own instance so it is advisable not to use this class for external
- * synchronization.
+ * <p>The targets of all the Watch instances of a Firestore client share a single Listen stream,
+ * which is managed by {@link WatchStream}. Each Watch keeps the document set of its own target, so
+ * that its listener receives consistent snapshots.
+ *
+ * <p>This class is thread-compatible. Apart from {@link #runWatch}, its methods are only called by
+ * {@link WatchStream} while holding the stream's lock.
  */
-class Watch implements ApiStreamObserver<ListenResponse> {
-  /**
-   * Target ID used by watch. Watch uses a fixed target id since we only support one target per
-   * stream. The actual target ID we use is arbitrary.
-   */
-  private static final int WATCH_TARGET_ID = 0x1;
-
-  private static RetrySettings RETRY_SETTINGS =
-      RetrySettings.newBuilder()
-          // The initial backoff time in seconds after an error.
-          // Set to 1s according to https://cloud.google.com/apis/design/errors.
-          .setInitialRetryDelay(Duration.ofSeconds(1))
-          // The maximum backoff time in minutes.
-          .setMaxRetryDelay(Duration.ofMinutes(1))
-          // The factor to increase the backup by after each failed attempt.
-          .setRetryDelayMultiplier(1.5)
-          .setJittered(true)
-          .build();
-
+class Watch {
   private final FirestoreImpl firestore;
-  private final ScheduledExecutorService firestoreExecutor;
   private final Query query;
   private final Comparator<QueryDocumentSnapshot> comparator;
-  private final ExponentialRetryAlgorithm backoff;
+
+  /** The target to listen on, without a target ID. */
   private final Target target;
-  private TimedAttemptSettings nextAttempt;
-  private ApiStreamObserver<ListenRequest> stream;
 
   /** The sorted tree of DocumentSnapshots as sent in the last snapshot. */
   private DocumentSet documentSet;
@@ -137,11 +103,7 @@ class Watch implements ApiStreamObserver<ListenResponse> {
     this.target = target;
     this.query = query;
     this.comparator = query.comparator();
-    this.backoff =
-        new ExponentialRetryAlgorithm(RETRY_SETTINGS, CurrentMillisClock.getDefaultClock());
-    this.firestoreExecutor = firestore.getClient().getExecutor();
     this.isActive = new AtomicBoolean();
-    this.nextAttempt = backoff.createFirstAttempt();
   }
 
   /**
@@ -153,7 +115,6 @@ class Watch implements ApiStreamObserver<ListenResponse> {
   static Watch forDocument(DocumentReference documentReference) {
     Target.Builder target = Target.newBuilder();
     target.getDocumentsBuilder().addDocuments(documentReference.getName());
-    target.setTargetId(WATCH_TARGET_ID);
 
     return new Watch(
         (FirestoreImpl) documentReference.getFirestore(),
@@ -174,106 +135,10 @@ class Watch implements ApiStreamObserver<ListenResponse> {
             .setStructuredQuery(query.buildQuery())
             .setParent(query.getResourcePath().getParent().getName())
             .build());
-    target.setTargetId(WATCH_TARGET_ID);
 
     return new Watch((FirestoreImpl) query.getFirestore(), query, target.build());
   }
 
-  @Override
-  public synchronized void onNext(ListenResponse listenResponse) {
-    switch (listenResponse.getResponseTypeCase()) {
-      case TARGET_CHANGE:
-        TargetChange change = listenResponse.getTargetChange();
-        boolean noTargetIds = change.getTargetIdsCount() == 0;
-
-        switch (change.getTargetChangeType()) {
-          case NO_CHANGE:
-            if (noTargetIds && change.hasReadTime() && current) {
-              // This means everything is up-to-date, so emit the current set of docs as a snapshot,
-              // if there were changes.
-              pushSnapshot(Timestamp.fromProto(change.getReadTime()), change.getResumeToken());
-            }
-            break;
-          case ADD:
-            if (WATCH_TARGET_ID != change.getTargetIds(0)) {
-              closeStream(FirestoreException.invalidState("Target ID must be 0x01"));
-            }
-            break;
-          case REMOVE:
-            Status status =
-                change.hasCause()
-                    ? Status.fromCodeValue(change.getCause().getCode())
-                    : Status.CANCELLED;
-            closeStream(
-                FirestoreException.serverRejected(
-                    status, "Backend ended Listen stream: " + change.getCause().getMessage()));
-            break;
-          case CURRENT:
-            current = true;
-            break;
-          case RESET:
-            resetDocs();
-            break;
-          default:
-            closeStream(
-                FirestoreException.invalidState(
-                    "Encountered invalid target change type: " + change.getTargetChangeType()));
-        }
-
-        if (change.getResumeToken() != null
-            && affectsTarget(change.getTargetIdsList(), WATCH_TARGET_ID)) {
-          nextAttempt = backoff.createFirstAttempt();
-        }
-
-        break;
-      case DOCUMENT_CHANGE:
-        // No other targetIds can show up here, but we still need to see if the targetId was in the
-        // added list or removed list.
-        List<Integer> targetIds = listenResponse.getDocumentChange().getTargetIdsList();
-        List<Integer> removedTargetIds =
-            listenResponse.getDocumentChange().getRemovedTargetIdsList();
-        boolean changed = targetIds.contains(WATCH_TARGET_ID);
-        boolean removed = removedTargetIds.contains(WATCH_TARGET_ID);
-
-        Document document = listenResponse.getDocumentChange().getDocument();
-        ResourcePath name = ResourcePath.create(document.getName());
-
-        if (changed) {
-          changeMap.put(name, document);
-        } else if (removed) {
-          changeMap.put(name, null);
-        }
-        break;
-      case DOCUMENT_DELETE:
-        changeMap.put(ResourcePath.create(listenResponse.getDocumentDelete().getDocument()), null);
-        break;
-      case DOCUMENT_REMOVE:
-        changeMap.put(ResourcePath.create(listenResponse.getDocumentRemove().getDocument()), null);
-        break;
-      case FILTER:
-        if (listenResponse.getFilter().getCount() != currentSize()) {
-          // We need to remove all the current results.
-          resetDocs();
-          // The filter didn't match, so re-issue the query.
-          resetStream();
-        }
-        break;
-      default:
-        closeStream(FirestoreException.invalidState("Encountered invalid listen response type"));
-        break;
-    }
-  }
-
-  @Override
-  public synchronized void onError(Throwable throwable) {
-    maybeReopenStream(throwable);
-  }
-
-  @Override
-  public synchronized void onCompleted() {
-    maybeReopenStream(new StatusException(Status.fromCode(Code.UNKNOWN)));
-  }
-
   /** API entry point that starts the Watch stream. */
   ListenerRegistration runWatch(
       final Executor userCallbackExecutor, EventListener<QuerySnapshot> listener) {
@@ -284,154 +149,101 @@ class Watch implements ApiStreamObserver<ListenResponse> {
     this.userCallbackExecutor = userCallbackExecutor;
     this.listener = listener;
 
-    this.stream = null;
     this.documentSet = DocumentSet.emptySet(comparator);
     this.changeMap = new HashMap<>();
     this.resumeToken = null;
     this.current = false;
 
-    initStream();
+    final WatchStream watchStream = firestore.getWatchStream();
+    final int targetId = watchStream.addTarget(this);
 
     return new ListenerRegistration() {
       @Override
       public void remove() {
         isActive.set(false);
-
-        firestore
-            .getClient()
-            .getExecutor()
-            .execute(
-                new Runnable() {
-                  @Override
-                  public void run() {
-                    synchronized (Watch.this) {
-                      stream.onCompleted();
-                      stream = null;
-                    }
-                  }
-                });
+        watchStream.removeTarget(targetId, Watch.this);
       }
     };
   }
 
   /**
-   * Returns the current count of all documents, including the changes from the current changeMap.
+   * Returns the target to add to the stream under the given ID, resuming from the last snapshot if
+   * possible. The target is not current until the backend says so again.
    */
-  private int currentSize() {
-    ChangeSet changeSet = extractChanges(Timestamp.now());
-    return documentSet.size() + changeSet.adds.size() - changeSet.deletes.size();
+  Target listen(int targetId) {
+    current = false;
+    hasPushed = false;
+
+    Target.Builder request = target.toBuilder();
+    request.setTargetId(targetId);
+    if (resumeToken != null) {
+      request.setResumeToken(resumeToken);
+    }
+    return request.build();
   }
 
-  /** Helper to clear the docs on RESET or filter mismatch. */
-  private void resetDocs() {
-    changeMap.clear();
-    resumeToken = null;
+  /** Records a change to a document of the target. A null document removes it from the target. */
+  void onDocumentChange(ResourcePath name, @Nullable Document document) {
+    changeMap.put(name, document);
+  }
 
-    for (DocumentSnapshot snapshot : documentSet) {
-      // Mark each document as deleted. If documents are not deleted, they  will be send again by
-      // the server.
-      changeMap.put(snapshot.getReference().getResourcePath(), null);
+  /** Marks the result set as 'CURRENT'. */
+  void markCurrent() {
+    current = true;
+  }
+
+  /**
+   * Emits the current set of docs as a snapshot if the target is current and there were changes.
+   */
+  void onSnapshot(Timestamp readTime, ByteString nextResumeToken) {
+    if (current) {
+      pushSnapshot(readTime, nextResumeToken);
     }
+  }
 
-    current = false;
+  /** Returns whether the server's document count for the target differs from ours. */
+  boolean hasFilterMismatch(int documentCount) {
+    return documentCount != currentSize();
   }
 
-  /** Closes the stream and calls onError() if the stream is still active. */
-  private void closeStream(final Throwable throwable) {
-    if (stream != null) {
-      stream.onCompleted();
-      stream = null;
-    }
+  /** Drops the changes that were received since the last snapshot when the stream breaks. */
+  void clearChanges() {
+    changeMap.clear();
+  }
 
+  /** Calls the listener with the error, unless the listener was already removed. */
+  void close(final FirestoreException exception) {
     if (isActive.getAndSet(false)) {
       userCallbackExecutor.execute(
           new Runnable() {
             @Override
             public void run() {
-              listener.onEvent(
-                  null,
-                  throwable instanceof FirestoreException
-                      ? (FirestoreException) throwable
-                      : FirestoreException.apiException(
-                          new ApiException(
-                              throwable,
-                              GrpcStatusCode.of(getStatus(throwable).getCode()),
-                              false)));
+              listener.onEvent(null, exception);
             }
           });
     }
   }
 
   /**
-   * Re-opens the stream unless the specified error is considered permanent. Clears the change map.
+   * Returns the current count of all documents, including the changes from the current changeMap.
    */
-  private void maybeReopenStream(Throwable throwable) {
-    if (isActive.get() && !isPermanentError(throwable)) {
-      if (isResourceExhaustedError(throwable)) {
-        nextAttempt = backoff.createNextAttempt(nextAttempt);
-      }
-
-      changeMap.clear();
-      resetStream();
-    } else {
-      closeStream(throwable);
-    }
-  }
-
-  /** Helper to restart the outgoing stream to the backend. */
-  private void resetStream() {
-    if (stream != null) {
-      stream.onCompleted();
-      stream = null;
-    }
-
-    initStream();
+  private int currentSize() {
+    ChangeSet changeSet = extractChanges(Timestamp.now());
+    return documentSet.size() + changeSet.adds.size() - changeSet.deletes.size();
   }
 
-  /** Initializes a new stream to the backend with backoff. */
-  private void initStream() {
-    firestoreExecutor.schedule(
-        new Runnable() {
-          @Override
-          public void run() {
-            if (!isActive.get()) {
-              return;
-            }
-
-            synchronized (Watch.this) {
-              if (!isActive.get()) {
-                return;
-              }
-
-              Preconditions.checkState(stream == null);
-
-              current = false;
-              hasPushed = false;
-              nextAttempt = backoff.createNextAttempt(nextAttempt);
-
-              stream = firestore.streamRequest(Watch.this, firestore.getClient().listenCallable());
-
-              ListenRequest.Builder request = ListenRequest.newBuilder();
-              request.setDatabase(firestore.getDatabaseName());
-              request.setAddTarget(target);
-              if (resumeToken != null) {
-                request.getAddTargetBuilder().setResumeToken(resumeToken);
-              }
+  /** Helper to clear the docs on RESET or filter mismatch. */
+  void resetDocs() {
+    changeMap.clear();
+    resumeToken = null;
 
-              stream.onNext(request.build());
-            }
-          }
-        },
-        nextAttempt.getRandomizedRetryDelay().toMillis(),
-        TimeUnit.MILLISECONDS);
-  }
+    for (DocumentSnapshot snapshot : documentSet) {
+      // Mark each document as deleted. If documents are not deleted, they  will be send again by
+      // the server.
+      changeMap.put(snapshot.getReference().getResourcePath(), null);
+    }
 
-  /**
-   * Checks if the current target id is included in the list of target ids. Returns true if no
-   * targetIds are provided.
-   */
-  private boolean affectsTarget(List<Integer> targetIds, int currentId) {
-    return targetIds == null || targetIds.isEmpty() || targetIds.contains(currentId);
+    current = false;
   }
 
   /** Splits up document changes into removals, additions, and updates. */
@@ -555,39 +367,4 @@ class Watch implements ApiStreamObserver<ListenResponse> {
 
     return appliedChanges;
   }
-
-  /** Determines whether a GRPC Error is considered permanent and should not be retried. */
-  private static boolean isPermanentError(Throwable throwable) {
-    Status status = getStatus(throwable);
-
-    switch (status.getCode()) {
-      case CANCELLED:
-      case UNKNOWN:
-      case DEADLINE_EXCEEDED:
-      case RESOURCE_EXHAUSTED:
-      case INTERNAL:
-      case UNAVAILABLE:
-      case UNAUTHENTICATED:
-        return false;
-      default:
-        return true;
-    }
-  }
-
-  /** Extracts the GRPC status code if available. Returns UNKNOWN for non-GRPC exceptions. */
-  private static Status getStatus(Throwable throwable) {
-    Status status = Status.UNKNOWN;
-
-    if (throwable instanceof StatusRuntimeException) {
-      status = ((StatusRuntimeException) throwable).getStatus();
-    } else if (throwable instanceof StatusException) {
-      status = ((StatusException) throwable).getStatus();
-    }
-    return status;
-  }
-
-  /** Determines whether we need to initiate a longer backoff due to system overload. */
-  private static boolean isResourceExhaustedError(Throwable throwable) {
-    return getStatus(throwable).getCode().equals(Code.RESOURCE_EXHAUSTED);
-  };
 }
@@ -0,0 +1,476 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import com.google.api.core.CurrentMillisClock;
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.retrying.ExponentialRetryAlgorithm;
+import com.google.api.gax.retrying.RetrySettings;
+import com.google.api.gax.retrying.TimedAttemptSettings;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.ApiStreamObserver;
+import com.google.cloud.Timestamp;
+import com.google.firestore.v1beta1.Document;
+import com.google.firestore.v1beta1.DocumentChange;
+import com.google.firestore.v1beta1.ExistenceFilter;
+import com.google.firestore.v1beta1.ListenRequest;
+import com.google.firestore.v1beta1.ListenResponse;
+import com.google.firestore.v1beta1.TargetChange;
+import io.grpc.Status;
+import io.grpc.Status.Code;
+import io.grpc.StatusException;
+import io.grpc.StatusRuntimeException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.threeten.bp.Duration;
+
+/**
+ * WatchStream multiplexes the targets of all the active {@link Watch} instances of a Firestore
+ * client over a single Listen stream. Each target is assigned its own target ID, and the responses
+ * of the stream are dispatched to the Watch instances by target ID. Responses that apply to all
+ * targets, such as global snapshots, are dispatched to every Watch instance.
+ *
+ * <p>The stream is opened when the first target is added and closed when the last one is removed.
+ * If the stream breaks, it is re-opened with backoff and all the targets are added again, resuming
+ * from their last snapshot.
+ *
+ * <p>This class is thread-safe. It synchronizes on its own instance, and all calls into the Watch
+ * instances are made while holding this lock.
+ */
+final class WatchStream {
+  private static RetrySettings RETRY_SETTINGS =
+      RetrySettings.newBuilder()
+          // The initial backoff time in seconds after an error.
+          // Set to 1s according to https://cloud.google.com/apis/design/errors.
+          .setInitialRetryDelay(Duration.ofSeconds(1))
+          // The maximum backoff time in minutes.
+          .setMaxRetryDelay(Duration.ofMinutes(1))
+          // The factor to increase the backup by after each failed attempt.
+          .setRetryDelayMultiplier(1.5)
+          .setJittered(true)
+          .build();
+
+  private final FirestoreImpl firestore;
+  private final ScheduledExecutorService firestoreExecutor;
+  private final ExponentialRetryAlgorithm backoff;
+  private TimedAttemptSettings nextAttempt;
+
+  /** The active targets, keyed by target ID. */
+  private final Map<Integer, Watch> targets = new LinkedHashMap<>();
+
+  /**
+   * Targets that are being removed from the stream so that they can be added again from scratch.
+   * Responses for these targets are ignored until the backend acknowledges the removal.
+   */
+  private final Set<Integer> relistenTargets = new HashSet<>();
+
+  /** The ID of the next target. IDs are not reused while the stream is open. */
+  private int nextTargetId = 1;
+
+  /** The outgoing stream, or null if the stream isn't open. */
+  private ApiStreamObserver<ListenRequest> stream;
+
+  /** The observer of the open stream. Responses from previous streams are ignored. */
+  private ListenResponseObserver responseObserver;
+
+  /** Whether the stream is scheduled to be opened. */
+  private boolean openScheduled;
+
+  WatchStream(FirestoreImpl firestore) {
+    this.firestore = firestore;
+    this.firestoreExecutor = firestore.getClient().getExecutor();
+    this.backoff =
+        new ExponentialRetryAlgorithm(RETRY_SETTINGS, CurrentMillisClock.getDefaultClock());
+    this.nextAttempt = backoff.createFirstAttempt();
+  }
+
+  /**
+   * Adds the target of the Watch to the stream, opening the stream if necessary.
+   *
+   * @return The ID assigned to the target.
+   */
+  synchronized int addTarget(Watch watch) {
+    int targetId = nextTargetId++;
+    targets.put(targetId, watch);
+
+    if (stream != null) {
+      listen(targetId, watch);
+    } else {
+      scheduleOpen();
+    }
+
+    return targetId;
+  }
+
+  /**
+   * Removes the target of the Watch from the stream, closing the stream if it was the last one.
+   * Does nothing if the target was already removed.
+   */
+  synchronized void removeTarget(int targetId, Watch watch) {
+    if (targets.get(targetId) != watch) {
+      return;
+    }
+
+    targets.remove(targetId);
+    relistenTargets.remove(targetId);
+
+    if (targets.isEmpty()) {
+      stopStream();
+    } else if (stream != null) {
+      unlisten(targetId);
+    }
+  }
+
+  private synchronized void onNext(
+      ListenResponseObserver observer, ListenResponse listenResponse) {
+    if (observer != responseObserver) {
+      return;
+    }
+
+    switch (listenResponse.getResponseTypeCase()) {
+      case TARGET_CHANGE:
+        onTargetChange(listenResponse.getTargetChange());
+        break;
+      case DOCUMENT_CHANGE:
+        DocumentChange change = listenResponse.getDocumentChange();
+        Document document = change.getDocument();
+        ResourcePath name = ResourcePath.create(document.getName());
+
+        for (int targetId : change.getTargetIdsList()) {
+          Watch watch = getTarget(targetId);
+          if (watch != null) {
+            watch.onDocumentChange(name, document);
+          }
+        }
+        for (int targetId : change.getRemovedTargetIdsList()) {
+          Watch watch = getTarget(targetId);
+          if (watch != null && !change.getTargetIdsList().contains(targetId)) {
+            watch.onDocumentChange(name, null);
+          }
+        }
+        break;
+      case DOCUMENT_DELETE:
+        onDocumentRemoved(
+            listenResponse.getDocumentDelete().getDocument(),
+            listenResponse.getDocumentDelete().getRemovedTargetIdsList());
+        break;
+      case DOCUMENT_REMOVE:
+        onDocumentRemoved(
+            listenResponse.getDocumentRemove().getDocument(),
+            listenResponse.getDocumentRemove().getRemovedTargetIdsList());
+        break;
+      case FILTER:
+        onFilter(listenResponse.getFilter());
+        break;
+      default:
+        closeStream(FirestoreException.invalidState("Encountered invalid listen response type"));
+        break;
+    }
+  }
+
+  private void onTargetChange(TargetChange change) {
+    boolean noTargetIds = change.getTargetIdsCount() == 0;
+
+    switch (change.getTargetChangeType()) {
+      case NO_CHANGE:
+        if (noTargetIds && change.hasReadTime()) {
+          // This means everything is up-to-date, so emit the current set of docs as a snapshot for
+          // every target that is current, if there were changes.
+          Timestamp readTime = Timestamp.fromProto(change.getReadTime());
+          for (Watch watch : affectedTargets(change.getTargetIdsList())) {
+            watch.onSnapshot(readTime, change.getResumeToken());
+          }
+        }
+        break;
+      case ADD:
+        for (int targetId : change.getTargetIdsList()) {
+          if (targetId <= 0 || targetId >= nextTargetId) {
+            closeStream(FirestoreException.invalidState("Unknown target ID: " + targetId));
+            return;
+          }
+        }
+        break;
+      case REMOVE:
+        Status status =
+            change.hasCause()
+                ? Status.fromCodeValue(change.getCause().getCode())
+                : Status.CANCELLED;
+        FirestoreException exception =
+            FirestoreException.serverRejected(
+                status, "Backend ended Listen stream: " + change.getCause().getMessage());
+
+        List<Integer> targetIds =
+            noTargetIds ? new ArrayList<Integer>(targets.keySet()) : change.getTargetIdsList();
+        for (int targetId : targetIds) {
+          if (relistenTargets.remove(targetId)) {
+            // The backend acknowledged the removal, so we can add the target again.
+            listen(targetId, targets.get(targetId));
+          } else {
+            Watch watch = targets.remove(targetId);
+            if (watch != null) {
+              watch.close(exception);
+            }
+          }
+        }
+
+        if (targets.isEmpty()) {
+          stopStream();
+        }
+        break;
+      case CURRENT:
+        for (Watch watch : affectedTargets(change.getTargetIdsList())) {
+          watch.markCurrent();
+        }
+        break;
+      case RESET:
+        for (Watch watch : affectedTargets(change.getTargetIdsList())) {
+          watch.resetDocs();
+        }
+        break;
+      default:
+        closeStream(
+            FirestoreException.invalidState(
+                "Encountered invalid target change type: " + change.getTargetChangeType()));
+        return;
+    }
+
+    nextAttempt = backoff.createFirstAttempt();
+  }
+
+  private void onFilter(ExistenceFilter filter) {
+    Watch watch = getTarget(filter.getTargetId());
+    if (watch != null && watch.hasFilterMismatch(filter.getCount())) {
+      // We need to remove all the current results.
+      watch.resetDocs();
+      // The filter didn't match, so re-issue the query.
+      relistenTargets.add(filter.getTargetId());
+      unlisten(filter.getTargetId());
+    }
+  }
+
+  /** Removes the document from the given targets, or from all targets if none are given. */
+  private void onDocumentRemoved(String document, List<Integer> removedTargetIds) {
+    ResourcePath name = ResourcePath.create(document);
+    for (Watch watch : affectedTargets(removedTargetIds)) {
+      watch.onDocumentChange(name, null);
+    }
+  }
+
+  private synchronized void onError(ListenResponseObserver observer, Throwable throwable) {
+    if (observer == responseObserver) {
+      maybeReopenStream(throwable);
+    }
+  }
+
+  private synchronized void onCompleted(ListenResponseObserver observer) {
+    if (observer == responseObserver) {
+      maybeReopenStream(new StatusException(Status.fromCode(Code.UNKNOWN)));
+    }
+  }
+
+  /** Returns the Watch of the target, or null if the target is unknown or being re-added. */
+  private Watch getTarget(int targetId) {
+    return relistenTargets.contains(targetId) ? null : targets.get(targetId);
+  }
+
+  /** Returns the Watch instances of the given targets, or of all targets if none are given. */
+  private List<Watch> affectedTargets(List<Integer> targetIds) {
+    List<Watch> watches = new ArrayList<>();
+    if (targetIds.isEmpty()) {
+      for (Map.Entry<Integer, Watch> target : targets.entrySet()) {
+        if (!relistenTargets.contains(target.getKey())) {
+          watches.add(target.getValue());
+        }
+      }
+    } else {
+      for (int targetId : targetIds) {
+        Watch watch = getTarget(targetId);
+        if (watch != null) {
+          watches.add(watch);
+        }
+      }
+    }
+    return watches;
+  }
+
+  /**
+   * Re-opens the stream unless the specified error is considered permanent, in which case all the
+   * targets are closed.
+   */
+  private void maybeReopenStream(Throwable throwable) {
+    if (!targets.isEmpty() && !isPermanentError(throwable)) {
+      if (isResourceExhaustedError(throwable)) {
+        nextAttempt = backoff.createNextAttempt(nextAttempt);
+      }
+
+      stream.onCompleted();
+      stream = null;
+      responseObserver = null;
+
+      for (Watch watch : targets.values()) {
+        watch.clearChanges();
+      }
+
+      scheduleOpen();
+    } else {
+      closeStream(throwable);
+    }
+  }
+
+  /** Closes the stream and notifies the targets that are still active of the error. */
+  private void closeStream(Throwable throwable) {
+    FirestoreException exception =
+        throwable instanceof FirestoreException
+            ? (FirestoreException) throwable
+            : FirestoreException.apiException(
+                new ApiException(
+                    throwable, GrpcStatusCode.of(getStatus(throwable).getCode()), false));
+
+    List<Watch> watches = new ArrayList<>(targets.values());
+    targets.clear();
+    stopStream();
+
+    for (Watch watch : watches) {
+      watch.close(exception);
+    }
+  }
+
+  /** Closes the stream once there are no targets left. */
+  private void stopStream() {
+    if (stream != null) {
+      stream.onCompleted();
+      stream = null;
+    }
+
+    responseObserver = null;
+    relistenTargets.clear();
+    nextTargetId = 1;
+    nextAttempt = backoff.createFirstAttempt();
+  }
+
+  /** Opens a new stream to the backend with backoff. */
+  private void scheduleOpen() {
+    if (openScheduled) {
+      return;
+    }
+
+    openScheduled = true;
+
+    firestoreExecutor.schedule(
+        new Runnable() {
+          @Override
+          public void run() {
+            synchronized (WatchStream.this) {
+              openScheduled = false;
+
+              if (stream != null || targets.isEmpty()) {
+                return;
+              }
+
+              nextAttempt = backoff.createNextAttempt(nextAttempt);
+
+              responseObserver = new ListenResponseObserver();
+              stream =
+                  firestore.streamRequest(
+                      responseObserver, firestore.getClient().listenCallable());
+
+              relistenTargets.clear();
+              for (Map.Entry<Integer, Watch> target : targets.entrySet()) {
+                listen(target.getKey(), target.getValue());
+              }
+            }
+          }
+        },
+        nextAttempt.getRandomizedRetryDelay().toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  /** Adds the target to the open stream. */
+  private void listen(int targetId, Watch watch) {
+    ListenRequest.Builder request = ListenRequest.newBuilder();
+    request.setDatabase(firestore.getDatabaseName());
+    request.setAddTarget(watch.listen(targetId));
+    stream.onNext(request.build());
+  }
+
+  /** Removes the target from the open stream. */
+  private void unlisten(int targetId) {
+    ListenRequest.Builder request = ListenRequest.newBuilder();
+    request.setDatabase(firestore.getDatabaseName());
+    request.setRemoveTarget(targetId);
+    stream.onNext(request.build());
+  }
+
+  /** Determines whether a GRPC Error is considered permanent and should not be retried. */
+  private static boolean isPermanentError(Throwable throwable) {
+    Status status = getStatus(throwable);
+
+    switch (status.getCode()) {
+      case CANCELLED:
+      case UNKNOWN:
+      case DEADLINE_EXCEEDED:
+      case RESOURCE_EXHAUSTED:
+      case INTERNAL:
+      case UNAVAILABLE:
+      case UNAUTHENTICATED:
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  /** Extracts the GRPC status code if available. Returns UNKNOWN for non-GRPC exceptions. */
+  private static Status getStatus(Throwable throwable) {
+    Status status = Status.UNKNOWN;
+
+    if (throwable instanceof StatusRuntimeException) {
+      status = ((StatusRuntimeException) throwable).getStatus();
+    } else if (throwable instanceof StatusException) {
+      status = ((StatusException) throwable).getStatus();
+    }
+    return status;
+  }
+
+  /** Determines whether we need to initiate a longer backoff due to system overload. */
+  private static boolean isResourceExhaustedError(Throwable throwable) {
+    return getStatus(throwable).getCode().equals(Code.RESOURCE_EXHAUSTED);
+  }
+
+  /** Receives the responses of one stream. */
+  private class ListenResponseObserver implements ApiStreamObserver<ListenResponse> {
+    @Override
+    public void onNext(ListenResponse listenResponse) {
+      WatchStream.this.onNext(this, listenResponse);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      WatchStream.this.onError(this, throwable);
+    }
+
+    @Override
+    public void onCompleted() {
+      WatchStream.this.onCompleted(this);
+    }
+  }
+}
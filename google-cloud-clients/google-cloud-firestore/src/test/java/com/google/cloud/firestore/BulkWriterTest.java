@@ -0,0 +1,396 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static com.google.cloud.firestore.LocalFirestoreHelper.map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+
+import com.google.api.core.ApiClock;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.spi.v1beta1.FirestoreRpc;
+import com.google.firestore.v1beta1.CommitRequest;
+import com.google.firestore.v1beta1.CommitResponse;
+import com.google.firestore.v1beta1.Write;
+import io.grpc.Status;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BulkWriterTest {
+
+  /** A clock that only moves when told to. */
+  private static class FakeClock implements ApiClock {
+    long millis;
+
+    @Override
+    public long nanoTime() {
+      return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Override
+    public long millisTime() {
+      return millis;
+    }
+  }
+
+  /** A commit that was sent, and whose response is up to the test. */
+  private static class PendingCommit {
+    final CommitRequest request;
+    final SettableApiFuture<CommitResponse> response = SettableApiFuture.create();
+
+    PendingCommit(CommitRequest request) {
+      this.request = request;
+    }
+
+    void succeed() {
+      CommitResponse.Builder commitResponse = CommitResponse.newBuilder();
+      commitResponse.getCommitTimeBuilder().setSeconds(1);
+      for (int i = 0; i < request.getWritesCount(); i++) {
+        commitResponse.addWriteResultsBuilder().getUpdateTimeBuilder().setSeconds(i + 2);
+      }
+      response.set(commitResponse.build());
+    }
+
+    void fail(Status.Code code) {
+      response.setException(
+          ApiExceptionFactory.createException(
+              new Exception("Test exception"), GrpcStatusCode.of(code), false));
+    }
+
+    List<String> documents() {
+      List<String> documents = new ArrayList<>();
+      for (Write write : request.getWritesList()) {
+        documents.add(
+            write.getOperationCase() == Write.OperationCase.DELETE
+                ? "delete " + write.getDelete()
+                : write.getUpdate().getName());
+      }
+      return documents;
+    }
+  }
+
+  private final FakeClock clock = new FakeClock();
+
+  @Spy private FirestoreRpc firestoreRpc = Mockito.mock(FirestoreRpc.class);
+
+  @Spy
+  private FirestoreImpl firestoreMock =
+      new FirestoreImpl(
+          FirestoreOptions.newBuilder()
+              .setProjectId("test-project")
+              .setTimestampsInSnapshotsEnabled(true)
+              .setClock(clock)
+              .build(),
+          firestoreRpc);
+
+  private final ScheduledExecutorService executor = Mockito.mock(ScheduledExecutorService.class);
+  private final Queue<PendingCommit> commits = new ArrayDeque<>();
+  private final Queue<Runnable> scheduledTasks = new ArrayDeque<>();
+  private final List<Long> scheduledDelays = new ArrayList<>();
+
+  private BulkWriter bulkWriter;
+
+  @Before
+  public void before() {
+    doReturn(executor).when(firestoreRpc).getExecutor();
+    doAnswer(
+            new Answer<Object>() {
+              @Override
+              public Object answer(InvocationOnMock invocation) {
+                scheduledTasks.add((Runnable) invocation.getArguments()[0]);
+                scheduledDelays.add((Long) invocation.getArguments()[1]);
+                return null;
+              }
+            })
+        .when(executor)
+        .schedule(Matchers.any(Runnable.class), Matchers.anyLong(), Matchers.any(TimeUnit.class));
+    doAnswer(
+            new Answer<ApiFuture<CommitResponse>>() {
+              @Override
+              public ApiFuture<CommitResponse> answer(InvocationOnMock invocation) {
+                PendingCommit commit =
+                    new PendingCommit((CommitRequest) invocation.getArguments()[0]);
+                commits.add(commit);
+                return commit.response;
+              }
+            })
+        .when(firestoreMock)
+        .sendRequest(
+            Matchers.any(CommitRequest.class),
+            Matchers.<UnaryCallable<CommitRequest, CommitResponse>>any());
+
+    bulkWriter = BulkWriter.of(firestoreMock);
+  }
+
+  private DocumentReference doc(int i) {
+    return firestoreMock.document("coll/doc" + i);
+  }
+
+  private static String name(DocumentReference documentReference) {
+    return documentReference.getName();
+  }
+
+  @Test
+  public void packsWritesIntoBatches() throws Exception {
+    List<ApiFuture<WriteResult>> results = new ArrayList<>();
+    for (int i = 0; i < 2 * BulkWriter.MAX_BATCH_SIZE + 5; i++) {
+      results.add(bulkWriter.set(doc(i), map("foo", (Object) i)));
+    }
+
+    // Full batches are sent right away.
+    assertEquals(2, commits.size());
+    PendingCommit first = commits.poll();
+    PendingCommit second = commits.poll();
+    assertEquals(BulkWriter.MAX_BATCH_SIZE, first.request.getWritesCount());
+    assertEquals(name(doc(0)), first.documents().get(0));
+    assertEquals(name(doc(BulkWriter.MAX_BATCH_SIZE)), second.documents().get(0));
+
+    ApiFuture<Void> flushed = bulkWriter.flush();
+    PendingCommit third = commits.poll();
+    assertEquals(5, third.request.getWritesCount());
+
+    first.succeed();
+    second.succeed();
+    assertFalse(flushed.isDone());
+    third.succeed();
+    assertTrue(flushed.isDone());
+
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(2, 0), results.get(0).get().getUpdateTime());
+    assertEquals(
+        Timestamp.ofTimeSecondsAndNanos(BulkWriter.MAX_BATCH_SIZE + 1, 0),
+        results.get(BulkWriter.MAX_BATCH_SIZE - 1).get().getUpdateTime());
+    assertEquals(
+        Timestamp.ofTimeSecondsAndNanos(6, 0),
+        results.get(results.size() - 1).get().getUpdateTime());
+  }
+
+  @Test
+  public void batchLargerThanTheRateLimitIsSplit() throws Exception {
+    bulkWriter = new BulkWriter(firestoreMock, 5);
+    List<ApiFuture<WriteResult>> results = new ArrayList<>();
+    for (int i = 0; i < BulkWriter.MAX_BATCH_SIZE; i++) {
+      results.add(bulkWriter.set(doc(i), map("foo", (Object) i)));
+    }
+
+    // The full batch never fits in the 5 writes per second, so it's split until each part does.
+    // The first part is sent right away, the others wait for the rate limiter.
+    assertEquals(1, commits.size());
+    PendingCommit first = commits.poll();
+    assertEquals(5, first.request.getWritesCount());
+    assertEquals(name(doc(0)), first.documents().get(0));
+    assertEquals(3, scheduledTasks.size());
+    for (long delay : scheduledDelays) {
+      assertEquals(1000, delay);
+    }
+
+    clock.millis += 1000;
+    scheduledTasks.poll().run();
+    PendingCommit second = commits.poll();
+    assertEquals(5, second.request.getWritesCount());
+    assertEquals(name(doc(5)), second.documents().get(0));
+
+    first.succeed();
+    second.succeed();
+    assertTrue(results.get(9).isDone());
+    assertFalse(results.get(10).isDone());
+  }
+
+  @Test
+  public void writesToTheSameDocumentAreSentInOrder() throws Exception {
+    ApiFuture<WriteResult> set = bulkWriter.set(doc(1), map("foo", (Object) "bar"));
+    ApiFuture<WriteResult> otherSet = bulkWriter.set(doc(2), map("foo", (Object) "bar"));
+    ApiFuture<WriteResult> delete = bulkWriter.delete(doc(1));
+    ApiFuture<Void> flushed = bulkWriter.flush();
+
+    // The delete waits for the set of the same document.
+    PendingCommit first = commits.poll();
+    assertEquals(2, first.request.getWritesCount());
+    assertEquals(name(doc(1)), first.documents().get(0));
+    assertEquals(name(doc(2)), first.documents().get(1));
+    assertNull(commits.poll());
+
+    first.succeed();
+    assertTrue(set.isDone());
+    assertTrue(otherSet.isDone());
+    assertFalse(delete.isDone());
+
+    PendingCommit second = commits.poll();
+    assertEquals(1, second.request.getWritesCount());
+    assertEquals("delete " + name(doc(1)), second.documents().get(0));
+    assertFalse(flushed.isDone());
+
+    second.succeed();
+    assertTrue(delete.isDone());
+    assertTrue(flushed.isDone());
+  }
+
+  @Test
+  public void failedBatchIsRetriedOneWriteAtATime() throws Exception {
+    ApiFuture<WriteResult> create1 = bulkWriter.create(doc(1), map("foo", (Object) "bar"));
+    ApiFuture<WriteResult> create2 = bulkWriter.create(doc(2), map("foo", (Object) "bar"));
+    bulkWriter.flush();
+
+    // One of the documents already exists, which fails the whole batch.
+    commits.poll().fail(Status.Code.ALREADY_EXISTS);
+
+    PendingCommit retry1 = commits.poll();
+    PendingCommit retry2 = commits.poll();
+    assertEquals(1, retry1.request.getWritesCount());
+    assertEquals(name(doc(1)), retry1.documents().get(0));
+    assertEquals(1, retry2.request.getWritesCount());
+    assertEquals(name(doc(2)), retry2.documents().get(0));
+
+    retry1.succeed();
+    retry2.fail(Status.Code.ALREADY_EXISTS);
+
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(2, 0), create1.get().getUpdateTime());
+    try {
+      create2.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertEquals(
+          Status.Code.ALREADY_EXISTS.name(),
+          ((ApiException) e.getCause()).getStatusCode().getCode().name());
+    }
+    assertNull(commits.poll());
+  }
+
+  @Test
+  public void transientErrorsAreRetriedWithBackoff() throws Exception {
+    ApiFuture<WriteResult> set = bulkWriter.set(doc(1), map("foo", (Object) "bar"));
+    bulkWriter.flush();
+
+    for (int attempt = 1; attempt < BulkWriter.MAX_ATTEMPTS; attempt++) {
+      commits.poll().fail(Status.Code.UNAVAILABLE);
+      assertNull(commits.poll());
+      assertEquals(attempt, scheduledDelays.size());
+      scheduledTasks.poll().run();
+    }
+    assertEquals(BulkWriter.INITIAL_BACKOFF_MILLIS, (long) scheduledDelays.get(0));
+    assertEquals(
+        (long) (BulkWriter.INITIAL_BACKOFF_MILLIS * BulkWriter.BACKOFF_FACTOR),
+        (long) scheduledDelays.get(1));
+
+    // The last attempt fails the write.
+    commits.poll().fail(Status.Code.UNAVAILABLE);
+    assertTrue(set.isDone());
+    assertNull(commits.poll());
+    assertTrue(scheduledTasks.isEmpty());
+  }
+
+  @Test
+  public void resourceExhaustedUsesMaximumBackoff() throws Exception {
+    ApiFuture<WriteResult> set = bulkWriter.set(doc(1), map("foo", (Object) "bar"));
+    bulkWriter.flush();
+
+    commits.poll().fail(Status.Code.RESOURCE_EXHAUSTED);
+    assertEquals(BulkWriter.MAX_BACKOFF_MILLIS, (long) scheduledDelays.get(0));
+    scheduledTasks.poll().run();
+    commits.poll().succeed();
+    assertEquals(Timestamp.ofTimeSecondsAndNanos(2, 0), set.get().getUpdateTime());
+  }
+
+  @Test
+  public void throughputRampsUp() throws Exception {
+    int batchesPerSecond = BulkWriter.INITIAL_OPS_PER_SECOND / BulkWriter.MAX_BATCH_SIZE;
+    int writes = 0;
+    for (int i = 0; i < batchesPerSecond + 1; i++) {
+      for (int j = 0; j < BulkWriter.MAX_BATCH_SIZE; j++) {
+        bulkWriter.set(doc(writes++), map("foo", (Object) "bar"));
+      }
+    }
+
+    // The first second's worth of writes goes out right away, the rest waits for tokens.
+    assertEquals(batchesPerSecond, commits.size());
+    assertEquals(1, scheduledTasks.size());
+    assertEquals(
+        1000L * BulkWriter.MAX_BATCH_SIZE / BulkWriter.INITIAL_OPS_PER_SECOND,
+        (long) scheduledDelays.get(0));
+
+    clock.millis += scheduledDelays.get(0);
+    scheduledTasks.poll().run();
+    assertEquals(batchesPerSecond + 1, commits.size());
+
+    // After five minutes, 50% more writes are allowed per second.
+    clock.millis = BulkWriter.RATE_LIMITER_MULTIPLIER_MILLIS;
+    commits.clear();
+    int rampedUpBatches = (int) (batchesPerSecond * BulkWriter.RATE_LIMITER_MULTIPLIER);
+    for (int i = 0; i < rampedUpBatches + 1; i++) {
+      for (int j = 0; j < BulkWriter.MAX_BATCH_SIZE; j++) {
+        bulkWriter.set(doc(writes++), map("foo", (Object) "bar"));
+      }
+    }
+    assertEquals(rampedUpBatches, commits.size());
+    assertEquals(1, scheduledTasks.size());
+  }
+
+  @Test
+  public void closeWaitsForWrites() throws Exception {
+    final ApiFuture<WriteResult> set = bulkWriter.set(doc(1), map("foo", (Object) "bar"));
+    // Complete the commit as soon as it's sent, since close() blocks.
+    doAnswer(
+            new Answer<ApiFuture<CommitResponse>>() {
+              @Override
+              public ApiFuture<CommitResponse> answer(InvocationOnMock invocation) {
+                PendingCommit commit =
+                    new PendingCommit((CommitRequest) invocation.getArguments()[0]);
+                commit.succeed();
+                return commit.response;
+              }
+            })
+        .when(firestoreMock)
+        .sendRequest(
+            Matchers.any(CommitRequest.class),
+            Matchers.<UnaryCallable<CommitRequest, CommitResponse>>any());
+
+    bulkWriter.close();
+    assertTrue(set.isDone());
+
+    try {
+      bulkWriter.set(doc(2), map("foo", (Object) "bar"));
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("Cannot add writes to a BulkWriter that has been closed.", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the conversion of a nested POJO (an order with a customer, an address and 20 line
+ * items, using getters, setters and public fields) to and from its map representation with {@link
+ * CustomClassMapper}.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.args="CustomClassMapperBenchmark -prof gc"} to also see the allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomClassMapperBenchmark {
+  private static final int LINE_ITEMS = 20;
+
+  public static class Address {
+    public String street;
+    public String city;
+    public String zip;
+  }
+
+  public static class Customer {
+    private String name;
+    private String email;
+    private boolean premium;
+    private Address address;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public String getEmail() {
+      return email;
+    }
+
+    public void setEmail(String email) {
+      this.email = email;
+    }
+
+    public boolean isPremium() {
+      return premium;
+    }
+
+    public void setPremium(boolean premium) {
+      this.premium = premium;
+    }
+
+    public Address getAddress() {
+      return address;
+    }
+
+    public void setAddress(Address address) {
+      this.address = address;
+    }
+  }
+
+  public static class LineItem {
+    public String sku;
+    public long quantity;
+    public double price;
+  }
+
+  public static class Order {
+    private String id;
+    private long createdAt;
+    private Customer customer;
+    private List<LineItem> items;
+
+    public String getId() {
+      return id;
+    }
+
+    public void setId(String id) {
+      this.id = id;
+    }
+
+    public long getCreatedAt() {
+      return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+      this.createdAt = createdAt;
+    }
+
+    public Customer getCustomer() {
+      return customer;
+    }
+
+    public void setCustomer(Customer customer) {
+      this.customer = customer;
+    }
+
+    public List<LineItem> getItems() {
+      return items;
+    }
+
+    public void setItems(List<LineItem> items) {
+      this.items = items;
+    }
+  }
+
+  private Order order;
+  private Map<String, Object> serializedOrder;
+
+  @Setup
+  public void setUp() {
+    Address address = new Address();
+    address.street = "1600 Amphitheatre Parkway";
+    address.city = "Mountain View";
+    address.zip = "94043";
+
+    Customer customer = new Customer();
+    customer.setName("customer");
+    customer.setEmail("customer@example.com");
+    customer.setPremium(true);
+    customer.setAddress(address);
+
+    List<LineItem> items = new ArrayList<>();
+    for (int i = 0; i < LINE_ITEMS; i++) {
+      LineItem item = new LineItem();
+      item.sku = "sku-" + i;
+      item.quantity = i;
+      item.price = i * 1.5;
+      items.add(item);
+    }
+
+    order = new Order();
+    order.setId("order");
+    order.setCreatedAt(1234567890L);
+    order.setCustomer(customer);
+    order.setItems(items);
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> serialized =
+        (Map<String, Object>) CustomClassMapper.convertToPlainJavaTypes(order);
+    serializedOrder = serialized;
+  }
+
+  @Benchmark
+  public Object serialize() {
+    return CustomClassMapper.convertToPlainJavaTypes(order);
+  }
+
+  @Benchmark
+  public Order deserialize() {
+    return CustomClassMapper.convertToCustomClass(serializedOrder, Order.class);
+  }
+}
@@ -149,6 +149,19 @@ public class DocumentReferenceTest {
     assertCommitEquals(expectedCommit, commitCapture.getAllValues().get(1));
   }
 
+  @Test
+  public void serializeReadOnlyField() throws Exception {
+    doReturn(SINGLE_WRITE_COMMIT_RESPONSE)
+        .when(firestoreMock)
+        .sendRequest(
+            commitCapture.capture(), Matchers.<UnaryCallable<CommitRequest, CommitResponse>>any());
+
+    // The final field backing the getter can't be written through a method handle.
+    documentReference.set(new LocalFirestoreHelper.ReadOnlyField()).get();
+
+    assertCommitEquals(commit(set(SINGLE_FIELD_PROTO)), commitCapture.getValue());
+  }
+
   @Test
   public void serializeDocumentReference() throws Exception {
     doReturn(SINGLE_WRITE_COMMIT_RESPONSE)
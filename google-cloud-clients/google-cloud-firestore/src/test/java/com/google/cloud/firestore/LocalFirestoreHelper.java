@@ -131,6 +131,15 @@ public final class LocalFirestoreHelper {
     }
   }
 
+  public static class ReadOnlyField {
+
+    private final String foo = "bar";
+
+    public String getFoo() {
+      return foo;
+    }
+  }
+
   public static class NestedClass {
     public SingleField first = new SingleField();
     public AllSupportedTypes second = new AllSupportedTypes();
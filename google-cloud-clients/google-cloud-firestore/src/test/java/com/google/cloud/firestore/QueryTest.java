@@ -16,6 +16,7 @@
 
 package com.google.cloud.firestore;
 
+import static com.google.cloud.firestore.LocalFirestoreHelper.DATABASE_NAME;
 import static com.google.cloud.firestore.LocalFirestoreHelper.DOCUMENT_NAME;
 import static com.google.cloud.firestore.LocalFirestoreHelper.SINGLE_FIELD_SNAPSHOT;
 import static com.google.cloud.firestore.LocalFirestoreHelper.endAt;
@@ -30,20 +31,29 @@ import static com.google.cloud.firestore.LocalFirestoreHelper.startAt;
 import static com.google.cloud.firestore.LocalFirestoreHelper.unaryFilter;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doAnswer;
 
+import com.google.api.core.ApiFuture;
 import com.google.api.gax.rpc.ApiStreamObserver;
 import com.google.api.gax.rpc.ServerStreamingCallable;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.spi.v1beta1.FirestoreRpc;
+import com.google.common.collect.Iterables;
+import com.google.firestore.v1beta1.Document;
 import com.google.firestore.v1beta1.RunQueryRequest;
+import com.google.firestore.v1beta1.RunQueryResponse;
 import com.google.firestore.v1beta1.StructuredQuery;
 import com.google.firestore.v1beta1.StructuredQuery.Direction;
 import com.google.firestore.v1beta1.StructuredQuery.FieldFilter.Operator;
 import com.google.firestore.v1beta1.Value;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.Semaphore;
 import org.junit.Before;
 import org.junit.Test;
@@ -53,7 +63,9 @@ import org.mockito.Captor;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
 import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 @RunWith(MockitoJUnitRunner.class)
 public class QueryTest {
@@ -595,6 +607,224 @@ public class QueryTest {
     semaphore.acquire();
   }
 
+  @Test
+  public void partitionWithSplitPoints() throws Exception {
+    List<Query> partitions =
+        query.partition(Arrays.asList("b", firestoreMock.document("coll/d")));
+
+    Query orderedQuery = query.orderBy(FieldPath.documentId());
+    assertPartitions(
+        Arrays.asList(
+            orderedQuery.endBefore("b"),
+            orderedQuery.startAt("b").endBefore("d"),
+            orderedQuery.startAt("d")),
+        partitions);
+
+    assertPartitions(
+        Arrays.asList(orderedQuery.whereEqualTo("foo", "bar")),
+        query.whereEqualTo("foo", "bar").partition(Collections.emptyList()));
+  }
+
+  @Test
+  public void partitionWithInvalidQuery() throws Exception {
+    try {
+      query.limit(42).partition(Collections.emptyList());
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals(
+          "Queries with limit(), offset() or cursors cannot be partitioned.", e.getMessage());
+    }
+
+    try {
+      query.whereGreaterThan("foo", 42).partition(Collections.emptyList());
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("Queries with inequality filters cannot be partitioned.", e.getMessage());
+    }
+
+    try {
+      query.orderBy("foo").partition(Collections.emptyList());
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals(
+          "Only queries ordered by ascending document ID can be partitioned.", e.getMessage());
+    }
+
+    try {
+      query.partition(Arrays.asList("d", "b"));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals(
+          "Split points must be in strictly ascending order. Found 'coll/b' after 'coll/d'.",
+          e.getMessage());
+    }
+  }
+
+  @Test
+  public void getPartitionsUsesSampledQuantiles() throws Exception {
+    final Iterator<String> sampledIds = Iterables.cycle("a", "b", "c", "d").iterator();
+    doAnswer(
+            new Answer<RunQueryResponse>() {
+              @Override
+              public RunQueryResponse answer(InvocationOnMock invocation) throws Throwable {
+                return queryResponse(DATABASE_NAME + "/documents/coll/" + sampledIds.next())
+                    .answer(invocation);
+              }
+            })
+        .when(firestoreMock)
+        .streamRequest(
+            runQuery.capture(),
+            streamObserverCapture.capture(),
+            Matchers.<ServerStreamingCallable>any());
+
+    List<Query> partitions = query.getPartitions(3).get();
+
+    assertEquals(2 * Query.SAMPLES_PER_PARTITION, runQuery.getAllValues().size());
+    StructuredQuery probe = runQuery.getValue().getStructuredQuery();
+    assertEquals(1, probe.getLimit().getValue());
+    assertEquals("__name__", probe.getSelect().getFields(0).getFieldPath());
+
+    Query orderedQuery = query.orderBy(FieldPath.documentId());
+    assertPartitions(
+        Arrays.asList(
+            orderedQuery.endBefore("b"),
+            orderedQuery.startAt("b").endBefore("c"),
+            orderedQuery.startAt("c")),
+        partitions);
+  }
+
+  @Test
+  public void getPartitionsLimitsConcurrentProbes() throws Exception {
+    final List<ApiStreamObserver<RunQueryResponse>> streams = new ArrayList<>();
+    doAnswer(
+            new Answer<Void>() {
+              @Override
+              public Void answer(InvocationOnMock invocation) {
+                streams.add((ApiStreamObserver<RunQueryResponse>) invocation.getArguments()[1]);
+                return null;
+              }
+            })
+        .when(firestoreMock)
+        .streamRequest(
+            runQuery.capture(),
+            streamObserverCapture.capture(),
+            Matchers.<ServerStreamingCallable>any());
+
+    int probeCount = 4 * Query.SAMPLES_PER_PARTITION;
+    ApiFuture<List<Query>> partitions = query.getPartitions(5);
+    assertEquals(PartitionSampler.MAX_CONCURRENT_PROBES, streams.size());
+
+    streams.get(0).onNext(documentResponse("a"));
+    streams.get(0).onCompleted();
+    assertEquals(PartitionSampler.MAX_CONCURRENT_PROBES + 1, streams.size());
+
+    for (int i = 1; i < probeCount; ++i) {
+      assertFalse(partitions.isDone());
+      streams.get(i).onNext(documentResponse("a"));
+      streams.get(i).onCompleted();
+    }
+    assertEquals(probeCount, streams.size());
+    assertEquals(2, partitions.get().size());
+  }
+
+  @Test
+  public void streamPartitionsLimitsParallelism() throws Exception {
+    final List<ApiStreamObserver<RunQueryResponse>> streams = new ArrayList<>();
+    doAnswer(
+            new Answer<Void>() {
+              @Override
+              public Void answer(InvocationOnMock invocation) {
+                streams.add((ApiStreamObserver<RunQueryResponse>) invocation.getArguments()[1]);
+                return null;
+              }
+            })
+        .when(firestoreMock)
+        .streamRequest(
+            runQuery.capture(),
+            streamObserverCapture.capture(),
+            Matchers.<ServerStreamingCallable>any());
+
+    RecordingObserver observer = new RecordingObserver();
+    Query.streamPartitions(query.partition(Arrays.asList("b", "d")), 2, observer);
+    assertEquals(2, streams.size());
+
+    streams.get(1).onNext(documentResponse("c"));
+    streams.get(1).onCompleted();
+    assertEquals(3, streams.size());
+
+    streams.get(0).onNext(documentResponse("a"));
+    streams.get(0).onCompleted();
+    streams.get(2).onNext(documentResponse("d"));
+    assertFalse(observer.completed);
+    streams.get(2).onCompleted();
+
+    assertEquals(Arrays.asList("c", "a", "d"), observer.ids);
+    assertTrue(observer.completed);
+    assertNull(observer.error);
+  }
+
+  @Test
+  public void streamPartitionsStopsOnError() throws Exception {
+    final List<ApiStreamObserver<RunQueryResponse>> streams = new ArrayList<>();
+    doAnswer(
+            new Answer<Void>() {
+              @Override
+              public Void answer(InvocationOnMock invocation) {
+                streams.add((ApiStreamObserver<RunQueryResponse>) invocation.getArguments()[1]);
+                return null;
+              }
+            })
+        .when(firestoreMock)
+        .streamRequest(
+            runQuery.capture(),
+            streamObserverCapture.capture(),
+            Matchers.<ServerStreamingCallable>any());
+
+    RecordingObserver observer = new RecordingObserver();
+    Query.streamPartitions(query.partition(Arrays.asList("b", "d")), 1, observer);
+
+    Exception exception = new Exception("Expected exception");
+    streams.get(0).onError(exception);
+    assertEquals(1, streams.size());
+    assertEquals(exception, observer.error);
+    assertFalse(observer.completed);
+  }
+
+  private static void assertPartitions(List<Query> expected, List<Query> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); ++i) {
+      assertEquals(expected.get(i).buildQuery().build(), actual.get(i).buildQuery().build());
+    }
+  }
+
+  private static RunQueryResponse documentResponse(String id) {
+    return RunQueryResponse.newBuilder()
+        .setDocument(Document.newBuilder().setName(DATABASE_NAME + "/documents/coll/" + id))
+        .setReadTime(com.google.protobuf.Timestamp.newBuilder().setSeconds(1))
+        .build();
+  }
+
+  private static class RecordingObserver implements ApiStreamObserver<DocumentSnapshot> {
+    List<String> ids = new ArrayList<>();
+    Throwable error;
+    boolean completed;
+
+    @Override
+    public void onNext(DocumentSnapshot documentSnapshot) {
+      ids.add(documentSnapshot.getId());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onCompleted() {
+      completed = true;
+    }
+  }
+
   @Test
   public void equalsTest() throws Exception {
     assertEquals(query.limit(42).offset(1337), query.offset(1337).limit(42));
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.firestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class RateLimiterTest {
+
+  // 500 operations per second, growing by 50% every 5 minutes, up to 1000.
+  private static final long FIVE_MINUTES = 5 * 60 * 1000;
+
+  private final RateLimiter limiter = new RateLimiter(500, 1.5, FIVE_MINUTES, 1000, 0);
+
+  @Test
+  public void consumesTokens() {
+    assertTrue(limiter.tryMakeRequest(300, 0));
+    assertTrue(limiter.tryMakeRequest(200, 0));
+    assertFalse(limiter.tryMakeRequest(1, 0));
+  }
+
+  @Test
+  public void refillsTokensOverTime() {
+    assertTrue(limiter.tryMakeRequest(500, 0));
+    assertFalse(limiter.tryMakeRequest(100, 100));
+    // 500 tokens per second.
+    assertTrue(limiter.tryMakeRequest(100, 200));
+    assertFalse(limiter.tryMakeRequest(1, 200));
+  }
+
+  @Test
+  public void doesNotRefillPastCapacity() {
+    assertTrue(limiter.tryMakeRequest(1, 0));
+    assertFalse(limiter.tryMakeRequest(501, 10_000));
+    assertTrue(limiter.tryMakeRequest(500, 10_000));
+  }
+
+  @Test
+  public void calculatesDelay() {
+    assertEquals(0, limiter.getNextRequestDelayMs(500, 0));
+    assertTrue(limiter.tryMakeRequest(500, 0));
+    assertEquals(100, limiter.getNextRequestDelayMs(50, 0));
+    assertEquals(2, limiter.getNextRequestDelayMs(1, 0));
+    // More operations than the capacity can never be made.
+    assertEquals(-1, limiter.getNextRequestDelayMs(501, 0));
+  }
+
+  @Test
+  public void rampsUpCapacity() {
+    assertEquals(500, limiter.calculateCapacity(0));
+    assertEquals(500, limiter.calculateCapacity(FIVE_MINUTES - 1));
+    assertEquals(750, limiter.calculateCapacity(FIVE_MINUTES));
+    assertEquals(1000, limiter.calculateCapacity(2 * FIVE_MINUTES));
+    assertEquals(1000, limiter.calculateCapacity(10 * FIVE_MINUTES));
+
+    assertTrue(limiter.tryMakeRequest(500, 0));
+    assertTrue(limiter.tryMakeRequest(750, FIVE_MINUTES));
+  }
+}
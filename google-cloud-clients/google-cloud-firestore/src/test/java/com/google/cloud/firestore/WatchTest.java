@@ -55,10 +55,12 @@ import io.grpc.StatusException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledExecutorService;
@@ -615,7 +617,8 @@ public class WatchTest {
     awaitQuerySnapshot(new SnapshotDocument(ChangeType.ADDED, "coll/doc1", SINGLE_FIELD_MAP));
 
     send(filter(2));
-    awaitClose();
+    awaitRemoveTarget(TARGET_ID);
+    send(removeTarget(null));
 
     awaitAddTarget();
     send(doc("coll/doc2", SINGLE_FIELD_PROTO));
@@ -755,6 +758,89 @@ public class WatchTest {
     assertEquals(currentSnapshot, thirdSnapshot);
   }
 
+  @Test
+  public void listenersShareStream() throws InterruptedException {
+    final int listenerCount = 10000;
+    final BlockingQueue<DocumentSnapshot> snapshots = new LinkedBlockingDeque<>();
+
+    List<ListenerRegistration> registrations = new ArrayList<>();
+    for (int i = 0; i < listenerCount; ++i) {
+      registrations.add(
+          firestoreMock
+              .document("coll/doc" + i)
+              .addSnapshotListener(
+                  new EventListener<DocumentSnapshot>() {
+                    @Override
+                    public void onEvent(
+                        @Nullable DocumentSnapshot value, @Nullable FirestoreException error) {
+                      snapshots.add(value);
+                    }
+                  }));
+    }
+    listenerRegistration = registrations.get(0);
+
+    // Each listener gets its own target on the same stream.
+    Set<Integer> targetIds = new HashSet<>();
+    for (int i = 0; i < listenerCount; ++i) {
+      targetIds.add(requests.take().getAddTarget().getTargetId());
+    }
+    assertEquals(listenerCount, targetIds.size());
+    assertEquals(1, streamObserverCapture.getAllValues().size());
+
+    send(currentForAllTargets());
+    send(doc(5, "coll/doc4", SINGLE_FIELD_PROTO));
+    send(snapshot());
+
+    int existing = 0;
+    for (int i = 0; i < listenerCount; ++i) {
+      DocumentSnapshot snapshot = snapshots.take();
+      if (snapshot.exists()) {
+        assertEquals("coll/doc4", snapshot.getReference().getPath());
+        assertEquals(SINGLE_FIELD_MAP, snapshot.getData());
+        ++existing;
+      }
+    }
+    assertEquals(1, existing);
+
+    // Only the listener of the changed document receives a new snapshot.
+    send(doc(5, "coll/doc4", UPDATED_FIELD_PROTO));
+    send(snapshot());
+    DocumentSnapshot snapshot = snapshots.take();
+    assertEquals("coll/doc4", snapshot.getReference().getPath());
+    assertEquals(UPDATED_FIELD_MAP, snapshot.getData());
+
+    // Removing a listener removes its target, and removing the last one closes the stream.
+    for (int i = 0; i < listenerCount - 1; ++i) {
+      registrations.get(i).remove();
+      awaitRemoveTarget(i + 1);
+    }
+    registrations.get(listenerCount - 1).remove();
+    awaitClose();
+    assertTrue(snapshots.isEmpty());
+  }
+
+  @Test
+  public void targetRemovalOnlyClosesAffectedListener() throws InterruptedException {
+    addDocumentListener();
+    addQueryListener();
+
+    awaitAddTarget();
+    ListenRequest request = requests.take();
+    assertEquals(TARGET_ID + 1, request.getAddTarget().getTargetId());
+
+    send(currentForAllTargets());
+    send(snapshot());
+    awaitDocumentSnapshot();
+    awaitQuerySnapshot();
+
+    send(removeTarget(Code.ABORTED));
+    awaitException(Code.ABORTED);
+
+    send(doc(TARGET_ID + 1, "coll/doc", SINGLE_FIELD_PROTO));
+    send(snapshot());
+    awaitQuerySnapshot(new SnapshotDocument(ChangeType.ADDED, "coll/doc", SINGLE_FIELD_MAP));
+  }
+
   private void restartWatch() {
     after();
     before();
@@ -856,6 +942,12 @@ public class WatchTest {
     assertEquals(TARGET_ID, listenRequest.getAddTarget().getTargetId());
   }
 
+  private void awaitRemoveTarget(int targetId) throws InterruptedException {
+    ListenRequest listenRequest = requests.take();
+    assertEquals(DATABASE_NAME, listenRequest.getDatabase());
+    assertEquals(targetId, listenRequest.getRemoveTarget());
+  }
+
   private void awaitResumeToken() throws InterruptedException {
     ListenRequest listenRequest = requests.take();
     assertEquals(DATABASE_NAME, listenRequest.getDatabase());
@@ -896,6 +988,13 @@ public class WatchTest {
     return response.build();
   }
 
+  private ListenResponse currentForAllTargets() {
+    ListenResponse.Builder response = ListenResponse.newBuilder();
+    response.setTargetChange(
+        TargetChange.newBuilder().setTargetChangeType(TargetChangeType.CURRENT));
+    return response.build();
+  }
+
   private ListenResponse reset() {
     ListenResponse.Builder response = ListenResponse.newBuilder();
     response.setTargetChange(
@@ -907,7 +1006,8 @@ public class WatchTest {
 
   private ListenResponse filter(int documentCount) {
     ListenResponse.Builder response = ListenResponse.newBuilder();
-    response.setFilter(ExistenceFilter.newBuilder().setCount(documentCount).build());
+    response.setFilter(
+        ExistenceFilter.newBuilder().setTargetId(TARGET_ID).setCount(documentCount).build());
     return response.build();
   }
 
@@ -922,8 +1022,12 @@ public class WatchTest {
   }
 
   private ListenResponse doc(String docPath, Map<String, Value> singleFieldProto) {
+    return doc(TARGET_ID, docPath, singleFieldProto);
+  }
+
+  private ListenResponse doc(int targetId, String docPath, Map<String, Value> singleFieldProto) {
     DocumentChange.Builder documentChange = DocumentChange.newBuilder();
-    documentChange.addTargetIds(TARGET_ID);
+    documentChange.addTargetIds(targetId);
     documentChange.setDocument(
         Document.newBuilder()
             .setName(String.format("%s/documents/%s", DATABASE_NAME, docPath))
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.logging;
+
+/**
+ * A {@link Logging} that reports on its asynchronous writes (see {@link Synchronicity#ASYNC}). The
+ * service returned by {@link LoggingOptions#getService()} implements this interface.
+ */
+public interface AsyncLogging extends Logging {
+
+  /**
+   * Returns the number of asynchronously written log entries that were dropped because the write
+   * buffer was full, see {@link AsyncWriteSettings.OverflowBehavior}.
+   *
+   * <p>Example of checking for dropped entries.
+   * <pre> {@code
+   * long droppedEntries = ((AsyncLogging) logging).getDroppedEntryCount();
+   * }</pre>
+   */
+  long getDroppedEntryCount();
+}
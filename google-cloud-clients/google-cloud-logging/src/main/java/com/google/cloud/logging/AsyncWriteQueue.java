@@ -0,0 +1,310 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.logging;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.logging.spi.v2.LoggingRpc;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.logging.v2.WriteLogEntriesRequest;
+import com.google.logging.v2.WriteLogEntriesResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers asynchronously written log entries and sends them in batches, as configured by {@link
+ * AsyncWriteSettings}. Writes only take a lock when they have to wait for buffer space with {@link
+ * AsyncWriteSettings.OverflowBehavior#BLOCK}. Requests with the same log name, resource and labels
+ * are merged into one request, in the order they were written.
+ */
+final class AsyncWriteQueue {
+
+  private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+  private final LoggingRpc rpc;
+  private final AsyncWriteSettings settings;
+  private final ScheduledExecutorService executor;
+  private final ConcurrentLinkedQueue<WriteLogEntriesRequest> queue =
+      new ConcurrentLinkedQueue<>();
+  private final Set<ApiFuture<WriteLogEntriesResponse>> pendingWrites = Collections.newSetFromMap(
+      new ConcurrentHashMap<ApiFuture<WriteLogEntriesResponse>, Boolean>());
+  // Entries that are queued or being sent, bounded by settings.getMaxBufferedEntryCount().
+  private final AtomicInteger bufferedEntries = new AtomicInteger();
+  private final AtomicInteger queuedEntries = new AtomicInteger();
+  private final AtomicLong queuedBytes = new AtomicLong();
+  private final AtomicLong droppedEntries = new AtomicLong();
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+  private final AtomicBoolean delayedDrainScheduled = new AtomicBoolean();
+  private final Object drainLock = new Object();
+  private final Object capacityLock = new Object();
+
+  private final Runnable drainTask = new Runnable() {
+    @Override
+    public void run() {
+      drainScheduled.set(false);
+      drain();
+    }
+  };
+
+  private final Runnable delayedDrainTask = new Runnable() {
+    @Override
+    public void run() {
+      delayedDrainScheduled.set(false);
+      drain();
+    }
+  };
+
+  AsyncWriteQueue(LoggingRpc rpc, AsyncWriteSettings settings) {
+    this(rpc, settings, Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("logging-async-write-%d")
+        .build()));
+  }
+
+  AsyncWriteQueue(LoggingRpc rpc, AsyncWriteSettings settings,
+      ScheduledExecutorService executor) {
+    this.rpc = rpc;
+    this.settings = settings;
+    this.executor = executor;
+  }
+
+  /**
+   * Adds the entries of {@code request} to the queue, unless they are dropped because the buffer
+   * is full.
+   */
+  void add(WriteLogEntriesRequest request) {
+    int entryCount = request.getEntriesCount();
+    if (entryCount == 0) {
+      return;
+    }
+    if (!reserve(entryCount)) {
+      droppedEntries.addAndGet(entryCount);
+      return;
+    }
+    queue.add(request);
+    int entries = queuedEntries.addAndGet(entryCount);
+    long bytes = queuedBytes.addAndGet(request.getSerializedSize());
+    if (entries >= settings.getMaxBatchEntryCount() || bytes >= settings.getMaxBatchBytes()) {
+      if (drainScheduled.compareAndSet(false, true)) {
+        executor.execute(drainTask);
+      }
+    } else if (delayedDrainScheduled.compareAndSet(false, true)) {
+      executor.schedule(delayedDrainTask, settings.getMaxBatchDelay().toNanos(),
+          TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Sends all queued entries. The returned future completes once all entries added so far have
+   * been written.
+   */
+  ApiFuture<List<WriteLogEntriesResponse>> flush() {
+    drain();
+    return ApiFutures.allAsList(new ArrayList<>(pendingWrites));
+  }
+
+  /**
+   * Returns the number of entries that were dropped because the buffer was full.
+   */
+  long getDroppedEntryCount() {
+    return droppedEntries.get();
+  }
+
+  /**
+   * Sends all queued entries and waits up to 30 seconds for them to be written, then stops the
+   * queue.
+   */
+  void close() throws InterruptedException {
+    close(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  void close(long timeout, TimeUnit unit) throws InterruptedException {
+    try {
+      flush().get(timeout, unit);
+    } catch (ExecutionException ex) {
+      // Failed writes were already reported by their callbacks.
+    } catch (TimeoutException ex) {
+      // Don't hold up the shutdown for a write that doesn't complete.
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private boolean reserve(int entryCount) {
+    switch (settings.getOverflowBehavior()) {
+      case DROP_NEWEST:
+        return tryReserve(entryCount);
+      case DROP_OLDEST:
+        while (!tryReserve(entryCount)) {
+          WriteLogEntriesRequest oldest = queue.poll();
+          if (oldest == null) {
+            return false;
+          }
+          dequeued(oldest);
+          bufferedEntries.addAndGet(-oldest.getEntriesCount());
+          droppedEntries.addAndGet(oldest.getEntriesCount());
+        }
+        return true;
+      case BLOCK:
+      default:
+        if (!tryReserve(entryCount)) {
+          synchronized (capacityLock) {
+            while (!tryReserve(entryCount)) {
+              try {
+                capacityLock.wait();
+              } catch (InterruptedException ex) {
+                // Stop waiting, the entries are dropped.
+                Thread.currentThread().interrupt();
+                return false;
+              }
+            }
+          }
+        }
+        return true;
+    }
+  }
+
+  private boolean tryReserve(int entryCount) {
+    while (true) {
+      int current = bufferedEntries.get();
+      // A write larger than the whole buffer is accepted once the buffer is empty.
+      if (current > 0 && current + entryCount > settings.getMaxBufferedEntryCount()) {
+        return false;
+      }
+      if (bufferedEntries.compareAndSet(current, current + entryCount)) {
+        return true;
+      }
+    }
+  }
+
+  private void release(int entryCount) {
+    bufferedEntries.addAndGet(-entryCount);
+    if (settings.getOverflowBehavior() == AsyncWriteSettings.OverflowBehavior.BLOCK) {
+      synchronized (capacityLock) {
+        capacityLock.notifyAll();
+      }
+    }
+  }
+
+  private void dequeued(WriteLogEntriesRequest request) {
+    queuedEntries.addAndGet(-request.getEntriesCount());
+    queuedBytes.addAndGet(-request.getSerializedSize());
+  }
+
+  /** The entries of one request being assembled from queued requests. */
+  private static final class Batch {
+
+    private final WriteLogEntriesRequest.Builder requestBuilder;
+    private long bytes;
+
+    Batch(WriteLogEntriesRequest request) {
+      requestBuilder = request.toBuilder();
+      bytes = request.getSerializedSize();
+    }
+  }
+
+  /**
+   * Sends the entries that were queued when the drain started. Entries added while draining are
+   * left to the drain that their write scheduled, so a steady stream of writes cannot keep a drain
+   * running forever.
+   */
+  private void drain() {
+    synchronized (drainLock) {
+      Map<List<Object>, Batch> batches = new LinkedHashMap<>();
+      int remainingEntries = queuedEntries.get();
+      WriteLogEntriesRequest request;
+      while (remainingEntries > 0 && (request = queue.poll()) != null) {
+        dequeued(request);
+        remainingEntries -= request.getEntriesCount();
+        List<Object> key = Arrays.<Object>asList(
+            request.getLogName(), request.getResource(), request.getLabelsMap());
+        Batch batch = batches.get(key);
+        if (batch != null
+            && (batch.requestBuilder.getEntriesCount() + request.getEntriesCount()
+                    > settings.getMaxBatchEntryCount()
+                || batch.bytes + request.getSerializedSize() > settings.getMaxBatchBytes())) {
+          send(batch.requestBuilder.build());
+          batch = null;
+        }
+        if (batch == null) {
+          batches.put(key, new Batch(request));
+        } else {
+          batch.requestBuilder.addAllEntries(request.getEntriesList());
+          batch.bytes += request.getSerializedSize();
+        }
+      }
+      for (Batch batch : batches.values()) {
+        send(batch.requestBuilder.build());
+      }
+    }
+  }
+
+  /**
+   * Sends {@code request}. Its entries are released once the write completes. A write that fails
+   * to start is reported like a failed write, so the remaining batches of the drain are still sent.
+   */
+  private void send(WriteLogEntriesRequest request) {
+    final int entryCount = request.getEntriesCount();
+    ApiFuture<WriteLogEntriesResponse> future;
+    try {
+      future = rpc.write(request);
+    } catch (RuntimeException ex) {
+      future = ApiFutures.immediateFailedFuture(ex);
+    }
+    final ApiFuture<WriteLogEntriesResponse> writeFuture = future;
+    pendingWrites.add(writeFuture);
+    ApiFutures.addCallback(
+        writeFuture,
+        new ApiFutureCallback<WriteLogEntriesResponse>() {
+          private void removeFromPending() {
+            pendingWrites.remove(writeFuture);
+            release(entryCount);
+          }
+
+          @Override
+          public void onSuccess(WriteLogEntriesResponse response) {
+            removeFromPending();
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            try {
+              Exception ex = t instanceof Exception ? (Exception) t : new Exception(t);
+              throw new RuntimeException(ex);
+            } finally {
+              removeFromPending();
+            }
+          }
+        });
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.logging;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.MoreObjects;
+
+import java.io.Serializable;
+import java.util.Objects;
+import org.threeten.bp.Duration;
+
+/**
+ * Settings for asynchronous writes (see {@link Synchronicity#ASYNC}). Asynchronously written log
+ * entries are buffered and sent to the Stackdriver Logging service in batches. A batch is sent as
+ * soon as it holds {@link #getMaxBatchEntryCount()} entries or {@link #getMaxBatchBytes()} bytes,
+ * or {@link #getMaxBatchDelay()} after its first entry was written. At most {@link
+ * #getMaxBufferedEntryCount()} entries are buffered or being sent at any time; what happens to
+ * writes beyond that is set by {@link #getOverflowBehavior()}.
+ */
+public final class AsyncWriteSettings implements Serializable {
+
+  private static final long serialVersionUID = -3526917352419428346L;
+
+  private final int maxBatchEntryCount;
+  private final long maxBatchBytes;
+  private final Duration maxBatchDelay;
+  private final int maxBufferedEntryCount;
+  private final OverflowBehavior overflowBehavior;
+
+  /**
+   * What to do with asynchronously written entries that do not fit in the buffer.
+   */
+  public enum OverflowBehavior {
+    /**
+     * The write call blocks until enough buffered entries have been sent. If the writing thread is
+     * interrupted while it waits, the new entries are dropped.
+     */
+    BLOCK,
+
+    /**
+     * The oldest entries that have not been sent yet are dropped to make room for the new ones.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The new entries are dropped.
+     */
+    DROP_NEWEST
+  }
+
+  /**
+   * A builder for {@code AsyncWriteSettings} objects.
+   */
+  public static final class Builder {
+
+    private int maxBatchEntryCount = 1000;
+    private long maxBatchBytes = 1024 * 1024;
+    private Duration maxBatchDelay = Duration.ofMillis(50);
+    private int maxBufferedEntryCount = 100000;
+    private OverflowBehavior overflowBehavior = OverflowBehavior.DROP_OLDEST;
+
+    Builder() {
+    }
+
+    Builder(AsyncWriteSettings settings) {
+      this.maxBatchEntryCount = settings.maxBatchEntryCount;
+      this.maxBatchBytes = settings.maxBatchBytes;
+      this.maxBatchDelay = settings.maxBatchDelay;
+      this.maxBufferedEntryCount = settings.maxBufferedEntryCount;
+      this.overflowBehavior = settings.overflowBehavior;
+    }
+
+    /**
+     * Sets the maximum number of entries sent in one request. Defaults to 1000.
+     */
+    public Builder setMaxBatchEntryCount(int maxBatchEntryCount) {
+      checkArgument(maxBatchEntryCount > 0, "maxBatchEntryCount must be positive");
+      this.maxBatchEntryCount = maxBatchEntryCount;
+      return this;
+    }
+
+    /**
+     * Sets the size in bytes at which a batch is sent. Defaults to 1 MiB.
+     */
+    public Builder setMaxBatchBytes(long maxBatchBytes) {
+      checkArgument(maxBatchBytes > 0, "maxBatchBytes must be positive");
+      this.maxBatchBytes = maxBatchBytes;
+      return this;
+    }
+
+    /**
+     * Sets how long an entry may wait for its batch to fill up before the batch is sent. Defaults
+     * to 50 milliseconds.
+     */
+    public Builder setMaxBatchDelay(Duration maxBatchDelay) {
+      checkArgument(!maxBatchDelay.isNegative(), "maxBatchDelay must not be negative");
+      this.maxBatchDelay = maxBatchDelay;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of entries that are buffered or being sent. Defaults to 100000.
+     */
+    public Builder setMaxBufferedEntryCount(int maxBufferedEntryCount) {
+      checkArgument(maxBufferedEntryCount > 0, "maxBufferedEntryCount must be positive");
+      this.maxBufferedEntryCount = maxBufferedEntryCount;
+      return this;
+    }
+
+    /**
+     * Sets what happens to entries that do not fit in the buffer. Defaults to {@link
+     * OverflowBehavior#DROP_OLDEST}, so that writes, such as those of {@link LoggingHandler}, never
+     * block.
+     */
+    public Builder setOverflowBehavior(OverflowBehavior overflowBehavior) {
+      this.overflowBehavior = checkNotNull(overflowBehavior);
+      return this;
+    }
+
+    public AsyncWriteSettings build() {
+      return new AsyncWriteSettings(this);
+    }
+  }
+
+  AsyncWriteSettings(Builder builder) {
+    this.maxBatchEntryCount = builder.maxBatchEntryCount;
+    this.maxBatchBytes = builder.maxBatchBytes;
+    this.maxBatchDelay = builder.maxBatchDelay;
+    this.maxBufferedEntryCount = builder.maxBufferedEntryCount;
+    this.overflowBehavior = builder.overflowBehavior;
+  }
+
+  /**
+   * Returns the maximum number of entries sent in one request.
+   */
+  public int getMaxBatchEntryCount() {
+    return maxBatchEntryCount;
+  }
+
+  /**
+   * Returns the size in bytes at which a batch is sent.
+   */
+  public long getMaxBatchBytes() {
+    return maxBatchBytes;
+  }
+
+  /**
+   * Returns how long an entry may wait for its batch to fill up before the batch is sent.
+   */
+  public Duration getMaxBatchDelay() {
+    return maxBatchDelay;
+  }
+
+  /**
+   * Returns the maximum number of entries that are buffered or being sent.
+   */
+  public int getMaxBufferedEntryCount() {
+    return maxBufferedEntryCount;
+  }
+
+  /**
+   * Returns what happens to entries that do not fit in the buffer.
+   */
+  public OverflowBehavior getOverflowBehavior() {
+    return overflowBehavior;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof AsyncWriteSettings)) {
+      return false;
+    }
+    AsyncWriteSettings other = (AsyncWriteSettings) obj;
+    return maxBatchEntryCount == other.maxBatchEntryCount
+        && maxBatchBytes == other.maxBatchBytes
+        && Objects.equals(maxBatchDelay, other.maxBatchDelay)
+        && maxBufferedEntryCount == other.maxBufferedEntryCount
+        && overflowBehavior == other.overflowBehavior;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(maxBatchEntryCount, maxBatchBytes, maxBatchDelay, maxBufferedEntryCount,
+        overflowBehavior);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("maxBatchEntryCount", maxBatchEntryCount)
+        .add("maxBatchBytes", maxBatchBytes)
+        .add("maxBatchDelay", maxBatchDelay)
+        .add("maxBufferedEntryCount", maxBufferedEntryCount)
+        .add("overflowBehavior", overflowBehavior)
+        .toString();
+  }
+
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+}
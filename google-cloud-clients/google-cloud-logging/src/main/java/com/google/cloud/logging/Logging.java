@@ -662,8 +662,8 @@ public interface Logging extends AutoCloseable, Service<LoggingOptions> {
 
   /**
    * Flushes any pending asynchronous logging writes.
-   * Logs are automatically flushed based on time and message count that be configured via
-   * {@link com.google.api.gax.batching.BatchingSettings},
+   * Logs are automatically flushed based on time, message count and size that can be configured
+   * via {@link LoggingOptions.Builder#setAsyncWriteSettings(AsyncWriteSettings)}.
    * Logs are also flushed if at or above flush severity, see {@link #setFlushSeverity}.
    * Logging frameworks require support for an explicit flush.
    * See usage in the java.util.logging handler{@link LoggingHandler}.
@@ -27,7 +27,6 @@ import static com.google.cloud.logging.Logging.WriteOption.OptionType.RESOURCE;
 
 import com.google.api.core.ApiFunction;
 import com.google.api.core.ApiFuture;
-import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
 import com.google.api.gax.paging.AsyncPage;
 import com.google.api.gax.paging.Page;
@@ -68,20 +67,14 @@ import com.google.logging.v2.UpdateSinkRequest;
 import com.google.logging.v2.WriteLogEntriesRequest;
 import com.google.logging.v2.WriteLogEntriesResponse;
 import com.google.protobuf.Empty;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
-class LoggingImpl extends BaseService<LoggingOptions> implements Logging {
+class LoggingImpl extends BaseService<LoggingOptions> implements AsyncLogging {
 
   private final LoggingRpc rpc;
-  private final Object writeLock = new Object();
-  private final Set<ApiFuture<Void>> pendingWrites =
-      Collections.newSetFromMap(new IdentityHashMap<ApiFuture<Void>, Boolean>());
+  private volatile AsyncWriteQueue writeQueue;
 
   private volatile Synchronicity writeSynchronicity = Synchronicity.ASYNC;
   private volatile Severity flushSeverity = Severity.ERROR;
@@ -124,6 +117,26 @@ class LoggingImpl extends BaseService<LoggingOptions> implements Logging {
     return flushSeverity;
   }
 
+  @Override
+  public long getDroppedEntryCount() {
+    AsyncWriteQueue queue = writeQueue;
+    return queue == null ? 0 : queue.getDroppedEntryCount();
+  }
+
+  private AsyncWriteQueue getWriteQueue() {
+    AsyncWriteQueue queue = writeQueue;
+    if (queue == null) {
+      synchronized (this) {
+        queue = writeQueue;
+        if (queue == null) {
+          queue = new AsyncWriteQueue(rpc, getOptions().getAsyncWriteSettings());
+          writeQueue = queue;
+        }
+      }
+    }
+    return queue;
+  }
+
   private static <V> V get(ApiFuture<V> future) {
     try {
       return Uninterruptibles.getUninterruptibly(future);
@@ -533,17 +546,14 @@ class LoggingImpl extends BaseService<LoggingOptions> implements Logging {
   }
 
   public void flush() {
-    // BUG(1795): We should force batcher to issue RPC call for buffered messages,
-    // so the code below doesn't wait uselessly.
-    ArrayList<ApiFuture<Void>> writesToFlush = new ArrayList<>();
-    synchronized (writeLock) {
-      writesToFlush.addAll(pendingWrites);
+    AsyncWriteQueue queue = writeQueue;
+    if (queue == null) {
+      return;
     }
-
-   try {
-      ApiFutures.allAsList(writesToFlush).get();
+    try {
+      queue.flush().get();
     } catch (InterruptedException|ExecutionException e) {
-       throw new RuntimeException(e);
+      throw new RuntimeException(e);
     }
   }
 
@@ -556,34 +566,8 @@ class LoggingImpl extends BaseService<LoggingOptions> implements Logging {
 
       case ASYNC:
       default:
-        final ApiFuture<Void> writeFuture = writeAsync(logEntries, writeOptions);
-        ApiFutures.addCallback(
-            writeFuture,
-            new ApiFutureCallback<Void>() {
-              private void removeFromPending() {
-                synchronized (writeLock) {
-                  pendingWrites.remove(writeFuture);
-                }
-              }
-
-              @Override
-              public void onSuccess(Void v) {
-                removeFromPending();
-              }
-
-              @Override
-              public void onFailure(Throwable t) {
-                try {
-                  Exception ex = t instanceof Exception ? (Exception) t : new Exception(t);
-                  throw new RuntimeException(ex);
-                } finally {
-                  removeFromPending();
-                }
-              }
-            });
-        synchronized (writeLock) {
-          pendingWrites.add(writeFuture);
-        }
+        getWriteQueue().add(
+            writeLogEntriesRequest(getOptions(), logEntries, optionMap(writeOptions)));
         break;
     }
   }
@@ -652,6 +636,9 @@ class LoggingImpl extends BaseService<LoggingOptions> implements Logging {
       return;
     }
     closed = true;
+    if (writeQueue != null) {
+      writeQueue.close();
+    }
     rpc.close();
   }
 
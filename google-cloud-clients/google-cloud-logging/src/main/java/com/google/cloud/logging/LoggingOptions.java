@@ -16,6 +16,8 @@
 
 package com.google.cloud.logging;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import com.google.api.core.InternalApi;
 import com.google.cloud.grpc.GrpcTransportOptions;
 import com.google.cloud.ServiceDefaults;
@@ -28,6 +30,7 @@ import com.google.cloud.logging.spi.LoggingRpcFactory;
 import com.google.cloud.logging.v2.LoggingSettings;
 import com.google.common.collect.ImmutableSet;
 import java.io.IOException;
+import java.util.Objects;
 import java.util.Set;
 
 public class LoggingOptions extends ServiceOptions<Logging, LoggingOptions> {
@@ -38,6 +41,8 @@ public class LoggingOptions extends ServiceOptions<Logging, LoggingOptions> {
   private static final String DEFAULT_HOST = LoggingSettings.getDefaultEndpoint();
   private static final long serialVersionUID = 5753499510627426717L;
 
+  private final AsyncWriteSettings asyncWriteSettings;
+
   public static class DefaultLoggingFactory implements LoggingFactory {
     private static final LoggingFactory INSTANCE = new DefaultLoggingFactory();
 
@@ -76,10 +81,23 @@ public class LoggingOptions extends ServiceOptions<Logging, LoggingOptions> {
   public static class Builder extends
       ServiceOptions.Builder<Logging, LoggingOptions, Builder> {
 
+    private AsyncWriteSettings asyncWriteSettings = AsyncWriteSettings.newBuilder().build();
+
     private Builder() {}
 
     private Builder(LoggingOptions options) {
       super(options);
+      asyncWriteSettings = options.asyncWriteSettings;
+    }
+
+    /**
+     * Sets the batching and buffering settings of asynchronous writes.
+     *
+     * @see Synchronicity#ASYNC
+     */
+    public Builder setAsyncWriteSettings(AsyncWriteSettings asyncWriteSettings) {
+      this.asyncWriteSettings = checkNotNull(asyncWriteSettings);
+      return this;
     }
 
     @Override
@@ -100,6 +118,7 @@ public class LoggingOptions extends ServiceOptions<Logging, LoggingOptions> {
   @InternalApi("This class should only be extended within google-cloud-java")
   protected LoggingOptions(Builder builder) {
     super(LoggingFactory.class, LoggingRpcFactory.class, builder, new LoggingDefaults());
+    asyncWriteSettings = builder.asyncWriteSettings;
   }
 
   private static class LoggingDefaults implements
@@ -130,18 +149,29 @@ public class LoggingOptions extends ServiceOptions<Logging, LoggingOptions> {
     return SCOPES;
   }
 
+  /**
+   * Returns the batching and buffering settings of asynchronous writes.
+   */
+  public AsyncWriteSettings getAsyncWriteSettings() {
+    return asyncWriteSettings;
+  }
+
   protected LoggingRpc getLoggingRpcV2() {
     return (LoggingRpc) getRpc();
   }
 
   @Override
   public boolean equals(Object obj) {
-    return obj instanceof LoggingOptions && baseEquals((LoggingOptions) obj);
+    if (!(obj instanceof LoggingOptions)) {
+      return false;
+    }
+    LoggingOptions other = (LoggingOptions) obj;
+    return baseEquals(other) && asyncWriteSettings.equals(other.asyncWriteSettings);
   }
 
   @Override
   public int hashCode() {
-    return baseHashCode();
+    return Objects.hash(baseHashCode(), asyncWriteSettings);
   }
 
   @SuppressWarnings("unchecked")
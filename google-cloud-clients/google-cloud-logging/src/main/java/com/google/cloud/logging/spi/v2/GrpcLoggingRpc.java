@@ -143,6 +143,8 @@ public class GrpcLoggingRpc implements LoggingRpc {
 
       // TODO(pongad): Take advantage of https://github.com/googleapis/gax-java/pull/452 when it's
       // released.
+      // Asynchronous writes are batched by LoggingImpl, so requests are sent as soon as they are
+      // issued instead of waiting to be merged again.
       BatchingSettings oldBatchSettings =
           logBuilder.writeLogEntriesSettings().getBatchingSettings();
       logBuilder
@@ -150,6 +152,7 @@ public class GrpcLoggingRpc implements LoggingRpc {
           .setBatchingSettings(
               oldBatchSettings
                   .toBuilder()
+                  .setElementCountThreshold(1L)
                   .setFlowControlSettings(
                       oldBatchSettings
                           .getFlowControlSettings()
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.logging.AsyncWriteSettings.OverflowBehavior;
+import com.google.cloud.logging.spi.v2.LoggingRpc;
+import com.google.logging.v2.WriteLogEntriesRequest;
+import com.google.logging.v2.WriteLogEntriesResponse;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+public class AsyncWriteQueueTest {
+
+  private static final String LOG_NAME1 = "projects/project/logs/log1";
+  private static final String LOG_NAME2 = "projects/project/logs/log2";
+  private static final WriteLogEntriesResponse RESPONSE =
+      WriteLogEntriesResponse.getDefaultInstance();
+
+  private LoggingRpc rpcMock;
+  private ScheduledExecutorService executorMock;
+
+  @Before
+  public void setUp() {
+    rpcMock = EasyMock.createStrictMock(LoggingRpc.class);
+    executorMock = EasyMock.createNiceMock(ScheduledExecutorService.class);
+  }
+
+  @After
+  public void tearDown() {
+    EasyMock.verify(rpcMock);
+  }
+
+  private static WriteLogEntriesRequest request(String logName, String... payloads) {
+    WriteLogEntriesRequest.Builder builder = WriteLogEntriesRequest.newBuilder();
+    builder.setLogName(logName);
+    for (String payload : payloads) {
+      builder.addEntries(com.google.logging.v2.LogEntry.newBuilder().setTextPayload(payload));
+    }
+    return builder.build();
+  }
+
+  private AsyncWriteQueue queue(AsyncWriteSettings.Builder settings) {
+    EasyMock.replay(rpcMock, executorMock);
+    return new AsyncWriteQueue(rpcMock, settings.build(), executorMock);
+  }
+
+  @Test
+  public void testFlushMergesRequestsByLog() throws Exception {
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "a", "b", "d")))
+        .andReturn(ApiFutures.immediateFuture(RESPONSE));
+    EasyMock.expect(rpcMock.write(request(LOG_NAME2, "c")))
+        .andReturn(ApiFutures.immediateFuture(RESPONSE));
+    AsyncWriteQueue queue = queue(AsyncWriteSettings.newBuilder());
+    queue.add(request(LOG_NAME1, "a", "b"));
+    queue.add(request(LOG_NAME2, "c"));
+    queue.add(request(LOG_NAME1, "d"));
+    queue.flush().get();
+  }
+
+  @Test
+  public void testFlushSplitsBatchesByEntryCount() throws Exception {
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "a", "b")))
+        .andReturn(ApiFutures.immediateFuture(RESPONSE));
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "c")))
+        .andReturn(ApiFutures.immediateFuture(RESPONSE));
+    AsyncWriteQueue queue = queue(AsyncWriteSettings.newBuilder().setMaxBatchEntryCount(2));
+    queue.add(request(LOG_NAME1, "a"));
+    queue.add(request(LOG_NAME1, "b"));
+    queue.add(request(LOG_NAME1, "c"));
+    queue.flush().get();
+  }
+
+  @Test
+  public void testFullBatchIsSentWithoutDelay() throws Exception {
+    Capture<Runnable> delayedDrain = Capture.newInstance();
+    Capture<Runnable> drain = Capture.newInstance();
+    EasyMock.expect(executorMock.schedule(EasyMock.capture(delayedDrain),
+        EasyMock.eq(TimeUnit.SECONDS.toNanos(10)), EasyMock.eq(TimeUnit.NANOSECONDS)))
+        .andReturn(null);
+    executorMock.execute(EasyMock.capture(drain));
+    EasyMock.expectLastCall();
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "a", "b")))
+        .andReturn(ApiFutures.immediateFuture(RESPONSE));
+    AsyncWriteQueue queue = queue(AsyncWriteSettings.newBuilder()
+        .setMaxBatchEntryCount(2)
+        .setMaxBatchDelay(Duration.ofSeconds(10)));
+    queue.add(request(LOG_NAME1, "a"));
+    assertTrue(delayedDrain.hasCaptured());
+    assertFalse(drain.hasCaptured());
+    queue.add(request(LOG_NAME1, "b"));
+    drain.getValue().run();
+    // Nothing is left for the delayed drain to send.
+    delayedDrain.getValue().run();
+    EasyMock.verify(executorMock);
+  }
+
+  @Test
+  public void testDrainOnlySendsEntriesQueuedWhenItStarted() throws Exception {
+    final AtomicReference<AsyncWriteQueue> queueRef = new AtomicReference<>();
+    final AtomicBoolean firstFlushDone = new AtomicBoolean();
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "a")))
+        .andAnswer(new IAnswer<ApiFuture<WriteLogEntriesResponse>>() {
+          @Override
+          public ApiFuture<WriteLogEntriesResponse> answer() {
+            queueRef.get().add(request(LOG_NAME1, "c"));
+            return ApiFutures.immediateFuture(RESPONSE);
+          }
+        });
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "b")))
+        .andReturn(ApiFutures.immediateFuture(RESPONSE));
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "c")))
+        .andAnswer(new IAnswer<ApiFuture<WriteLogEntriesResponse>>() {
+          @Override
+          public ApiFuture<WriteLogEntriesResponse> answer() {
+            assertTrue(firstFlushDone.get());
+            return ApiFutures.immediateFuture(RESPONSE);
+          }
+        });
+    AsyncWriteQueue queue = queue(AsyncWriteSettings.newBuilder().setMaxBatchEntryCount(1));
+    queueRef.set(queue);
+    queue.add(request(LOG_NAME1, "a"));
+    queue.add(request(LOG_NAME1, "b"));
+    queue.flush().get();
+    firstFlushDone.set(true);
+    queue.flush().get();
+  }
+
+  @Test
+  public void testFailedSendReleasesEntries() throws Exception {
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "a")))
+        .andThrow(new IllegalStateException("Channel shut down"));
+    EasyMock.expect(rpcMock.write(request(LOG_NAME2, "b")))
+        .andReturn(ApiFutures.immediateFuture(RESPONSE));
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "c", "d")))
+        .andReturn(ApiFutures.immediateFuture(RESPONSE));
+    AsyncWriteQueue queue = queue(AsyncWriteSettings.newBuilder()
+        .setMaxBufferedEntryCount(2)
+        .setOverflowBehavior(OverflowBehavior.DROP_NEWEST));
+    queue.add(request(LOG_NAME1, "a"));
+    queue.add(request(LOG_NAME2, "b"));
+    queue.flush();
+    // Both batches were released, the failed one included.
+    queue.add(request(LOG_NAME1, "c", "d"));
+    assertEquals(0, queue.getDroppedEntryCount());
+    queue.flush().get();
+  }
+
+  @Test
+  public void testDropNewest() throws Exception {
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "a", "b")))
+        .andReturn(ApiFutures.immediateFuture(RESPONSE));
+    AsyncWriteQueue queue = queue(AsyncWriteSettings.newBuilder()
+        .setMaxBufferedEntryCount(2)
+        .setOverflowBehavior(OverflowBehavior.DROP_NEWEST));
+    queue.add(request(LOG_NAME1, "a"));
+    queue.add(request(LOG_NAME1, "b"));
+    queue.add(request(LOG_NAME1, "c"));
+    assertEquals(1, queue.getDroppedEntryCount());
+    queue.flush().get();
+  }
+
+  @Test
+  public void testDropOldest() throws Exception {
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "b", "c")))
+        .andReturn(ApiFutures.immediateFuture(RESPONSE));
+    AsyncWriteQueue queue = queue(AsyncWriteSettings.newBuilder()
+        .setMaxBufferedEntryCount(2)
+        .setOverflowBehavior(OverflowBehavior.DROP_OLDEST));
+    queue.add(request(LOG_NAME1, "a"));
+    queue.add(request(LOG_NAME1, "b"));
+    queue.add(request(LOG_NAME1, "c"));
+    assertEquals(1, queue.getDroppedEntryCount());
+    queue.flush().get();
+  }
+
+  @Test
+  public void testEntriesBeingSentAreNotDropped() throws Exception {
+    SettableApiFuture<WriteLogEntriesResponse> response = SettableApiFuture.create();
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "a", "b"))).andReturn(response);
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "d")))
+        .andReturn(ApiFutures.immediateFuture(RESPONSE));
+    AsyncWriteQueue queue = queue(AsyncWriteSettings.newBuilder()
+        .setMaxBufferedEntryCount(2)
+        .setOverflowBehavior(OverflowBehavior.DROP_OLDEST));
+    queue.add(request(LOG_NAME1, "a", "b"));
+    queue.flush();
+    queue.add(request(LOG_NAME1, "c"));
+    assertEquals(1, queue.getDroppedEntryCount());
+    response.set(RESPONSE);
+    queue.add(request(LOG_NAME1, "d"));
+    queue.flush().get();
+    assertEquals(1, queue.getDroppedEntryCount());
+  }
+
+  @Test
+  public void testBlockWaitsForBufferSpace() throws Exception {
+    SettableApiFuture<WriteLogEntriesResponse> response = SettableApiFuture.create();
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "a"))).andReturn(response);
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "b")))
+        .andReturn(ApiFutures.immediateFuture(RESPONSE));
+    final AsyncWriteQueue queue = queue(AsyncWriteSettings.newBuilder()
+        .setMaxBufferedEntryCount(1)
+        .setOverflowBehavior(OverflowBehavior.BLOCK));
+    queue.add(request(LOG_NAME1, "a"));
+    queue.flush();
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        queue.add(request(LOG_NAME1, "b"));
+      }
+    });
+    writer.start();
+
+    // The writer should be waiting for the first write to complete.
+    writer.join(500);
+    assertTrue(writer.isAlive());
+
+    response.set(RESPONSE);
+    writer.join(1000);
+    assertFalse(writer.isAlive());
+    queue.flush().get();
+    assertEquals(0, queue.getDroppedEntryCount());
+  }
+
+  @Test
+  public void testBlockStopsWaitingWhenInterrupted() throws Exception {
+    SettableApiFuture<WriteLogEntriesResponse> response = SettableApiFuture.create();
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "a"))).andReturn(response);
+    final AsyncWriteQueue queue = queue(AsyncWriteSettings.newBuilder()
+        .setMaxBufferedEntryCount(1)
+        .setOverflowBehavior(OverflowBehavior.BLOCK));
+    queue.add(request(LOG_NAME1, "a"));
+    queue.flush();
+    final AtomicBoolean interrupted = new AtomicBoolean();
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        queue.add(request(LOG_NAME1, "b"));
+        interrupted.set(Thread.currentThread().isInterrupted());
+      }
+    });
+    writer.start();
+    writer.join(500);
+    assertTrue(writer.isAlive());
+
+    writer.interrupt();
+    writer.join(1000);
+    assertFalse(writer.isAlive());
+    assertTrue(interrupted.get());
+    assertEquals(1, queue.getDroppedEntryCount());
+    response.set(RESPONSE);
+    queue.flush().get();
+  }
+
+  @Test
+  public void testCloseStopsWaitingAfterTimeout() throws Exception {
+    SettableApiFuture<WriteLogEntriesResponse> response = SettableApiFuture.create();
+    EasyMock.expect(rpcMock.write(request(LOG_NAME1, "a"))).andReturn(response);
+    AsyncWriteQueue queue = queue(AsyncWriteSettings.newBuilder());
+    queue.add(request(LOG_NAME1, "a"));
+    // The write never completes.
+    queue.close(10, TimeUnit.MILLISECONDS);
+    assertFalse(response.isDone());
+  }
+}
@@ -72,6 +72,7 @@ import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -1155,6 +1156,7 @@ public class LoggingImplTest {
     EasyMock.replay(rpcFactoryMock, loggingRpcMock);
     logging = options.getService();
     logging.write(ImmutableList.of(LOG_ENTRY1, LOG_ENTRY2));
+    logging.flush();
   }
 
   @Test
@@ -1173,6 +1175,7 @@ public class LoggingImplTest {
     logging = options.getService();
     logging.write(ImmutableList.of(LOG_ENTRY1, LOG_ENTRY2), WriteOption.logName(LOG_NAME),
         WriteOption.resource(MONITORED_RESOURCE), WriteOption.labels(labels));
+    logging.flush();
   }
 
   @Test
@@ -1452,17 +1455,29 @@ public class LoggingImplTest {
 
   @Test
   public void testFlushStress() throws InterruptedException {
-    SettableApiFuture<WriteLogEntriesResponse> mockRpcResponse = SettableApiFuture.create();
+    final SettableApiFuture<WriteLogEntriesResponse> mockRpcResponse = SettableApiFuture.create();
     mockRpcResponse.set(null);
     replay(rpcFactoryMock);
     logging = options.getService();
-    WriteLogEntriesRequest request = WriteLogEntriesRequest.newBuilder()
-        .addAllEntries(Iterables.transform(ImmutableList.of(LOG_ENTRY1),
-            LogEntry.toPbFunction(PROJECT)))
-        .build();
+    final com.google.logging.v2.LogEntry entryPb = LOG_ENTRY1.toPb(PROJECT);
 
+    // Concurrent writes may be merged into fewer requests.
     Thread[] threads = new Thread[100];
-    EasyMock.expect(loggingRpcMock.write(request)).andReturn(mockRpcResponse).times(threads.length);
+    final AtomicInteger writtenEntries = new AtomicInteger(0);
+    EasyMock.expect(loggingRpcMock.write(EasyMock.anyObject(WriteLogEntriesRequest.class)))
+        .andAnswer(new IAnswer<ApiFuture<WriteLogEntriesResponse>>() {
+          @Override
+          public ApiFuture<WriteLogEntriesResponse> answer() {
+            WriteLogEntriesRequest request =
+                (WriteLogEntriesRequest) EasyMock.getCurrentArguments()[0];
+            for (com.google.logging.v2.LogEntry entry : request.getEntriesList()) {
+              assertEquals(entryPb, entry);
+            }
+            writtenEntries.addAndGet(request.getEntriesCount());
+            return mockRpcResponse;
+          }
+        })
+        .times(1, threads.length);
     EasyMock.replay(loggingRpcMock);
 
     // log and flush concurrently in many threads to trigger a ConcurrentModificationException
@@ -1485,6 +1500,24 @@ public class LoggingImplTest {
       threads[i].join();
     }
     assertSame(0, exceptions.get());
+    assertEquals(threads.length, writtenEntries.get());
+  }
+
+  @Test
+  public void testWriteLogEntriesAsyncBatching() {
+    WriteLogEntriesRequest request = WriteLogEntriesRequest.newBuilder()
+        .setLogName(LOG_NAME_PB)
+        .addAllEntries(Iterables.transform(ImmutableList.of(LOG_ENTRY1, LOG_ENTRY2, LOG_ENTRY1),
+            LogEntry.toPbFunction(PROJECT)))
+        .build();
+    WriteLogEntriesResponse response = WriteLogEntriesResponse.newBuilder().build();
+    EasyMock.expect(loggingRpcMock.write(request)).andReturn(ApiFutures.immediateFuture(response));
+    EasyMock.replay(rpcFactoryMock, loggingRpcMock);
+    logging = options.getService();
+    logging.write(ImmutableList.of(LOG_ENTRY1, LOG_ENTRY2), WriteOption.logName(LOG_NAME));
+    logging.write(ImmutableList.of(LOG_ENTRY1), WriteOption.logName(LOG_NAME));
+    logging.flush();
+    assertEquals(0, ((AsyncLogging) logging).getDroppedEntryCount());
   }
 
 }
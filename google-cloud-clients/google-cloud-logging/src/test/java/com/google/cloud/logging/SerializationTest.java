@@ -82,15 +82,21 @@ public class SerializationTest extends BaseSerializationTest {
   @Override
   protected Serializable[] serializableObjects() {
     GrpcTransportOptions transportOptions = LoggingOptions.getDefaultGrpcTransportOptions();
+    AsyncWriteSettings asyncWriteSettings = AsyncWriteSettings.newBuilder()
+        .setMaxBatchEntryCount(100)
+        .setOverflowBehavior(AsyncWriteSettings.OverflowBehavior.BLOCK)
+        .build();
     LoggingOptions options = LoggingOptions.newBuilder()
         .setProjectId("p1")
         .setTransportOptions(transportOptions)
+        .setAsyncWriteSettings(asyncWriteSettings)
         .build();
-    return new Serializable[]{options, HTTP_REQUEST, OPERATION, STRING_PAYLOAD, JSON_PAYLOAD,
-        PROTO_PAYLOAD, ENTRY, METRIC_INFO, METRIC, BUCKET_DESTINATION, DATASET_DESTINATION,
-        TOPIC_DESTINATION, SINK_INFO, SINK, PAGE_TOKEN_OPTION, PAGE_SIZE_OPTION, LABELS_OPTION,
-        LOG_OPTION, RESOURCE_OPTION, ENTRY_PAGE_TOKEN_OPTION, ENTRY_PAGE_SIZE_OPTION,
-        ENTRY_FILTER_OPTION, ENTRY_SORT_ORDER_OPTION};
+    return new Serializable[]{options, asyncWriteSettings, HTTP_REQUEST, OPERATION,
+        STRING_PAYLOAD, JSON_PAYLOAD, PROTO_PAYLOAD, ENTRY, METRIC_INFO, METRIC,
+        BUCKET_DESTINATION, DATASET_DESTINATION, TOPIC_DESTINATION, SINK_INFO, SINK,
+        PAGE_TOKEN_OPTION, PAGE_SIZE_OPTION, LABELS_OPTION, LOG_OPTION, RESOURCE_OPTION,
+        ENTRY_PAGE_TOKEN_OPTION, ENTRY_PAGE_SIZE_OPTION, ENTRY_FILTER_OPTION,
+        ENTRY_SORT_ORDER_OPTION};
   }
 
   @Override
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+import com.google.api.gax.core.Distribution;
+import com.google.auto.value.AutoValue;
+
+/**
+ * Percentiles of a recorded distribution, such as a latency or a batch size. The unit of the values
+ * is documented by the method returning the stats.
+ */
+@BetaApi
+@AutoValue
+public abstract class DistributionStats {
+
+  /** The 50th percentile of the recorded values. */
+  public abstract long getPercentile50();
+
+  /** The 90th percentile of the recorded values. */
+  public abstract long getPercentile90();
+
+  /** The 99th percentile of the recorded values. */
+  public abstract long getPercentile99();
+
+  static DistributionStats of(Distribution distribution) {
+    return new AutoValue_DistributionStats(
+        distribution.getPercentile(50),
+        distribution.getPercentile(90),
+        distribution.getPercentile(99));
+  }
+}
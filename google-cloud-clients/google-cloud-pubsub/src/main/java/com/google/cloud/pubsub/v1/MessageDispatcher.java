@@ -20,7 +20,6 @@ import com.google.api.core.ApiClock;
 import com.google.api.core.InternalApi;
 import com.google.api.gax.batching.FlowController;
 import com.google.api.gax.batching.FlowController.FlowControlException;
-import com.google.api.gax.core.Distribution;
 import com.google.cloud.pubsub.v1.MessageDispatcher.OutstandingMessageBatch.OutstandingMessage;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.primitives.Ints;
@@ -29,19 +28,17 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.pubsub.v1.PubsubMessage;
 import com.google.pubsub.v1.ReceivedMessage;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -80,9 +77,9 @@ class MessageDispatcher {
   // Maps ID to "total expiration time". If it takes longer than this, stop extending.
   private final ConcurrentMap<String, Instant> pendingMessages = new ConcurrentHashMap<>();
 
-  private final LinkedBlockingQueue<String> pendingAcks = new LinkedBlockingQueue<>();
-  private final LinkedBlockingQueue<String> pendingNacks = new LinkedBlockingQueue<>();
-  private final LinkedBlockingQueue<String> pendingReceipts = new LinkedBlockingQueue<>();
+  private final PendingAckIds pendingAcks = new PendingAckIds();
+  private final PendingAckIds pendingNacks = new PendingAckIds();
+  private final PendingAckIds pendingReceipts = new PendingAckIds();
 
   // The deadline should be set before use. Here, set it to something unreasonable,
   // so we fail loudly if we mess up.
@@ -93,8 +90,8 @@ class MessageDispatcher {
 
   private final Deque<OutstandingMessageBatch> outstandingMessageBatches;
 
-  // To keep track of number of seconds the receiver takes to process messages.
-  private final Distribution ackLatencyDistribution;
+  // Keeps track of the number of seconds the receiver takes to process messages, among others.
+  private final SubscriberStatsRecorder statsRecorder;
 
   /** Stores the data needed to asynchronously modify acknowledgement deadlines. */
   static class PendingModifyAckDeadline {
@@ -102,11 +99,11 @@ class MessageDispatcher {
     final int deadlineExtensionSeconds;
 
     PendingModifyAckDeadline(int deadlineExtensionSeconds, String... ackIds) {
-      this(deadlineExtensionSeconds, Arrays.asList(ackIds));
+      this(deadlineExtensionSeconds, new ArrayList<String>(Arrays.asList(ackIds)));
     }
 
-    private PendingModifyAckDeadline(int deadlineExtensionSeconds, Collection<String> ackIds) {
-      this.ackIds = new ArrayList<String>(ackIds);
+    private PendingModifyAckDeadline(int deadlineExtensionSeconds, List<String> ackIds) {
+      this.ackIds = ackIds;
       this.deadlineExtensionSeconds = deadlineExtensionSeconds;
     }
 
@@ -122,6 +119,36 @@ class MessageDispatcher {
     }
   }
 
+  /**
+   * Ack IDs waiting to be sent to the service. Ack IDs are appended to an array-backed list and the
+   * periodic sender takes the whole list at once, so no queue node is allocated per ack ID and
+   * draining does not copy them.
+   */
+  private static class PendingAckIds {
+    private List<String> ackIds = new ArrayList<>();
+
+    synchronized void add(String ackId) {
+      ackIds.add(ackId);
+    }
+
+    synchronized void addAll(List<ReceivedMessage> messages) {
+      for (ReceivedMessage message : messages) {
+        ackIds.add(message.getAckId());
+      }
+    }
+
+    /** Removes and returns all pending ack IDs. */
+    synchronized List<String> drain() {
+      if (ackIds.isEmpty()) {
+        return Collections.emptyList();
+      }
+      List<String> drained = ackIds;
+      // Size the next buffer for a similar load to avoid growing it again.
+      ackIds = new ArrayList<>(drained.size());
+      return drained;
+    }
+  }
+
   /** Internal representation of a reply to a Pubsub message, to be sent back to the service. */
   public enum AckReply {
     ACK,
@@ -132,15 +159,25 @@ class MessageDispatcher {
   private class AckHandler implements FutureCallback<AckReply> {
     private final String ackId;
     private final int outstandingBytes;
+    private final long publishTimeMillis;
     private final long receivedTimeMillis;
 
-    AckHandler(String ackId, int outstandingBytes) {
+    AckHandler(String ackId, int outstandingBytes, long publishTimeMillis) {
       this.ackId = ackId;
       this.outstandingBytes = outstandingBytes;
+      this.publishTimeMillis = publishTimeMillis;
       receivedTimeMillis = clock.millisTime();
     }
 
-    private void onBoth(LinkedBlockingQueue<String> destination) {
+    private void recordAcked() {
+      long nowMillis = clock.millisTime();
+      long endToEndLatencyMillis =
+          publishTimeMillis < 0 ? -1 : Math.max(0, nowMillis - publishTimeMillis);
+      statsRecorder.recordAcked(
+          outstandingBytes, nowMillis - receivedTimeMillis, endToEndLatencyMillis);
+    }
+
+    private void onBoth(PendingAckIds destination) {
       pendingMessages.remove(ackId);
       destination.add(ackId);
       flowController.release(1, outstandingBytes);
@@ -154,22 +191,21 @@ class MessageDispatcher {
           Level.WARNING,
           "MessageReceiver failed to processes ack ID: " + ackId + ", the message will be nacked.",
           t);
+      statsRecorder.recordNacked(outstandingBytes);
       onBoth(pendingNacks);
     }
 
     @Override
     public void onSuccess(AckReply reply) {
-      LinkedBlockingQueue<String> destination;
+      PendingAckIds destination;
       switch (reply) {
         case ACK:
           destination = pendingAcks;
-          // Record the latency rounded to the next closest integer.
-          ackLatencyDistribution.record(
-              Ints.saturatedCast(
-                  (long) Math.ceil((clock.millisTime() - receivedTimeMillis) / 1000D)));
+          recordAcked();
           break;
         case NACK:
           destination = pendingNacks;
+          statsRecorder.recordNacked(outstandingBytes);
           break;
         default:
           throw new IllegalArgumentException(String.format("AckReply: %s not supported", reply));
@@ -188,7 +224,7 @@ class MessageDispatcher {
       AckProcessor ackProcessor,
       Duration ackExpirationPadding,
       Duration maxAckExtensionPeriod,
-      Distribution ackLatencyDistribution,
+      SubscriberStatsRecorder statsRecorder,
       FlowController flowController,
       Deque<OutstandingMessageBatch> outstandingMessageBatches,
       Executor executor,
@@ -202,8 +238,7 @@ class MessageDispatcher {
     this.ackProcessor = ackProcessor;
     this.flowController = flowController;
     this.outstandingMessageBatches = outstandingMessageBatches;
-    // 601 buckets of 1s resolution from 0s to MAX_ACK_DEADLINE_SECONDS
-    this.ackLatencyDistribution = ackLatencyDistribution;
+    this.statsRecorder = statsRecorder;
     jobLock = new ReentrantLock();
     messagesWaiter = new MessageWaiter();
     this.clock = clock;
@@ -309,7 +344,7 @@ class MessageDispatcher {
     }
 
     public OutstandingMessageBatch(Runnable doneCallback) {
-      this.messages = new LinkedList<>();
+      this.messages = new ArrayDeque<>();
       this.doneCallback = doneCallback;
     }
 
@@ -328,17 +363,21 @@ class MessageDispatcher {
       return;
     }
     messagesWaiter.incrementPendingMessages(messages.size());
+    statsRecorder.recordReceived(messages.size());
 
     Instant totalExpiration = now().plus(maxAckExtensionPeriod);
+    pendingReceipts.addAll(messages);
     for (ReceivedMessage message : messages) {
-      pendingReceipts.add(message.getAckId());
       pendingMessages.put(message.getAckId(), totalExpiration);
     }
 
     OutstandingMessageBatch outstandingBatch = new OutstandingMessageBatch(doneCallback);
     for (ReceivedMessage message : messages) {
       AckHandler ackHandler =
-          new AckHandler(message.getAckId(), message.getMessage().getSerializedSize());
+          new AckHandler(
+              message.getAckId(),
+              message.getMessage().getSerializedSize(),
+              getPublishTimeMillis(message.getMessage()));
       outstandingBatch.addMessage(message, ackHandler);
     }
     synchronized (outstandingMessageBatches) {
@@ -361,10 +400,10 @@ class MessageDispatcher {
         if (outstandingMessage == null) {
           return;
         }
+        int messageSize = outstandingMessage.receivedMessage().getMessage().getSerializedSize();
         try {
           // This is a non-blocking flow controller.
-          flowController.reserve(
-              1, outstandingMessage.receivedMessage().getMessage().getSerializedSize());
+          flowController.reserve(1, messageSize);
         } catch (FlowController.MaxOutstandingElementCountReachedException
             | FlowController.MaxOutstandingRequestBytesReachedException flowControlException) {
           return;
@@ -372,6 +411,7 @@ class MessageDispatcher {
           throw new IllegalStateException("Flow control unexpected exception", unexpectedException);
         }
         nextBatch.messages.poll(); // We got a hold to the message already.
+        statsRecorder.recordOutstanding(messageSize);
         batchDone = nextBatch.messages.isEmpty();
         if (batchDone) {
           outstandingMessageBatches.poll();
@@ -415,7 +455,10 @@ class MessageDispatcher {
   /** Compute the ideal deadline, set subsequent modacks to this deadline, and return it. */
   @InternalApi
   int computeDeadlineSeconds() {
-    long secLong = ackLatencyDistribution.getNthPercentile(PERCENTILE_FOR_ACK_DEADLINE_UPDATES);
+    long secLong =
+        statsRecorder
+            .getAckLatencyDistribution()
+            .getNthPercentile(PERCENTILE_FOR_ACK_DEADLINE_UPDATES);
     int sec = Ints.saturatedCast(secLong);
 
     // Use Ints.constrainToRange when we get guava 21.
@@ -459,6 +502,7 @@ class MessageDispatcher {
     }
     modacks.add(modack);
     logger.log(Level.FINER, "Sending {0} modacks", count);
+    statsRecorder.recordExtendedAckDeadlines(count);
 
     List<String> acksToSend = Collections.<String>emptyList();
     ackProcessor.sendAckOperations(acksToSend, modacks);
@@ -468,20 +512,17 @@ class MessageDispatcher {
   void processOutstandingAckOperations() {
     List<PendingModifyAckDeadline> modifyAckDeadlinesToSend = new ArrayList<>();
 
-    List<String> acksToSend = new ArrayList<>();
-    pendingAcks.drainTo(acksToSend);
+    List<String> acksToSend = pendingAcks.drain();
     logger.log(Level.FINER, "Sending {0} acks", acksToSend.size());
 
-    PendingModifyAckDeadline nacksToSend = new PendingModifyAckDeadline(0);
-    pendingNacks.drainTo(nacksToSend.ackIds);
+    PendingModifyAckDeadline nacksToSend = new PendingModifyAckDeadline(0, pendingNacks.drain());
     logger.log(Level.FINER, "Sending {0} nacks", nacksToSend.ackIds.size());
     if (!nacksToSend.ackIds.isEmpty()) {
       modifyAckDeadlinesToSend.add(nacksToSend);
     }
 
     PendingModifyAckDeadline receiptsToSend =
-        new PendingModifyAckDeadline(getMessageDeadlineSeconds());
-    pendingReceipts.drainTo(receiptsToSend.ackIds);
+        new PendingModifyAckDeadline(getMessageDeadlineSeconds(), pendingReceipts.drain());
     logger.log(Level.FINER, "Sending {0} receipts", receiptsToSend.ackIds.size());
     if (!receiptsToSend.ackIds.isEmpty()) {
       modifyAckDeadlinesToSend.add(receiptsToSend);
@@ -490,6 +531,15 @@ class MessageDispatcher {
     ackProcessor.sendAckOperations(acksToSend, modifyAckDeadlinesToSend);
   }
 
+  /** Returns the publish time of the message in milliseconds, or -1 if it is not set. */
+  private static long getPublishTimeMillis(PubsubMessage message) {
+    if (!message.hasPublishTime()) {
+      return -1;
+    }
+    return TimeUnit.SECONDS.toMillis(message.getPublishTime().getSeconds())
+        + TimeUnit.NANOSECONDS.toMillis(message.getPublishTime().getNanos());
+  }
+
   private Instant now() {
     return Instant.ofEpochMilli(clock.millisTime());
   }
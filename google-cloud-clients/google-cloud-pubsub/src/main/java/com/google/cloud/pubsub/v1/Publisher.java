@@ -22,6 +22,8 @@ import com.google.api.core.ApiFutures;
 import com.google.api.core.BetaApi;
 import com.google.api.core.SettableApiFuture;
 import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
 import com.google.api.gax.core.CredentialsProvider;
 import com.google.api.gax.core.ExecutorAsBackgroundResource;
 import com.google.api.gax.core.ExecutorProvider;
@@ -48,10 +50,14 @@ import com.google.pubsub.v1.TopicName;
 import com.google.pubsub.v1.TopicNames;
 import io.grpc.Status;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -73,6 +79,8 @@ import org.threeten.bp.Duration;
  *
  * <ul>
  *   <li>Message batching: such as number of messages or max batch byte size.
+ *   <li>Flow control: such as the maximum number or bytes of messages waiting to be published.
+ *   <li>Ordering: messages published with the same ordering key are sent in order.
  *   <li>Retries: such as the maximum duration of retries for a failing batch of messages.
  * </ul>
  *
@@ -86,12 +94,12 @@ public class Publisher {
   private final String topicName;
 
   private final BatchingSettings batchingSettings;
+  private final FlowController flowController;
+  private final PublisherStatsRecorder statsRecorder;
 
-  private final Lock messagesBatchLock;
-  private List<OutstandingPublish> messagesBatch;
-  private int batchedBytes;
-
-  private final AtomicBoolean activeAlarm;
+  private final MessagesBatch[] messagesBatches;
+  private final ConcurrentMap<String, OrderingKeyLane> orderingKeyLanes =
+      new ConcurrentHashMap<>();
 
   private final PublisherStub publisherStub;
 
@@ -99,7 +107,6 @@ public class Publisher {
   private final AtomicBoolean shutdown;
   private final List<AutoCloseable> closeables;
   private final MessageWaiter messagesWaiter;
-  private ScheduledFuture<?> currentAlarmFuture;
 
   /** The maximum number of messages in one request. Defined by the API. */
   public static long getApiMaxRequestElementCount() {
@@ -115,10 +122,13 @@ public class Publisher {
     topicName = builder.topicName;
 
     this.batchingSettings = builder.batchingSettings;
+    flowController = new FlowController(batchingSettings.getFlowControlSettings());
+    statsRecorder = new PublisherStatsRecorder(builder.openCensusStatsEnabled);
 
-    messagesBatch = new LinkedList<>();
-    messagesBatchLock = new ReentrantLock();
-    activeAlarm = new AtomicBoolean(false);
+    messagesBatches = new MessagesBatch[builder.batchingStripeCount];
+    for (int i = 0; i < messagesBatches.length; i++) {
+      messagesBatches[i] = new MessagesBatch(batchingSettings.getElementCountThreshold());
+    }
     executor = builder.executorProvider.getExecutor();
     if (builder.executorProvider.shouldAutoClose()) {
       closeables =
@@ -167,6 +177,16 @@ public class Publisher {
     return topicName;
   }
 
+  /**
+   * Returns a snapshot of the statistics of this publisher, such as the number of published and
+   * pending messages and the latency of publish requests. The statistics are updated as messages
+   * are published, without locking, so getting them is cheap enough to poll for monitoring.
+   */
+  @BetaApi
+  public PublisherStats getStats() {
+    return statsRecorder.snapshot();
+  }
+
   /**
    * Schedules the publishing of a message. The publishing of the message may occur immediately or
    * be delayed based on the publisher batching options.
@@ -189,58 +209,107 @@ public class Publisher {
    * });
    * }</pre>
    *
+   * <p>If the {@link FlowControlSettings} of the publisher's batching settings limit the number or
+   * bytes of outstanding messages, this call either blocks until enough previously published
+   * messages complete or returns a future failed with a {@link
+   * FlowController.FlowControlException}, depending on the configured {@link
+   * FlowController.LimitExceededBehavior}.
+   *
    * @param message the message to publish.
    * @return the message ID wrapped in a future.
    */
   public ApiFuture<String> publish(PubsubMessage message) {
+    return publish(message, "");
+  }
+
+  /**
+   * Schedules the publishing of a message with an ordering key. Messages that share a non-empty
+   * ordering key are batched together and their batches are sent one at a time, in the order they
+   * were published, while messages with different keys are sent in parallel. An empty ordering key
+   * publishes the message like {@link #publish(PubsubMessage)}.
+   *
+   * <p>If a batch for an ordering key fails to publish, the messages published after it with the
+   * same key fail too, and later calls with that key return failed futures until {@link
+   * #resumePublish(String)} is called. Messages with other ordering keys are not affected.
+   *
+   * <pre>{@code
+   * ApiFuture<String> messageIdFuture = publisher.publish(pubsubMessage, "customer-1234");
+   * }</pre>
+   *
+   * @param message the message to publish.
+   * @param orderingKey the key that orders this message relative to other messages with the key.
+   * @return the message ID wrapped in a future.
+   */
+  @BetaApi
+  public ApiFuture<String> publish(PubsubMessage message, String orderingKey) {
+    Preconditions.checkNotNull(orderingKey);
     if (shutdown.get()) {
       throw new IllegalStateException("Cannot publish on a shut-down publisher.");
     }
 
     final int messageSize = message.getSerializedSize();
-    OutstandingBatch batchToSend = null;
+    try {
+      flowController.reserve(1, messageSize);
+    } catch (FlowController.FlowControlException e) {
+      return ApiFutures.immediateFailedFuture(e);
+    }
+    statsRecorder.recordSentMessage();
+    // Counted until its publish completes, so shutdown waits for messages still being batched.
+    messagesWaiter.incrementPendingMessages(1);
+
     SettableApiFuture<String> publishResult = SettableApiFuture.<String>create();
-    final OutstandingPublish outstandingPublish = new OutstandingPublish(publishResult, message);
-    messagesBatchLock.lock();
+    OutstandingPublish outstandingPublish =
+        new OutstandingPublish(publishResult, message, messageSize);
+    if (orderingKey.isEmpty()) {
+      addToMessagesBatch(outstandingPublish);
+    } else {
+      // A lane that became idle may be removed concurrently, in which case a new one is created.
+      while (!getOrderingKeyLane(orderingKey).addMessage(outstandingPublish)) {}
+    }
+    return publishResult;
+  }
+
+  private void addToMessagesBatch(final OutstandingPublish outstandingPublish) {
+    final int messageSize = outstandingPublish.messageSize;
+    OutstandingBatch batchToSend = null;
+    final MessagesBatch messagesBatch = getMessagesBatch();
+    messagesBatch.lock.lock();
     try {
       // Check if the next message makes the batch exceed the current batch byte size.
       if (!messagesBatch.isEmpty()
           && hasBatchingBytes()
-          && batchedBytes + messageSize >= getMaxBatchBytes()) {
-        batchToSend = new OutstandingBatch(messagesBatch, batchedBytes);
-        messagesBatch = new LinkedList<>();
-        batchedBytes = 0;
+          && messagesBatch.batchedBytes + messageSize >= getMaxBatchBytes()) {
+        batchToSend = messagesBatch.popOutstandingBatch();
       }
 
       // Border case if the message to send is greater equals to the max batch size then can't be
       // included in the current batch and instead sent immediately.
       if (!hasBatchingBytes() || messageSize < getMaxBatchBytes()) {
-        batchedBytes += messageSize;
-        messagesBatch.add(outstandingPublish);
+        messagesBatch.addMessage(outstandingPublish);
 
         // If after adding the message we have reached the batch max messages then we have a batch
         // to send.
         if (messagesBatch.size() == getBatchingSettings().getElementCountThreshold()) {
-          batchToSend = new OutstandingBatch(messagesBatch, batchedBytes);
-          messagesBatch = new LinkedList<>();
-          batchedBytes = 0;
+          batchToSend = messagesBatch.popOutstandingBatch();
         }
       }
-      // Setup the next duration based delivery alarm if there are messages batched.
-      if (!messagesBatch.isEmpty()) {
-        setupDurationBasedPublishAlarm();
-      } else if (currentAlarmFuture != null) {
-        logger.log(Level.FINER, "Cancelling alarm, no more messages");
-        if (activeAlarm.getAndSet(false)) {
-          currentAlarmFuture.cancel(false);
-        }
+      // Setup the next duration based delivery alarm if there are messages batched. Each stripe has
+      // its own alarm, cancelled when the stripe is emptied, so other stripes and ordering key
+      // lanes keep theirs.
+      if (!messagesBatch.isEmpty() && messagesBatch.alarmFuture == null) {
+        setupDurationBasedPublishAlarm(
+            messagesBatch,
+            new Runnable() {
+              @Override
+              public void run() {
+                publishMessagesBatch(messagesBatch);
+              }
+            });
       }
     } finally {
-      messagesBatchLock.unlock();
+      messagesBatch.lock.unlock();
     }
 
-    messagesWaiter.incrementPendingMessages(1);
-
     if (batchToSend != null) {
       logger.log(Level.FINER, "Scheduling a batch for immediate sending.");
       final OutstandingBatch finalBatchToSend = batchToSend;
@@ -267,22 +336,59 @@ public class Publisher {
             }
           });
     }
+  }
 
-    return publishResult;
+  private OrderingKeyLane getOrderingKeyLane(String orderingKey) {
+    OrderingKeyLane lane = orderingKeyLanes.get(orderingKey);
+    if (lane == null) {
+      OrderingKeyLane newLane = new OrderingKeyLane(orderingKey);
+      lane = orderingKeyLanes.putIfAbsent(orderingKey, newLane);
+      if (lane == null) {
+        lane = newLane;
+      }
+    }
+    return lane;
+  }
+
+  /**
+   * Resumes publishing of messages with the given ordering key after a failed publish paused it. Has
+   * no effect if publishing for the key is not paused.
+   */
+  @BetaApi
+  public void resumePublish(String orderingKey) {
+    OrderingKeyLane lane = orderingKeyLanes.get(Preconditions.checkNotNull(orderingKey));
+    if (lane != null) {
+      lane.resume();
+    }
+  }
+
+  /**
+   * Returns the stripe of pending messages the calling thread adds to. A thread always uses the
+   * same stripe, so its messages keep their relative order.
+   */
+  private MessagesBatch getMessagesBatch() {
+    if (messagesBatches.length == 1) {
+      return messagesBatches[0];
+    }
+    return messagesBatches[(int) (Thread.currentThread().getId() % messagesBatches.length)];
   }
 
-  private void setupDurationBasedPublishAlarm() {
-    if (!activeAlarm.getAndSet(true)) {
+  /**
+   * Schedules {@code sendBatch} to run after the delay threshold, unless an alarm is already set
+   * for the batch. Must be called with the lock of the batch held.
+   */
+  private void setupDurationBasedPublishAlarm(
+      MessagesBatch messagesBatch, final Runnable sendBatch) {
+    if (messagesBatch.alarmFuture == null) {
       long delayThresholdMs = getBatchingSettings().getDelayThreshold().toMillis();
       logger.log(Level.FINER, "Setting up alarm for the next {0} ms.", delayThresholdMs);
-      currentAlarmFuture =
+      messagesBatch.alarmFuture =
           executor.schedule(
               new Runnable() {
                 @Override
                 public void run() {
                   logger.log(Level.FINER, "Sending messages based on schedule.");
-                  activeAlarm.getAndSet(false);
-                  publishAllOutstanding();
+                  sendBatch.run();
                 }
               },
               delayThresholdMs,
@@ -296,17 +402,24 @@ public class Publisher {
    * on the futures returned from {@code publish}.
    */
   public void publishAllOutstanding() {
-    messagesBatchLock.lock();
+    for (MessagesBatch messagesBatch : messagesBatches) {
+      publishMessagesBatch(messagesBatch);
+    }
+    for (OrderingKeyLane lane : orderingKeyLanes.values()) {
+      lane.flush();
+    }
+  }
+
+  private void publishMessagesBatch(MessagesBatch messagesBatch) {
     OutstandingBatch batchToSend;
+    messagesBatch.lock.lock();
     try {
       if (messagesBatch.isEmpty()) {
         return;
       }
-      batchToSend = new OutstandingBatch(messagesBatch, batchedBytes);
-      messagesBatch = new LinkedList<>();
-      batchedBytes = 0;
+      batchToSend = messagesBatch.popOutstandingBatch();
     } finally {
-      messagesBatchLock.unlock();
+      messagesBatch.lock.unlock();
     }
     publishOutstandingBatch(batchToSend);
   }
@@ -317,12 +430,15 @@ public class Publisher {
     for (OutstandingPublish outstandingPublish : outstandingBatch.outstandingPublishes) {
       publishRequest.addMessages(outstandingPublish.message);
     }
+    statsRecorder.recordBatch(outstandingBatch.size());
+    final long sendTimeNanos = System.nanoTime();
 
     ApiFutures.addCallback(
         publisherStub.publishCallable().futureCall(publishRequest.build()),
         new ApiFutureCallback<PublishResponse>() {
           @Override
           public void onSuccess(PublishResponse result) {
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sendTimeNanos);
             try {
               if (result.getMessageIdsCount() != outstandingBatch.size()) {
                 Throwable t =
@@ -332,40 +448,270 @@ public class Publisher {
                                 + "the expected %s results. Please contact Cloud Pub/Sub support "
                                 + "if this frequently occurs",
                             result.getMessageIdsCount(), outstandingBatch.size()));
+                statsRecorder.recordPublishFailed(outstandingBatch.size(), latencyMillis);
+                if (outstandingBatch.orderingKeyLane != null) {
+                  outstandingBatch.orderingKeyLane.onBatchFailed(t);
+                }
                 for (OutstandingPublish oustandingMessage : outstandingBatch.outstandingPublishes) {
                   oustandingMessage.publishResult.setException(t);
                 }
                 return;
               }
 
+              statsRecorder.recordPublished(outstandingBatch.size(), latencyMillis);
               Iterator<OutstandingPublish> messagesResultsIt =
                   outstandingBatch.outstandingPublishes.iterator();
               for (String messageId : result.getMessageIdsList()) {
                 messagesResultsIt.next().publishResult.set(messageId);
               }
+              if (outstandingBatch.orderingKeyLane != null) {
+                outstandingBatch.orderingKeyLane.onBatchSucceeded();
+              }
             } finally {
+              releaseFlowControl(outstandingBatch);
               messagesWaiter.incrementPendingMessages(-outstandingBatch.size());
             }
           }
 
           @Override
           public void onFailure(Throwable t) {
+            statsRecorder.recordPublishFailed(
+                outstandingBatch.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sendTimeNanos));
             try {
+              // Pause the lane before the failure is visible, so that callers reacting to the failed
+              // future can resume it.
+              if (outstandingBatch.orderingKeyLane != null) {
+                outstandingBatch.orderingKeyLane.onBatchFailed(t);
+              }
               for (OutstandingPublish outstandingPublish : outstandingBatch.outstandingPublishes) {
                 outstandingPublish.publishResult.setException(t);
               }
             } finally {
+              releaseFlowControl(outstandingBatch);
               messagesWaiter.incrementPendingMessages(-outstandingBatch.size());
             }
           }
         });
   }
 
+  private void releaseFlowControl(OutstandingBatch outstandingBatch) {
+    for (OutstandingPublish outstandingPublish : outstandingBatch.outstandingPublishes) {
+      flowController.release(1, outstandingPublish.messageSize);
+    }
+  }
+
+  private void failOutstandingPublishes(List<OutstandingPublish> outstandingPublishes, Throwable t) {
+    statsRecorder.recordFailed(outstandingPublishes.size());
+    try {
+      for (OutstandingPublish outstandingPublish : outstandingPublishes) {
+        flowController.release(1, outstandingPublish.messageSize);
+        outstandingPublish.publishResult.setException(t);
+      }
+    } finally {
+      messagesWaiter.incrementPendingMessages(-outstandingPublishes.size());
+    }
+  }
+
+  /**
+   * The messages published with one ordering key. Its batches are sent one at a time in the order
+   * they were formed, and a failed batch pauses the lane until {@link #resumePublish} is called. All
+   * the state of the lane is guarded by the lock of its {@link MessagesBatch}.
+   */
+  private final class OrderingKeyLane {
+    private final String orderingKey;
+    private final MessagesBatch messagesBatch;
+    private final Deque<OutstandingBatch> queuedBatches = new LinkedList<>();
+    private boolean batchInFlight;
+    private Throwable failure;
+    private boolean removed;
+    private final Runnable flushTask =
+        new Runnable() {
+          @Override
+          public void run() {
+            flush();
+          }
+        };
+
+    OrderingKeyLane(String orderingKey) {
+      this.orderingKey = orderingKey;
+      messagesBatch = new MessagesBatch(batchingSettings.getElementCountThreshold());
+    }
+
+    /** Returns false if the lane was removed and the message must be added to a new lane. */
+    boolean addMessage(OutstandingPublish outstandingPublish) {
+      int messageSize = outstandingPublish.messageSize;
+      messagesBatch.lock.lock();
+      try {
+        if (removed) {
+          return false;
+        }
+        if (failure != null) {
+          failOutstandingPublishes(
+              ImmutableList.of(outstandingPublish),
+              new IllegalStateException(
+                  "Publishing with ordering key \""
+                      + orderingKey
+                      + "\" is paused because a previous publish failed; "
+                      + "call resumePublish to resume it.",
+                  failure));
+          return true;
+        }
+        if (!messagesBatch.isEmpty()
+            && hasBatchingBytes()
+            && messagesBatch.batchedBytes + messageSize >= getMaxBatchBytes()) {
+          queueBatch(messagesBatch.popOutstandingBatch());
+        }
+        if (hasBatchingBytes() && messageSize >= getMaxBatchBytes()) {
+          queueBatch(new OutstandingBatch(ImmutableList.of(outstandingPublish), messageSize));
+        } else {
+          messagesBatch.addMessage(outstandingPublish);
+          if (messagesBatch.size() == getBatchingSettings().getElementCountThreshold()) {
+            queueBatch(messagesBatch.popOutstandingBatch());
+          }
+        }
+        if (!messagesBatch.isEmpty()) {
+          setupDurationBasedPublishAlarm(messagesBatch, flushTask);
+        }
+      } finally {
+        messagesBatch.lock.unlock();
+      }
+      sendNextBatch();
+      return true;
+    }
+
+    void flush() {
+      messagesBatch.lock.lock();
+      try {
+        if (!messagesBatch.isEmpty()) {
+          queueBatch(messagesBatch.popOutstandingBatch());
+        }
+      } finally {
+        messagesBatch.lock.unlock();
+      }
+      sendNextBatch();
+    }
+
+    void onBatchSucceeded() {
+      messagesBatch.lock.lock();
+      try {
+        batchInFlight = false;
+        removeIfIdle();
+      } finally {
+        messagesBatch.lock.unlock();
+      }
+      sendNextBatch();
+    }
+
+    void onBatchFailed(Throwable t) {
+      List<OutstandingBatch> failedBatches;
+      List<OutstandingPublish> failedMessages;
+      messagesBatch.lock.lock();
+      try {
+        batchInFlight = false;
+        failure = t;
+        failedBatches = new ArrayList<>(queuedBatches);
+        queuedBatches.clear();
+        failedMessages = messagesBatch.popOutstandingBatch().outstandingPublishes;
+      } finally {
+        messagesBatch.lock.unlock();
+      }
+      for (OutstandingBatch failedBatch : failedBatches) {
+        failOutstandingPublishes(failedBatch.outstandingPublishes, t);
+      }
+      failOutstandingPublishes(failedMessages, t);
+    }
+
+    void resume() {
+      messagesBatch.lock.lock();
+      try {
+        failure = null;
+        removeIfIdle();
+      } finally {
+        messagesBatch.lock.unlock();
+      }
+    }
+
+    private void queueBatch(OutstandingBatch batch) {
+      batch.orderingKeyLane = this;
+      queuedBatches.add(batch);
+    }
+
+    private void removeIfIdle() {
+      if (!batchInFlight && failure == null && queuedBatches.isEmpty() && messagesBatch.isEmpty()) {
+        removed = true;
+        orderingKeyLanes.remove(orderingKey, this);
+      }
+    }
+
+    private void sendNextBatch() {
+      final OutstandingBatch batchToSend;
+      messagesBatch.lock.lock();
+      try {
+        if (batchInFlight || queuedBatches.isEmpty()) {
+          return;
+        }
+        batchToSend = queuedBatches.poll();
+        batchInFlight = true;
+      } finally {
+        messagesBatch.lock.unlock();
+      }
+      executor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              publishOutstandingBatch(batchToSend);
+            }
+          });
+    }
+  }
+
+  /** A stripe of messages waiting to be batched, guarded by its own lock. */
+  private static final class MessagesBatch {
+    final Lock lock = new ReentrantLock();
+    private final int expectedSize;
+    private List<OutstandingPublish> messages;
+    private int batchedBytes;
+    // Sends the batch after the delay threshold, set only while the batch holds messages.
+    ScheduledFuture<?> alarmFuture;
+
+    MessagesBatch(long elementCountThreshold) {
+      expectedSize = (int) Math.min(elementCountThreshold, getApiMaxRequestElementCount());
+      messages = new ArrayList<>(expectedSize);
+    }
+
+    boolean isEmpty() {
+      return messages.isEmpty();
+    }
+
+    int size() {
+      return messages.size();
+    }
+
+    void addMessage(OutstandingPublish outstandingPublish) {
+      messages.add(outstandingPublish);
+      batchedBytes += outstandingPublish.messageSize;
+    }
+
+    OutstandingBatch popOutstandingBatch() {
+      OutstandingBatch batch = new OutstandingBatch(messages, batchedBytes);
+      messages = new ArrayList<>(expectedSize);
+      batchedBytes = 0;
+      if (alarmFuture != null) {
+        logger.log(Level.FINER, "Cancelling alarm, no more messages");
+        alarmFuture.cancel(false);
+        alarmFuture = null;
+      }
+      return batch;
+    }
+  }
+
   private static final class OutstandingBatch {
     final List<OutstandingPublish> outstandingPublishes;
     final long creationTime;
     int attempt;
     int batchSizeBytes;
+    OrderingKeyLane orderingKeyLane;
 
     OutstandingBatch(List<OutstandingPublish> outstandingPublishes, int batchSizeBytes) {
       this.outstandingPublishes = outstandingPublishes;
@@ -386,10 +732,13 @@ public class Publisher {
   private static final class OutstandingPublish {
     SettableApiFuture<String> publishResult;
     PubsubMessage message;
+    int messageSize;
 
-    OutstandingPublish(SettableApiFuture<String> publishResult, PubsubMessage message) {
+    OutstandingPublish(
+        SettableApiFuture<String> publishResult, PubsubMessage message, int messageSize) {
       this.publishResult = publishResult;
       this.message = message;
+      this.messageSize = messageSize;
     }
   }
 
@@ -413,9 +762,7 @@ public class Publisher {
     if (shutdown.getAndSet(true)) {
       throw new IllegalStateException("Cannot shut down a publisher already shut-down.");
     }
-    if (currentAlarmFuture != null && activeAlarm.getAndSet(false)) {
-      currentAlarmFuture.cancel(false);
-    }
+    // Emptying the batches also cancels their alarms.
     publishAllOutstanding();
     messagesWaiter.waitNoMessages();
     for (AutoCloseable closeable : closeables) {
@@ -520,6 +867,8 @@ public class Publisher {
     ExecutorProvider executorProvider = DEFAULT_EXECUTOR_PROVIDER;
     CredentialsProvider credentialsProvider =
         TopicAdminSettings.defaultCredentialsProviderBuilder().build();
+    int batchingStripeCount = 1;
+    boolean openCensusStatsEnabled = false;
 
     private Builder(String topic) {
       this.topicName = Preconditions.checkNotNull(topic);
@@ -574,7 +923,30 @@ public class Publisher {
       return this;
     }
 
-    // Batching options
+    /**
+     * Sets the batching settings.
+     *
+     * <p>The {@link FlowControlSettings} of the batching settings bound the messages that have been
+     * given to {@link Publisher#publish} but not yet published or failed. By default no limits are
+     * enforced. In the example below, the {@link Publisher} will make sure that there are at most
+     * ten thousand outstanding messages and that their combined size does not exceed 100MB,
+     * blocking calls to {@code publish} until enough outstanding messages complete.
+     *
+     * <pre>{@code
+     * BatchingSettings batchingSettings =
+     *     Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+     *         .toBuilder()
+     *         .setFlowControlSettings(
+     *             FlowControlSettings.newBuilder()
+     *                 .setMaxOutstandingElementCount(10_000L)
+     *                 .setMaxOutstandingRequestBytes(100_000_000L)
+     *                 .setLimitExceededBehavior(LimitExceededBehavior.Block)
+     *                 .build())
+     *         .build();
+     * Publisher publisher =
+     *     Publisher.newBuilder(topicName).setBatchingSettings(batchingSettings).build();
+     * }</pre>
+     */
     public Builder setBatchingSettings(BatchingSettings batchingSettings) {
       Preconditions.checkNotNull(batchingSettings);
       Preconditions.checkNotNull(batchingSettings.getElementCountThreshold());
@@ -583,10 +955,36 @@ public class Publisher {
       Preconditions.checkArgument(batchingSettings.getRequestByteThreshold() > 0);
       Preconditions.checkNotNull(batchingSettings.getDelayThreshold());
       Preconditions.checkArgument(batchingSettings.getDelayThreshold().toMillis() > 0);
+      Preconditions.checkNotNull(batchingSettings.getFlowControlSettings());
       this.batchingSettings = batchingSettings;
       return this;
     }
 
+    /**
+     * Sets the number of independent batches that concurrent calls to {@link Publisher#publish}
+     * are spread over. Each batch has its own lock and a thread always adds its messages to the same
+     * batch, so a higher count reduces contention between many publishing threads at the cost of
+     * smaller batches when traffic is low. The batching thresholds apply to each batch separately.
+     * Defaults to 1.
+     */
+    @BetaApi
+    public Builder setBatchingStripeCount(int batchingStripeCount) {
+      Preconditions.checkArgument(batchingStripeCount > 0);
+      this.batchingStripeCount = batchingStripeCount;
+      return this;
+    }
+
+    /**
+     * Sets whether the publisher also records its statistics as the OpenCensus measures in {@link
+     * PubsubMetrics}, in addition to keeping them for {@link Publisher#getStats()}. Defaults to
+     * false.
+     */
+    @BetaApi
+    public Builder setOpenCensusStatsEnabled(boolean openCensusStatsEnabled) {
+      this.openCensusStatsEnabled = openCensusStatsEnabled;
+      return this;
+    }
+
     /** Configures the Publisher's retry parameters. */
     public Builder setRetrySettings(RetrySettings retrySettings) {
       Preconditions.checkArgument(
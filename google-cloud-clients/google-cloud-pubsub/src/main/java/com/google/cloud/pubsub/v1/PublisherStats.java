@@ -16,14 +16,16 @@
 
 package com.google.cloud.pubsub.v1;
 
+import com.google.api.core.BetaApi;
 import com.google.auto.value.AutoValue;
 
 /**
  * A snapshot of the publisher statistics at the time they were requested from the {@link
  * Publisher}.
  */
+@BetaApi
 @AutoValue
-abstract class PublisherStats {
+public abstract class PublisherStats {
   /** Number of successfully published messages. */
   public abstract long getAckedMessages();
 
@@ -36,20 +38,33 @@ abstract class PublisherStats {
   /** Total messages sent, equal to pending + acked + failed messages. */
   public abstract long getSentMessages();
 
-  public static Builder newBuilder() {
+  /** Number of messages in each publish request sent to the service. */
+  public abstract DistributionStats getBatchSize();
+
+  /**
+   * Latency of publish requests in milliseconds, from sending a batch until its result arrives,
+   * including retries. Latencies of ten seconds or more are recorded as ten seconds.
+   */
+  public abstract DistributionStats getPublishLatency();
+
+  static Builder newBuilder() {
     return new AutoValue_PublisherStats.Builder();
   }
 
   @AutoValue.Builder
-  public static abstract class Builder {
-    public abstract Builder setAckedMessages(long value);
+  abstract static class Builder {
+    abstract Builder setAckedMessages(long value);
+
+    abstract Builder setFailedMessages(long value);
+
+    abstract Builder setPendingMessages(long value);
 
-    public abstract Builder setFailedMessages(long value);
+    abstract Builder setSentMessages(long value);
 
-    public abstract Builder setPendingMessages(long value);
+    abstract Builder setBatchSize(DistributionStats value);
 
-    public abstract Builder setSentMessages(long value);
+    abstract Builder setPublishLatency(DistributionStats value);
 
-    public abstract PublisherStats build();
+    abstract PublisherStats build();
   }
 }
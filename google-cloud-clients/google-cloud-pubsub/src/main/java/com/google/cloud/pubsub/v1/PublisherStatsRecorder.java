@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.gax.core.Distribution;
+import com.google.common.primitives.Ints;
+import io.opencensus.stats.Stats;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the statistics of a {@link Publisher}. Recording only updates atomic counters and
+ * distributions, so it is safe to call from any thread without locking.
+ */
+class PublisherStatsRecorder {
+  static final int MAX_PUBLISH_LATENCY_MILLIS = 10_000;
+
+  private final boolean openCensusStatsEnabled;
+  private final AtomicLong sentMessages = new AtomicLong();
+  private final AtomicLong ackedMessages = new AtomicLong();
+  private final AtomicLong failedMessages = new AtomicLong();
+  private final Distribution batchSizeDistribution =
+      new Distribution(Ints.checkedCast(Publisher.getApiMaxRequestElementCount()) + 1);
+  private final Distribution publishLatencyDistribution =
+      new Distribution(MAX_PUBLISH_LATENCY_MILLIS + 1);
+
+  PublisherStatsRecorder(boolean openCensusStatsEnabled) {
+    this.openCensusStatsEnabled = openCensusStatsEnabled;
+  }
+
+  /** Records a message accepted by {@link Publisher#publish}. */
+  void recordSentMessage() {
+    sentMessages.incrementAndGet();
+  }
+
+  /** Records a batch about to be sent in a publish request. */
+  void recordBatch(int batchSize) {
+    batchSizeDistribution.record(batchSize);
+    if (openCensusStatsEnabled) {
+      Stats.getStatsRecorder().newMeasureMap().put(PubsubMetrics.BATCH_SIZE, batchSize).record();
+    }
+  }
+
+  /** Records a publish request that succeeded after the given latency. */
+  void recordPublished(int messageCount, long latencyMillis) {
+    ackedMessages.addAndGet(messageCount);
+    publishLatencyDistribution.record(Ints.saturatedCast(latencyMillis));
+    if (openCensusStatsEnabled) {
+      Stats.getStatsRecorder()
+          .newMeasureMap()
+          .put(PubsubMetrics.PUBLISHED_MESSAGES, messageCount)
+          .put(PubsubMetrics.PUBLISH_LATENCY, latencyMillis)
+          .record();
+    }
+  }
+
+  /** Records a publish request that failed after the given latency. */
+  void recordPublishFailed(int messageCount, long latencyMillis) {
+    publishLatencyDistribution.record(Ints.saturatedCast(latencyMillis));
+    recordFailed(messageCount);
+  }
+
+  /** Records messages that failed, including messages failed without being sent. */
+  void recordFailed(int messageCount) {
+    failedMessages.addAndGet(messageCount);
+    if (openCensusStatsEnabled) {
+      Stats.getStatsRecorder()
+          .newMeasureMap()
+          .put(PubsubMetrics.FAILED_MESSAGES, messageCount)
+          .record();
+    }
+  }
+
+  PublisherStats snapshot() {
+    // Read the completed counts before the sent count, so the pending count is never negative.
+    long acked = ackedMessages.get();
+    long failed = failedMessages.get();
+    long sent = sentMessages.get();
+    return PublisherStats.newBuilder()
+        .setSentMessages(sent)
+        .setAckedMessages(acked)
+        .setFailedMessages(failed)
+        .setPendingMessages(sent - acked - failed)
+        .setBatchSize(DistributionStats.of(batchSizeDistribution))
+        .setPublishLatency(DistributionStats.of(publishLatencyDistribution))
+        .build();
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.BetaApi;
+import com.google.common.collect.ImmutableList;
+import io.opencensus.stats.Aggregation;
+import io.opencensus.stats.BucketBoundaries;
+import io.opencensus.stats.Measure;
+import io.opencensus.stats.Measure.MeasureLong;
+import io.opencensus.stats.Stats;
+import io.opencensus.stats.View;
+import io.opencensus.stats.ViewManager;
+import io.opencensus.tags.TagKey;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * OpenCensus measures recorded by a {@link Publisher} or {@link Subscriber} built with {@code
+ * setOpenCensusStatsEnabled(true)}, and views aggregating them. Measures are recorded in the
+ * current tag context, and are only exported once views over them are registered, for example:
+ *
+ * <pre>{@code
+ * PubsubMetrics.registerAllViews();
+ * Publisher publisher =
+ *     Publisher.newBuilder(topicName).setOpenCensusStatsEnabled(true).build();
+ * }</pre>
+ */
+@BetaApi
+public final class PubsubMetrics {
+  private static final String PREFIX = "cloud.google.com/java/pubsub/";
+  private static final String COUNT = "1";
+  private static final String MILLISECOND = "ms";
+
+  /** Number of messages published successfully. */
+  public static final MeasureLong PUBLISHED_MESSAGES =
+      MeasureLong.create(
+          PREFIX + "publisher/published_messages", "Number of messages published", COUNT);
+
+  /** Number of messages that failed to publish. */
+  public static final MeasureLong FAILED_MESSAGES =
+      MeasureLong.create(
+          PREFIX + "publisher/failed_messages", "Number of messages that failed to publish", COUNT);
+
+  /** Number of messages in each publish request. */
+  public static final MeasureLong BATCH_SIZE =
+      MeasureLong.create(
+          PREFIX + "publisher/batch_size", "Number of messages in a publish request", COUNT);
+
+  /** Latency of publish requests, including retries. */
+  public static final MeasureLong PUBLISH_LATENCY =
+      MeasureLong.create(
+          PREFIX + "publisher/publish_latency", "Latency of publish requests", MILLISECOND);
+
+  /** Number of messages received from the service. */
+  public static final MeasureLong RECEIVED_MESSAGES =
+      MeasureLong.create(
+          PREFIX + "subscriber/received_messages", "Number of messages received", COUNT);
+
+  /** Number of messages acked by the receiver. */
+  public static final MeasureLong ACKED_MESSAGES =
+      MeasureLong.create(PREFIX + "subscriber/acked_messages", "Number of messages acked", COUNT);
+
+  /** Number of messages nacked by the receiver. */
+  public static final MeasureLong NACKED_MESSAGES =
+      MeasureLong.create(PREFIX + "subscriber/nacked_messages", "Number of messages nacked", COUNT);
+
+  /** Time between receiving a message and acking it. */
+  public static final MeasureLong ACK_LATENCY =
+      MeasureLong.create(
+          PREFIX + "subscriber/ack_latency",
+          "Time between receiving a message and acking it",
+          MILLISECOND);
+
+  /** Time between publishing a message and acking it. */
+  public static final MeasureLong END_TO_END_LATENCY =
+      MeasureLong.create(
+          PREFIX + "subscriber/end_to_end_latency",
+          "Time between publishing a message and acking it",
+          MILLISECOND);
+
+  /** Number of acknowledgement deadlines extended automatically. */
+  public static final MeasureLong EXTENDED_ACK_DEADLINES =
+      MeasureLong.create(
+          PREFIX + "subscriber/extended_ack_deadlines",
+          "Number of acknowledgement deadlines extended automatically",
+          COUNT);
+
+  private static final Aggregation SUM = Aggregation.Sum.create();
+  private static final Aggregation LATENCY_DISTRIBUTION =
+      Aggregation.Distribution.create(
+          BucketBoundaries.create(
+              ImmutableList.of(
+                  0.0, 1.0, 2.0, 5.0, 10.0, 20.0, 50.0, 100.0, 200.0, 500.0, 1000.0, 2000.0,
+                  5000.0, 10000.0, 20000.0, 50000.0, 100000.0, 200000.0, 500000.0, 1000000.0,
+                  2000000.0, 5000000.0)));
+  private static final Aggregation BATCH_SIZE_DISTRIBUTION =
+      Aggregation.Distribution.create(
+          BucketBoundaries.create(
+              ImmutableList.of(
+                  0.0, 1.0, 2.0, 5.0, 10.0, 20.0, 50.0, 100.0, 200.0, 500.0, 1000.0)));
+
+  /** Cumulative views over all the measures, named after the measure they aggregate. */
+  public static final List<View> ALL_VIEWS =
+      ImmutableList.of(
+          createView(PUBLISHED_MESSAGES, SUM),
+          createView(FAILED_MESSAGES, SUM),
+          createView(BATCH_SIZE, BATCH_SIZE_DISTRIBUTION),
+          createView(PUBLISH_LATENCY, LATENCY_DISTRIBUTION),
+          createView(RECEIVED_MESSAGES, SUM),
+          createView(ACKED_MESSAGES, SUM),
+          createView(NACKED_MESSAGES, SUM),
+          createView(ACK_LATENCY, LATENCY_DISTRIBUTION),
+          createView(END_TO_END_LATENCY, LATENCY_DISTRIBUTION),
+          createView(EXTENDED_ACK_DEADLINES, SUM));
+
+  private PubsubMetrics() {}
+
+  /** Registers {@link #ALL_VIEWS} with the default OpenCensus {@link ViewManager}. */
+  public static void registerAllViews() {
+    ViewManager viewManager = Stats.getViewManager();
+    for (View view : ALL_VIEWS) {
+      viewManager.registerView(view);
+    }
+  }
+
+  private static View createView(Measure measure, Aggregation aggregation) {
+    return View.create(
+        View.Name.create(measure.getName()),
+        measure.getDescription(),
+        measure,
+        aggregation,
+        Collections.<TagKey>emptyList(),
+        View.AggregationWindow.Cumulative.create());
+  }
+}
@@ -20,7 +20,6 @@ import com.google.api.core.AbstractApiService;
 import com.google.api.core.ApiClock;
 import com.google.api.core.InternalApi;
 import com.google.api.gax.batching.FlowController;
-import com.google.api.gax.core.Distribution;
 import com.google.api.gax.grpc.GrpcStatusCode;
 import com.google.api.gax.rpc.ApiException;
 import com.google.api.gax.rpc.ApiExceptionFactory;
@@ -79,7 +78,7 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
       MessageReceiver receiver,
       Duration ackExpirationPadding,
       Duration maxAckExtensionPeriod,
-      Distribution ackLatencyDistribution,
+      SubscriberStatsRecorder statsRecorder,
       SubscriberStub stub,
       FlowController flowController,
       Deque<MessageDispatcher.OutstandingMessageBatch> outstandingMessageBatches,
@@ -95,7 +94,7 @@ final class StreamingSubscriberConnection extends AbstractApiService implements
             this,
             ackExpirationPadding,
             maxAckExtensionPeriod,
-            ackLatencyDistribution,
+            statsRecorder,
             flowController,
             outstandingMessageBatches,
             executor,
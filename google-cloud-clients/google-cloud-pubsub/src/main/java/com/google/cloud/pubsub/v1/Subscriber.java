@@ -26,7 +26,6 @@ import com.google.api.gax.batching.FlowControlSettings;
 import com.google.api.gax.batching.FlowController;
 import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
 import com.google.api.gax.core.CredentialsProvider;
-import com.google.api.gax.core.Distribution;
 import com.google.api.gax.core.ExecutorProvider;
 import com.google.api.gax.core.FixedExecutorProvider;
 import com.google.api.gax.core.InstantiatingExecutorProvider;
@@ -39,6 +38,8 @@ import com.google.auth.oauth2.GoogleCredentials;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.pubsub.v1.ProjectSubscriptionName;
 import com.google.pubsub.v1.SubscriberGrpc;
 import com.google.pubsub.v1.SubscriberGrpc.SubscriberStub;
@@ -48,11 +49,20 @@ import io.grpc.auth.MoreCallCredentials;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -96,10 +106,20 @@ public class Subscriber extends AbstractApiService {
       20 * 1024 * 1024; // 20MB API maximum message size.
   @InternalApi static final int MAX_ACK_DEADLINE_SECONDS = 600;
   @InternalApi static final int MIN_ACK_DEADLINE_SECONDS = 10;
+  @InternalApi static final Duration PARALLEL_PULL_REBALANCE_PERIOD = Duration.ofSeconds(10);
+  // A stream receiving more messages per second than this on average is considered busy, see
+  // computeParallelPullCount.
+  @InternalApi static final int TARGET_MESSAGES_PER_STREAM_PER_SECOND = 1000;
 
   private static final ScheduledExecutorService SHARED_SYSTEM_EXECUTOR =
       InstantiatingExecutorProvider.newBuilder().setExecutorThreadCount(6).build().getExecutor();
 
+  private static final ThreadFactory STOP_CONNECTIONS_THREAD_FACTORY =
+      new ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat("Subscriber-stop-connections-%d")
+          .build();
+
   private static final Logger logger = Logger.getLogger(Subscriber.class.getName());
 
   private final String subscriptionName;
@@ -108,9 +128,9 @@ public class Subscriber extends AbstractApiService {
   private final Duration maxAckExtensionPeriod;
   private final ScheduledExecutorService executor;
   @Nullable private final ScheduledExecutorService alarmsExecutor;
-  private final Distribution ackLatencyDistribution =
-      new Distribution(MAX_ACK_DEADLINE_SECONDS + 1);
-  private final int numChannels;
+  private final SubscriberStatsRecorder statsRecorder;
+  private final int minParallelPullCount;
+  private final int maxParallelPullCount;
   private final FlowController flowController;
   private final TransportChannelProvider channelProvider;
   private final CredentialsProvider credentialsProvider;
@@ -120,8 +140,19 @@ public class Subscriber extends AbstractApiService {
   private final Deque<MessageDispatcher.OutstandingMessageBatch> outstandingMessageBatches =
       new LinkedList<>();
   private final ApiClock clock;
-  private final List<AutoCloseable> closeables = new ArrayList<>();
+  // Channels are added by the parallel pull rebalancer while shutdown may be closing them.
+  private final List<AutoCloseable> closeables = new CopyOnWriteArrayList<>();
+  // Stops of the connections removed by setParallelPullCount, guarded by
+  // streamingSubscriberConnections.
+  private final List<Future<?>> removedConnectionStops = new ArrayList<>();
   private ScheduledFuture<?> ackDeadlineUpdater;
+  private ScheduledFuture<?> parallelPullRebalancer;
+  // Guarded by streamingSubscriberConnections.
+  private CallCredentials callCredentials;
+  private Listener connectionsListener;
+  // Only accessed by the parallel pull rebalancer.
+  private long lastRebalanceTimeMillis;
+  private long lastRebalanceReceivedMessages;
 
   private Subscriber(Builder builder) {
     receiver = builder.receiver;
@@ -137,6 +168,7 @@ public class Subscriber extends AbstractApiService {
     ackExpirationPadding = builder.ackExpirationPadding;
     maxAckExtensionPeriod = builder.maxAckExtensionPeriod;
     clock = builder.clock.isPresent() ? builder.clock.get() : CurrentMillisClock.getDefaultClock();
+    statsRecorder = new SubscriberStatsRecorder(builder.openCensusStatsEnabled);
 
     flowController =
         new FlowController(
@@ -185,9 +217,11 @@ public class Subscriber extends AbstractApiService {
     this.channelProvider = channelProvider;
     credentialsProvider = builder.credentialsProvider;
 
-    numChannels = builder.parallelPullCount;
-    channels = new ArrayList<>(numChannels);
-    streamingSubscriberConnections = new ArrayList<StreamingSubscriberConnection>(numChannels);
+    minParallelPullCount = builder.minParallelPullCount;
+    maxParallelPullCount = builder.maxParallelPullCount;
+    channels = new ArrayList<>(minParallelPullCount);
+    streamingSubscriberConnections =
+        new ArrayList<StreamingSubscriberConnection>(minParallelPullCount);
   }
 
   /**
@@ -228,6 +262,18 @@ public class Subscriber extends AbstractApiService {
     return flowControlSettings;
   }
 
+  /**
+   * Returns a snapshot of the statistics of this subscriber, such as the number of received and
+   * acked messages, the messages currently outstanding against flow control, and the ack latency.
+   * The statistics are updated as messages are processed, without locking, so getting them is cheap
+   * enough to poll while tuning {@link Builder#setParallelPullCount} and {@link
+   * Builder#setFlowControlSettings}.
+   */
+  @BetaApi
+  public SubscriberStats getStats() {
+    return statsRecorder.snapshot();
+  }
+
   /**
    * Initiates service startup and returns immediately.
    *
@@ -272,12 +318,9 @@ public class Subscriber extends AbstractApiService {
     logger.log(Level.FINE, "Starting subscriber group.");
 
     try {
-      for (int i = 0; i < numChannels; i++) {
-        GrpcTransportChannel transportChannel =
-            (GrpcTransportChannel) channelProvider.getTransportChannel();
-        channels.add(transportChannel.getChannel());
-        if (channelProvider.shouldAutoClose()) {
-          closeables.add(transportChannel);
+      synchronized (streamingSubscriberConnections) {
+        for (int i = 0; i < minParallelPullCount; i++) {
+          openChannel();
         }
       }
     } catch (IOException e) {
@@ -315,6 +358,7 @@ public class Subscriber extends AbstractApiService {
                 try {
                   // stop connection is no-op if connections haven't been started.
                   stopAllStreamingConnections();
+                  awaitRemovedConnectionStops();
                   for (AutoCloseable closeable : closeables) {
                     closeable.close();
                   }
@@ -327,33 +371,51 @@ public class Subscriber extends AbstractApiService {
         .start();
   }
 
+  /** Opens a new channel for a streaming connection. Must hold streamingSubscriberConnections. */
+  private Channel openChannel() throws IOException {
+    GrpcTransportChannel transportChannel =
+        (GrpcTransportChannel) channelProvider.getTransportChannel();
+    channels.add(transportChannel.getChannel());
+    if (channelProvider.shouldAutoClose()) {
+      closeables.add(transportChannel);
+    }
+    return transportChannel.getChannel();
+  }
+
+  /**
+   * Creates the streaming connection that pulls over the channel with the given index, opening the
+   * channel if needed. Must hold streamingSubscriberConnections.
+   */
+  private StreamingSubscriberConnection newStreamingSubscriberConnection(int channelIndex)
+      throws IOException {
+    Channel channel = channelIndex < channels.size() ? channels.get(channelIndex) : openChannel();
+    SubscriberStub stub = SubscriberGrpc.newStub(channel);
+    if (callCredentials != null) {
+      stub = stub.withCallCredentials(callCredentials);
+    }
+    return new StreamingSubscriberConnection(
+        subscriptionName,
+        receiver,
+        ackExpirationPadding,
+        maxAckExtensionPeriod,
+        statsRecorder,
+        stub,
+        flowController,
+        outstandingMessageBatches,
+        executor,
+        alarmsExecutor,
+        clock);
+  }
+
   private void startStreamingConnections() throws IOException {
     synchronized (streamingSubscriberConnections) {
       Credentials credentials = credentialsProvider.getCredentials();
-      CallCredentials callCredentials =
-          credentials == null ? null : MoreCallCredentials.from(credentials);
+      callCredentials = credentials == null ? null : MoreCallCredentials.from(credentials);
 
-      for (Channel channel : channels) {
-        SubscriberStub stub = SubscriberGrpc.newStub(channel);
-        if (callCredentials != null) {
-          stub = stub.withCallCredentials(callCredentials);
-        }
-        streamingSubscriberConnections.add(
-            new StreamingSubscriberConnection(
-                subscriptionName,
-                receiver,
-                ackExpirationPadding,
-                maxAckExtensionPeriod,
-                ackLatencyDistribution,
-                stub,
-                flowController,
-                outstandingMessageBatches,
-                executor,
-                alarmsExecutor,
-                clock));
+      for (int i = 0; i < minParallelPullCount; i++) {
+        streamingSubscriberConnections.add(newStreamingSubscriberConnection(i));
       }
-      startConnections(
-          streamingSubscriberConnections,
+      connectionsListener =
           new Listener() {
             @Override
             public void failed(State from, Throwable failure) {
@@ -369,17 +431,197 @@ public class Subscriber extends AbstractApiService {
                 // It could happen that we are shutting down while some channels fail.
               }
             }
-          });
+          };
+      startConnections(streamingSubscriberConnections, connectionsListener);
+    }
+    if (maxParallelPullCount > minParallelPullCount) {
+      lastRebalanceTimeMillis = clock.millisTime();
+      lastRebalanceReceivedMessages = statsRecorder.getReceivedMessages();
+      parallelPullRebalancer =
+          alarmsExecutor.scheduleWithFixedDelay(
+              new Runnable() {
+                @Override
+                public void run() {
+                  try {
+                    rebalanceParallelPull();
+                  } catch (Throwable t) {
+                    // Catch everything so that one run failing doesn't prevent subsequent runs.
+                    logger.log(Level.WARNING, "failed to rebalance streaming connections", t);
+                  }
+                }
+              },
+              PARALLEL_PULL_REBALANCE_PERIOD.toMillis(),
+              PARALLEL_PULL_REBALANCE_PERIOD.toMillis(),
+              TimeUnit.MILLISECONDS);
     }
   }
 
   private void stopAllStreamingConnections() {
+    if (parallelPullRebalancer != null) {
+      parallelPullRebalancer.cancel(false);
+    }
     stopConnections(streamingSubscriberConnections);
     if (ackDeadlineUpdater != null) {
       ackDeadlineUpdater.cancel(true);
     }
   }
 
+  /**
+   * Waits for the connections removed by {@link #setParallelPullCount} to finish processing their
+   * messages, so channels and executors are not closed under them.
+   */
+  private void awaitRemovedConnectionStops() {
+    List<Future<?>> stops;
+    synchronized (streamingSubscriberConnections) {
+      stops = new ArrayList<>(removedConnectionStops);
+      removedConnectionStops.clear();
+    }
+    for (Future<?> stop : stops) {
+      try {
+        Uninterruptibles.getUninterruptibly(stop);
+      } catch (ExecutionException e) {
+        logger.log(Level.WARNING, "failed to stop a removed streaming connection", e.getCause());
+      }
+    }
+  }
+
+  private void rebalanceParallelPull() {
+    long nowMillis = clock.millisTime();
+    long receivedMessages = statsRecorder.getReceivedMessages();
+    long elapsedMillis = nowMillis - lastRebalanceTimeMillis;
+    long receivedInPeriod = receivedMessages - lastRebalanceReceivedMessages;
+    lastRebalanceTimeMillis = nowMillis;
+    lastRebalanceReceivedMessages = receivedMessages;
+
+    int currentCount;
+    synchronized (streamingSubscriberConnections) {
+      currentCount = streamingSubscriberConnections.size();
+    }
+    if (currentCount == 0 || elapsedMillis <= 0) {
+      return;
+    }
+    boolean flowControlBlocked;
+    synchronized (outstandingMessageBatches) {
+      flowControlBlocked = !outstandingMessageBatches.isEmpty();
+    }
+    int targetCount =
+        computeParallelPullCount(
+            currentCount,
+            minParallelPullCount,
+            maxParallelPullCount,
+            receivedInPeriod * 1000D / elapsedMillis / currentCount,
+            flowControlBlocked,
+            isExecutorSaturated(executor));
+    if (targetCount != currentCount) {
+      logger.log(
+          Level.FINE,
+          "Changing the number of streaming connections from {0} to {1}",
+          new Object[] {currentCount, targetCount});
+      setParallelPullCount(targetCount);
+    }
+  }
+
+  /**
+   * Returns the number of streaming connections to use next, one more or one less than the current
+   * count at most, within the given bounds.
+   *
+   * <p>A stream is removed when messages are waiting for flow control or for an executor thread,
+   * since pulling faster would only keep more messages in memory, or when the streams are mostly
+   * idle. A stream is added when the streams are busy and there is room to process more messages.
+   */
+  @InternalApi
+  static int computeParallelPullCount(
+      int currentCount,
+      int minCount,
+      int maxCount,
+      double messagesPerStreamPerSecond,
+      boolean flowControlBlocked,
+      boolean executorSaturated) {
+    int targetCount = currentCount;
+    if (flowControlBlocked || executorSaturated) {
+      targetCount = currentCount - 1;
+    } else if (messagesPerStreamPerSecond >= TARGET_MESSAGES_PER_STREAM_PER_SECOND) {
+      targetCount = currentCount + 1;
+    } else if (messagesPerStreamPerSecond < TARGET_MESSAGES_PER_STREAM_PER_SECOND / 4D) {
+      // Leave a wide margin between adding and removing streams, so the count does not flap.
+      targetCount = currentCount - 1;
+    }
+    return Math.max(minCount, Math.min(maxCount, targetCount));
+  }
+
+  /**
+   * Returns whether every thread the executor can use is running a task. The queue isn't looked
+   * at, since the queue of a {@link ScheduledThreadPoolExecutor} also holds the delayed tasks that
+   * aren't due yet.
+   */
+  @InternalApi
+  static boolean isExecutorSaturated(ScheduledExecutorService executor) {
+    if (!(executor instanceof ThreadPoolExecutor)) {
+      return false;
+    }
+    ThreadPoolExecutor threadPool = (ThreadPoolExecutor) executor;
+    // A scheduled thread pool never grows past its core size.
+    int maxThreads =
+        threadPool instanceof ScheduledThreadPoolExecutor
+            ? threadPool.getCorePoolSize()
+            : threadPool.getMaximumPoolSize();
+    return threadPool.getActiveCount() >= maxThreads;
+  }
+
+  /**
+   * Starts or stops streaming connections until the given number of them are running. Messages
+   * already received by a stopped connection are still processed and acked, and all connections
+   * share the same flow control, so its limits hold while the count changes.
+   */
+  @InternalApi
+  void setParallelPullCount(int parallelPullCount) {
+    final List<StreamingSubscriberConnection> removedConnections = new ArrayList<>();
+    synchronized (streamingSubscriberConnections) {
+      if (!isRunning()) {
+        return;
+      }
+      while (streamingSubscriberConnections.size() < parallelPullCount) {
+        StreamingSubscriberConnection connection;
+        try {
+          connection = newStreamingSubscriberConnection(streamingSubscriberConnections.size());
+        } catch (IOException e) {
+          logger.log(Level.WARNING, "failed to open a channel for a streaming connection", e);
+          break;
+        }
+        streamingSubscriberConnections.add(connection);
+        connection.addListener(connectionsListener, executor);
+        connection.startAsync();
+      }
+      while (streamingSubscriberConnections.size() > parallelPullCount) {
+        removedConnections.add(
+            streamingSubscriberConnections.remove(streamingSubscriberConnections.size() - 1));
+      }
+      if (!removedConnections.isEmpty()) {
+        for (Iterator<Future<?>> it = removedConnectionStops.iterator(); it.hasNext(); ) {
+          if (it.next().isDone()) {
+            it.remove();
+          }
+        }
+        // Stopping a connection waits for its outstanding messages, so don't block the caller,
+        // and don't take a thread of the user's executor or of the shared system executor, which
+        // may be needed to process those messages. At most one connection is removed per
+        // rebalance period, so the threads are short-lived and few.
+        // Shutdown waits for these before closing the channels and executors.
+        FutureTask<Void> stop =
+            new FutureTask<>(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    stopConnections(removedConnections);
+                  }
+                },
+                null);
+        STOP_CONNECTIONS_THREAD_FACTORY.newThread(stop).start();
+        removedConnectionStops.add(stop);
+      }
+    }
+  }
+
   private void startConnections(
       List<? extends ApiService> connections, final ApiService.Listener connectionsListener) {
     for (ApiService subscriber : connections) {
@@ -446,7 +688,9 @@ public class Subscriber extends AbstractApiService {
     CredentialsProvider credentialsProvider =
         SubscriptionAdminSettings.defaultCredentialsProviderBuilder().build();
     Optional<ApiClock> clock = Optional.absent();
-    int parallelPullCount = 1;
+    int minParallelPullCount = 1;
+    int maxParallelPullCount = 1;
+    boolean openCensusStatsEnabled = false;
 
     Builder(String subscriptionName, MessageReceiver receiver) {
       this.subscriptionName = subscriptionName;
@@ -587,7 +831,37 @@ public class Subscriber extends AbstractApiService {
      * number of available processors.
      */
     public Builder setParallelPullCount(int parallelPullCount) {
-      this.parallelPullCount = parallelPullCount;
+      this.minParallelPullCount = parallelPullCount;
+      this.maxParallelPullCount = parallelPullCount;
+      return this;
+    }
+
+    /**
+     * Sets the bounds of the number of pullers, which the {@link Subscriber} then adjusts to the
+     * load instead of using a fixed number. It starts with {@code minParallelPullCount} pullers and
+     * periodically adds one while the pullers are busy and received messages are processed without
+     * waiting, and removes one when they are mostly idle or when messages wait for flow control or
+     * for an executor thread. The flow control settings apply to all the pullers combined,
+     * whatever their number.
+     */
+    @BetaApi
+    public Builder setAdaptiveParallelPullCount(
+        int minParallelPullCount, int maxParallelPullCount) {
+      Preconditions.checkArgument(minParallelPullCount > 0);
+      Preconditions.checkArgument(maxParallelPullCount >= minParallelPullCount);
+      this.minParallelPullCount = minParallelPullCount;
+      this.maxParallelPullCount = maxParallelPullCount;
+      return this;
+    }
+
+    /**
+     * Sets whether the subscriber also records its statistics as the OpenCensus measures in {@link
+     * PubsubMetrics}, in addition to keeping them for {@link Subscriber#getStats()}. Defaults to
+     * false.
+     */
+    @BetaApi
+    public Builder setOpenCensusStatsEnabled(boolean openCensusStatsEnabled) {
+      this.openCensusStatsEnabled = openCensusStatsEnabled;
       return this;
     }
 
@@ -16,63 +16,76 @@
 
 package com.google.cloud.pubsub.v1;
 
+import com.google.api.core.BetaApi;
 import com.google.auto.value.AutoValue;
 
 /**
  * A snapshot of the subscriber statistics at the time they were requested from the {@link
  * Subscriber}.
  */
+@BetaApi
 @AutoValue
-abstract class SubscriberStats {
+public abstract class SubscriberStats {
 
-  @AutoValue
-  //TODO: Finish implementation.
-  public abstract static class Stats {}
-
-  /** Number of successfully published messages. */
+  /** Number of messages received from the service. */
   public abstract long getReceivedMessages();
 
-  /** Number of successfully published messages. */
+  /** Number of messages acked by the {@link MessageReceiver}. */
   public abstract long getAckedMessages();
 
-  /** Number of received messages. */
-  public abstract long getTotalReceivedMessages();
+  /**
+   * Number of messages nacked by the {@link MessageReceiver}, including messages for which it threw
+   * an exception.
+   */
+  public abstract long getNackedMessages();
 
-  /** Number messages acked. */
-  public abstract long getTotalAckedMessages();
+  /**
+   * Number of messages given to the {@link MessageReceiver} and not yet acked or nacked. These are
+   * the messages counted against the {@link Subscriber#getFlowControlSettings() flow control}
+   * limits.
+   */
+  public abstract long getOutstandingMessages();
 
-  /** End to end latency. */
-  public abstract Stats getEndToEndLatency();
+  /** Combined size in bytes of the outstanding messages. */
+  public abstract long getOutstandingBytes();
 
   /**
-   * Acknowledgement latency; time in between the message has been received and then acknowledged or
-   * rejected.
+   * End to end latency in seconds, from the publish time of a message until it was acked. Latencies
+   * of an hour or more are recorded as an hour.
    */
-  public abstract Stats getAckLatency();
+  public abstract DistributionStats getEndToEndLatency();
+
+  /**
+   * Acknowledgement latency in seconds; time in between the message has been received and then
+   * acknowledged. Latencies of ten minutes or more are recorded as ten minutes.
+   */
+  public abstract DistributionStats getAckLatency();
 
   /** Number of messages for which we have auto extended its acknowledgement deadline. */
   public abstract long getNumberOfAutoExtendedAckDeadlines();
 
-  public static Builder newBuilder() {
+  static Builder newBuilder() {
     return new AutoValue_SubscriberStats.Builder();
   }
 
   @AutoValue.Builder
-  public static abstract class Builder {
-    public abstract Builder setReceivedMessages(long value);
+  abstract static class Builder {
+    abstract Builder setReceivedMessages(long value);
+
+    abstract Builder setAckedMessages(long value);
 
-    public abstract Builder setAckedMessages(long value);
+    abstract Builder setNackedMessages(long value);
 
-    public abstract Builder setTotalReceivedMessages(long value);
+    abstract Builder setOutstandingMessages(long value);
 
-    public abstract Builder setTotalAckedMessages(long value);
+    abstract Builder setOutstandingBytes(long value);
 
-    public abstract Builder setEndToEndLatency(Stats value);
+    abstract Builder setEndToEndLatency(DistributionStats value);
 
-    public abstract Builder setAckLatency(Stats value);
+    abstract Builder setAckLatency(DistributionStats value);
 
-    public abstract Builder setNumberOfAutoExtendedAckDeadlines(long value);
+    abstract Builder setNumberOfAutoExtendedAckDeadlines(long value);
 
-    public abstract SubscriberStats build();
+    abstract SubscriberStats build();
   }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.gax.core.Distribution;
+import com.google.common.primitives.Ints;
+import io.opencensus.stats.MeasureMap;
+import io.opencensus.stats.Stats;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the statistics of a {@link Subscriber}, shared by the {@link MessageDispatcher} of every
+ * connection. Recording only updates atomic counters and distributions, so it is safe to call from
+ * any thread without locking.
+ */
+class SubscriberStatsRecorder {
+  private static final int MAX_END_TO_END_LATENCY_SECONDS = (int) TimeUnit.HOURS.toSeconds(1);
+
+  private final boolean openCensusStatsEnabled;
+  private final AtomicLong receivedMessages = new AtomicLong();
+  private final AtomicLong ackedMessages = new AtomicLong();
+  private final AtomicLong nackedMessages = new AtomicLong();
+  private final AtomicLong outstandingMessages = new AtomicLong();
+  private final AtomicLong outstandingBytes = new AtomicLong();
+  private final AtomicLong extendedAckDeadlines = new AtomicLong();
+
+  // 601 buckets of 1s resolution from 0s to MAX_ACK_DEADLINE_SECONDS. Also used to choose the
+  // deadline of modacks, see MessageDispatcher#computeDeadlineSeconds.
+  private final Distribution ackLatencyDistribution =
+      new Distribution(Subscriber.MAX_ACK_DEADLINE_SECONDS + 1);
+  private final Distribution endToEndLatencyDistribution =
+      new Distribution(MAX_END_TO_END_LATENCY_SECONDS + 1);
+
+  SubscriberStatsRecorder(boolean openCensusStatsEnabled) {
+    this.openCensusStatsEnabled = openCensusStatsEnabled;
+  }
+
+  Distribution getAckLatencyDistribution() {
+    return ackLatencyDistribution;
+  }
+
+  long getReceivedMessages() {
+    return receivedMessages.get();
+  }
+
+  void recordReceived(int messageCount) {
+    receivedMessages.addAndGet(messageCount);
+    if (openCensusStatsEnabled) {
+      Stats.getStatsRecorder()
+          .newMeasureMap()
+          .put(PubsubMetrics.RECEIVED_MESSAGES, messageCount)
+          .record();
+    }
+  }
+
+  /** Records a message given to the receiver, which counts against flow control until it is done. */
+  void recordOutstanding(int messageBytes) {
+    outstandingMessages.incrementAndGet();
+    outstandingBytes.addAndGet(messageBytes);
+  }
+
+  /**
+   * Records an acked message.
+   *
+   * @param ackLatencyMillis the time between receiving and acking the message
+   * @param endToEndLatencyMillis the time between publishing and acking the message, or a negative
+   *     value if the publish time of the message is unknown
+   */
+  void recordAcked(int messageBytes, long ackLatencyMillis, long endToEndLatencyMillis) {
+    recordDone(messageBytes);
+    ackedMessages.incrementAndGet();
+    // Record the latency rounded to the next closest integer.
+    ackLatencyDistribution.record(toSecondsRoundedUp(ackLatencyMillis));
+    if (endToEndLatencyMillis >= 0) {
+      endToEndLatencyDistribution.record(toSecondsRoundedUp(endToEndLatencyMillis));
+    }
+    if (openCensusStatsEnabled) {
+      MeasureMap measureMap =
+          Stats.getStatsRecorder()
+              .newMeasureMap()
+              .put(PubsubMetrics.ACKED_MESSAGES, 1)
+              .put(PubsubMetrics.ACK_LATENCY, ackLatencyMillis);
+      if (endToEndLatencyMillis >= 0) {
+        measureMap.put(PubsubMetrics.END_TO_END_LATENCY, endToEndLatencyMillis);
+      }
+      measureMap.record();
+    }
+  }
+
+  void recordNacked(int messageBytes) {
+    recordDone(messageBytes);
+    nackedMessages.incrementAndGet();
+    if (openCensusStatsEnabled) {
+      Stats.getStatsRecorder().newMeasureMap().put(PubsubMetrics.NACKED_MESSAGES, 1).record();
+    }
+  }
+
+  void recordExtendedAckDeadlines(int messageCount) {
+    extendedAckDeadlines.addAndGet(messageCount);
+    if (openCensusStatsEnabled) {
+      Stats.getStatsRecorder()
+          .newMeasureMap()
+          .put(PubsubMetrics.EXTENDED_ACK_DEADLINES, messageCount)
+          .record();
+    }
+  }
+
+  SubscriberStats snapshot() {
+    return SubscriberStats.newBuilder()
+        .setReceivedMessages(receivedMessages.get())
+        .setAckedMessages(ackedMessages.get())
+        .setNackedMessages(nackedMessages.get())
+        .setOutstandingMessages(outstandingMessages.get())
+        .setOutstandingBytes(outstandingBytes.get())
+        .setAckLatency(DistributionStats.of(ackLatencyDistribution))
+        .setEndToEndLatency(DistributionStats.of(endToEndLatencyDistribution))
+        .setNumberOfAutoExtendedAckDeadlines(extendedAckDeadlines.get())
+        .build();
+  }
+
+  private void recordDone(int messageBytes) {
+    outstandingMessages.decrementAndGet();
+    outstandingBytes.addAndGet(-messageBytes);
+  }
+
+  private static int toSecondsRoundedUp(long millis) {
+    return Ints.saturatedCast((long) Math.ceil(millis / 1000D));
+  }
+}
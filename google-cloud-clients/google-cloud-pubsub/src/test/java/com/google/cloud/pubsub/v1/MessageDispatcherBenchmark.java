@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.CurrentMillisClock;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.ReceivedMessage;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.threeten.bp.Duration;
+
+/**
+ * Measures how many messages per second {@link MessageDispatcher} can take from {@code
+ * processReceivedMessages} through an ack to {@code sendAckOperations}.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.args="MessageDispatcherBenchmark -prof gc"} to also report the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageDispatcherBenchmark {
+  private static final int BATCH_SIZE = 1000;
+  private static final Runnable NOOP_RUNNABLE =
+      new Runnable() {
+        @Override
+        public void run() {}
+      };
+
+  private List<ReceivedMessage> messages;
+  private final List<AckReplyConsumer> consumers = new ArrayList<>(BATCH_SIZE);
+  private ScheduledThreadPoolExecutor systemExecutor;
+  private MessageDispatcher dispatcher;
+  private Blackhole blackhole;
+
+  @Setup
+  public void setUp(Blackhole blackhole) {
+    this.blackhole = blackhole;
+    messages = new ArrayList<>(BATCH_SIZE);
+    PubsubMessage message =
+        PubsubMessage.newBuilder().setData(ByteString.copyFrom(new byte[100])).build();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      messages.add(
+          ReceivedMessage.newBuilder()
+              .setAckId("projects/bench-project/subscriptions/bench-subscription:ack-id-" + i)
+              .setMessage(message)
+              .build());
+    }
+
+    MessageReceiver receiver =
+        new MessageReceiver() {
+          @Override
+          public void receiveMessage(PubsubMessage message, AckReplyConsumer consumer) {
+            consumers.add(consumer);
+          }
+        };
+    MessageDispatcher.AckProcessor ackProcessor =
+        new MessageDispatcher.AckProcessor() {
+          @Override
+          public void sendAckOperations(
+              List<String> acksToSend,
+              List<MessageDispatcher.PendingModifyAckDeadline> ackDeadlineExtensions) {
+            MessageDispatcherBenchmark.this.blackhole.consume(acksToSend);
+            MessageDispatcherBenchmark.this.blackhole.consume(ackDeadlineExtensions);
+          }
+        };
+
+    // Only used once the dispatcher is started, which the benchmark never does.
+    systemExecutor = new ScheduledThreadPoolExecutor(1);
+    dispatcher =
+        new MessageDispatcher(
+            receiver,
+            ackProcessor,
+            Duration.ofSeconds(5),
+            Duration.ofMinutes(60),
+            new SubscriberStatsRecorder(false),
+            new FlowController(FlowControlSettings.newBuilder().build()),
+            new LinkedList<MessageDispatcher.OutstandingMessageBatch>(),
+            MoreExecutors.directExecutor(),
+            systemExecutor,
+            CurrentMillisClock.getDefaultClock());
+    dispatcher.setMessageDeadlineSeconds(Subscriber.MIN_ACK_DEADLINE_SECONDS);
+  }
+
+  @TearDown
+  public void tearDown() {
+    systemExecutor.shutdownNow();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void receiveAndAck() {
+    dispatcher.processReceivedMessages(messages, NOOP_RUNNABLE);
+    // Acking from within receiveMessage would recurse through the direct executor.
+    for (AckReplyConsumer consumer : consumers) {
+      consumer.ack();
+    }
+    consumers.clear();
+    dispatcher.processOutstandingAckOperations();
+  }
+}
@@ -20,10 +20,10 @@ import static com.google.common.truth.Truth.assertThat;
 
 import com.google.api.gax.batching.FlowControlSettings;
 import com.google.api.gax.batching.FlowController;
-import com.google.api.gax.core.Distribution;
 import com.google.auto.value.AutoValue;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
 import com.google.pubsub.v1.PubsubMessage;
 import com.google.pubsub.v1.ReceivedMessage;
 import java.util.ArrayList;
@@ -56,6 +56,7 @@ public class MessageDispatcherTest {
   private List<String> sentAcks;
   private List<ModAckItem> sentModAcks;
   private FakeClock clock;
+  private SubscriberStatsRecorder statsRecorder;
 
   @AutoValue
   abstract static class ModAckItem {
@@ -101,6 +102,7 @@ public class MessageDispatcherTest {
     systemExecutor.shutdownNow();
 
     clock = new FakeClock();
+    statsRecorder = new SubscriberStatsRecorder(false);
 
     dispatcher =
         new MessageDispatcher(
@@ -108,7 +110,7 @@ public class MessageDispatcherTest {
             processor,
             Duration.ofSeconds(5),
             Duration.ofMinutes(60),
-            new Distribution(Subscriber.MAX_ACK_DEADLINE_SECONDS + 1),
+            statsRecorder,
             new FlowController(FlowControlSettings.newBuilder().build()),
             new LinkedList<MessageDispatcher.OutstandingMessageBatch>(),
             MoreExecutors.directExecutor(),
@@ -194,4 +196,52 @@ public class MessageDispatcherTest {
 
     assertThat(dispatcher.computeDeadlineSeconds()).isEqualTo(42);
   }
+
+  @Test
+  public void testStats() throws Exception {
+    ReceivedMessage publishedMessage =
+        TEST_MESSAGE
+            .toBuilder()
+            .setMessage(
+                TEST_MESSAGE
+                    .getMessage()
+                    .toBuilder()
+                    .setData(ByteString.copyFromUtf8("hello"))
+                    .setPublishTime(Timestamp.newBuilder().setSeconds(1)))
+            .build();
+    clock.advance(100, TimeUnit.SECONDS);
+    dispatcher.processReceivedMessages(
+        Collections.singletonList(publishedMessage), NOOP_RUNNABLE);
+
+    SubscriberStats stats = statsRecorder.snapshot();
+    assertThat(stats.getReceivedMessages()).isEqualTo(1);
+    assertThat(stats.getOutstandingMessages()).isEqualTo(1);
+    assertThat(stats.getOutstandingBytes())
+        .isEqualTo(publishedMessage.getMessage().getSerializedSize());
+
+    dispatcher.extendDeadlines();
+    clock.advance(42, TimeUnit.SECONDS);
+    consumers.take().ack();
+
+    stats = statsRecorder.snapshot();
+    assertThat(stats.getAckedMessages()).isEqualTo(1);
+    assertThat(stats.getNackedMessages()).isEqualTo(0);
+    assertThat(stats.getOutstandingMessages()).isEqualTo(0);
+    assertThat(stats.getOutstandingBytes()).isEqualTo(0);
+    assertThat(stats.getNumberOfAutoExtendedAckDeadlines()).isEqualTo(1);
+    assertThat(stats.getAckLatency().getPercentile50()).isEqualTo(42);
+    assertThat(stats.getEndToEndLatency().getPercentile50()).isEqualTo(141);
+  }
+
+  @Test
+  public void testStats_Nack() throws Exception {
+    dispatcher.processReceivedMessages(Collections.singletonList(TEST_MESSAGE), NOOP_RUNNABLE);
+    consumers.take().nack();
+
+    SubscriberStats stats = statsRecorder.snapshot();
+    assertThat(stats.getReceivedMessages()).isEqualTo(1);
+    assertThat(stats.getAckedMessages()).isEqualTo(0);
+    assertThat(stats.getNackedMessages()).isEqualTo(1);
+    assertThat(stats.getOutstandingMessages()).isEqualTo(0);
+  }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.pubsub.v1;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.testing.LocalChannelProvider;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.ProjectTopicName;
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
+import com.google.pubsub.v1.PublisherGrpc.PublisherImplBase;
+import com.google.pubsub.v1.PubsubMessage;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.threeten.bp.Duration;
+
+/**
+ * Measures the throughput of {@link Publisher#publish} against an in-process server that
+ * acknowledges every batch immediately, comparing a single locked batch with striped batches.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args=PublisherBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PublisherBenchmark {
+  private static final String SERVER_NAME = "publisher-benchmark";
+  private static final ProjectTopicName TOPIC = ProjectTopicName.of("bench-project", "bench-topic");
+  private static final PubsubMessage MESSAGE =
+      PubsubMessage.newBuilder().setData(ByteString.copyFrom(new byte[100])).build();
+
+  @Param({"1", "16"})
+  private int batchingStripeCount;
+
+  private Server server;
+  private Publisher publisher;
+
+  @Setup
+  public void setUp() throws Exception {
+    server =
+        InProcessServerBuilder.forName(SERVER_NAME)
+            .addService(new AcknowledgingPublisherImpl())
+            .build()
+            .start();
+    publisher =
+        Publisher.newBuilder(TOPIC)
+            .setChannelProvider(LocalChannelProvider.create(SERVER_NAME))
+            .setCredentialsProvider(NoCredentialsProvider.create())
+            .setBatchingStripeCount(batchingStripeCount)
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(1000L)
+                    .setRequestByteThreshold(Publisher.getApiMaxRequestBytes())
+                    .setDelayThreshold(Duration.ofMillis(10))
+                    // Keeps the producers from outrunning the server and exhausting the heap.
+                    .setFlowControlSettings(
+                        FlowControlSettings.newBuilder()
+                            .setMaxOutstandingElementCount(100_000L)
+                            .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                            .build())
+                    .build())
+            .build();
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    publisher.shutdown();
+    server.shutdownNow().awaitTermination();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public ApiFuture<String> publish1Thread() {
+    return publisher.publish(MESSAGE);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public ApiFuture<String> publish8Threads() {
+    return publisher.publish(MESSAGE);
+  }
+
+  @Benchmark
+  @Threads(64)
+  public ApiFuture<String> publish64Threads() {
+    return publisher.publish(MESSAGE);
+  }
+
+  private static class AcknowledgingPublisherImpl extends PublisherImplBase {
+    @Override
+    public void publish(
+        PublishRequest request, StreamObserver<PublishResponse> responseObserver) {
+      PublishResponse.Builder response = PublishResponse.newBuilder();
+      for (int i = 0; i < request.getMessagesCount(); i++) {
+        response.addMessageIds(Integer.toString(i));
+      }
+      responseObserver.onNext(response.build());
+      responseObserver.onCompleted();
+    }
+  }
+}
@@ -25,23 +25,39 @@ import static org.junit.Assert.fail;
 
 import com.google.api.core.ApiFuture;
 import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
 import com.google.api.gax.core.ExecutorProvider;
 import com.google.api.gax.core.FixedExecutorProvider;
 import com.google.api.gax.core.InstantiatingExecutorProvider;
 import com.google.api.gax.core.NoCredentialsProvider;
 import com.google.api.gax.grpc.testing.LocalChannelProvider;
 import com.google.api.gax.rpc.DataLossException;
+import com.google.api.gax.rpc.InvalidArgumentException;
 import com.google.api.gax.rpc.TransportChannelProvider;
 import com.google.cloud.pubsub.v1.Publisher.Builder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.ProjectTopicName;
+import com.google.pubsub.v1.PublishRequest;
 import com.google.pubsub.v1.PublishResponse;
 import com.google.pubsub.v1.PubsubMessage;
 import io.grpc.Server;
 import io.grpc.Status;
 import io.grpc.StatusException;
 import io.grpc.inprocess.InProcessServerBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -235,6 +251,12 @@ public class PublisherImplTest {
         PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8(data)).build());
   }
 
+  private ApiFuture<String> sendTestMessage(
+      Publisher publisher, String data, String orderingKey) {
+    return publisher.publish(
+        PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8(data)).build(), orderingKey);
+  }
+
   @Test
   public void testErrorPropagation() throws Exception {
     Publisher publisher =
@@ -384,6 +406,385 @@ public class PublisherImplTest {
     }
   }
 
+  @Test
+  public void testPublishFlowControl_throwException() throws Exception {
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(1L)
+                    .setDelayThreshold(Duration.ofSeconds(5))
+                    .setFlowControlSettings(
+                        FlowControlSettings.newBuilder()
+                            .setMaxOutstandingElementCount(1L)
+                            .setLimitExceededBehavior(LimitExceededBehavior.ThrowException)
+                            .build())
+                    .build())
+            .build();
+
+    ApiFuture<String> publishFuture1 = sendTestMessage(publisher, "A");
+    ApiFuture<String> publishFuture2 = sendTestMessage(publisher, "B");
+    try {
+      publishFuture2.get();
+      fail("should throw exception");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause())
+          .isInstanceOf(FlowController.MaxOutstandingElementCountReachedException.class);
+    }
+
+    testPublisherServiceImpl.addPublishResponse(PublishResponse.newBuilder().addMessageIds("1"));
+    assertEquals("1", publishFuture1.get());
+    assertEquals(1, testPublisherServiceImpl.getCapturedRequests().size());
+    publisher.shutdown();
+  }
+
+  @Test
+  public void testPublishFlowControl_block() throws Exception {
+    final Publisher publisher =
+        getTestPublisherBuilder()
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(1L)
+                    .setDelayThreshold(Duration.ofSeconds(5))
+                    .setFlowControlSettings(
+                        FlowControlSettings.newBuilder()
+                            .setMaxOutstandingElementCount(1L)
+                            .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                            .build())
+                    .build())
+            .build();
+
+    ApiFuture<String> publishFuture1 = sendTestMessage(publisher, "A");
+    ExecutorService producer = Executors.newSingleThreadExecutor();
+    Future<ApiFuture<String>> blockedPublish =
+        producer.submit(
+            new Callable<ApiFuture<String>>() {
+              @Override
+              public ApiFuture<String> call() {
+                return sendTestMessage(publisher, "B");
+              }
+            });
+    try {
+      blockedPublish.get(100, TimeUnit.MILLISECONDS);
+      fail("publish should block while the first message is outstanding");
+    } catch (TimeoutException expected) {
+      // Expected
+    }
+
+    testPublisherServiceImpl
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("1"))
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("2"));
+    assertEquals("1", publishFuture1.get());
+    assertEquals("2", blockedPublish.get().get());
+    assertEquals(2, testPublisherServiceImpl.getCapturedRequests().size());
+    producer.shutdown();
+    publisher.shutdown();
+  }
+
+  @Test
+  public void testPublishFlowControl_boundsOutstandingMessagesUnderLoad() throws Exception {
+    final int numMessages = 1000;
+    final int batchSize = 5;
+    final long maxOutstandingMessages = 20;
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold((long) batchSize)
+                    .setRequestByteThreshold(1_000_000L)
+                    .setDelayThreshold(Duration.ofSeconds(100))
+                    .setFlowControlSettings(
+                        FlowControlSettings.newBuilder()
+                            .setMaxOutstandingElementCount(maxOutstandingMessages)
+                            .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                            .build())
+                    .build())
+            .build();
+
+    // Simulates a throttled backend that acknowledges one batch at a time.
+    Thread throttledBackend =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                for (int i = 0; i < numMessages / batchSize; i++) {
+                  PublishResponse.Builder response = PublishResponse.newBuilder();
+                  for (int j = 0; j < batchSize; j++) {
+                    response.addMessageIds(String.valueOf(i * batchSize + j));
+                  }
+                  testPublisherServiceImpl.addPublishResponse(response);
+                  try {
+                    Thread.sleep(1);
+                  } catch (InterruptedException e) {
+                    return;
+                  }
+                }
+              }
+            });
+    throttledBackend.start();
+
+    final AtomicLong outstanding = new AtomicLong();
+    final AtomicLong maxOutstanding = new AtomicLong();
+    List<ApiFuture<String>> publishFutures = new ArrayList<>(numMessages);
+    for (int i = 0; i < numMessages; i++) {
+      ApiFuture<String> publishFuture = sendTestMessage(publisher, "message-" + i);
+      long current = outstanding.incrementAndGet();
+      if (current > maxOutstanding.get()) {
+        maxOutstanding.set(current);
+      }
+      publishFuture.addListener(
+          new Runnable() {
+            @Override
+            public void run() {
+              outstanding.decrementAndGet();
+            }
+          },
+          MoreExecutors.directExecutor());
+      publishFutures.add(publishFuture);
+    }
+
+    for (ApiFuture<String> publishFuture : publishFutures) {
+      publishFuture.get();
+    }
+    assertThat(maxOutstanding.get()).isAtMost(maxOutstandingMessages);
+    throttledBackend.join();
+    publisher.shutdown();
+  }
+
+  @Test
+  public void testPublishAllOutstandingFlushesEveryStripe() throws Exception {
+    final Publisher publisher =
+        getTestPublisherBuilder()
+            .setBatchingStripeCount(2)
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(10L)
+                    .setDelayThreshold(Duration.ofSeconds(100))
+                    .build())
+            .build();
+
+    testPublisherServiceImpl
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("1"))
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("2"));
+
+    ApiFuture<String> publishFuture1 = sendTestMessage(publisher, "A");
+    // Threads whose ids have a different parity add to different stripes.
+    final List<ApiFuture<String>> otherStripeFutures = new ArrayList<>();
+    Thread otherStripeProducer;
+    do {
+      otherStripeProducer =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  otherStripeFutures.add(sendTestMessage(publisher, "B"));
+                }
+              });
+    } while (otherStripeProducer.getId() % 2 == Thread.currentThread().getId() % 2);
+    otherStripeProducer.start();
+    otherStripeProducer.join();
+
+    assertFalse(publishFuture1.isDone());
+    publisher.publishAllOutstanding();
+
+    assertThat(ImmutableList.of(publishFuture1.get(), otherStripeFutures.get(0).get()))
+        .containsExactly("1", "2");
+    assertEquals(2, testPublisherServiceImpl.getCapturedRequests().size());
+    assertEquals(1, testPublisherServiceImpl.getCapturedRequests().get(0).getMessagesCount());
+    assertEquals(1, testPublisherServiceImpl.getCapturedRequests().get(1).getMessagesCount());
+    publisher.shutdown();
+  }
+
+  @Test
+  public void testPublishWithOrderingKey_sendsBatchesInOrder() throws Exception {
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(1L)
+                    .setDelayThreshold(Duration.ofSeconds(100))
+                    .build())
+            .build();
+
+    testPublisherServiceImpl
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("1"))
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("2"))
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("3"));
+
+    ApiFuture<String> publishFuture1 = sendTestMessage(publisher, "A", "key");
+    ApiFuture<String> publishFuture2 = sendTestMessage(publisher, "B", "key");
+    ApiFuture<String> publishFuture3 = sendTestMessage(publisher, "C", "key");
+
+    assertEquals("1", publishFuture1.get());
+    assertEquals("2", publishFuture2.get());
+    assertEquals("3", publishFuture3.get());
+
+    List<PublishRequest> requests = testPublisherServiceImpl.getCapturedRequests();
+    assertEquals(3, requests.size());
+    assertEquals("A", requests.get(0).getMessages(0).getData().toStringUtf8());
+    assertEquals("B", requests.get(1).getMessages(0).getData().toStringUtf8());
+    assertEquals("C", requests.get(2).getMessages(0).getData().toStringUtf8());
+    publisher.shutdown();
+  }
+
+  @Test
+  public void testPublishWithOrderingKey_differentKeysInParallel() throws Exception {
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(1L)
+                    .setDelayThreshold(Duration.ofSeconds(100))
+                    .build())
+            .build();
+
+    ApiFuture<String> publishFuture1 = sendTestMessage(publisher, "A", "key1");
+    ApiFuture<String> publishFuture2 = sendTestMessage(publisher, "B", "key2");
+    ApiFuture<String> publishFuture3 = sendTestMessage(publisher, "C", "key1");
+
+    // The first batch of each key is sent without waiting for the other key.
+    long deadline = System.currentTimeMillis() + 5000;
+    while (testPublisherServiceImpl.getCapturedRequests().size() < 2
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(2, testPublisherServiceImpl.getCapturedRequests().size());
+    assertFalse(publishFuture3.isDone());
+
+    testPublisherServiceImpl
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("1"))
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("2"))
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("3"));
+    assertThat(ImmutableList.of(publishFuture1.get(), publishFuture2.get(), publishFuture3.get()))
+        .containsExactly("1", "2", "3");
+    assertEquals(3, testPublisherServiceImpl.getCapturedRequests().size());
+    publisher.shutdown();
+  }
+
+  @Test
+  public void testPublishWithOrderingKey_failurePausesOnlyItsKey() throws Exception {
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(1L)
+                    .setDelayThreshold(Duration.ofSeconds(100))
+                    .build())
+            .build();
+
+    testPublisherServiceImpl.addPublishError(Status.INVALID_ARGUMENT.asException());
+    try {
+      sendTestMessage(publisher, "A", "key1").get();
+      fail("should throw exception");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(InvalidArgumentException.class);
+    }
+
+    try {
+      sendTestMessage(publisher, "B", "key1").get();
+      fail("should throw exception");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+      assertThat(e.getCause().getCause()).isInstanceOf(InvalidArgumentException.class);
+    }
+
+    testPublisherServiceImpl.addPublishResponse(PublishResponse.newBuilder().addMessageIds("2"));
+    assertEquals("2", sendTestMessage(publisher, "C", "key2").get());
+
+    publisher.resumePublish("key1");
+    testPublisherServiceImpl.addPublishResponse(PublishResponse.newBuilder().addMessageIds("3"));
+    assertEquals("3", sendTestMessage(publisher, "D", "key1").get());
+    assertEquals(3, testPublisherServiceImpl.getCapturedRequests().size());
+    publisher.shutdown();
+  }
+
+  @Test
+  public void testPublishWithOrderingKey_sentByDurationAfterUnorderedBatchFills()
+      throws Exception {
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(2L)
+                    .setDelayThreshold(Duration.ofSeconds(5))
+                    .build())
+            .build();
+
+    testPublisherServiceImpl
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("1").addMessageIds("2"))
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("3"));
+
+    ApiFuture<String> orderedFuture = sendTestMessage(publisher, "A", "key");
+    // Filling the unordered batch sends it, which must not cancel the alarm of the ordered one.
+    ApiFuture<String> publishFuture1 = sendTestMessage(publisher, "B");
+    ApiFuture<String> publishFuture2 = sendTestMessage(publisher, "C");
+    assertEquals("1", publishFuture1.get());
+    assertEquals("2", publishFuture2.get());
+    assertFalse(orderedFuture.isDone());
+
+    fakeExecutor.advanceTime(Duration.ofSeconds(10));
+
+    assertEquals("3", orderedFuture.get());
+    assertEquals(2, testPublisherServiceImpl.getCapturedRequests().size());
+    PublishRequest orderedRequest = testPublisherServiceImpl.getCapturedRequests().get(1);
+    assertEquals("A", orderedRequest.getMessages(0).getData().toStringUtf8());
+    publisher.shutdown();
+  }
+
+  @Test
+  public void testPublisherStats() throws Exception {
+    Publisher publisher =
+        getTestPublisherBuilder()
+            .setExecutorProvider(SINGLE_THREAD_EXECUTOR)
+            .setBatchingSettings(
+                Publisher.Builder.DEFAULT_BATCHING_SETTINGS
+                    .toBuilder()
+                    .setElementCountThreshold(2L)
+                    .setDelayThreshold(Duration.ofSeconds(100))
+                    .build())
+            .build();
+
+    testPublisherServiceImpl
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("1").addMessageIds("2"))
+        .addPublishError(Status.DATA_LOSS.asException())
+        .addPublishResponse(PublishResponse.newBuilder().addMessageIds("5"));
+
+    sendTestMessage(publisher, "A");
+    sendTestMessage(publisher, "B").get();
+    PublisherStats stats = publisher.getStats();
+    assertEquals(2, stats.getSentMessages());
+    assertEquals(2, stats.getAckedMessages());
+    assertEquals(0, stats.getPendingMessages());
+    assertEquals(2, stats.getBatchSize().getPercentile50());
+
+    sendTestMessage(publisher, "C");
+    try {
+      sendTestMessage(publisher, "D").get();
+      fail("should throw exception");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(DataLossException.class);
+    }
+    sendTestMessage(publisher, "E");
+    stats = publisher.getStats();
+    assertEquals(5, stats.getSentMessages());
+    assertEquals(2, stats.getAckedMessages());
+    assertEquals(2, stats.getFailedMessages());
+    assertEquals(1, stats.getPendingMessages());
+
+    publisher.shutdown();
+    stats = publisher.getStats();
+    assertEquals(3, stats.getAckedMessages());
+    assertEquals(0, stats.getPendingMessages());
+  }
+
   @Test
   public void testPublisherGetters() throws Exception {
     Publisher.Builder builder = Publisher.newBuilder(TEST_TOPIC);
@@ -438,6 +839,13 @@ public class PublisherImplTest {
     } catch (NullPointerException expected) {
       // Expected
     }
+
+    try {
+      builder.setBatchingStripeCount(0);
+      fail("Should have thrown an IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // Expected
+    }
     try {
       builder.setBatchingSettings(
           Publisher.Builder.DEFAULT_BATCHING_SETTINGS
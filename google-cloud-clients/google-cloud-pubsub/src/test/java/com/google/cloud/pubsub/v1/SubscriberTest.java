@@ -17,7 +17,9 @@
 package com.google.cloud.pubsub.v1;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import com.google.api.gax.core.FixedExecutorProvider;
 import com.google.api.gax.core.InstantiatingExecutorProvider;
@@ -28,6 +30,7 @@ import com.google.api.gax.rpc.ApiException;
 import com.google.api.gax.rpc.FixedTransportChannelProvider;
 import com.google.api.gax.rpc.StatusCode;
 import com.google.cloud.pubsub.v1.Subscriber.Builder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.pubsub.v1.ProjectSubscriptionName;
 import com.google.pubsub.v1.PubsubMessage;
 import io.grpc.ManagedChannel;
@@ -36,6 +39,9 @@ import io.grpc.Status;
 import io.grpc.StatusException;
 import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -140,6 +146,86 @@ public class SubscriberTest {
     }
   }
 
+  @Test
+  public void testAdaptiveParallelPullCount_addsAndRemovesStreams() throws Exception {
+    Subscriber subscriber =
+        startSubscriber(getTestSubscriberBuilder(testReceiver).setAdaptiveParallelPullCount(1, 3));
+    assertEquals(1, fakeSubscriberServiceImpl.waitForOpenedStreams(1));
+
+    subscriber.setParallelPullCount(3);
+    assertEquals(3, fakeSubscriberServiceImpl.waitForOpenedStreams(3));
+
+    // No messages are received, so the rebalancer removes one idle stream per period.
+    fakeExecutor.advanceTime(Subscriber.PARALLEL_PULL_REBALANCE_PERIOD);
+    assertEquals(1, fakeSubscriberServiceImpl.waitForClosedStreams(1));
+
+    subscriber.stopAsync().awaitTerminated();
+  }
+
+  @Test
+  public void testComputeParallelPullCount() {
+    int busy = Subscriber.TARGET_MESSAGES_PER_STREAM_PER_SECOND;
+    int idle = 0;
+    int moderate = Subscriber.TARGET_MESSAGES_PER_STREAM_PER_SECOND / 2;
+
+    assertEquals(3, Subscriber.computeParallelPullCount(2, 1, 4, busy, false, false));
+    assertEquals(4, Subscriber.computeParallelPullCount(4, 1, 4, busy, false, false));
+    assertEquals(2, Subscriber.computeParallelPullCount(2, 1, 4, moderate, false, false));
+    assertEquals(1, Subscriber.computeParallelPullCount(2, 1, 4, idle, false, false));
+    assertEquals(2, Subscriber.computeParallelPullCount(2, 2, 4, idle, false, false));
+    assertEquals(1, Subscriber.computeParallelPullCount(2, 1, 4, busy, true, false));
+    assertEquals(1, Subscriber.computeParallelPullCount(2, 1, 4, busy, false, true));
+  }
+
+  @Test
+  public void testIsExecutorSaturated() throws Exception {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+    try {
+      // Delayed tasks wait in the queue, but don't keep the thread busy.
+      executor.schedule(
+          new Runnable() {
+            @Override
+            public void run() {}
+          },
+          1,
+          TimeUnit.HOURS);
+      assertFalse(Subscriber.isExecutorSaturated(executor));
+
+      final CountDownLatch started = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      executor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              started.countDown();
+              Uninterruptibles.awaitUninterruptibly(release);
+            }
+          });
+      started.await();
+      assertTrue(Subscriber.isExecutorSaturated(executor));
+      release.countDown();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testBuilderInvalidAdaptiveParallelPullCount() {
+    Builder builder = getTestSubscriberBuilder(testReceiver);
+    try {
+      builder.setAdaptiveParallelPullCount(0, 1);
+      fail("Should have thrown an IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // Expected
+    }
+    try {
+      builder.setAdaptiveParallelPullCount(2, 1);
+      fail("Should have thrown an IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // Expected
+    }
+  }
+
   private Subscriber startSubscriber(Builder testSubscriberBuilder) throws Exception {
     Subscriber subscriber = testSubscriberBuilder.build();
     subscriber.startAsync().awaitRunning();
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.spanner.Options.QueryOption;
+
+/**
+ * A {@link DatabaseClient} that can also run queries without blocking the calling thread. The
+ * client returned by {@link Spanner#getDatabaseClient(DatabaseId)} implements this interface.
+ */
+public interface AsyncDatabaseClient extends DatabaseClient {
+  /**
+   * Executes a query in a single use read context using {@link TimestampBound#strong()}
+   * concurrency, without blocking the calling thread. If no session is available in the pool, the
+   * query is started as soon as one is; the rows are consumed with a {@link
+   * AsyncResultSet.ReadyCallback} as they arrive.
+   *
+   * <p>Example of an asynchronous query.
+   * <pre> {@code
+   * AsyncDatabaseClient asyncClient = (AsyncDatabaseClient) dbClient;
+   * AsyncResultSet resultSet =
+   *     asyncClient.executeQueryAsync(Statement.of("SELECT Name FROM Singers"));
+   * ApiFuture<Void> done =
+   *     resultSet.setCallback(
+   *         executor,
+   *         new ReadyCallback() {
+   *           public CallbackResponse cursorReady(AsyncResultSet resultSet) {
+   *             while (resultSet.tryNext() == CursorState.OK) {
+   *               names.add(resultSet.getString(0));
+   *             }
+   *             return CallbackResponse.CONTINUE;
+   *           }
+   *         });
+   * }</pre>
+   *
+   * @param statement the query statement to execute
+   * @param options the options to configure the query
+   */
+  AsyncResultSet executeQueryAsync(Statement statement, QueryOption... options);
+
+  /**
+   * Returns a future that completes once the session pool of this client holds the number of
+   * sessions set by {@link SessionPoolOptions.Builder#setMinSessions}, with the fraction set by
+   * {@link SessionPoolOptions.Builder#setWriteSessionsFraction} prepared for read/write
+   * transactions. The future fails if a session could not be created or prepared; calling this
+   * method again creates the missing sessions.
+   *
+   * <p>Example of warming up a client before serving requests.
+   * <pre> {@code
+   * AsyncDatabaseClient asyncClient = (AsyncDatabaseClient) dbClient;
+   * asyncClient.warmUp().get();
+   * }</pre>
+   */
+  ApiFuture<Void> warmUp();
+}
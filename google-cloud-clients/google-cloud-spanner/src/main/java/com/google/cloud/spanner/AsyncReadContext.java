@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.cloud.spanner.Options.QueryOption;
+import com.google.cloud.spanner.Options.ReadOption;
+
+/**
+ * A {@link ReadContext} that can also return an {@link AsyncResultSet}. All read contexts returned
+ * by the {@link DatabaseClient} of {@link Spanner#getDatabaseClient(DatabaseId)} implement this
+ * interface.
+ */
+public interface AsyncReadContext extends ReadContext {
+  /**
+   * Same as {@link #read(String, KeySet, Iterable, ReadOption...)}, but returns an {@link
+   * AsyncResultSet} whose rows can be consumed without blocking a thread while waiting for data.
+   *
+   * @param table the name of the table to read
+   * @param keys the keys and ranges of rows to read. Regardless of ordering in {@code keys}, rows
+   *     are returned in their natural key order.
+   * @param columns the columns to read
+   * @param options the options to configure the read
+   */
+  AsyncResultSet readAsync(
+      String table, KeySet keys, Iterable<String> columns, ReadOption... options);
+
+  /**
+   * Same as {@link #executeQuery(Statement, QueryOption...)}, but returns an {@link
+   * AsyncResultSet} whose rows can be consumed without blocking a thread while waiting for data.
+   *
+   * @param statement the query statement to execute
+   * @param options the options to configure the query
+   */
+  AsyncResultSet executeQueryAsync(Statement statement, QueryOption... options);
+}
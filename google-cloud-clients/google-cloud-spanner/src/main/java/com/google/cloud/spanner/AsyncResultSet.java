@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.api.core.ApiFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link ResultSet} that can be consumed without blocking. Rows are read with {@link #tryNext()},
+ * typically from a {@link ReadyCallback} that is invoked whenever rows have arrived from the
+ * network. Asynchronous result sets are returned by {@link AsyncDatabaseClient} and {@link
+ * AsyncReadContext}:
+ *
+ * <pre>{@code
+ * AsyncResultSet resultSet =
+ *     asyncClient.executeQueryAsync(Statement.of("SELECT Name FROM Singers"));
+ * ApiFuture<Void> done =
+ *     resultSet.setCallback(
+ *         executor,
+ *         new ReadyCallback() {
+ *           public CallbackResponse cursorReady(AsyncResultSet resultSet) {
+ *             while (true) {
+ *               switch (resultSet.tryNext()) {
+ *                 case OK:
+ *                   names.add(resultSet.getString(0));
+ *                   break;
+ *                 case NOT_READY:
+ *                   return CallbackResponse.CONTINUE;
+ *                 case DONE:
+ *                   return CallbackResponse.DONE;
+ *               }
+ *             }
+ *           }
+ *         });
+ * }</pre>
+ *
+ * <p>Rows are only requested from the server as they are consumed, so a callback that returns
+ * {@link CallbackResponse#PAUSE} also pauses the stream until {@link #resume()} is called.
+ */
+public interface AsyncResultSet extends ResultSet {
+
+  /** The result of {@link #tryNext()}. */
+  enum CursorState {
+    /** The result set is positioned on a new row. */
+    OK,
+    /** No row can be returned without waiting for more data from the network. */
+    NOT_READY,
+    /** All the rows have been returned. */
+    DONE,
+  }
+
+  /** The value returned by a {@link ReadyCallback}. */
+  enum CallbackResponse {
+    /** Invoke the callback again when more rows are available. */
+    CONTINUE,
+    /** Do not invoke the callback again until {@link AsyncResultSet#resume()} is called. */
+    PAUSE,
+    /** Do not invoke the callback again, and close the result set. */
+    DONE,
+  }
+
+  /** Callback that consumes the rows of an {@link AsyncResultSet}. */
+  interface ReadyCallback {
+    /**
+     * Called when rows are available, and once when the result set is done or has failed. Rows are
+     * consumed with {@link AsyncResultSet#tryNext()} until it returns {@link CursorState#NOT_READY}
+     * or {@link CursorState#DONE}. The callback is never invoked concurrently with itself.
+     */
+    CallbackResponse cursorReady(AsyncResultSet resultSet);
+  }
+
+  /**
+   * Moves the result set to the next row if that does not require waiting for data from the
+   * network. Errors of the read or query are thrown by this method.
+   */
+  CursorState tryNext() throws SpannerException;
+
+  /**
+   * Registers the callback that consumes the rows of this result set, to be invoked on {@code
+   * executor}. The returned future completes once the callback returns {@link
+   * CallbackResponse#DONE} or the result set is done, and fails if the callback throws an
+   * exception. Only one callback can be set.
+   */
+  ApiFuture<Void> setCallback(Executor executor, ReadyCallback callback);
+
+  /** Resumes invoking the callback after it returned {@link CallbackResponse#PAUSE}. */
+  void resume();
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.SettableApiFuture;
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Default implementation of {@link AsyncResultSet}. It wraps a future of a synchronous result set,
+ * so that a session can be checked out of the pool asynchronously, and only moves that result set
+ * forward when it reports that rows have arrived from the network.
+ *
+ * <p>When the next row has not been received completely, for example because it spans several
+ * {@code PartialResultSet}s or because a broken stream is being retried, {@link #tryNext()} moves
+ * the synchronous result set forward on the executor of the callback and returns {@link
+ * CursorState#NOT_READY}. The callback is invoked again once that row is available. Without a
+ * callback, {@link #tryNext()} moves the result set forward on the calling thread.
+ */
+class AsyncResultSetImpl extends ForwardingResultSet implements AsyncResultSet {
+
+  /**
+   * A {@link ResultSet} that knows whether {@link ResultSet#next()} can be called without waiting
+   * for data from the network.
+   */
+  interface StreamingResultSet extends ResultSet {
+    /** Returns true if data for the next row has been received. */
+    boolean isReady();
+
+    /**
+     * Returns true if {@link ResultSet#next()} can return without waiting for more data from the
+     * network, i.e. the next row, or the end of the result set, has been received completely.
+     */
+    boolean isRowReady();
+
+    /**
+     * Sets a listener that is invoked, possibly on a gRPC thread, whenever new data has been
+     * received. Setting the listener starts the stream if it had not been started yet.
+     */
+    void setReadyListener(Runnable listener);
+  }
+
+  private final Object lock = new Object();
+  private final ListenableFuture<? extends ResultSet> delegateFuture;
+
+  @GuardedBy("lock")
+  private Executor executor;
+
+  @GuardedBy("lock")
+  private ReadyCallback callback;
+
+  @GuardedBy("lock")
+  private SettableApiFuture<Void> callbackFuture;
+
+  // Whether the callback is scheduled or running.
+  @GuardedBy("lock")
+  private boolean callbackActive;
+
+  // Whether data arrived while the callback was active.
+  @GuardedBy("lock")
+  private boolean pendingData;
+
+  @GuardedBy("lock")
+  private boolean paused;
+
+  @GuardedBy("lock")
+  private boolean finished;
+
+  @GuardedBy("lock")
+  private boolean closed;
+
+  @GuardedBy("lock")
+  private boolean cursorDone;
+
+  // Number of tryNext() calls that made progress during the current callback invocation.
+  @GuardedBy("lock")
+  private int progress;
+
+  // Whether ResultSet#next() of the delegate is running on the executor.
+  @GuardedBy("lock")
+  private boolean fetchRunning;
+
+  // Whether tryNext() returned NOT_READY while the fetch was running.
+  @GuardedBy("lock")
+  private boolean fetchAwaited;
+
+  // The outcome of the last fetch that has not been returned by tryNext() yet.
+  @GuardedBy("lock")
+  private Boolean fetchedHasNext;
+
+  @GuardedBy("lock")
+  private SpannerException fetchError;
+
+  private final Runnable callbackRunnable =
+      new Runnable() {
+        @Override
+        public void run() {
+          runCallback();
+        }
+      };
+
+  AsyncResultSetImpl(final ListenableFuture<? extends ResultSet> delegateFuture) {
+    super(
+        new Supplier<ResultSet>() {
+          @Override
+          public ResultSet get() {
+            return getDelegate(delegateFuture);
+          }
+        });
+    this.delegateFuture = delegateFuture;
+    delegateFuture.addListener(
+        new Runnable() {
+          @Override
+          public void run() {
+            onDelegateDone();
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  private static ResultSet getDelegate(ListenableFuture<? extends ResultSet> delegateFuture) {
+    try {
+      return Uninterruptibles.getUninterruptibly(delegateFuture);
+    } catch (ExecutionException e) {
+      throw SpannerExceptionFactory.newSpannerException(e.getCause());
+    }
+  }
+
+  private void onDelegateDone() {
+    ResultSet delegate;
+    try {
+      delegate = getDelegate(delegateFuture);
+    } catch (SpannerException e) {
+      // Surfaced to the callback by tryNext().
+      onDataReady();
+      return;
+    }
+    if (delegate instanceof StreamingResultSet) {
+      ((StreamingResultSet) delegate)
+          .setReadyListener(
+              new Runnable() {
+                @Override
+                public void run() {
+                  onDataReady();
+                }
+              });
+    } else {
+      onDataReady();
+    }
+  }
+
+  private void onDataReady() {
+    Executor callbackExecutor = null;
+    synchronized (lock) {
+      if (callbackActive) {
+        pendingData = true;
+      } else {
+        callbackExecutor = scheduleCallbackLocked();
+      }
+    }
+    runCallbackOn(callbackExecutor);
+  }
+
+  /** Returns the executor to run the callback on, or null if it should not run now. */
+  @GuardedBy("lock")
+  private Executor scheduleCallbackLocked() {
+    if (callback == null || callbackActive || paused || finished) {
+      return null;
+    }
+    callbackActive = true;
+    pendingData = false;
+    return executor;
+  }
+
+  // The callback is never started while holding the lock, as the executor may run it inline.
+  private void runCallbackOn(Executor callbackExecutor) {
+    if (callbackExecutor != null) {
+      callbackExecutor.execute(callbackRunnable);
+    }
+  }
+
+  private boolean isReady() {
+    if (!delegateFuture.isDone()) {
+      return false;
+    }
+    ResultSet delegate;
+    try {
+      delegate = getDelegate(delegateFuture);
+    } catch (SpannerException e) {
+      return true;
+    }
+    return !(delegate instanceof StreamingResultSet) || ((StreamingResultSet) delegate).isReady();
+  }
+
+  private static boolean isRowReady(ResultSet delegate) {
+    return !(delegate instanceof StreamingResultSet)
+        || ((StreamingResultSet) delegate).isRowReady();
+  }
+
+  @Override
+  public CursorState tryNext() throws SpannerException {
+    Executor fetchExecutor;
+    synchronized (lock) {
+      checkState(!closed, "ResultSet is closed");
+      if (cursorDone) {
+        return CursorState.DONE;
+      }
+      if (fetchRunning) {
+        return CursorState.NOT_READY;
+      }
+      if (fetchedHasNext != null || fetchError != null) {
+        return takeFetchedRowLocked();
+      }
+      fetchExecutor = executor;
+    }
+    if (!isReady()) {
+      return CursorState.NOT_READY;
+    }
+    final ResultSet delegate = getDelegate(delegateFuture);
+    if (fetchExecutor == null || isRowReady(delegate)) {
+      boolean hasNext = delegate.next();
+      synchronized (lock) {
+        progress++;
+        cursorDone = !hasNext;
+      }
+      return hasNext ? CursorState.OK : CursorState.DONE;
+    }
+    // Moving forward may have to wait for the rest of the row, so it is not done on the thread of
+    // the callback.
+    synchronized (lock) {
+      fetchRunning = true;
+      fetchAwaited = false;
+    }
+    fetchExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            fetchRow(delegate);
+          }
+        });
+    synchronized (lock) {
+      if (!fetchRunning) {
+        // The executor ran the fetch inline.
+        return takeFetchedRowLocked();
+      }
+      fetchAwaited = true;
+      return CursorState.NOT_READY;
+    }
+  }
+
+  private void fetchRow(ResultSet delegate) {
+    Boolean hasNext = null;
+    SpannerException error = null;
+    try {
+      hasNext = delegate.next();
+    } catch (RuntimeException e) {
+      error = SpannerExceptionFactory.newSpannerException(e);
+    }
+    boolean notify;
+    synchronized (lock) {
+      fetchRunning = false;
+      fetchedHasNext = hasNext;
+      fetchError = error;
+      notify = fetchAwaited;
+    }
+    if (notify) {
+      onDataReady();
+    }
+  }
+
+  @GuardedBy("lock")
+  private CursorState takeFetchedRowLocked() {
+    SpannerException error = fetchError;
+    boolean hasNext = fetchedHasNext != null && fetchedHasNext;
+    fetchError = null;
+    fetchedHasNext = null;
+    if (error != null) {
+      throw error;
+    }
+    progress++;
+    cursorDone = !hasNext;
+    return hasNext ? CursorState.OK : CursorState.DONE;
+  }
+
+  @Override
+  public ApiFuture<Void> setCallback(Executor executor, ReadyCallback callback) {
+    ApiFuture<Void> future;
+    Executor callbackExecutor;
+    synchronized (lock) {
+      checkState(!closed, "ResultSet is closed");
+      checkState(this.callback == null, "Callback has already been set");
+      this.executor = checkNotNull(executor);
+      this.callback = checkNotNull(callback);
+      this.callbackFuture = SettableApiFuture.create();
+      future = callbackFuture;
+      // Invoke the callback once right away; it is invoked again whenever new data arrives.
+      callbackExecutor = scheduleCallbackLocked();
+    }
+    runCallbackOn(callbackExecutor);
+    return future;
+  }
+
+  @Override
+  public void resume() {
+    Executor callbackExecutor = null;
+    synchronized (lock) {
+      checkState(callback != null, "No callback has been set");
+      if (paused) {
+        paused = false;
+        callbackExecutor = scheduleCallbackLocked();
+      }
+    }
+    runCallbackOn(callbackExecutor);
+  }
+
+  private void runCallback() {
+    while (true) {
+      ReadyCallback currentCallback;
+      synchronized (lock) {
+        if (finished) {
+          callbackActive = false;
+          return;
+        }
+        currentCallback = callback;
+        progress = 0;
+        pendingData = false;
+      }
+      CallbackResponse response;
+      try {
+        response = currentCallback.cursorReady(this);
+      } catch (Throwable t) {
+        finish(t);
+        return;
+      }
+      synchronized (lock) {
+        if (response == CallbackResponse.DONE || cursorDone) {
+          // Fall through to finish() outside of the lock.
+        } else if (response == CallbackResponse.PAUSE) {
+          paused = true;
+          callbackActive = false;
+          return;
+        } else if (pendingData || (progress > 0 && !fetchRunning && isReady())) {
+          // More data is available: invoke the callback again on this thread. The callback is not
+          // invoked again for data it declined without consuming any row.
+          continue;
+        } else {
+          callbackActive = false;
+          return;
+        }
+      }
+      finish(null);
+      return;
+    }
+  }
+
+  private void finish(Throwable error) {
+    SettableApiFuture<Void> future;
+    synchronized (lock) {
+      finished = true;
+      callbackActive = false;
+      future = callbackFuture;
+    }
+    close();
+    if (error == null) {
+      future.set(null);
+    } else {
+      future.setException(error);
+    }
+  }
+
+  @Override
+  public boolean next() throws SpannerException {
+    synchronized (lock) {
+      checkState(callback == null, "next() cannot be called when a callback has been set");
+    }
+    return super.next();
+  }
+
+  @Override
+  public void close() {
+    SettableApiFuture<Void> future = null;
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (callbackFuture != null && !finished) {
+        finished = true;
+        future = callbackFuture;
+      }
+    }
+    if (future != null) {
+      future.set(null);
+    }
+    delegateFuture.addListener(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              getDelegate(delegateFuture).close();
+            } catch (SpannerException e) {
+              // Nothing to close.
+            }
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+}
@@ -16,8 +16,12 @@
 
 package com.google.cloud.spanner;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ListenableFutureToApiFuture;
 import com.google.cloud.Timestamp;
-
+import com.google.cloud.spanner.Options.QueryOption;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import io.opencensus.common.Scope;
@@ -25,7 +29,7 @@ import io.opencensus.trace.Span;
 import io.opencensus.trace.Tracer;
 import io.opencensus.trace.Tracing;
 
-class DatabaseClientImpl implements DatabaseClient {
+class DatabaseClientImpl implements AsyncDatabaseClient {
   private static final String READ_WRITE_TRANSACTION = "CloudSpanner.ReadWriteTransaction";
   private static final String READ_ONLY_TRANSACTION = "CloudSpanner.ReadOnlyTransaction";
   private static final Tracer tracer = Tracing.getTracer();
@@ -89,6 +93,26 @@ class DatabaseClientImpl implements DatabaseClient {
     }
   }
 
+  @Override
+  public AsyncResultSet executeQueryAsync(
+      final Statement statement, final QueryOption... options) {
+    Span span = tracer.spanBuilder(READ_ONLY_TRANSACTION).startSpan();
+    try (Scope s = tracer.withSpan(span)) {
+      return new AsyncResultSetImpl(
+          Futures.transform(
+              pool.getReadSessionAsync(),
+              new Function<Session, ResultSet>() {
+                @Override
+                public ResultSet apply(Session session) {
+                  return session.singleUse().executeQuery(statement, options);
+                }
+              }));
+    } catch (RuntimeException e) {
+      TraceUtil.endSpanWithFailure(span, e);
+      throw e;
+    }
+  }
+
   @Override
   public ReadOnlyTransaction singleUseReadOnlyTransaction() {
     Span span = tracer.spanBuilder(READ_ONLY_TRANSACTION).startSpan();
@@ -155,6 +179,11 @@ class DatabaseClientImpl implements DatabaseClient {
     }
   }
 
+  @Override
+  public ApiFuture<Void> warmUp() {
+    return new ListenableFutureToApiFuture<>(pool.warmUp());
+  }
+
   ListenableFuture<Void> closeAsync() {
     return pool.closeAsync();
   }
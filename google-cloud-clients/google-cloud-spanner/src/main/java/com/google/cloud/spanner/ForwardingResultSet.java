@@ -17,35 +17,43 @@
 package com.google.cloud.spanner;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.spanner.v1.ResultSetStats;
 
 /** Forwarding implementation of ResultSet that forwards all calls to a delegate. */
 public class ForwardingResultSet extends ForwardingStructReader implements ResultSet {
 
-  private final ResultSet delegate;
+  private final Supplier<? extends ResultSet> delegate;
 
   public ForwardingResultSet(ResultSet delegate) {
+    super(delegate);
+    this.delegate = Suppliers.ofInstance(Preconditions.checkNotNull(delegate));
+  }
+
+  /** Creates a result set that forwards to the result set returned by {@code delegate}. */
+  ForwardingResultSet(Supplier<? extends ResultSet> delegate) {
     super(delegate);
     this.delegate = Preconditions.checkNotNull(delegate);
   }
 
   @Override
   public boolean next() throws SpannerException {
-    return delegate.next();
+    return delegate.get().next();
   }
 
   @Override
   public Struct getCurrentRowAsStruct() {
-    return delegate.getCurrentRowAsStruct();
+    return delegate.get().getCurrentRowAsStruct();
   }
 
   @Override
   public void close() {
-    delegate.close();
+    delegate.get().close();
   }
 
   @Override
   public ResultSetStats getStats() {
-    return delegate.getStats();
+    return delegate.get().getStats();
   }
 }
@@ -60,6 +60,18 @@ public final class Options implements Serializable {
     return new FlowControlOption(prefetchChunks);
   }
 
+  /**
+   * Specifying this will cause BOOL, INT64 and FLOAT64 columns of a read or query to be decoded
+   * into a primitive buffer that is reused for every row, instead of into a boxed object per value.
+   * This reduces allocations when scanning many rows that are read with {@link
+   * StructReader#getLong(int)}, {@link StructReader#getDouble(int)} and {@link
+   * StructReader#getBoolean(int)}. The values returned by the {@code ResultSet} are the same with
+   * or without this option.
+   */
+  public static ReadAndQueryOption unboxedScalars() {
+    return UnboxedScalarsOption.INSTANCE;
+  }
+
   /**
    * Specifying this will cause the list operations to fetch at most this many records in a page.
    */
@@ -120,8 +132,21 @@ public final class Options implements Serializable {
     }
   }
 
+  /** Option to decode scalar columns without boxing. */
+  static final class UnboxedScalarsOption extends InternalOption implements ReadAndQueryOption {
+    static final UnboxedScalarsOption INSTANCE = new UnboxedScalarsOption();
+
+    private UnboxedScalarsOption() {}
+
+    @Override
+    void appendToOptions(Options options) {
+      options.unboxedScalars = true;
+    }
+  }
+
   private Long limit;
   private Integer prefetchChunks;
+  private boolean unboxedScalars;
   private Integer pageSize;
   private String pageToken;
   private String filter;
@@ -145,6 +170,10 @@ public final class Options implements Serializable {
     return prefetchChunks;
   }
 
+  boolean hasUnboxedScalars() {
+    return unboxedScalars;
+  }
+
   boolean hasPageSize() {
     return pageSize != null;
   }
@@ -178,6 +207,9 @@ public final class Options implements Serializable {
     if (prefetchChunks != null) {
       b.append("prefetchChunks: ").append(prefetchChunks).append(' ');
     }
+    if (unboxedScalars) {
+      b.append("unboxedScalars: ").append(unboxedScalars).append(' ');
+    }
     if (pageSize != null) {
       b.append("pageSize: ").append(pageSize).append(' ');
     }
@@ -205,6 +237,7 @@ public final class Options implements Serializable {
     return (!hasLimit() && !that.hasLimit() || Objects.equals(limit(), that.limit()))
         && (!hasPrefetchChunks() && !that.hasPrefetchChunks()
             || Objects.equals(prefetchChunks(), that.prefetchChunks()))
+        && unboxedScalars == that.unboxedScalars
         && (!hasPageSize() && !that.hasPageSize() || Objects.equals(pageSize(), that.pageSize()))
         && Objects.equals(pageToken(), that.pageToken())
         && Objects.equals(filter(), that.filter());
@@ -219,6 +252,9 @@ public final class Options implements Serializable {
     if (prefetchChunks != null) {
       result = 31 * result + prefetchChunks.hashCode();
     }
+    if (unboxedScalars) {
+      result = 31 * result + 1;
+    }
     if (pageSize != null) {
       result = 31 * result + pageSize.hashCode();
     }
@@ -23,10 +23,13 @@ import com.google.cloud.grpc.GrpcTransportOptions;
 import com.google.cloud.grpc.GrpcTransportOptions.ExecutorFactory;
 import com.google.cloud.spanner.Options.QueryOption;
 import com.google.cloud.spanner.Options.ReadOption;
+import com.google.cloud.spanner.SpannerImpl.SessionConsumer;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
@@ -37,14 +40,16 @@ import io.opencensus.trace.AttributeValue;
 import io.opencensus.trace.Span;
 import io.opencensus.trace.Tracing;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -77,7 +82,7 @@ final class SessionPool {
    * Wrapper around {@code ReadContext} that releases the session to the pool once the call is
    * finished, if it is a single use context.
    */
-  private static class AutoClosingReadContext implements ReadContext {
+  private static class AutoClosingReadContext implements AsyncReadContext {
     private final ReadContext delegate;
     private final PooledSession session;
     private final boolean isSingleUse;
@@ -95,30 +100,62 @@ final class SessionPool {
       if (!isSingleUse) {
         return resultSet;
       }
-      return new ForwardingResultSet(resultSet) {
-        @Override
-        public boolean next() throws SpannerException {
-          try {
-            boolean ret = super.next();
-            if (!ret) {
-              close();
-            }
-            return ret;
-          } catch (SpannerException e) {
-            if (!closed) {
-              session.lastException = e;
-              AutoClosingReadContext.this.close();
-            }
-            throw e;
-          }
+      return new AutoClosingResultSet(resultSet);
+    }
+
+    /** Releases the session of a single use context once the result set is consumed or closed. */
+    private final class AutoClosingResultSet extends ForwardingResultSet
+        implements AsyncResultSetImpl.StreamingResultSet {
+      private final ResultSet resultSet;
+
+      AutoClosingResultSet(ResultSet resultSet) {
+        super(resultSet);
+        this.resultSet = resultSet;
+      }
+
+      @Override
+      public boolean isReady() {
+        return !(resultSet instanceof AsyncResultSetImpl.StreamingResultSet)
+            || ((AsyncResultSetImpl.StreamingResultSet) resultSet).isReady();
+      }
+
+      @Override
+      public boolean isRowReady() {
+        return !(resultSet instanceof AsyncResultSetImpl.StreamingResultSet)
+            || ((AsyncResultSetImpl.StreamingResultSet) resultSet).isRowReady();
+      }
+
+      @Override
+      public void setReadyListener(Runnable listener) {
+        if (resultSet instanceof AsyncResultSetImpl.StreamingResultSet) {
+          ((AsyncResultSetImpl.StreamingResultSet) resultSet).setReadyListener(listener);
+        } else {
+          listener.run();
         }
+      }
 
-        @Override
-        public void close() {
-          super.close();
-          AutoClosingReadContext.this.close();
+      @Override
+      public boolean next() throws SpannerException {
+        try {
+          boolean ret = super.next();
+          if (!ret) {
+            close();
+          }
+          return ret;
+        } catch (SpannerException e) {
+          if (!closed) {
+            session.lastException = e;
+            AutoClosingReadContext.this.close();
+          }
+          throw e;
         }
-      };
+      }
+
+      @Override
+      public void close() {
+        super.close();
+        AutoClosingReadContext.this.close();
+      }
     }
 
     @Override
@@ -164,6 +201,19 @@ final class SessionPool {
       return wrap(delegate.executeQuery(statement, options));
     }
 
+    @Override
+    public AsyncResultSet readAsync(
+        String table, KeySet keys, Iterable<String> columns, ReadOption... options) {
+      return new AsyncResultSetImpl(
+          Futures.immediateFuture(wrap(delegate.read(table, keys, columns, options))));
+    }
+
+    @Override
+    public AsyncResultSet executeQueryAsync(Statement statement, QueryOption... options) {
+      return new AsyncResultSetImpl(
+          Futures.immediateFuture(wrap(delegate.executeQuery(statement, options))));
+    }
+
     @Override
     public ResultSet analyzeQuery(Statement statement, QueryAnalyzeMode queryMode) {
       return wrap(delegate.analyzeQuery(statement, queryMode));
@@ -458,38 +508,23 @@ final class SessionPool {
     }
   }
 
-  private static final class SessionOrError {
-    private final PooledSession session;
-    private final SpannerException e;
-
-    SessionOrError(PooledSession session) {
-      this.session = session;
-      this.e = null;
-    }
-
-    SessionOrError(SpannerException e) {
-      this.session = null;
-      this.e = e;
-    }
-  }
-
   private static final class Waiter {
-    private final SynchronousQueue<SessionOrError> waiter = new SynchronousQueue<>();
+    private final SettableFuture<PooledSession> waiter = SettableFuture.create();
 
     private void put(PooledSession session) {
-      Uninterruptibles.putUninterruptibly(waiter, new SessionOrError(session));
+      waiter.set(session);
     }
 
     private void put(SpannerException e) {
-      Uninterruptibles.putUninterruptibly(waiter, new SessionOrError(e));
+      waiter.setException(e);
     }
 
     private PooledSession take() throws SpannerException {
-      SessionOrError s = Uninterruptibles.takeUninterruptibly(waiter);
-      if (s.e != null) {
-        throw newSpannerException(s.e);
+      try {
+        return Uninterruptibles.getUninterruptibly(waiter);
+      } catch (ExecutionException e) {
+        throw newSpannerException(e.getCause());
       }
-      return s.session;
     }
   }
 
@@ -639,11 +674,7 @@ final class SessionPool {
     private void replenishPool() {
       synchronized (lock) {
         // If we have gone below min pool size, create that many sessions.
-        for (int i = 0;
-            i < options.getMinSessions() - (totalSessions() + numSessionsBeingCreated);
-            i++) {
-          createSession();
-        }
+        createSessions(options.getMinSessions() - (totalSessions() + numSessionsBeingCreated));
       }
     }
   }
@@ -656,6 +687,7 @@ final class SessionPool {
   final PoolMaintainer poolMaintainer;
   private final Clock clock;
   private final Object lock = new Object();
+  private final SessionConsumer sessionConsumer = new SessionConsumerImpl();
 
   @GuardedBy("lock")
   private int pendingClosure;
@@ -690,6 +722,9 @@ final class SessionPool {
   @GuardedBy("lock")
   private final Set<PooledSession> allSessions = new HashSet<>();
 
+  @GuardedBy("lock")
+  private final List<SettableFuture<Void>> warmUpFutures = new ArrayList<>();
+
   /**
    * Create a session pool with the given options and for the given database. It will also start
    * eagerly creating sessions if {@link SessionPoolOptions#getMinSessions()} is greater than 0.
@@ -743,9 +778,7 @@ final class SessionPool {
   private void initPool() {
     synchronized (lock) {
       poolMaintainer.init();
-      for (int i = 0; i < options.getMinSessions(); i++) {
-        createSession();
-      }
+      createSessions(options.getMinSessions());
     }
   }
 
@@ -774,7 +807,7 @@ final class SessionPool {
       }
       allSessions.remove(session);
       // replenish the pool.
-      createSession();
+      createSessions(1);
     }
   }
 
@@ -839,6 +872,62 @@ final class SessionPool {
       span.addAnnotation("Waiting for read only session to be available");
       sess = waiter.take();
     }
+    return checkOutSession(sess, span);
+  }
+
+  /**
+   * Same as {@link #getReadSession()}, but returns a future instead of blocking while no session is
+   * available. If the pool is exhausted and {@link SessionPoolOptions#isFailIfPoolExhausted()} has
+   * been set, or if the pool has been closed, the returned future fails.
+   */
+  ListenableFuture<Session> getReadSessionAsync() {
+    Span span = Tracing.getTracer().getCurrentSpan();
+    span.addAnnotation("Acquiring session");
+    Waiter waiter = null;
+    PooledSession sess = null;
+    synchronized (lock) {
+      if (closureFuture != null) {
+        span.addAnnotation("Pool has been closed");
+        return Futures.immediateFailedFuture(new IllegalStateException("Pool has been closed"));
+      }
+      sess = readSessions.poll();
+      if (sess == null) {
+        sess = writePreparedSessions.poll();
+        if (sess == null) {
+          span.addAnnotation("No session available");
+          try {
+            maybeCreateSession();
+          } catch (SpannerException e) {
+            return Futures.immediateFailedFuture(e);
+          }
+          waiter = new Waiter();
+          readWaiters.add(waiter);
+        } else {
+          span.addAnnotation("Acquired read write session");
+        }
+      } else {
+        span.addAnnotation("Acquired read only session");
+      }
+    }
+    if (waiter == null) {
+      return Futures.<Session>immediateFuture(checkOutSession(sess, span));
+    }
+    span.addAnnotation("Waiting for read only session to be available");
+    final Span waitingSpan = span;
+    // Waiters are unblocked while holding the pool lock, so hand the session over on the pool
+    // executor rather than running the continuation of the caller under the lock.
+    return Futures.transform(
+        waiter.waiter,
+        new Function<PooledSession, Session>() {
+          @Override
+          public Session apply(PooledSession session) {
+            return checkOutSession(session, waitingSpan);
+          }
+        },
+        executor);
+  }
+
+  private PooledSession checkOutSession(PooledSession sess, Span span) {
     sess.markBusy();
     incrementNumSessionsInUse();
     span.addAnnotation(sessionAnnotation(sess));
@@ -923,7 +1012,7 @@ final class SessionPool {
       if (numWaiters() >= numSessionsBeingCreated) {
         if (canCreateSession()) {
           span.addAnnotation("Creating session");
-          createSession();
+          createSessions(1);
         } else if (options.isFailIfPoolExhausted()) {
           span.addAnnotation("Pool exhausted. Failing");
           // throw specific exception
@@ -961,6 +1050,7 @@ final class SessionPool {
           prepareSession(session);
         } else {
           readSessions.add(session);
+          maybeCompleteWarmUp();
         }
       } else if (shouldUnblockReader()) {
         readWaiters.poll().put(session);
@@ -972,6 +1062,7 @@ final class SessionPool {
 
   private void handleCreateSessionFailure(SpannerException e) {
     synchronized (lock) {
+      failWarmUp(e);
       if (readWaiters.size() > 0) {
         readWaiters.poll().put(e);
       } else if (readWriteWaiters.size() > 0) {
@@ -982,6 +1073,7 @@ final class SessionPool {
 
   private void handlePrepareSessionFailure(SpannerException e, PooledSession session) {
     synchronized (lock) {
+      failWarmUp(e);
       if (isSessionNotFound(e)) {
         invalidateSession(session);
       } else if (readWriteWaiters.size() > 0) {
@@ -999,6 +1091,59 @@ final class SessionPool {
     }
   }
 
+  /**
+   * Returns a future that completes once the pool holds {@link SessionPoolOptions#getMinSessions()}
+   * sessions, of which the fraction given by {@link SessionPoolOptions#getWriteSessionsFraction()}
+   * has been prepared for read/write transactions. Sessions that are missing, for example because
+   * an earlier attempt to create them failed, are created in a single batch. The future fails if
+   * the creation of a session fails or the pool is closed before it is ready.
+   */
+  ListenableFuture<Void> warmUp() {
+    synchronized (lock) {
+      if (closureFuture != null) {
+        throw new IllegalStateException("Pool has been closed");
+      }
+      SettableFuture<Void> future = SettableFuture.create();
+      if (isWarmedUp()) {
+        future.set(null);
+      } else {
+        warmUpFutures.add(future);
+        createSessions(options.getMinSessions() - (totalSessions() + numSessionsBeingCreated));
+      }
+      return future;
+    }
+  }
+
+  private boolean isWarmedUp() {
+    synchronized (lock) {
+      int readySessions = readSessions.size() + writePreparedSessions.size() + numSessionsInUse;
+      int preparedSessions =
+          (int) Math.floor(options.getWriteSessionsFraction() * options.getMinSessions());
+      return readySessions >= options.getMinSessions()
+          && writePreparedSessions.size() >= preparedSessions;
+    }
+  }
+
+  private void maybeCompleteWarmUp() {
+    synchronized (lock) {
+      if (!warmUpFutures.isEmpty() && isWarmedUp()) {
+        for (SettableFuture<Void> future : warmUpFutures) {
+          future.set(null);
+        }
+        warmUpFutures.clear();
+      }
+    }
+  }
+
+  private void failWarmUp(SpannerException e) {
+    synchronized (lock) {
+      for (SettableFuture<Void> future : warmUpFutures) {
+        future.setException(e);
+      }
+      warmUpFutures.clear();
+    }
+  }
+
   /**
    * Close all the sessions. Once this method is invoked {@link #getReadSession()} and {@link
    * #getReadWriteSession()} will start throwing {@code IllegalStateException}. The returned future
@@ -1021,6 +1166,7 @@ final class SessionPool {
         waiter.put(newSpannerException(ErrorCode.INTERNAL, "Client has been closed"));
         waiter = readWriteWaiters.poll();
       }
+      failWarmUp(newSpannerException(ErrorCode.INTERNAL, "Client has been closed"));
       closureFuture = SettableFuture.create();
       retFuture = closureFuture;
       pendingClosure =
@@ -1106,7 +1252,7 @@ final class SessionPool {
         }
         // Create a new session if needed to unblock some waiter.
         if (numWaiters() > numSessionsBeingCreated) {
-          createSession();
+          createSessions(1);
         }
       }
     }
@@ -1133,6 +1279,7 @@ final class SessionPool {
                     readWaiters.poll().put(sess);
                   } else {
                     writePreparedSessions.add(sess);
+                    maybeCompleteWarmUp();
                   }
                 }
               }
@@ -1154,29 +1301,34 @@ final class SessionPool {
     }
   }
 
-  private void createSession() {
-    logger.log(Level.FINE, "Creating session");
+  /**
+   * Creates {@code sessionCount} sessions in a single batch. The sessions are created
+   * asynchronously and spread over the channels of the client, see {@link
+   * SpannerImpl#asyncBatchCreateSessions}.
+   */
+  private void createSessions(int sessionCount) {
+    if (sessionCount <= 0) {
+      return;
+    }
+    logger.log(Level.FINE, "Creating {0} sessions", sessionCount);
     synchronized (lock) {
-      numSessionsBeingCreated++;
-      executor.submit(
+      numSessionsBeingCreated += sessionCount;
+      spanner.asyncBatchCreateSessions(db, sessionCount, executor, sessionConsumer);
+    }
+  }
+
+  /**
+   * Adds the sessions created by {@link #createSessions} to the pool. The callbacks are moved to
+   * the pool executor, as adding a session may hand it over to a waiter or close it.
+   */
+  private final class SessionConsumerImpl implements SessionConsumer {
+    @Override
+    public void onSessionReady(final Session session) {
+      executor.execute(
           new Runnable() {
             @Override
             public void run() {
-              Session session = null;
-              try {
-                session = spanner.createSession(db);
-                logger.log(Level.FINE, "Session created");
-              } catch (Throwable t) {
-                // Expose this to customer via a metric.
-                synchronized (lock) {
-                  numSessionsBeingCreated--;
-                  if (isClosed()) {
-                    decrementPendingClosures();
-                  }
-                  handleCreateSessionFailure(newSpannerException(t));
-                }
-                return;
-              }
+              logger.log(Level.FINE, "Session created");
               boolean closeSession = false;
               PooledSession pooledSession = null;
               synchronized (lock) {
@@ -1196,5 +1348,23 @@ final class SessionPool {
             }
           });
     }
+
+    @Override
+    public void onSessionCreateFailure(final SpannerException e) {
+      executor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              // Expose this to customer via a metric.
+              synchronized (lock) {
+                numSessionsBeingCreated--;
+                if (isClosed()) {
+                  decrementPendingClosures();
+                }
+                handleCreateSessionFailure(e);
+              }
+            }
+          });
+    }
   }
 }
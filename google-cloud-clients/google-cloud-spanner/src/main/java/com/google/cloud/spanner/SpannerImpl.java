@@ -24,6 +24,10 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.api.client.util.BackOff;
 import com.google.api.client.util.ExponentialBackOff;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.ListenableFutureToApiFuture;
 import com.google.api.gax.paging.Page;
 import com.google.api.pathtemplate.PathTemplate;
 import com.google.cloud.BaseService;
@@ -36,6 +40,7 @@ import com.google.cloud.spanner.Operation.Parser;
 import com.google.cloud.spanner.Options.ListOption;
 import com.google.cloud.spanner.Options.QueryOption;
 import com.google.cloud.spanner.Options.ReadOption;
+import com.google.cloud.spanner.spi.v1.GrpcSpannerRpc;
 import com.google.cloud.spanner.spi.v1.SpannerRpc;
 import com.google.cloud.spanner.spi.v1.SpannerRpc.Paginated;
 import com.google.common.annotations.VisibleForTesting;
@@ -48,6 +53,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.protobuf.Any;
 import com.google.protobuf.ByteString;
@@ -102,7 +108,9 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -112,6 +120,9 @@ import javax.annotation.concurrent.GuardedBy;
 class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
   private static final int MIN_BACKOFF_MS = 1000;
   private static final int MAX_BACKOFF_MS = 32000;
+  // Limits the CreateSession calls that a batch keeps in flight on a single channel, so that a large
+  // batch does not exhaust the concurrent streams of the channel.
+  @VisibleForTesting static final int MAX_CONCURRENT_SESSION_CREATES_PER_CHANNEL = 25;
   private static final PathTemplate OP_NAME_TEMPLATE =
       PathTemplate.create(
           "projects/{project}/instances/{instance}/databases/{database}/operations/{operation}");
@@ -266,6 +277,142 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
     }
   }
 
+  /** Receives the sessions created by {@link #asyncBatchCreateSessions}. */
+  interface SessionConsumer {
+    /** Called once for every session that was created. Must not block. */
+    void onSessionReady(Session session);
+
+    /** Called once for every session that could not be created. Must not block. */
+    void onSessionCreateFailure(SpannerException e);
+  }
+
+  /**
+   * Asynchronously creates {@code sessionCount} sessions. The sessions are spread evenly over the
+   * gRPC channels, and each channel creates its share with at most {@link
+   * #MAX_CONCURRENT_SESSION_CREATES_PER_CHANNEL} concurrent calls, so no thread blocks while the
+   * sessions are being created. Retryable failures are retried with backoff on {@code executor}.
+   * {@code consumer} is invoked exactly once per requested session.
+   */
+  void asyncBatchCreateSessions(
+      DatabaseId db,
+      int sessionCount,
+      ScheduledExecutorService executor,
+      SessionConsumer consumer) {
+    int numChannels = Math.max(1, getOptions().getNumChannels());
+    int firstChannel = random.nextInt(numChannels);
+    for (int i = 0; i < numChannels && i < sessionCount; i++) {
+      // Channel i gets sessionCount / numChannels sessions, plus one of the remainder.
+      int channelSessionCount =
+          sessionCount / numChannels + (i < sessionCount % numChannels ? 1 : 0);
+      ChannelSessionCreator creator =
+          new ChannelSessionCreator(
+              db, (firstChannel + i) % numChannels, channelSessionCount, executor, consumer);
+      int concurrentCreates =
+          Math.min(channelSessionCount, MAX_CONCURRENT_SESSION_CREATES_PER_CHANNEL);
+      for (int j = 0; j < concurrentCreates; j++) {
+        creator.createNext();
+      }
+    }
+  }
+
+  /** Creates the share of a batch of sessions assigned to a single channel. */
+  private final class ChannelSessionCreator {
+    private final DatabaseId db;
+    private final Map<SpannerRpc.Option, ?> options;
+    private final AtomicInteger remainingSessions;
+    private final ScheduledExecutorService executor;
+    private final SessionConsumer consumer;
+
+    private ChannelSessionCreator(
+        DatabaseId db,
+        long channelHint,
+        int sessionCount,
+        ScheduledExecutorService executor,
+        SessionConsumer consumer) {
+      this.db = db;
+      this.options = optionMap(SessionOption.channelHint(channelHint));
+      this.remainingSessions = new AtomicInteger(sessionCount);
+      this.executor = executor;
+      this.consumer = consumer;
+    }
+
+    private void createNext() {
+      if (remainingSessions.getAndDecrement() > 0) {
+        // ExponentialBackOff isn't thread-safe, so each session retries with its own.
+        create(newBackOff());
+      }
+    }
+
+    private void create(final BackOff backOff) {
+      final Span span = tracer.spanBuilder(CREATE_SESSION).startSpan();
+      ApiFutures.addCallback(
+          createSessionAsync(db.getName(), options, executor),
+          new ApiFutureCallback<com.google.spanner.v1.Session>() {
+            @Override
+            public void onSuccess(com.google.spanner.v1.Session session) {
+              span.end();
+              consumer.onSessionReady(new SessionImpl(session.getName(), options));
+              createNext();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              SpannerException e = newSpannerException(t);
+              TraceUtil.endSpanWithFailure(span, e);
+              if (e.isRetryable()) {
+                logger.log(Level.FINE, "Retryable exception, will back off and retry", e);
+                scheduleRetry(e, backOff);
+              } else {
+                consumer.onSessionCreateFailure(e);
+                createNext();
+              }
+            }
+          },
+          DirectExecutor.INSTANCE);
+    }
+
+    private void scheduleRetry(SpannerException e, final BackOff backOff) {
+      long delay = e.getRetryDelayInMillis();
+      if (delay == -1) {
+        delay = nextBackOffMillis(backOff);
+      }
+      if (delay == BackOff.STOP) {
+        delay = MAX_BACKOFF_MS;
+      }
+      executor.schedule(
+          new Runnable() {
+            @Override
+            public void run() {
+              create(backOff);
+            }
+          },
+          delay,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Creates a session without blocking if the rpc supports it, or with a blocking call on {@code
+   * executor} otherwise.
+   */
+  private ApiFuture<com.google.spanner.v1.Session> createSessionAsync(
+      final String databaseName, final Map<SpannerRpc.Option, ?> options, Executor executor) {
+    final Map<String, String> labels = getOptions().getSessionLabels();
+    if (rpc instanceof GrpcSpannerRpc) {
+      return ((GrpcSpannerRpc) rpc).createSessionAsync(databaseName, labels, options);
+    }
+    ListenableFutureTask<com.google.spanner.v1.Session> task =
+        ListenableFutureTask.create(
+            new Callable<com.google.spanner.v1.Session>() {
+              @Override
+              public com.google.spanner.v1.Session call() {
+                return rpc.createSession(databaseName, labels, options);
+              }
+            });
+    executor.execute(task);
+    return new ListenableFutureToApiFuture<>(task);
+  }
+
   SessionImpl sessionWithId(String name) {
     final Map<SpannerRpc.Option, ?> options =
         SpannerImpl.optionMap(SessionOption.channelHint(random.nextLong()));
@@ -931,7 +1078,7 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
   }
 
   abstract static class AbstractReadContext
-      implements ReadContext, AbstractResultSet.Listener, SessionTransaction {
+      implements AsyncReadContext, AbstractResultSet.Listener, SessionTransaction {
     final Object lock = new Object();
     final SessionImpl session;
     final SpannerRpc rpc;
@@ -994,6 +1141,18 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
           statement, com.google.spanner.v1.ExecuteSqlRequest.QueryMode.NORMAL, options);
     }
 
+    @Override
+    public final AsyncResultSet readAsync(
+        String table, KeySet keys, Iterable<String> columns, ReadOption... options) {
+      return new AsyncResultSetImpl(
+          Futures.immediateFuture(readInternal(table, null, keys, columns, options)));
+    }
+
+    @Override
+    public final AsyncResultSet executeQueryAsync(Statement statement, QueryOption... options) {
+      return new AsyncResultSetImpl(Futures.immediateFuture(executeQuery(statement, options)));
+    }
+
     @Override
     public final ResultSet analyzeQuery(
         Statement statement, QueryAnalyzeMode readContextQueryMode) {
@@ -1068,7 +1227,7 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
               return stream;
             }
           };
-      return new GrpcResultSet(stream, this, queryMode);
+      return new GrpcResultSet(stream, this, queryMode, readOptions.hasUnboxedScalars());
     }
 
     /**
@@ -1182,7 +1341,11 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
             }
           };
       GrpcResultSet resultSet =
-          new GrpcResultSet(stream, this, com.google.spanner.v1.ExecuteSqlRequest.QueryMode.NORMAL);
+          new GrpcResultSet(
+              stream,
+              this,
+              com.google.spanner.v1.ExecuteSqlRequest.QueryMode.NORMAL,
+              readOptions.hasUnboxedScalars());
       return resultSet;
     }
 
@@ -1834,10 +1997,12 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
   }
 
   @VisibleForTesting
-  static class GrpcResultSet extends AbstractResultSet<List<Object>> {
+  static class GrpcResultSet extends AbstractResultSet<List<Object>>
+      implements AsyncResultSetImpl.StreamingResultSet {
     private final GrpcValueIterator iterator;
     private final Listener listener;
     private final QueryMode queryMode;
+    private final boolean decodeScalarsUnboxed;
     private GrpcStruct currRow;
     private SpannerException error;
     private ResultSetStats statistics;
@@ -1845,9 +2010,22 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
 
     GrpcResultSet(
         CloseableIterator<PartialResultSet> iterator, Listener listener, QueryMode queryMode) {
+      this(iterator, listener, queryMode, false);
+    }
+
+    /**
+     * @param decodeScalarsUnboxed whether BOOL, INT64 and FLOAT64 columns are decoded into a
+     *     primitive buffer that is reused for every row, see {@link Options#unboxedScalars()}
+     */
+    GrpcResultSet(
+        CloseableIterator<PartialResultSet> iterator,
+        Listener listener,
+        QueryMode queryMode,
+        boolean decodeScalarsUnboxed) {
       this.iterator = new GrpcValueIterator(iterator);
       this.listener = listener;
       this.queryMode = queryMode;
+      this.decodeScalarsUnboxed = decodeScalarsUnboxed;
     }
 
     @Override
@@ -1868,7 +2046,7 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
           if (metadata.hasTransaction()) {
             listener.onTransactionMetadata(metadata.getTransaction());
           }
-          currRow = new GrpcStruct(iterator.type(), new ArrayList<>());
+          currRow = new GrpcStruct(iterator.type(), new ArrayList<>(), decodeScalarsUnboxed);
         }
         boolean hasNext = currRow.consumeRow(iterator);
         if (queryMode != QueryMode.NORMAL && !hasNext) {
@@ -1897,6 +2075,24 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
       closed = true;
     }
 
+    @Override
+    public boolean isReady() {
+      return error != null || closed || iterator.isReady();
+    }
+
+    @Override
+    public boolean isRowReady() {
+      return error != null
+          || closed
+          || (currRow != null
+              && iterator.hasBufferedValues(currRow.getType().getStructFields().size()));
+    }
+
+    @Override
+    public void setReadyListener(Runnable listener) {
+      iterator.setReadyListener(listener);
+    }
+
     @Override
     public Type getType() {
       checkState(currRow != null, "next() call required");
@@ -1911,9 +2107,14 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
   }
 
   private static class GrpcStruct extends Struct implements Serializable {
+    // Placeholder in rowData for a non-null BOOL, INT64 or FLOAT64 value held in scalarData.
+    private static final Object SCALAR = new Object();
 
     protected final Type type;
     protected final List<Object> rowData;
+    // Non-null if scalar columns are decoded into this reusable buffer instead of being boxed.
+    // FLOAT64 values are stored as their raw long bits and BOOL values as 0 or 1.
+    private final long[] scalarData;
 
     /**
      * Builds an immutable version of this struct using {@link Struct#newBuilder()} which is used
@@ -1925,7 +2126,7 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
       for (int i = 0; i < structFields.size(); i++) {
         Type.StructField field = structFields.get(i);
         String fieldName = field.getName();
-        Object value = rowData.get(i);
+        Object value = getValue(i);
         Type fieldType = field.getType();
         switch (fieldType.getCode()) {
           case BOOL:
@@ -1998,13 +2199,23 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
     }
 
     GrpcStruct(Type type, List<Object> rowData) {
+      this(type, rowData, false);
+    }
+
+    /**
+     * @param decodeScalarsUnboxed whether {@link #consumeRow} decodes BOOL, INT64 and FLOAT64
+     *     columns into a primitive buffer that is reused for every row
+     */
+    GrpcStruct(Type type, List<Object> rowData, boolean decodeScalarsUnboxed) {
       this.type = type;
       this.rowData = rowData;
+      this.scalarData =
+          decodeScalarsUnboxed ? new long[type.getStructFields().size()] : null;
     }
 
     @Override
     public String toString() {
-      return this.rowData.toString();
+      return boxedRowData().toString();
     }
 
     boolean consumeRow(Iterator<com.google.protobuf.Value> iterator) {
@@ -2012,18 +2223,79 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
       if (!iterator.hasNext()) {
         return false;
       }
-      for (Type.StructField fieldType : getType().getStructFields()) {
+      List<Type.StructField> fields = getType().getStructFields();
+      for (int i = 0; i < fields.size(); i++) {
         if (!iterator.hasNext()) {
           throw newSpannerException(
               ErrorCode.INTERNAL,
               "Invalid value stream: end of stream reached before row is complete");
         }
         com.google.protobuf.Value value = iterator.next();
-        rowData.add(decodeValue(fieldType.getType(), value));
+        Type fieldType = fields.get(i).getType();
+        if (scalarData != null && decodeScalarValue(i, fieldType, value)) {
+          rowData.add(SCALAR);
+        } else {
+          rowData.add(decodeValue(fieldType, value));
+        }
       }
       return true;
     }
 
+    /**
+     * Decodes a non-null BOOL, INT64 or FLOAT64 value into {@code scalarData}, returning false for
+     * any other value.
+     */
+    private boolean decodeScalarValue(
+        int columnIndex, Type fieldType, com.google.protobuf.Value proto) {
+      if (proto.getKindCase() == KindCase.NULL_VALUE) {
+        return false;
+      }
+      switch (fieldType.getCode()) {
+        case BOOL:
+          checkType(fieldType, proto, KindCase.BOOL_VALUE);
+          scalarData[columnIndex] = proto.getBoolValue() ? 1L : 0L;
+          return true;
+        case INT64:
+          checkType(fieldType, proto, KindCase.STRING_VALUE);
+          scalarData[columnIndex] = Long.parseLong(proto.getStringValue());
+          return true;
+        case FLOAT64:
+          scalarData[columnIndex] = Double.doubleToRawLongBits(valueProtoToFloat64(proto));
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    /** Returns the value of a column, boxing it if it was decoded into {@code scalarData}. */
+    private Object getValue(int columnIndex) {
+      Object value = rowData.get(columnIndex);
+      if (value != SCALAR) {
+        return value;
+      }
+      switch (type.getStructFields().get(columnIndex).getType().getCode()) {
+        case BOOL:
+          return scalarData[columnIndex] != 0L;
+        case INT64:
+          return scalarData[columnIndex];
+        case FLOAT64:
+          return Double.longBitsToDouble(scalarData[columnIndex]);
+        default:
+          throw new AssertionError("Unexpected scalar column " + columnIndex);
+      }
+    }
+
+    private List<Object> boxedRowData() {
+      if (scalarData == null) {
+        return rowData;
+      }
+      List<Object> boxed = new ArrayList<>(rowData.size());
+      for (int i = 0; i < rowData.size(); i++) {
+        boxed.add(getValue(i));
+      }
+      return boxed;
+    }
+
     private static Object decodeValue(Type fieldType, com.google.protobuf.Value proto) {
       if (proto.getKindCase() == KindCase.NULL_VALUE) {
         return null;
@@ -2172,7 +2444,7 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
     }
 
     Struct immutableCopy() {
-      return new GrpcStruct(type, new ArrayList<>(rowData));
+      return new GrpcStruct(type, new ArrayList<>(boxedRowData()));
     }
 
     @Override
@@ -2187,17 +2459,22 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
 
     @Override
     protected boolean getBooleanInternal(int columnIndex) {
-      return (Boolean) rowData.get(columnIndex);
+      Object value = rowData.get(columnIndex);
+      return value == SCALAR ? scalarData[columnIndex] != 0L : (Boolean) value;
     }
 
     @Override
     protected long getLongInternal(int columnIndex) {
-      return (Long) rowData.get(columnIndex);
+      Object value = rowData.get(columnIndex);
+      return value == SCALAR ? scalarData[columnIndex] : (Long) value;
     }
 
     @Override
     protected double getDoubleInternal(int columnIndex) {
-      return (Double) rowData.get(columnIndex);
+      Object value = rowData.get(columnIndex);
+      return value == SCALAR
+          ? Double.longBitsToDouble(scalarData[columnIndex])
+          : (Double) value;
     }
 
     @Override
@@ -2305,6 +2582,15 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
      * @param message a message to include in the final RPC status
      */
     void close(@Nullable String message);
+
+    /** Returns true if {@link #hasNext()} can be called without waiting for the network. */
+    boolean isReady();
+
+    /**
+     * Sets a listener that is invoked whenever new data has been received, starting the underlying
+     * call if needed.
+     */
+    void setReadyListener(Runnable listener);
   }
 
   /** Adapts a streaming read/query call into an iterator over partial result sets. */
@@ -2318,6 +2604,7 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
 
     private SpannerRpc.StreamingCall call;
     private SpannerException error;
+    private volatile Runnable readyListener;
 
     // Visible for testing.
     GrpcStreamIterator(int prefetchChunks) {
@@ -2340,6 +2627,19 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
       }
     }
 
+    @Override
+    public boolean isReady() {
+      return !stream.isEmpty();
+    }
+
+    @Override
+    public void setReadyListener(Runnable listener) {
+      this.readyListener = listener;
+      if (!stream.isEmpty()) {
+        listener.run();
+      }
+    }
+
     @Override
     protected final PartialResultSet computeNext() {
       PartialResultSet next;
@@ -2372,6 +2672,10 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
     private void addToStream(PartialResultSet results) {
       // We assume that nothing from the user will interrupt gRPC event threads.
       Uninterruptibles.putUninterruptibly(stream, results);
+      Runnable listener = readyListener;
+      if (listener != null) {
+        listener.run();
+      }
     }
 
     private class ConsumerImpl implements SpannerRpc.ResultStreamConsumer {
@@ -2415,6 +2719,7 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
     private CloseableIterator<PartialResultSet> stream;
     private ByteString resumeToken;
     private boolean finished;
+    private Runnable readyListener;
     /**
      * Indicates whether it is currently safe to retry RPCs. This will be {@code false} if we have
      * reached the maximum buffer size without seeing a restart token; in this case, we will drain
@@ -2438,21 +2743,47 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
       }
     }
 
+    @Override
+    public boolean isReady() {
+      return finished || canFlushBuffer() || (stream != null && stream.isReady());
+    }
+
+    @Override
+    public void setReadyListener(Runnable listener) {
+      this.readyListener = listener;
+      if (stream == null) {
+        startStream();
+      } else {
+        stream.setReadyListener(listener);
+      }
+    }
+
+    private void startStream() {
+      span.addAnnotation("Starting/Resuming stream",
+          ImmutableMap.of("ResumeToken",
+              AttributeValue.stringAttributeValue(
+                  resumeToken == null ? "null" : resumeToken.toStringUtf8())));
+      stream = checkNotNull(startStream(resumeToken));
+      if (readyListener != null) {
+        stream.setReadyListener(readyListener);
+      }
+    }
+
+    /** Buffer contains items up to a resume token or has reached capacity. */
+    private boolean canFlushBuffer() {
+      return !buffer.isEmpty()
+          && (finished || !safeToRetry || !buffer.getLast().getResumeToken().isEmpty());
+    }
+
     @Override
     protected PartialResultSet computeNext() {
       Context context = Context.current();
       while (true) {
         // Eagerly start stream before consuming any buffered items.
         if (stream == null) {
-          span.addAnnotation("Starting/Resuming stream",
-              ImmutableMap.of("ResumeToken",
-                  AttributeValue.stringAttributeValue(
-                      resumeToken == null ? "null" : resumeToken.toStringUtf8())));
-          stream = checkNotNull(startStream(resumeToken));
+          startStream();
         }
-        // Buffer contains items up to a resume token or has reached capacity: flush.
-        if (!buffer.isEmpty()
-            && (finished || !safeToRetry || !buffer.getLast().getResumeToken().isEmpty())) {
+        if (canFlushBuffer()) {
           return buffer.pop();
         }
         try {
@@ -2535,6 +2866,28 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
       this.stream = stream;
     }
 
+    /** Returns true if the next value, or the end of the stream, has already been received. */
+    boolean isReady() {
+      return (current != null && pos < current.getValuesCount()) || stream.isReady();
+    }
+
+    /**
+     * Returns true if the next {@code count} values can be returned without reading from the
+     * stream.
+     */
+    boolean hasBufferedValues(int count) {
+      if (current == null) {
+        return false;
+      }
+      int end = pos + count;
+      return end < current.getValuesCount()
+          || (end == current.getValuesCount() && !current.getChunkedValue());
+    }
+
+    void setReadyListener(Runnable listener) {
+      stream.setReadyListener(listener);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     protected com.google.protobuf.Value computeNext() {
@@ -217,6 +217,14 @@ public class SpannerOptions extends ServiceOptions<Spanner, SpannerOptions> {
     return rpcChannels;
   }
 
+  /**
+   * Returns the number of gRPC channels used by the client. See {@link
+   * Builder#setNumChannels(int)}.
+   */
+  public int getNumChannels() {
+    return numChannels;
+  }
+
   public SessionPoolOptions getSessionPoolOptions() {
     return sessionPoolOptions;
   }
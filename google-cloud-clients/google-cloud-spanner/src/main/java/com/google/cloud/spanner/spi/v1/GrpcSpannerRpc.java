@@ -18,6 +18,8 @@ package com.google.cloud.spanner.spi.v1;
 
 import static com.google.cloud.spanner.SpannerExceptionFactory.newSpannerException;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ListenableFutureToApiFuture;
 import com.google.api.gax.core.GaxProperties;
 import com.google.api.gax.grpc.GaxGrpcProperties;
 import com.google.api.gax.rpc.ApiClientHeaderProvider;
@@ -31,6 +33,7 @@ import com.google.cloud.spanner.SpannerOptions;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.longrunning.GetOperationRequest;
 import com.google.longrunning.Operation;
 import com.google.longrunning.OperationsGrpc;
@@ -341,18 +344,32 @@ public class GrpcSpannerRpc implements SpannerRpc {
   @Override
   public Session createSession(
       String databaseName, @Nullable Map<String, String> labels, @Nullable Map<Option, ?> options) {
+    return get(doCreateSession(databaseName, labels, options));
+  }
+
+  /**
+   * Creates a session without blocking the calling thread. The returned future fails with the
+   * gRPC exception of the call if the session could not be created; callers are expected to convert
+   * it to a {@link SpannerException} and to retry if appropriate.
+   */
+  public ApiFuture<Session> createSessionAsync(
+      String databaseName, @Nullable Map<String, String> labels, @Nullable Map<Option, ?> options) {
+    return new ListenableFutureToApiFuture<>(doCreateSession(databaseName, labels, options));
+  }
+
+  private ListenableFuture<Session> doCreateSession(
+      String databaseName, @Nullable Map<String, String> labels, @Nullable Map<Option, ?> options) {
     CreateSessionRequest.Builder request =
         CreateSessionRequest.newBuilder().setDatabase(databaseName);
     if (labels != null && !labels.isEmpty()) {
       Session.Builder session = Session.newBuilder().putAllLabels(labels);
       request.setSession(session);
     }
-    return get(
-        doUnaryCall(
-            SpannerGrpc.getCreateSessionMethod(),
-            request.build(),
-            databaseName,
-            Option.CHANNEL_HINT.getLong(options)));
+    return doUnaryCall(
+        SpannerGrpc.getCreateSessionMethod(),
+        request.build(),
+        databaseName,
+        Option.CHANNEL_HINT.getLong(options));
   }
 
   @Override
@@ -457,7 +474,7 @@ public class GrpcSpannerRpc implements SpannerRpc {
     }
   }
 
-  private <ReqT, RespT> Future<RespT> doUnaryCall(
+  private <ReqT, RespT> ListenableFuture<RespT> doUnaryCall(
       MethodDescriptor<ReqT, RespT> method,
       ReqT request,
       @Nullable String resource,
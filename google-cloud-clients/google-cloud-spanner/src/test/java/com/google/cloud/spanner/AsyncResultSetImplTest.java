@@ -0,0 +1,269 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.spanner.AsyncResultSet.CallbackResponse;
+import com.google.cloud.spanner.AsyncResultSet.CursorState;
+import com.google.cloud.spanner.AsyncResultSet.ReadyCallback;
+import com.google.cloud.spanner.spi.v1.SpannerRpc;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.spanner.v1.ExecuteSqlRequest.QueryMode;
+import com.google.spanner.v1.PartialResultSet;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.Transaction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link AsyncResultSetImpl}. */
+@RunWith(JUnit4.class)
+public class AsyncResultSetImplTest {
+  private static final Type TYPE = Type.struct(Type.StructField.of("f", Type.string()));
+
+  private SpannerRpc.ResultStreamConsumer consumer;
+  private SpannerImpl.GrpcResultSet grpcResultSet;
+  private int requestedMessages;
+
+  private static class NoOpListener implements SpannerImpl.AbstractResultSet.Listener {
+    @Override
+    public void onTransactionMetadata(Transaction transaction) throws SpannerException {}
+
+    @Override
+    public void onError(SpannerException e) {}
+
+    @Override
+    public void onDone() {}
+  }
+
+  /** Collects the rows of the result set, returning CONTINUE when no more rows are ready. */
+  private static class CollectingCallback implements ReadyCallback {
+    final List<String> rows = new ArrayList<>();
+    int invocations;
+
+    @Override
+    public CallbackResponse cursorReady(AsyncResultSet resultSet) {
+      invocations++;
+      while (true) {
+        switch (resultSet.tryNext()) {
+          case OK:
+            rows.add(resultSet.getString(0));
+            break;
+          case NOT_READY:
+            return CallbackResponse.CONTINUE;
+          case DONE:
+            return CallbackResponse.DONE;
+        }
+      }
+    }
+  }
+
+  @Before
+  public void setUp() {
+    SpannerImpl.GrpcStreamIterator stream = new SpannerImpl.GrpcStreamIterator(10);
+    stream.setCall(
+        new SpannerRpc.StreamingCall() {
+          @Override
+          public void cancel(@Nullable String message) {}
+
+          @Override
+          public void request(int numMessages) {
+            requestedMessages += numMessages;
+          }
+        });
+    consumer = stream.consumer();
+    grpcResultSet = new SpannerImpl.GrpcResultSet(stream, new NoOpListener(), QueryMode.NORMAL);
+  }
+
+  private static PartialResultSet rows(boolean withMetadata, String... values) {
+    PartialResultSet.Builder builder = PartialResultSet.newBuilder();
+    if (withMetadata) {
+      builder.setMetadata(
+          ResultSetMetadata.newBuilder().setRowType(TYPE.toProto().getStructType()).build());
+    }
+    for (String value : values) {
+      builder.addValues(Value.string(value).toProto());
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void tryNextDoesNotBlock() {
+    AsyncResultSet resultSet = new AsyncResultSetImpl(Futures.immediateFuture(grpcResultSet));
+    assertThat(resultSet.tryNext()).isEqualTo(CursorState.NOT_READY);
+    consumer.onPartialResultSet(rows(true, "a"));
+    assertThat(resultSet.tryNext()).isEqualTo(CursorState.OK);
+    assertThat(resultSet.getString(0)).isEqualTo("a");
+    assertThat(resultSet.tryNext()).isEqualTo(CursorState.NOT_READY);
+    consumer.onCompleted();
+    assertThat(resultSet.tryNext()).isEqualTo(CursorState.DONE);
+    assertThat(resultSet.tryNext()).isEqualTo(CursorState.DONE);
+  }
+
+  @Test
+  public void callbackIsInvokedAsRowsArrive() throws Exception {
+    AsyncResultSet resultSet = new AsyncResultSetImpl(Futures.immediateFuture(grpcResultSet));
+    CollectingCallback callback = new CollectingCallback();
+    ApiFuture<Void> done = resultSet.setCallback(MoreExecutors.directExecutor(), callback);
+    assertThat(callback.invocations).isEqualTo(1);
+    assertThat(callback.rows).isEmpty();
+
+    consumer.onPartialResultSet(rows(true, "a", "b"));
+    assertThat(callback.rows).containsExactly("a", "b").inOrder();
+    consumer.onPartialResultSet(rows(false, "c"));
+    assertThat(callback.rows).containsExactly("a", "b", "c").inOrder();
+    assertThat(done.isDone()).isFalse();
+
+    consumer.onCompleted();
+    done.get();
+    assertThat(callback.invocations).isEqualTo(4);
+    assertThat(requestedMessages).isEqualTo(2);
+  }
+
+  @Test
+  public void rowSpanningMessagesIsNotReadOnCallbackThread() throws Exception {
+    final List<Runnable> tasks = new ArrayList<>();
+    Executor executor =
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            tasks.add(command);
+          }
+        };
+    AsyncResultSet resultSet = new AsyncResultSetImpl(Futures.immediateFuture(grpcResultSet));
+    CollectingCallback callback = new CollectingCallback();
+    ApiFuture<Void> done = resultSet.setCallback(executor, callback);
+    consumer.onPartialResultSet(rows(true, "ab").toBuilder().setChunkedValue(true).build());
+    // The callback returns without waiting for the second half of the row.
+    tasks.remove(0).run();
+    assertThat(callback.rows).isEmpty();
+    assertThat(callback.invocations).isEqualTo(1);
+    assertThat(tasks).hasSize(1);
+
+    consumer.onPartialResultSet(rows(false, "cd"));
+    consumer.onCompleted();
+    while (!tasks.isEmpty()) {
+      tasks.remove(0).run();
+    }
+    done.get();
+    assertThat(callback.rows).containsExactly("abcd");
+  }
+
+  @Test
+  public void pauseAndResume() throws Exception {
+    AsyncResultSet resultSet = new AsyncResultSetImpl(Futures.immediateFuture(grpcResultSet));
+    final List<String> rows = new ArrayList<>();
+    ApiFuture<Void> done =
+        resultSet.setCallback(
+            MoreExecutors.directExecutor(),
+            new ReadyCallback() {
+              @Override
+              public CallbackResponse cursorReady(AsyncResultSet resultSet) {
+                switch (resultSet.tryNext()) {
+                  case OK:
+                    rows.add(resultSet.getString(0));
+                    return CallbackResponse.PAUSE;
+                  case NOT_READY:
+                    return CallbackResponse.CONTINUE;
+                  default:
+                    return CallbackResponse.DONE;
+                }
+              }
+            });
+    consumer.onPartialResultSet(rows(true, "a", "b"));
+    consumer.onCompleted();
+    assertThat(rows).containsExactly("a");
+
+    resultSet.resume();
+    assertThat(rows).containsExactly("a", "b").inOrder();
+    assertThat(done.isDone()).isFalse();
+
+    resultSet.resume();
+    done.get();
+  }
+
+  @Test
+  public void streamErrorFailsCallback() throws Exception {
+    AsyncResultSet resultSet = new AsyncResultSetImpl(Futures.immediateFuture(grpcResultSet));
+    CollectingCallback callback = new CollectingCallback();
+    ApiFuture<Void> done = resultSet.setCallback(MoreExecutors.directExecutor(), callback);
+    consumer.onPartialResultSet(rows(true, "a"));
+    consumer.onError(
+        SpannerExceptionFactory.newSpannerException(ErrorCode.DEADLINE_EXCEEDED, "outatime"));
+    try {
+      done.get();
+      fail("Expected exception");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(SpannerException.class);
+      assertThat(((SpannerException) e.getCause()).getErrorCode())
+          .isEqualTo(ErrorCode.DEADLINE_EXCEEDED);
+    }
+    assertThat(callback.rows).containsExactly("a");
+  }
+
+  @Test
+  public void resultSetIsNotReadyUntilFutureCompletes() throws Exception {
+    SettableFuture<ResultSet> future = SettableFuture.create();
+    AsyncResultSet resultSet = new AsyncResultSetImpl(future);
+    CollectingCallback callback = new CollectingCallback();
+    ApiFuture<Void> done = resultSet.setCallback(MoreExecutors.directExecutor(), callback);
+    consumer.onPartialResultSet(rows(true, "a"));
+    consumer.onCompleted();
+    assertThat(callback.rows).isEmpty();
+
+    future.set(grpcResultSet);
+    done.get();
+    assertThat(callback.rows).containsExactly("a");
+  }
+
+  @Test
+  public void failedFutureFailsTryNext() {
+    AsyncResultSet resultSet =
+        new AsyncResultSetImpl(
+            Futures.<ResultSet>immediateFailedFuture(
+                SpannerExceptionFactory.newSpannerException(ErrorCode.RESOURCE_EXHAUSTED, "none")));
+    try {
+      resultSet.tryNext();
+      fail("Expected exception");
+    } catch (SpannerException e) {
+      assertThat(e.getErrorCode()).isEqualTo(ErrorCode.RESOURCE_EXHAUSTED);
+    }
+  }
+
+  @Test
+  public void nextIsNotAllowedWithCallback() {
+    AsyncResultSet resultSet = new AsyncResultSetImpl(Futures.immediateFuture(grpcResultSet));
+    resultSet.setCallback(MoreExecutors.directExecutor(), new CollectingCallback());
+    try {
+      resultSet.next();
+      fail("Expected exception");
+    } catch (IllegalStateException e) {
+      // Expected.
+    }
+  }
+}
@@ -17,17 +17,23 @@
 package com.google.cloud.spanner;
 
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.grpc.GrpcTransportOptions.ExecutorFactory;
 import com.google.cloud.spanner.SessionPool.Clock;
+import com.google.cloud.spanner.SpannerImpl.SessionConsumer;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.threeten.bp.Instant;
 
 abstract class BaseSessionPoolTest {
@@ -65,6 +71,44 @@ abstract class BaseSessionPoolTest {
     return session;
   }
 
+  /**
+   * Makes the mocked {@code spanner} create the sessions of a batch one at a time on the pool
+   * executor with {@link SpannerImpl#createSession}, so that tests can stub individual sessions.
+   */
+  void setupBatchSessionCreation(final SpannerImpl spanner, final DatabaseId db) {
+    doAnswer(
+            new Answer<Void>() {
+              @Override
+              public Void answer(InvocationOnMock invocation) throws Throwable {
+                int sessionCount = (Integer) invocation.getArguments()[1];
+                ScheduledExecutorService executor =
+                    (ScheduledExecutorService) invocation.getArguments()[2];
+                final SessionConsumer consumer = (SessionConsumer) invocation.getArguments()[3];
+                for (int i = 0; i < sessionCount; i++) {
+                  executor.submit(
+                      new Runnable() {
+                        @Override
+                        public void run() {
+                          Session session;
+                          try {
+                            session = spanner.createSession(db);
+                          } catch (Throwable t) {
+                            consumer.onSessionCreateFailure(
+                                SpannerExceptionFactory.newSpannerException(t));
+                            return;
+                          }
+                          consumer.onSessionReady(session);
+                        }
+                      });
+                }
+                return null;
+              }
+            })
+        .when(spanner)
+        .asyncBatchCreateSessions(
+            eq(db), anyInt(), any(ScheduledExecutorService.class), any(SessionConsumer.class));
+  }
+
   void runMaintainanceLoop(FakeClock clock, SessionPool pool, long numCycles) {
     for (int i = 0; i < numCycles; i++) {
       pool.poolMaintainer.maintainPool();
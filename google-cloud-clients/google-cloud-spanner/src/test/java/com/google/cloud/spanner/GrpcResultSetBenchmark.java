@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.spanner.v1.ExecuteSqlRequest.QueryMode;
+import com.google.spanner.v1.PartialResultSet;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.Transaction;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the time it takes to scan a stream of 1M rows of INT64, FLOAT64, BOOL and STRING columns
+ * with a {@link SpannerImpl.GrpcResultSet}, with and without {@link Options#unboxedScalars()}.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.args="GrpcResultSetBenchmark -prof gc"} to also see the allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GrpcResultSetBenchmark {
+  private static final int ROWS = 1_000_000;
+  private static final int ROWS_PER_MESSAGE = 1_000;
+
+  private final List<PartialResultSet> messages = new ArrayList<>();
+
+  @Setup
+  public void setUp() {
+    Type type =
+        Type.struct(
+            Type.StructField.of("id", Type.int64()),
+            Type.StructField.of("score", Type.float64()),
+            Type.StructField.of("active", Type.bool()),
+            Type.StructField.of("name", Type.string()));
+    for (int row = 0; row < ROWS; ) {
+      PartialResultSet.Builder builder = PartialResultSet.newBuilder();
+      if (row == 0) {
+        builder.setMetadata(
+            ResultSetMetadata.newBuilder().setRowType(type.toProto().getStructType()));
+      }
+      for (int i = 0; i < ROWS_PER_MESSAGE; i++, row++) {
+        builder
+            .addValues(Value.int64(row).toProto())
+            .addValues(Value.float64(row / 7d).toProto())
+            .addValues(Value.bool(row % 2 == 0).toProto())
+            .addValues(Value.string("name-" + (row % 100)).toProto());
+      }
+      messages.add(builder.build());
+    }
+  }
+
+  @Benchmark
+  public void scanBoxed(Blackhole blackhole) {
+    scan(false, blackhole);
+  }
+
+  @Benchmark
+  public void scanUnboxedScalars(Blackhole blackhole) {
+    scan(true, blackhole);
+  }
+
+  private void scan(boolean unboxedScalars, Blackhole blackhole) {
+    try (ResultSet resultSet =
+        new SpannerImpl.GrpcResultSet(
+            new MessageIterator(messages.iterator()),
+            new NoOpListener(),
+            QueryMode.NORMAL,
+            unboxedScalars)) {
+      while (resultSet.next()) {
+        blackhole.consume(resultSet.getLong(0));
+        blackhole.consume(resultSet.getDouble(1));
+        blackhole.consume(resultSet.getBoolean(2));
+        blackhole.consume(resultSet.getString(3));
+      }
+    }
+  }
+
+  /** Replays pre-built messages, as if they were already buffered from the network. */
+  private static final class MessageIterator extends AbstractIterator<PartialResultSet>
+      implements SpannerImpl.CloseableIterator<PartialResultSet> {
+    private final Iterator<PartialResultSet> messages;
+
+    MessageIterator(Iterator<PartialResultSet> messages) {
+      this.messages = messages;
+    }
+
+    @Override
+    protected PartialResultSet computeNext() {
+      return messages.hasNext() ? messages.next() : endOfData();
+    }
+
+    @Override
+    public void close(@Nullable String message) {}
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setReadyListener(Runnable listener) {
+      listener.run();
+    }
+  }
+
+  private static final class NoOpListener implements SpannerImpl.AbstractResultSet.Listener {
+    @Override
+    public void onTransactionMetadata(Transaction transaction) {}
+
+    @Override
+    public void onError(SpannerException e) {}
+
+    @Override
+    public void onDone() {}
+  }
+}
@@ -186,6 +186,51 @@ public class GrpcResultSetTest {
     assertThat(consumeAllString()).containsExactly("a", "b", "c", "d", "e", "f").inOrder();
   }
 
+  @Test
+  public void unboxedScalars() {
+    resultSet =
+        new SpannerImpl.GrpcResultSet(stream, new NoOpListener(), QueryMode.NORMAL, true);
+    Type type =
+        Type.struct(
+            Type.StructField.of("b", Type.bool()),
+            Type.StructField.of("i", Type.int64()),
+            Type.StructField.of("f", Type.float64()),
+            Type.StructField.of("s", Type.string()));
+    consumer.onPartialResultSet(
+        PartialResultSet.newBuilder()
+            .setMetadata(makeMetadata(type))
+            .addValues(Value.bool(true).toProto())
+            .addValues(Value.int64(Long.MAX_VALUE).toProto())
+            .addValues(Value.float64(Double.NaN).toProto())
+            .addValues(Value.string("a").toProto())
+            .addValues(Value.bool(null).toProto())
+            .addValues(Value.int64(-1).toProto())
+            .addValues(Value.float64(null).toProto())
+            .addValues(Value.string(null).toProto())
+            .build());
+    consumer.onCompleted();
+
+    assertThat(resultSet.next()).isTrue();
+    assertThat(resultSet.getBoolean(0)).isTrue();
+    assertThat(resultSet.getLong(1)).isEqualTo(Long.MAX_VALUE);
+    assertThat(Double.isNaN(resultSet.getDouble(2))).isTrue();
+    assertThat(resultSet.getString(3)).isEqualTo("a");
+    Struct firstRow = resultSet.getCurrentRowAsStruct();
+
+    assertThat(resultSet.next()).isTrue();
+    assertThat(resultSet.isNull(0)).isTrue();
+    assertThat(resultSet.getLong("i")).isEqualTo(-1L);
+    assertThat(resultSet.isNull(2)).isTrue();
+    assertThat(resultSet.isNull(3)).isTrue();
+    assertThat(resultSet.next()).isFalse();
+
+    // Copies of a row do not share the reused buffer.
+    assertThat(firstRow.getBoolean(0)).isTrue();
+    assertThat(firstRow.getLong(1)).isEqualTo(Long.MAX_VALUE);
+    assertThat(firstRow.getString(3)).isEqualTo("a");
+    assertThat(reserialize(firstRow)).isEqualTo(firstRow);
+  }
+
   @Test
   public void multiResponseChunkingStreamClosed() {
     consumer.onPartialResultSet(
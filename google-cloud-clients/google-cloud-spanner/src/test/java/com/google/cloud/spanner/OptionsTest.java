@@ -55,11 +55,14 @@ public class OptionsTest {
 
   @Test
   public void allOptionsPresent() {
-    Options options = Options.fromReadOptions(Options.limit(10), Options.prefetchChunks(1));
+    Options options =
+        Options.fromReadOptions(
+            Options.limit(10), Options.prefetchChunks(1), Options.unboxedScalars());
     assertThat(options.hasLimit()).isTrue();
     assertThat(options.limit()).isEqualTo(10);
     assertThat(options.hasPrefetchChunks()).isTrue();
     assertThat(options.prefetchChunks()).isEqualTo(1);
+    assertThat(options.hasUnboxedScalars()).isTrue();
   }
 
   @Test
@@ -67,5 +70,6 @@ public class OptionsTest {
     Options options = Options.fromReadOptions();
     assertThat(options.hasLimit()).isFalse();
     assertThat(options.hasPrefetchChunks()).isFalse();
+    assertThat(options.hasUnboxedScalars()).isFalse();
   }
 }
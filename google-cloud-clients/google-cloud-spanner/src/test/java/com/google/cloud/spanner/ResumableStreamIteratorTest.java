@@ -84,6 +84,16 @@ public class ResumableStreamIteratorTest {
     public void close(@Nullable String message) {
       stream.close();
     }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setReadyListener(Runnable listener) {
+      listener.run();
+    }
   }
 
   @Rule public ExpectedException expectedException = ExpectedException.none();
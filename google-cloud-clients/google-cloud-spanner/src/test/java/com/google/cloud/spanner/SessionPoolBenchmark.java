@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.grpc.GrpcTransportOptions.ExecutorFactory;
+import com.google.cloud.spanner.spi.v1.GrpcSpannerRpc;
+import com.google.cloud.spanner.spi.v1.SpannerRpc;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.protobuf.ByteString;
+import com.google.spanner.v1.BeginTransactionRequest;
+import com.google.spanner.v1.Transaction;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time it takes a new {@link SessionPool} to be ready, that is until {@link
+ * SessionPool#warmUp()} completes, against a fake {@link SpannerRpc} that answers every call after
+ * a fixed latency.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.args="SessionPoolBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionPoolBenchmark {
+  private static final DatabaseId DB =
+      DatabaseId.of("projects/bench-project/instances/bench-instance/databases/bench-database");
+
+  @Param({"100", "400"})
+  int minSessions;
+
+  @Param({"5"})
+  int rpcLatencyMillis;
+
+  private ScheduledExecutorService rpcExecutor;
+  private SpannerImpl spanner;
+  private SessionPoolOptions poolOptions;
+
+  @Setup
+  public void setUp() {
+    rpcExecutor = new ScheduledThreadPoolExecutor(4);
+    SpannerOptions options =
+        SpannerOptions.newBuilder()
+            .setProjectId("bench-project")
+            .setCredentials(NoCredentials.getInstance())
+            .build();
+    spanner = new SpannerImpl(createFakeRpc(), 1, options);
+    poolOptions =
+        SessionPoolOptions.newBuilder()
+            .setMinSessions(minSessions)
+            .setMaxSessions(minSessions)
+            .setWriteSessionsFraction(0.2f)
+            .build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    rpcExecutor.shutdown();
+  }
+
+  @Benchmark
+  public void timeToReady() throws Exception {
+    SessionPool pool =
+        SessionPool.createPool(poolOptions, new BenchmarkExecutorFactory(), DB, spanner);
+    pool.warmUp().get();
+    pool.closeAsync().get();
+  }
+
+  private SpannerRpc createFakeRpc() {
+    final AtomicInteger sessionIds = new AtomicInteger();
+    GrpcSpannerRpc rpc = Mockito.mock(GrpcSpannerRpc.class);
+    Mockito.when(
+            rpc.createSessionAsync(
+                Mockito.anyString(),
+                Mockito.<Map<String, String>>any(),
+                Mockito.<Map<SpannerRpc.Option, ?>>any()))
+        .thenAnswer(
+            new Answer<SettableApiFuture<com.google.spanner.v1.Session>>() {
+              @Override
+              public SettableApiFuture<com.google.spanner.v1.Session> answer(
+                  InvocationOnMock invocation) {
+                final SettableApiFuture<com.google.spanner.v1.Session> future =
+                    SettableApiFuture.create();
+                final String name = DB.getName() + "/sessions/s" + sessionIds.incrementAndGet();
+                rpcExecutor.schedule(
+                    new Runnable() {
+                      @Override
+                      public void run() {
+                        future.set(
+                            com.google.spanner.v1.Session.newBuilder().setName(name).build());
+                      }
+                    },
+                    rpcLatencyMillis,
+                    TimeUnit.MILLISECONDS);
+                return future;
+              }
+            });
+    Mockito.when(
+            rpc.beginTransaction(
+                Mockito.any(BeginTransactionRequest.class),
+                Mockito.<Map<SpannerRpc.Option, ?>>any()))
+        .thenAnswer(
+            new Answer<Transaction>() {
+              @Override
+              public Transaction answer(InvocationOnMock invocation) {
+                Uninterruptibles.sleepUninterruptibly(rpcLatencyMillis, TimeUnit.MILLISECONDS);
+                return Transaction.newBuilder().setId(ByteString.copyFromUtf8("tx")).build();
+              }
+            });
+    return rpc;
+  }
+
+  private static final class BenchmarkExecutorFactory
+      implements ExecutorFactory<ScheduledExecutorService> {
+    @Override
+    public ScheduledExecutorService get() {
+      // The same number of threads as the default executor of the client.
+      return new ScheduledThreadPoolExecutor(8);
+    }
+
+    @Override
+    public void release(ScheduledExecutorService executor) {
+      executor.shutdown();
+    }
+  }
+}
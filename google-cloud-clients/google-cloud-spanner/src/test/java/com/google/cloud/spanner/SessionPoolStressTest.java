@@ -86,6 +86,7 @@ public class SessionPoolStressTest extends BaseSessionPoolTest {
 
   private void setupSpanner(DatabaseId db) {
     mockSpanner = mock(SpannerImpl.class);
+    setupBatchSessionCreation(mockSpanner, db);
     when(mockSpanner.createSession(db))
         .thenAnswer(
             new Answer<Session>() {
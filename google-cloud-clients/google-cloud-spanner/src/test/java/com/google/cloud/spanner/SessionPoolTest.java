@@ -18,6 +18,7 @@ package com.google.cloud.spanner;
 
 import static com.google.cloud.spanner.SpannerMatchers.isSpannerException;
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.doAnswer;
@@ -37,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -86,6 +88,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
             .setMaxSessions(2)
             .setBlockIfPoolExhausted()
             .build();
+    setupBatchSessionCreation(client, db);
   }
 
   private void setupMockSessionCreation() {
@@ -454,6 +457,40 @@ public class SessionPoolTest extends BaseSessionPoolTest {
     session1.close();
   }
 
+  @Test
+  public void getReadSessionAsyncWaitsForReleasedSession() throws Exception {
+    options = SessionPoolOptions.newBuilder().setMinSessions(1).setMaxSessions(1).build();
+    setupMockSessionCreation();
+    pool = createPool();
+    Session session1 = pool.getReadSession();
+    ListenableFuture<Session> session2 = pool.getReadSessionAsync();
+    assertThat(session2.isDone()).isFalse();
+    session1.close();
+    assertThat(session2.get(10, TimeUnit.SECONDS)).isSameAs(session1);
+    session2.get().close();
+  }
+
+  @Test
+  public void getReadSessionAsyncFailsOnPoolExhaustion() throws Exception {
+    options =
+        SessionPoolOptions.newBuilder()
+            .setMinSessions(1)
+            .setMaxSessions(1)
+            .setFailIfPoolExhausted()
+            .build();
+    setupMockSessionCreation();
+    pool = createPool();
+    Session session1 = pool.getReadSession();
+    try {
+      pool.getReadSessionAsync().get();
+      fail("Expected exception");
+    } catch (ExecutionException e) {
+      assertThat(((SpannerException) e.getCause()).getErrorCode())
+          .isEqualTo(ErrorCode.RESOURCE_EXHAUSTED);
+    }
+    session1.close();
+  }
+
   @Test
   public void poolWorksWhenSessionNotFound() {
     Session mockSession1 = mockSession();
@@ -548,6 +585,127 @@ public class SessionPoolTest extends BaseSessionPoolTest {
     pool.closeAsync().get();
   }
 
+  @Test
+  public void warmUpCompletesWhenMinSessionsAreReady() throws Exception {
+    setupMockSessionCreation();
+    options =
+        SessionPoolOptions.newBuilder()
+            .setMinSessions(2)
+            .setMaxSessions(2)
+            .setWriteSessionsFraction(0.5f)
+            .build();
+    pool = createPool();
+    pool.warmUp().get(10, TimeUnit.SECONDS);
+    verify(client, times(2)).createSession(db);
+    // The write prepared session is handed out without being prepared again.
+    PooledSession writeSession = (PooledSession) pool.getReadWriteSession();
+    verify(writeSession.delegate, times(1)).prepareReadWriteTransaction();
+    writeSession.close();
+  }
+
+  @Test
+  public void databaseClientWarmUpWaitsForSessions() throws Exception {
+    setupMockSessionCreation();
+    options = SessionPoolOptions.newBuilder().setMinSessions(2).setMaxSessions(2).build();
+    pool = createPool();
+    AsyncDatabaseClient dbClient = new DatabaseClientImpl(pool);
+    dbClient.warmUp().get(10, TimeUnit.SECONDS);
+    verify(client, times(2)).createSession(db);
+  }
+
+  @Test
+  public void warmUpFailsWhenCreationFails() throws Exception {
+    when(client.createSession(db))
+        .thenThrow(SpannerExceptionFactory.newSpannerException(ErrorCode.INTERNAL, ""));
+    options = SessionPoolOptions.newBuilder().setMinSessions(1).setMaxSessions(2).build();
+    pool = createPool();
+    try {
+      pool.warmUp().get(10, TimeUnit.SECONDS);
+      fail("Expected exception");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(SpannerException.class);
+      assertThat(((SpannerException) e.getCause()).getErrorCode()).isEqualTo(ErrorCode.INTERNAL);
+    }
+  }
+
+  @Test
+  public void warmUpFailsWhenPreparationFails() throws Exception {
+    Session session = mockSession();
+    when(client.createSession(db)).thenReturn(session);
+    final CountDownLatch releasePrepare = new CountDownLatch(1);
+    doAnswer(
+            new Answer<Void>() {
+              @Override
+              public Void answer(InvocationOnMock invocation) throws Throwable {
+                // Fail only once the warm up is waiting for the session.
+                releasePrepare.await();
+                throw SpannerExceptionFactory.newSpannerException(ErrorCode.INTERNAL, "");
+              }
+            })
+        .doNothing()
+        .when(session)
+        .prepareReadWriteTransaction();
+    options =
+        SessionPoolOptions.newBuilder()
+            .setMinSessions(1)
+            .setMaxSessions(1)
+            .setWriteSessionsFraction(1.0f)
+            .build();
+    pool = createPool();
+    ListenableFuture<Void> warmUp = pool.warmUp();
+    releasePrepare.countDown();
+    try {
+      warmUp.get(10, TimeUnit.SECONDS);
+      fail("Expected exception");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(SpannerException.class);
+      assertThat(((SpannerException) e.getCause()).getErrorCode()).isEqualTo(ErrorCode.INTERNAL);
+    }
+  }
+
+  @Test
+  public void warmUpRecreatesFailedSessions() throws Exception {
+    Session session = mockSession();
+    when(client.createSession(db))
+        .thenThrow(SpannerExceptionFactory.newSpannerException(ErrorCode.INTERNAL, ""))
+        .thenReturn(session);
+    options = SessionPoolOptions.newBuilder().setMinSessions(1).setMaxSessions(2).build();
+    pool = createPool();
+    try {
+      pool.warmUp().get(10, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      // The first warm up fails if it was started before the initial creation failed.
+      pool.warmUp().get(10, TimeUnit.SECONDS);
+    }
+    verify(client, times(2)).createSession(db);
+  }
+
+  @Test
+  public void poolClosureFailsPendingWarmUp() throws Exception {
+    final CountDownLatch creationLatch = new CountDownLatch(1);
+    when(client.createSession(db))
+        .thenAnswer(
+            new Answer<Session>() {
+              @Override
+              public Session answer(InvocationOnMock invocation) throws Throwable {
+                creationLatch.await();
+                return mockSession();
+              }
+            });
+    options = SessionPoolOptions.newBuilder().setMinSessions(1).setMaxSessions(2).build();
+    pool = createPool();
+    ListenableFuture<Void> warmUp = pool.warmUp();
+    ListenableFuture<Void> closure = pool.closeAsync();
+    try {
+      warmUp.get(10, TimeUnit.SECONDS);
+      fail("Expected exception");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(SpannerException.class);
+    }
+    creationLatch.countDown();
+    closure.get();
+  }
+
   private void mockKeepAlive(Session session) {
     ReadContext context = mock(ReadContext.class);
     ResultSet resultSet = mock(ResultSet.class);
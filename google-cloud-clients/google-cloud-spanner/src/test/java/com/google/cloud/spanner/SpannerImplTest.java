@@ -18,10 +18,18 @@ package com.google.cloud.spanner;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.api.core.ApiFutures;
+import com.google.cloud.spanner.SpannerImpl.SessionConsumer;
+import com.google.cloud.spanner.spi.v1.GrpcSpannerRpc;
 import com.google.cloud.spanner.spi.v1.SpannerRpc;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -36,6 +44,7 @@ import org.mockito.MockitoAnnotations;
 @RunWith(JUnit4.class)
 public class SpannerImplTest {
   @Mock private SpannerRpc rpc;
+  @Mock private GrpcSpannerRpc grpcRpc;
   @Mock private SpannerOptions spannerOptions;
   private SpannerImpl impl;
 
@@ -70,4 +79,103 @@ public class SpannerImplTest {
     // The same channelHint is passed for deleteSession (contained in "options").
     Mockito.verify(rpc).deleteSession(sessionName, options.getValue());
   }
+
+  @Test
+  public void batchCreateSessionsSpreadsSessionsOverChannels() {
+    Mockito.when(spannerOptions.getNumChannels()).thenReturn(4);
+    String dbName = "projects/p1/instances/i1/databases/d1";
+    DatabaseId db = DatabaseId.of(dbName);
+    com.google.spanner.v1.Session sessionProto =
+        com.google.spanner.v1.Session.newBuilder().setName(dbName + "/sessions/s1").build();
+    Mockito.when(
+            grpcRpc.createSessionAsync(
+                Mockito.eq(dbName), Mockito.<Map<String, String>>any(), options.capture()))
+        .thenReturn(ApiFutures.immediateFuture(sessionProto));
+    RecordingSessionConsumer consumer = new RecordingSessionConsumer();
+
+    new SpannerImpl(grpcRpc, 1, spannerOptions)
+        .asyncBatchCreateSessions(db, 10, Mockito.mock(ScheduledExecutorService.class), consumer);
+
+    assertThat(consumer.sessions).hasSize(10);
+    assertThat(consumer.failures).isEmpty();
+    Map<Object, Integer> sessionsPerChannel = new HashMap<>();
+    for (Map<SpannerRpc.Option, Object> sessionOptions : options.getAllValues()) {
+      Object hint = sessionOptions.get(SpannerRpc.Option.CHANNEL_HINT);
+      Integer count = sessionsPerChannel.get(hint);
+      sessionsPerChannel.put(hint, count == null ? 1 : count + 1);
+    }
+    assertThat(sessionsPerChannel).hasSize(4);
+    assertThat(sessionsPerChannel.values()).containsExactly(3, 3, 2, 2);
+  }
+
+  @Test
+  public void batchCreateSessionsReportsFailures() {
+    Mockito.when(spannerOptions.getNumChannels()).thenReturn(4);
+    String dbName = "projects/p1/instances/i1/databases/d1";
+    Mockito.when(
+            grpcRpc.createSessionAsync(
+                Mockito.eq(dbName),
+                Mockito.<Map<String, String>>any(),
+                Mockito.<Map<SpannerRpc.Option, ?>>any()))
+        .thenReturn(
+            ApiFutures.<com.google.spanner.v1.Session>immediateFailedFuture(
+                SpannerExceptionFactory.newSpannerException(ErrorCode.PERMISSION_DENIED, "")));
+    RecordingSessionConsumer consumer = new RecordingSessionConsumer();
+
+    new SpannerImpl(grpcRpc, 1, spannerOptions)
+        .asyncBatchCreateSessions(
+            DatabaseId.of(dbName), 3, Mockito.mock(ScheduledExecutorService.class), consumer);
+
+    assertThat(consumer.sessions).isEmpty();
+    assertThat(consumer.failures).hasSize(3);
+    assertThat(consumer.failures.get(0).getErrorCode()).isEqualTo(ErrorCode.PERMISSION_DENIED);
+  }
+
+  @Test
+  public void batchCreateSessionsFallsBackToBlockingCalls() throws InterruptedException {
+    Mockito.when(spannerOptions.getNumChannels()).thenReturn(2);
+    String dbName = "projects/p1/instances/i1/databases/d1";
+    com.google.spanner.v1.Session sessionProto =
+        com.google.spanner.v1.Session.newBuilder().setName(dbName + "/sessions/s1").build();
+    Mockito.when(
+            rpc.createSession(
+                Mockito.eq(dbName),
+                Mockito.<Map<String, String>>any(),
+                Mockito.<Map<SpannerRpc.Option, ?>>any()))
+        .thenReturn(sessionProto);
+    RecordingSessionConsumer consumer = new RecordingSessionConsumer();
+    // A single thread, so that the consumer is only called from one thread at a time.
+    ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+
+    impl.asyncBatchCreateSessions(DatabaseId.of(dbName), 5, executor, consumer);
+    // Sessions are created one after the other on each channel, wait for all of them.
+    for (int i = 0; i < 500 && consumer.sessions.size() < 5; i++) {
+      Thread.sleep(10);
+    }
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    assertThat(consumer.sessions).hasSize(5);
+    assertThat(consumer.failures).isEmpty();
+    Mockito.verify(rpc, Mockito.times(5))
+        .createSession(
+            Mockito.eq(dbName),
+            Mockito.<Map<String, String>>any(),
+            Mockito.<Map<SpannerRpc.Option, ?>>any());
+  }
+
+  private static final class RecordingSessionConsumer implements SessionConsumer {
+    private final List<Session> sessions = new ArrayList<>();
+    private final List<SpannerException> failures = new ArrayList<>();
+
+    @Override
+    public void onSessionReady(Session session) {
+      sessions.add(session);
+    }
+
+    @Override
+    public void onSessionCreateFailure(SpannerException e) {
+      failures.add(e);
+    }
+  }
 }
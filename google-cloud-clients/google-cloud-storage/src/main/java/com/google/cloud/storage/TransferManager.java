@@ -0,0 +1,430 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.storage;
+
+import static com.google.cloud.RetryHelper.runWithRetries;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.api.services.storage.model.StorageObject;
+import com.google.cloud.RetryHelper.RetryHelperException;
+import com.google.cloud.Tuple;
+import com.google.cloud.storage.Storage.BlobSourceOption;
+import com.google.cloud.storage.Storage.BlobTargetOption;
+import com.google.cloud.storage.Storage.ComposeRequest;
+import com.google.cloud.storage.spi.v1.StorageRpc;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transfers large blobs with several concurrent requests.
+ *
+ * <p>A download is split into slices that are fetched with concurrent ranged reads and written to
+ * their position in the destination. An upload is split into parts that are uploaded concurrently
+ * as temporary blobs and then combined with {@link Storage#compose(ComposeRequest)}. Each slice
+ * or part is retried on its own according to the {@link StorageOptions#getRetrySettings() retry
+ * settings} of the service.
+ *
+ * <p>Example of downloading a blob to a file.
+ * <pre> {@code
+ * TransferManager transferManager = TransferManager.newBuilder(storage).build();
+ * try (FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE,
+ *     StandardOpenOption.WRITE)) {
+ *   transferManager.download(BlobId.of("bucket", "blob_name"), file);
+ * }
+ * }</pre>
+ */
+public final class TransferManager {
+
+  // The maximum number of source blobs of a compose request.
+  static final int MAX_COMPOSE_SOURCES = 32;
+  private static final int DEFAULT_PARALLELISM = 8;
+  private static final int DEFAULT_SLICE_SIZE = 32 * 1024 * 1024;
+
+  private final Storage storage;
+  private final StorageOptions serviceOptions;
+  private final StorageRpc storageRpc;
+  private final int parallelism;
+  private final int sliceSize;
+  private final ExecutorService executor;
+
+  /** Builder for {@link TransferManager}. */
+  public static final class Builder {
+    private final Storage storage;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int sliceSize = DEFAULT_SLICE_SIZE;
+    private ExecutorService executor;
+
+    private Builder(Storage storage) {
+      this.storage = checkNotNull(storage);
+    }
+
+    /**
+     * Sets the maximum number of concurrent requests of a transfer. Ignored if an executor is set
+     * with {@link #setExecutorService(ExecutorService)}. Defaults to 8.
+     */
+    public Builder setParallelism(int parallelism) {
+      checkArgument(parallelism > 0, "Parallelism must be positive");
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Sets the size in bytes of the slices of a download and of the parts of an upload. Every
+     * request in flight buffers up to this many bytes. Defaults to 32 MiB.
+     */
+    public Builder setSliceSize(int sliceSize) {
+      checkArgument(sliceSize > 0, "Slice size must be positive");
+      this.sliceSize = sliceSize;
+      return this;
+    }
+
+    /**
+     * Sets the executor that runs the requests of all the transfers. By default each transfer
+     * uses its own pool of {@link #setParallelism(int)} threads. The executor is not shut down by
+     * the transfer manager.
+     */
+    public Builder setExecutorService(ExecutorService executor) {
+      this.executor = checkNotNull(executor);
+      return this;
+    }
+
+    public TransferManager build() {
+      return new TransferManager(this);
+    }
+  }
+
+  private TransferManager(Builder builder) {
+    this.storage = builder.storage;
+    this.serviceOptions = builder.storage.getOptions();
+    this.storageRpc = serviceOptions.getStorageRpcV1();
+    this.parallelism = builder.parallelism;
+    this.sliceSize = builder.sliceSize;
+    this.executor = builder.executor;
+  }
+
+  /** Returns a builder for a transfer manager that uses the given service. */
+  public static Builder newBuilder(Storage storage) {
+    return new Builder(storage);
+  }
+
+  /** Receives the slices of a download, possibly from several threads at once. */
+  private interface SliceWriter {
+    void write(long position, byte[] data) throws IOException;
+  }
+
+  /**
+   * Downloads a blob into a file, writing each slice at its offset in the file. The generation of
+   * the blob is read once, so all the slices come from the same generation even if the blob is
+   * overwritten during the download.
+   *
+   * @return the downloaded blob
+   * @throws StorageException upon failure, or if the blob does not exist
+   */
+  public Blob download(BlobId blob, final FileChannel destination, BlobSourceOption... options) {
+    return download(
+        blob,
+        new SliceWriter() {
+          @Override
+          public void write(long position, byte[] data) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+              position += destination.write(buffer, position);
+            }
+          }
+        },
+        options);
+  }
+
+  /**
+   * Downloads a blob into memory. The blob must be smaller than 2 GiB.
+   *
+   * @return a buffer holding the content of the blob, positioned at its start
+   * @throws StorageException upon failure, or if the blob does not exist
+   */
+  public ByteBuffer download(BlobId blob, BlobSourceOption... options) {
+    StorageObject storageObject = getObject(blob, StorageImpl.optionMap(blob, options));
+    long size = storageObject.getSize().longValue();
+    checkArgument(size <= Integer.MAX_VALUE, "Blob %s is too large to fit in a buffer", blob);
+    final ByteBuffer destination = ByteBuffer.allocate((int) size);
+    downloadSlices(
+        storageObject,
+        new SliceWriter() {
+          @Override
+          public void write(long position, byte[] data) {
+            // Slices are disjoint, so each writer only needs its own view of the buffer.
+            ByteBuffer slice = destination.duplicate();
+            slice.position((int) position);
+            slice.put(data);
+          }
+        },
+        options);
+    return destination;
+  }
+
+  private Blob download(BlobId blob, SliceWriter writer, BlobSourceOption... options) {
+    StorageObject storageObject = getObject(blob, StorageImpl.optionMap(blob, options));
+    downloadSlices(storageObject, writer, options);
+    return Blob.fromPb(storage, storageObject);
+  }
+
+  private StorageObject getObject(BlobId blob, final Map<StorageRpc.Option, ?> optionsMap) {
+    final StorageObject storageObject = blob.toPb();
+    StorageObject answer;
+    try {
+      answer = runWithRetries(new Callable<StorageObject>() {
+        @Override
+        public StorageObject call() {
+          return storageRpc.get(storageObject, optionsMap);
+        }
+      }, serviceOptions.getRetrySettings(), StorageImpl.EXCEPTION_HANDLER,
+          serviceOptions.getClock());
+    } catch (RetryHelperException e) {
+      throw StorageException.translateAndThrow(e);
+    }
+    if (answer == null) {
+      throw new StorageException(404, "Blob " + blob + " not found");
+    }
+    return answer;
+  }
+
+  private void downloadSlices(
+      StorageObject storageObject, final SliceWriter writer, BlobSourceOption... options) {
+    // Pin the generation so that every slice reads the same content.
+    BlobId generationId = BlobId.of(
+        storageObject.getBucket(), storageObject.getName(), storageObject.getGeneration());
+    final StorageObject source = generationId.toPb();
+    final Map<StorageRpc.Option, ?> optionsMap = StorageImpl.optionMap(generationId, options);
+    long size = storageObject.getSize().longValue();
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (long start = 0; start < size; start += sliceSize) {
+      final long sliceStart = start;
+      final long sliceEnd = Math.min(size, start + sliceSize);
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          long position = sliceStart;
+          while (position < sliceEnd) {
+            byte[] data = readWithRetries(source, optionsMap, position, (int) (sliceEnd - position));
+            if (data.length == 0) {
+              throw new StorageException(0, "Blob " + source.getName()
+                  + " ended at " + position + " while reading up to " + sliceEnd);
+            }
+            writer.write(position, data);
+            position += data.length;
+          }
+          return null;
+        }
+      });
+    }
+    runAll(tasks);
+  }
+
+  private byte[] readWithRetries(final StorageObject source,
+      final Map<StorageRpc.Option, ?> optionsMap, final long position, final int bytes) {
+    try {
+      Tuple<String, byte[]> result = runWithRetries(new Callable<Tuple<String, byte[]>>() {
+        @Override
+        public Tuple<String, byte[]> call() {
+          return storageRpc.read(source, optionsMap, position, bytes);
+        }
+      }, serviceOptions.getRetrySettings(), StorageImpl.EXCEPTION_HANDLER,
+          serviceOptions.getClock());
+      return result.y();
+    } catch (RetryHelperException e) {
+      throw StorageException.translateAndThrow(e);
+    }
+  }
+
+  /**
+   * Uploads the content of a file to a blob. The file is uploaded as parts of the configured slice
+   * size, which are combined into the target blob and then deleted. The options apply to the
+   * target blob; the temporary parts are created in the same bucket without options, so customer
+   * supplied encryption keys are not supported.
+   *
+   * @return the uploaded blob
+   * @throws StorageException upon failure
+   */
+  public Blob upload(BlobInfo target, final FileChannel source, BlobTargetOption... options)
+      throws IOException {
+    long size = source.size();
+    if (size <= sliceSize) {
+      return storage.create(target, readPart(source, 0, (int) size), options);
+    }
+    String prefix = target.getName() + ".part-" + UUID.randomUUID() + "-";
+    List<BlobId> temporaryBlobs = new ArrayList<>();
+    try {
+      List<Callable<Void>> tasks = new ArrayList<>();
+      for (long start = 0; start < size; start += sliceSize) {
+        final long partStart = start;
+        final int partSize = (int) Math.min(sliceSize, size - start);
+        final BlobInfo part =
+            BlobInfo.newBuilder(target.getBucket(), prefix + temporaryBlobs.size()).build();
+        temporaryBlobs.add(part.getBlobId());
+        tasks.add(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            // Creating a blob from a byte array is retried by the service.
+            storage.create(part, readPart(source, partStart, partSize),
+                BlobTargetOption.doesNotExist());
+            return null;
+          }
+        });
+      }
+      runAll(tasks);
+      return composeAll(target, prefix, temporaryBlobs, temporaryBlobs, options);
+    } finally {
+      deleteQuietly(temporaryBlobs);
+    }
+  }
+
+  private static byte[] readPart(FileChannel source, long position, int size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    while (buffer.hasRemaining()) {
+      int read = source.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new IOException("File ended at " + (position + buffer.position()));
+      }
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Composes the sources into the target. As a compose request takes at most {@link
+   * #MAX_COMPOSE_SOURCES} sources, larger uploads are composed in rounds of intermediate blobs,
+   * which are added to {@code temporaryBlobs}.
+   */
+  private Blob composeAll(BlobInfo target, String prefix, List<BlobId> sources,
+      final List<BlobId> temporaryBlobs, BlobTargetOption... options) {
+    if (sources.size() <= MAX_COMPOSE_SOURCES) {
+      return storage.compose(composeRequest(sources, target, ImmutableList.copyOf(options)));
+    }
+    List<Callable<Void>> tasks = new ArrayList<>();
+    List<BlobId> nextSources = new ArrayList<>();
+    // Copy the sources, as they may be the temporary blobs that this round adds to.
+    for (final List<BlobId> group :
+        Lists.partition(ImmutableList.copyOf(sources), MAX_COMPOSE_SOURCES)) {
+      final BlobInfo intermediate =
+          BlobInfo.newBuilder(target.getBucket(), prefix + temporaryBlobs.size()).build();
+      temporaryBlobs.add(intermediate.getBlobId());
+      nextSources.add(intermediate.getBlobId());
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          storage.compose(composeRequest(group, intermediate,
+              ImmutableList.of(BlobTargetOption.doesNotExist())));
+          return null;
+        }
+      });
+    }
+    runAll(tasks);
+    return composeAll(target, prefix, nextSources, temporaryBlobs, options);
+  }
+
+  private static ComposeRequest composeRequest(
+      List<BlobId> sources, BlobInfo target, List<BlobTargetOption> options) {
+    ComposeRequest.Builder builder = ComposeRequest.newBuilder().setTarget(target)
+        .setTargetOptions(options);
+    for (BlobId source : sources) {
+      builder.addSource(source.getName());
+    }
+    return builder.build();
+  }
+
+  private void deleteQuietly(List<BlobId> blobs) {
+    for (BlobId blob : blobs) {
+      try {
+        storage.delete(blob);
+      } catch (StorageException e) {
+        // Best effort: the upload itself succeeded or already failed with a better error.
+      }
+    }
+  }
+
+  /**
+   * Runs the tasks, at most {@code parallelism} at a time unless a shared executor is used, and
+   * waits for all of them. The first failure skips the tasks that haven't started yet and is
+   * rethrown once the running ones finish, so that the caller can clean up everything they created.
+   */
+  private void runAll(List<Callable<Void>> tasks) {
+    ExecutorService transferExecutor =
+        executor != null ? executor : Executors.newFixedThreadPool(parallelism);
+    final AtomicBoolean failed = new AtomicBoolean();
+    List<Future<Void>> futures = new ArrayList<>(tasks.size());
+    try {
+      for (final Callable<Void> task : tasks) {
+        futures.add(transferExecutor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            if (failed.get()) {
+              return null;
+            }
+            try {
+              return task.call();
+            } catch (Exception e) {
+              failed.set(true);
+              throw e;
+            }
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StorageException(0, "Transfer was interrupted", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof StorageException) {
+        throw (StorageException) cause;
+      }
+      if (cause instanceof IOException) {
+        throw new StorageException((IOException) cause);
+      }
+      throw new StorageException(0, cause.getMessage(), cause);
+    } finally {
+      failed.set(true);
+      // Cancelling wouldn't stop a request in flight, wait for the running tasks instead.
+      for (Future<Void> future : futures) {
+        try {
+          Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException | CancellationException e) {
+          // Only the first failure is reported.
+        }
+      }
+      if (executor == null) {
+        transferExecutor.shutdown();
+      }
+    }
+  }
+}
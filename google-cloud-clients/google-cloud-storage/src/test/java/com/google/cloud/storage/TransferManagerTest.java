@@ -0,0 +1,334 @@
+/*
+ * Copyright 2018 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.api.services.storage.model.StorageObject;
+import com.google.cloud.ServiceOptions;
+import com.google.cloud.Tuple;
+import com.google.cloud.storage.spi.StorageRpcFactory;
+import com.google.cloud.storage.spi.v1.StorageRpc;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+public class TransferManagerTest {
+
+  private static final String BUCKET_NAME = "b";
+  private static final String BLOB_NAME = "n";
+  private static final long GENERATION = 42L;
+  private static final Random RANDOM = new Random();
+
+  // The content of the fake bucket, by blob name.
+  private final ConcurrentMap<String, byte[]> blobs = new ConcurrentHashMap<>();
+  private final AtomicInteger readFailures = new AtomicInteger();
+  private final AtomicInteger reads = new AtomicInteger();
+  private final AtomicInteger composes = new AtomicInteger();
+  // When set, uploading the part with this suffix fails, and the other parts finish after it.
+  private volatile String failingPartSuffix;
+  private final CountDownLatch partFailed = new CountDownLatch(1);
+
+  private StorageRpcFactory rpcFactoryMock;
+  private StorageRpc storageRpcMock;
+  private Storage storage;
+  private Path tempFile;
+
+  @Before
+  public void setUp() throws IOException {
+    rpcFactoryMock = EasyMock.createMock(StorageRpcFactory.class);
+    storageRpcMock = EasyMock.createMock(StorageRpc.class);
+    EasyMock.expect(rpcFactoryMock.create(EasyMock.anyObject(StorageOptions.class)))
+        .andReturn(storageRpcMock);
+    EasyMock.replay(rpcFactoryMock);
+    storage =
+        StorageOptions.newBuilder()
+            .setProjectId("projectId")
+            .setServiceRpcFactory(rpcFactoryMock)
+            .setRetrySettings(
+                ServiceOptions.getDefaultRetrySettings()
+                    .toBuilder()
+                    .setInitialRetryDelay(Duration.ofMillis(1))
+                    .setMaxRetryDelay(Duration.ofMillis(1))
+                    .build())
+            .build()
+            .getService();
+    tempFile = Files.createTempFile("transfer", ".bin");
+    setUpFakeRpc();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(tempFile);
+  }
+
+  /** Backs the mocked rpc with the in-memory {@code blobs}. */
+  private void setUpFakeRpc() {
+    EasyMock.expect(
+            storageRpcMock.get(
+                EasyMock.anyObject(StorageObject.class),
+                EasyMock.<Map<StorageRpc.Option, ?>>anyObject()))
+        .andAnswer(
+            new IAnswer<StorageObject>() {
+              @Override
+              public StorageObject answer() {
+                StorageObject object = (StorageObject) EasyMock.getCurrentArguments()[0];
+                byte[] content = blobs.get(object.getName());
+                return content == null ? null : toPb(object.getName(), content);
+              }
+            })
+        .anyTimes();
+    EasyMock.expect(
+            storageRpcMock.read(
+                EasyMock.anyObject(StorageObject.class),
+                EasyMock.<Map<StorageRpc.Option, ?>>anyObject(),
+                EasyMock.anyLong(),
+                EasyMock.anyInt()))
+        .andAnswer(
+            new IAnswer<Tuple<String, byte[]>>() {
+              @Override
+              public Tuple<String, byte[]> answer() {
+                Object[] args = EasyMock.getCurrentArguments();
+                StorageObject object = (StorageObject) args[0];
+                assertEquals(GENERATION, object.getGeneration().longValue());
+                if (readFailures.getAndDecrement() > 0) {
+                  throw new StorageException(503, "Service unavailable");
+                }
+                reads.incrementAndGet();
+                byte[] content = blobs.get(object.getName());
+                int position = (int) (long) (Long) args[2];
+                int end = Math.min(content.length, position + (Integer) args[3]);
+                return Tuple.of("etag", Arrays.copyOfRange(content, position, end));
+              }
+            })
+        .anyTimes();
+    EasyMock.expect(
+            storageRpcMock.create(
+                EasyMock.anyObject(StorageObject.class),
+                EasyMock.anyObject(InputStream.class),
+                EasyMock.<Map<StorageRpc.Option, ?>>anyObject()))
+        .andAnswer(
+            new IAnswer<StorageObject>() {
+              @Override
+              public StorageObject answer() throws IOException, InterruptedException {
+                Object[] args = EasyMock.getCurrentArguments();
+                StorageObject object = (StorageObject) args[0];
+                if (failingPartSuffix != null && object.getName().contains(".part-")) {
+                  if (object.getName().endsWith(failingPartSuffix)) {
+                    partFailed.countDown();
+                    throw new StorageException(400, "Bad part");
+                  }
+                  partFailed.await();
+                  Thread.sleep(100);
+                }
+                byte[] content = ByteStreams.toByteArray((InputStream) args[1]);
+                blobs.put(object.getName(), content);
+                return toPb(object.getName(), content);
+              }
+            })
+        .anyTimes();
+    EasyMock.expect(
+            storageRpcMock.compose(
+                EasyMock.<Iterable<StorageObject>>anyObject(),
+                EasyMock.anyObject(StorageObject.class),
+                EasyMock.<Map<StorageRpc.Option, ?>>anyObject()))
+        .andAnswer(
+            new IAnswer<StorageObject>() {
+              @SuppressWarnings("unchecked")
+              @Override
+              public StorageObject answer() throws IOException {
+                Object[] args = EasyMock.getCurrentArguments();
+                Iterable<StorageObject> sources = (Iterable<StorageObject>) args[0];
+                StorageObject target = (StorageObject) args[1];
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                int count = 0;
+                for (StorageObject source : sources) {
+                  content.write(blobs.get(source.getName()));
+                  count++;
+                }
+                assertTrue(count <= TransferManager.MAX_COMPOSE_SOURCES);
+                composes.incrementAndGet();
+                blobs.put(target.getName(), content.toByteArray());
+                return toPb(target.getName(), content.toByteArray());
+              }
+            })
+        .anyTimes();
+    EasyMock.expect(
+            storageRpcMock.delete(
+                EasyMock.anyObject(StorageObject.class),
+                EasyMock.<Map<StorageRpc.Option, ?>>anyObject()))
+        .andAnswer(
+            new IAnswer<Boolean>() {
+              @Override
+              public Boolean answer() {
+                StorageObject object = (StorageObject) EasyMock.getCurrentArguments()[0];
+                return blobs.remove(object.getName()) != null;
+              }
+            })
+        .anyTimes();
+    EasyMock.replay(storageRpcMock);
+  }
+
+  private static StorageObject toPb(String name, byte[] content) {
+    return new StorageObject()
+        .setBucket(BUCKET_NAME)
+        .setName(name)
+        .setGeneration(GENERATION)
+        .setSize(BigInteger.valueOf(content.length));
+  }
+
+  private static byte[] randomBytes(int size) {
+    byte[] bytes = new byte[size];
+    RANDOM.nextBytes(bytes);
+    return bytes;
+  }
+
+  @Test
+  public void testDownloadToByteBuffer() {
+    byte[] content = randomBytes(10);
+    blobs.put(BLOB_NAME, content);
+    TransferManager transferManager =
+        TransferManager.newBuilder(storage).setSliceSize(4).setParallelism(2).build();
+    ByteBuffer buffer = transferManager.download(BlobId.of(BUCKET_NAME, BLOB_NAME));
+    assertArrayEquals(content, buffer.array());
+    assertEquals(0, buffer.position());
+    assertEquals(3, reads.get());
+  }
+
+  @Test
+  public void testDownloadToFileChannel() throws IOException {
+    byte[] content = randomBytes(1000);
+    blobs.put(BLOB_NAME, content);
+    TransferManager transferManager =
+        TransferManager.newBuilder(storage).setSliceSize(64).build();
+    try (FileChannel file = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+      Blob blob = transferManager.download(BlobId.of(BUCKET_NAME, BLOB_NAME), file);
+      assertEquals(1000L, blob.getSize().longValue());
+    }
+    assertArrayEquals(content, Files.readAllBytes(tempFile));
+    assertEquals(16, reads.get());
+  }
+
+  @Test
+  public void testDownloadRetriesFailedSlices() {
+    byte[] content = randomBytes(100);
+    blobs.put(BLOB_NAME, content);
+    readFailures.set(3);
+    TransferManager transferManager =
+        TransferManager.newBuilder(storage).setSliceSize(10).build();
+    ByteBuffer buffer = transferManager.download(BlobId.of(BUCKET_NAME, BLOB_NAME));
+    assertArrayEquals(content, buffer.array());
+    assertEquals(10, reads.get());
+  }
+
+  @Test
+  public void testDownloadMissingBlob() {
+    TransferManager transferManager = TransferManager.newBuilder(storage).build();
+    try {
+      transferManager.download(BlobId.of(BUCKET_NAME, BLOB_NAME));
+      fail("Expected StorageException");
+    } catch (StorageException e) {
+      assertEquals(404, e.getCode());
+    }
+  }
+
+  @Test
+  public void testUploadSmallFileInOneRequest() throws IOException {
+    byte[] content = randomBytes(10);
+    Files.write(tempFile, content);
+    TransferManager transferManager =
+        TransferManager.newBuilder(storage).setSliceSize(10).build();
+    try (FileChannel file = FileChannel.open(tempFile, StandardOpenOption.READ)) {
+      transferManager.upload(BlobInfo.newBuilder(BUCKET_NAME, BLOB_NAME).build(), file);
+    }
+    assertEquals(Collections.singleton(BLOB_NAME), blobs.keySet());
+    assertArrayEquals(content, blobs.get(BLOB_NAME));
+    assertEquals(0, composes.get());
+  }
+
+  @Test
+  public void testUploadComposesParts() throws IOException {
+    byte[] content = randomBytes(10);
+    Files.write(tempFile, content);
+    TransferManager transferManager =
+        TransferManager.newBuilder(storage).setSliceSize(4).build();
+    try (FileChannel file = FileChannel.open(tempFile, StandardOpenOption.READ)) {
+      transferManager.upload(BlobInfo.newBuilder(BUCKET_NAME, BLOB_NAME).build(), file);
+    }
+    // The temporary parts are deleted.
+    assertEquals(Collections.singleton(BLOB_NAME), blobs.keySet());
+    assertArrayEquals(content, blobs.get(BLOB_NAME));
+    assertEquals(1, composes.get());
+  }
+
+  @Test
+  public void testUploadComposesManyPartsInRounds() throws IOException {
+    byte[] content = randomBytes(40);
+    Files.write(tempFile, content);
+    TransferManager transferManager =
+        TransferManager.newBuilder(storage).setSliceSize(1).setParallelism(4).build();
+    try (FileChannel file = FileChannel.open(tempFile, StandardOpenOption.READ)) {
+      transferManager.upload(BlobInfo.newBuilder(BUCKET_NAME, BLOB_NAME).build(), file);
+    }
+    assertEquals(Collections.singleton(BLOB_NAME), blobs.keySet());
+    assertArrayEquals(content, blobs.get(BLOB_NAME));
+    // Two intermediate blobs of 32 and 8 parts, then the target.
+    assertEquals(3, composes.get());
+  }
+
+  @Test
+  public void testUploadFailureDeletesPartsFinishedAfterIt() throws IOException {
+    byte[] content = randomBytes(8);
+    Files.write(tempFile, content);
+    failingPartSuffix = "-0";
+    TransferManager transferManager =
+        TransferManager.newBuilder(storage).setSliceSize(4).setParallelism(2).build();
+    try (FileChannel file = FileChannel.open(tempFile, StandardOpenOption.READ)) {
+      transferManager.upload(BlobInfo.newBuilder(BUCKET_NAME, BLOB_NAME).build(), file);
+      fail("Expected StorageException");
+    } catch (StorageException e) {
+      assertEquals(400, e.getCode());
+    }
+    // The second part was still uploading when the first one failed, it is deleted too.
+    assertEquals(Collections.emptySet(), blobs.keySet());
+    assertEquals(0, composes.get());
+  }
+}